@@ -172,9 +172,9 @@ public class AmbulanceDispatch {
     @Column(name = "special_instructions", columnDefinition = "text")
     private String specialInstructions;
 
-    // Ambulance information
+    // Ambulance information; empty while an assistance request only holds one of the hospital's units
     @ManyToOne
-    @JoinColumn(name = "ambulance_id", nullable = false)
+    @JoinColumn(name = "ambulance_id")
     private Ambulances ambulance;
 
     // Timings
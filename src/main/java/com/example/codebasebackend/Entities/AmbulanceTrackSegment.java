@@ -0,0 +1,52 @@
+package com.example.codebasebackend.Entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A stretch of an ambulance's tracking history compacted into a simplified, encoded polyline (see
+ * {@code TrackPolyline}) once its raw {@link AmbulanceTracking} rows are past retention. Only position and
+ * time are kept for each remaining point.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@jakarta.persistence.Entity
+@Table(
+    name = "ambulance_track_segments",
+    indexes = {
+        @Index(name = "idx_track_segment_ambulance_time", columnList = "ambulance_id, start_time"),
+        @Index(name = "idx_track_segment_dispatch", columnList = "dispatch_id")
+    }
+)
+public class AmbulanceTrackSegment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Plain ids rather than associations: compacted history is kept after its dispatch is deleted
+    @Column(name = "ambulance_id", nullable = false)
+    private Long ambulanceId;
+
+    @Column(name = "dispatch_id")
+    private Long dispatchId;
+
+    @Column(name = "start_time", nullable = false)
+    private OffsetDateTime startTime;
+
+    @Column(name = "end_time", nullable = false)
+    private OffsetDateTime endTime;
+
+    @Column(name = "point_count", nullable = false)
+    private Integer pointCount;
+
+    @Column(name = "raw_point_count", nullable = false)
+    private Integer rawPointCount;
+
+    @Column(name = "encoded_points", nullable = false, columnDefinition = "TEXT")
+    private String encodedPoints;
+}
@@ -15,10 +15,12 @@ import java.time.OffsetDateTime;
 @jakarta.persistence.Entity
 @Table(name = "audit_logs",
         indexes = {
-                @Index(name = "idx_audit_event_type", columnList = "eventType"),
                 @Index(name = "idx_audit_entity_type", columnList = "entityType"),
-                @Index(name = "idx_audit_user_id", columnList = "user_id"),
-                @Index(name = "idx_audit_event_time", columnList = "eventTime")
+                // Keyset search: newest first, optionally narrowed by user, event type or status
+                @Index(name = "idx_audit_event_time_id", columnList = "eventTime, id"),
+                @Index(name = "idx_audit_user_time_id", columnList = "user_id, eventTime, id"),
+                @Index(name = "idx_audit_type_time_id", columnList = "eventType, eventTime, id"),
+                @Index(name = "idx_audit_status_time_id", columnList = "status, eventTime, id")
         }
 )
 public class AuditLog {
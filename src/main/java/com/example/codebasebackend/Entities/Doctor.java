@@ -3,6 +3,7 @@ package com.example.codebasebackend.Entities;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -79,11 +80,13 @@ public class Doctor {
     private Integer experience; // years of experience
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @BatchSize(size = 100)
     @CollectionTable(name = "doctor_qualifications", joinColumns = @JoinColumn(name = "doctor_id"))
     @Column(name = "qualification", length = 200)
     private List<String> qualifications = new ArrayList<>();
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @BatchSize(size = 100)
     @CollectionTable(name = "doctor_languages", joinColumns = @JoinColumn(name = "doctor_id"))
     @Column(name = "language", length = 50)
     private List<String> languages = new ArrayList<>();
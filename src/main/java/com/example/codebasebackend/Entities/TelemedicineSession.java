@@ -3,6 +3,7 @@ package com.example.codebasebackend.Entities;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -20,20 +21,35 @@ import java.util.List;
                 @Index(name = "idx_session_doctor", columnList = "doctor_id"),
                 @Index(name = "idx_session_hospital", columnList = "hospital_id"),
                 @Index(name = "idx_session_start_time", columnList = "startTime"),
+                @Index(name = "idx_session_start_time_id", columnList = "startTime, id"),
                 @Index(name = "idx_session_platform", columnList = "platform"),
                 @Index(name = "idx_session_priority", columnList = "priority"),
-                @Index(name = "idx_session_created_at", columnList = "createdAt")
+                @Index(name = "idx_session_created_at", columnList = "createdAt"),
+                @Index(name = "idx_session_reminder_due", columnList = "status, reminderSent, startTime")
         },
         uniqueConstraints = {
                 @UniqueConstraint(name = "uk_session_id", columnNames = {"sessionId"})
         }
 )
+// Everything mapToResponse touches, so a page of sessions is read with joins instead of per-row lazy loads
+@NamedEntityGraph(name = TelemedicineSession.LIST_VIEW_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode(value = "doctor", subgraph = "doctor"),
+                @NamedAttributeNode("patient"),
+                @NamedAttributeNode("hospital"),
+                @NamedAttributeNode("createdBy"),
+                @NamedAttributeNode("cancelledBy")
+        },
+        subgraphs = @NamedSubgraph(name = "doctor", attributeNodes = @NamedAttributeNode("specialty"))
+)
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class TelemedicineSession {
 
+    public static final String LIST_VIEW_GRAPH = "TelemedicineSession.listView";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -104,6 +120,7 @@ public class TelemedicineSession {
 
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @BatchSize(size = 100)
     @CollectionTable(name = "session_symptoms", joinColumns = @JoinColumn(name = "session_id"))
     @Column(name = "symptom", length = 200)
     private List<String> symptoms = new ArrayList<>();
@@ -180,6 +197,10 @@ public class TelemedicineSession {
     @Column
     private OffsetDateTime reminderSentAt;
 
+    // Set while a reminder dispatcher is delivering; a claim older than the claim timeout is taken over
+    @Column
+    private OffsetDateTime reminderClaimedAt;
+
 
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
@@ -0,0 +1,32 @@
+package com.example.codebasebackend.Entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Access tokens of a user issued before {@code revokedBefore} are rejected (role change, reactivation,
+ * delete). Keyed by lower-cased username rather than user id, so the entry outlives a deleted user.
+ * Rows only matter for one access-token lifetime and are swept after that.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@jakarta.persistence.Entity
+@Table(
+    name = "token_revocations",
+    indexes = {
+        @Index(name = "idx_token_revocation_before", columnList = "revoked_before")
+    }
+)
+public class TokenRevocation {
+    @Id
+    @Column(length = 80)
+    private String username;
+
+    @Column(name = "revoked_before", nullable = false)
+    private OffsetDateTime revokedBefore;
+}
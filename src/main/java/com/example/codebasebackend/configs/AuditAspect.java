@@ -2,134 +2,218 @@ package com.example.codebasebackend.configs;
 
 import com.example.codebasebackend.Entities.AuditLog;
 import com.example.codebasebackend.dto.AuditLogRequest;
-import com.example.codebasebackend.services.AuditService;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import com.example.codebasebackend.services.AuditEventWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.BeanResolver;
+import org.springframework.expression.ConstructorResolver;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.IndexAccessor;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.OperatorOverloader;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypeComparator;
+import org.springframework.expression.TypeConverter;
+import org.springframework.expression.TypeLocator;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
+/**
+ * Records an audit event for every {@link Auditable} method.
+ *
+ * Everything derived from the method itself (its annotation, parameter names, the compiled entity id
+ * expression and the parameters to infer an id from) is worked out on its first call and kept in an
+ * {@link AuditPlan}, so later calls only read their arguments and build the event. Details are written by
+ * {@link AuditDetailsSerializer}, already redacted and capped.
+ *
+ * Audited methods are controllers, which run outside any transaction. When the writer is in
+ * {@code flush-before-commit} mode, a call that changes something is run in a transaction of its own, which
+ * the {@code @Transactional} services it calls join, so its success event commits or rolls back with their
+ * changes. A transaction that fails to commit is audited as a failure.
+ */
 @Aspect
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class AuditAspect {
 
-    private final AuditService auditService;
-    private final ObjectMapper objectMapper;
+    private static final Pattern RESULT_VARIABLE = Pattern.compile("#result\\b");
 
-    private final SpelExpressionParser parser = new SpelExpressionParser();
+    private final AuditEventWriter auditWriter;
+    private final AuditDetailsSerializer detailsSerializer;
+    private final TransactionTemplate transactionTemplate;
+
+    // Compiled to bytecode on first evaluation
+    private final SpelExpressionParser parser = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, AuditAspect.class.getClassLoader()));
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final Map<Method, AuditPlan> plans = new ConcurrentHashMap<>();
+
+    public AuditAspect(AuditEventWriter auditWriter, AuditDetailsSerializer detailsSerializer,
+                       PlatformTransactionManager transactionManager) {
+        this.auditWriter = auditWriter;
+        this.detailsSerializer = detailsSerializer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * What an audited method's calls have in common. An entity id expression that reads {@code #result} is
+     * evaluated after the call; any other is evaluated once, before it.
+     */
+    record AuditPlan(String eventType, String entityType, String[] parameterNames, Expression entityId,
+                     boolean entityIdNeedsResult, int[] idParameters, boolean includeArgs, boolean includeResult) {
+    }
 
     @Around("@annotation(com.example.codebasebackend.configs.Auditable)")
     public Object aroundAuditable(ProceedingJoinPoint pjp) throws Throwable {
-        MethodSignature sig = (MethodSignature) pjp.getSignature();
-        Method method = sig.getMethod();
-        Auditable ann = method.getAnnotation(Auditable.class);
-        String entityType = ann.entityType();
-        String inferredEntityId = inferEntityIdFromArgs(sig, pjp.getArgs());
-        String preEntityId = firstNonBlank(
-                evaluateEntityId(ann.entityIdExpression(), sig, pjp.getArgs(), null),
-                inferredEntityId
-        );
-
-        String preDetails = null;
-        if (ann.includeArgs()) {
-            preDetails = toJsonSafe(Map.of("args", argsMap(sig, pjp.getArgs())));
-        }
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        AuditPlan plan = plans.computeIfAbsent(method, this::plan);
+        Object[] args = pjp.getArgs();
+        String inferredEntityId = inferEntityIdFromArgs(plan, args);
+        String preEntityId = plan.entityIdNeedsResult()
+                ? inferredEntityId
+                : firstNonBlank(evaluateEntityId(plan, args, null), inferredEntityId);
 
         long start = System.currentTimeMillis();
         try {
-            Object result = pjp.proceed();
-            String postDetails = preDetails;
-            if (ann.includeResult()) {
-                Map<String, Object> map = new HashMap<>();
-                if (preDetails != null) {
-                    map.put("pre", preDetails);
-                }
-                map.put("result", result);
-                map.put("durationMs", System.currentTimeMillis() - start);
-                postDetails = toJsonSafe(map);
+            if (bindsToTransaction(plan)) {
+                return inTransaction(() -> proceedAndRecord(pjp, plan, args, preEntityId, start));
             }
-
-            String finalEntityId = firstNonBlank(
-                    evaluateEntityId(ann.entityIdExpression(), sig, pjp.getArgs(), result),
-                    preEntityId,
-                    inferredEntityId
-            );
-
-            AuditLogRequest req = new AuditLogRequest();
-            req.setEventType(ann.eventType().name());
-            req.setEntityType(entityType);
-            req.setEntityId(finalEntityId);
-            req.setStatus(AuditLog.EventStatus.SUCCESS.name());
-            req.setDetails(postDetails);
-            auditService.log(req);
-            return result;
+            return proceedAndRecord(pjp, plan, args, preEntityId, start);
         } catch (Throwable ex) {
             AuditLogRequest req = new AuditLogRequest();
-            req.setEventType(ann.eventType().name());
-            req.setEntityType(entityType);
+            req.setEventType(plan.eventType());
+            req.setEntityType(plan.entityType());
             req.setEntityId(preEntityId);
             req.setStatus(AuditLog.EventStatus.FAILURE.name());
             req.setErrorMessage(ex.getMessage());
-            Map<String, Object> map = new HashMap<>();
-            if (preDetails != null) map.put("pre", preDetails);
-            map.put("exception", ex.getClass().getName());
-            map.put("durationMs", System.currentTimeMillis() - start);
-            req.setDetails(toJsonSafe(map));
-            try { auditService.log(req); } catch (Exception logEx) { log.warn("Failed to write audit log: {}", logEx.getMessage()); }
+            req.setDetails(detailsSerializer.serialize(plan.parameterNames(), plan.includeArgs() ? args : null,
+                    false, null, ex, System.currentTimeMillis() - start));
+            try { auditWriter.enqueue(req, true); } catch (Exception logEx) { log.warn("Failed to write audit log: {}", logEx.getMessage()); }
             throw ex;
         }
     }
 
-    private String evaluateEntityId(String spel, MethodSignature sig, Object[] args, Object result) {
-        if (spel == null || spel.isBlank()) return null;
+    private Object proceedAndRecord(ProceedingJoinPoint pjp, AuditPlan plan, Object[] args, String preEntityId,
+                                    long start) throws Throwable {
+        Object result = pjp.proceed();
+        String finalEntityId = plan.entityIdNeedsResult()
+                ? firstNonBlank(evaluateEntityId(plan, args, result), preEntityId)
+                : preEntityId;
+
+        AuditLogRequest req = new AuditLogRequest();
+        req.setEventType(plan.eventType());
+        req.setEntityType(plan.entityType());
+        req.setEntityId(finalEntityId);
+        req.setStatus(AuditLog.EventStatus.SUCCESS.name());
+        req.setDetails(detailsSerializer.serialize(plan.parameterNames(), plan.includeArgs() ? args : null,
+                plan.includeResult(), result, null, System.currentTimeMillis() - start));
+        auditWriter.enqueue(req, true);
+        return result;
+    }
+
+    // Reads have nothing to roll back, so they are not worth holding a connection for
+    private boolean bindsToTransaction(AuditPlan plan) {
+        return auditWriter.mode() == AuditEventWriter.DurabilityMode.FLUSH_BEFORE_COMMIT
+                && !AuditLog.EventType.READ.name().equals(plan.eventType())
+                && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    private Object inTransaction(AuditedCall call) throws Throwable {
         try {
-            StandardEvaluationContext ctx = new StandardEvaluationContext();
-            String[] paramNames = sig.getParameterNames();
-            if (paramNames != null) {
-                for (int i = 0; i < paramNames.length && i < args.length; i++) ctx.setVariable(paramNames[i], args[i]);
-            }
-            ctx.setVariable("result", result);
-            Expression exp = parser.parseExpression(spel.startsWith("#") ? spel : ("#" + spel));
-            Object val = exp.getValue(ctx);
-            return val != null ? String.valueOf(val) : null;
-        } catch (Exception e) {
-            return null;
+            return transactionTemplate.execute(status -> {
+                try {
+                    return call.proceed();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new CheckedFailure(e);
+                }
+            });
+        } catch (CheckedFailure e) {
+            throw e.getCause();
         }
     }
 
-    private String inferEntityIdFromArgs(MethodSignature sig, Object[] args) {
-        if (sig == null || args == null || args.length == 0) return null;
-        String[] names = sig.getParameterNames();
-        if (names == null || names.length == 0) return null;
+    private interface AuditedCall {
+        Object proceed() throws Throwable;
+    }
+
+    // Carries a checked exception out of the transaction callback, rolling it back on the way
+    private static final class CheckedFailure extends RuntimeException {
+        CheckedFailure(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private AuditPlan plan(Method method) {
+        Auditable ann = method.getAnnotation(Auditable.class);
+        String[] names = parameterNames.getParameterNames(method);
+        if (names == null) names = new String[0];
 
-        // 1) Prefer a direct "id" parameter.
-        for (int i = 0; i < names.length && i < args.length; i++) {
-            if ("id".equalsIgnoreCase(names[i])) {
-                String value = toEntityIdValue(args[i]);
-                if (value != null) return value;
+        Expression entityId = null;
+        boolean needsResult = false;
+        String spel = ann.entityIdExpression();
+        if (spel != null && !spel.isBlank()) {
+            String source = spel.startsWith("#") ? spel : ("#" + spel);
+            try {
+                entityId = parser.parseExpression(source);
+                needsResult = RESULT_VARIABLE.matcher(source).find();
+            } catch (Exception e) {
+                log.warn("Ignoring unparseable audit entity id expression '{}' on {}: {}", spel, method, e.getMessage());
             }
         }
 
-        // 2) Fallback to first non-null "*Id" parameter.
-        for (int i = 0; i < names.length && i < args.length; i++) {
-            if (names[i] != null && names[i].toLowerCase().endsWith("id")) {
-                String value = toEntityIdValue(args[i]);
-                if (value != null) return value;
+        // A direct "id" parameter first, then any "*Id" parameter
+        List<Integer> idParameters = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            if ("id".equalsIgnoreCase(names[i])) idParameters.add(i);
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null && names[i].toLowerCase().endsWith("id") && !"id".equalsIgnoreCase(names[i])) {
+                idParameters.add(i);
             }
         }
+        return new AuditPlan(ann.eventType().name(), ann.entityType(), names, entityId, needsResult,
+                idParameters.stream().mapToInt(Integer::intValue).toArray(), ann.includeArgs(), ann.includeResult());
+    }
+
+    private String evaluateEntityId(AuditPlan plan, Object[] args, Object result) {
+        if (plan.entityId() == null) return null;
+        try {
+            Object val = plan.entityId().getValue(new InvocationContext(plan.parameterNames(), args, result));
+            return val != null ? String.valueOf(val) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private String inferEntityIdFromArgs(AuditPlan plan, Object[] args) {
+        if (args == null) return null;
+        for (int i : plan.idParameters()) {
+            if (i >= args.length) continue;
+            String value = toEntityIdValue(args[i]);
+            if (value != null) return value;
+        }
         return null;
     }
 
@@ -139,25 +223,106 @@ public class AuditAspect {
         return s.isEmpty() ? null : s;
     }
 
-    private String firstNonBlank(String... values) {
-        if (values == null) return null;
-        for (String value : values) {
-            if (value != null && !value.isBlank()) return value;
-        }
+    private String firstNonBlank(String first, String second) {
+        if (first != null && !first.isBlank()) return first;
+        if (second != null && !second.isBlank()) return second;
         return null;
     }
 
-    private Map<String, Object> argsMap(MethodSignature sig, Object[] args) {
-        Map<String, Object> map = new HashMap<>();
-        String[] names = sig.getParameterNames();
-        if (names != null) {
-            for (int i = 0; i < names.length && i < args.length; i++) map.put(names[i], args[i]);
+    /**
+     * Read-only context exposing one call's arguments (by parameter name) and {@code #result}. The accessors
+     * and resolvers, and the caches behind them, are shared by every call.
+     */
+    private static final class InvocationContext implements EvaluationContext {
+
+        private static final StandardEvaluationContext SHARED = new StandardEvaluationContext();
+
+        static {
+            // Initialise the lazily created defaults before threads share them
+            SHARED.getPropertyAccessors();
+            SHARED.getIndexAccessors();
+            SHARED.getConstructorResolvers();
+            SHARED.getMethodResolvers();
+            SHARED.getTypeLocator();
+        }
+
+        private final String[] names;
+        private final Object[] args;
+        private final Object result;
+
+        InvocationContext(String[] names, Object[] args, Object result) {
+            this.names = names;
+            this.args = args;
+            this.result = result;
+        }
+
+        @Override
+        public Object lookupVariable(String name) {
+            if ("result".equals(name)) return result;
+            for (int i = 0; i < names.length && i < args.length; i++) {
+                if (name.equals(names[i])) return args[i];
+            }
+            return null;
+        }
+
+        @Override
+        public void setVariable(String name, Object value) {
+            throw new UnsupportedOperationException("Audit entity id expressions are read-only");
+        }
+
+        @Override
+        public boolean isAssignmentEnabled() {
+            return false;
+        }
+
+        @Override
+        public TypedValue getRootObject() {
+            return TypedValue.NULL;
         }
-        return map;
-    }
 
-    private String toJsonSafe(Object o) {
-        try { return objectMapper.writeValueAsString(o); }
-        catch (JsonProcessingException e) { return String.valueOf(o); }
+        @Override
+        public List<PropertyAccessor> getPropertyAccessors() {
+            return SHARED.getPropertyAccessors();
+        }
+
+        @Override
+        public List<IndexAccessor> getIndexAccessors() {
+            return SHARED.getIndexAccessors();
+        }
+
+        @Override
+        public List<ConstructorResolver> getConstructorResolvers() {
+            return SHARED.getConstructorResolvers();
+        }
+
+        @Override
+        public List<MethodResolver> getMethodResolvers() {
+            return SHARED.getMethodResolvers();
+        }
+
+        @Override
+        public BeanResolver getBeanResolver() {
+            return null;
+        }
+
+        @Override
+        public TypeLocator getTypeLocator() {
+            return SHARED.getTypeLocator();
+        }
+
+        @Override
+        public TypeConverter getTypeConverter() {
+            return SHARED.getTypeConverter();
+        }
+
+        @Override
+        public TypeComparator getTypeComparator() {
+            return SHARED.getTypeComparator();
+        }
+
+        @Override
+        public OperatorOverloader getOperatorOverloader() {
+            return SHARED.getOperatorOverloader();
+        }
     }
 }
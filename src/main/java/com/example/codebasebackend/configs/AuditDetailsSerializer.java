@@ -0,0 +1,234 @@
+package com.example.codebasebackend.configs;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.filter.FilteringGeneratorDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the details of an audited call as one JSON object, in a single pass.
+ *
+ * Arguments, result and outcome go into the same object, so nothing is serialized twice or nested as an
+ * escaped string. Values of fields and map keys named like secrets (the same names {@code AuditService}
+ * redacts in free text) are replaced with {@value #REDACTED} as they are generated, and generation stops
+ * once the output reaches {@code app.audit.details.max-chars}, so a large result costs no more than the
+ * part of it that is kept. The output is therefore already redacted and capped.
+ */
+@Component
+public class AuditDetailsSerializer {
+
+    static final String REDACTED = "***REDACTED***";
+
+    private static final String[] SECRET_NAMES = {"password", "apikey", "token", "nationalid", "cardnumber"};
+    private static final int MAX_CACHED_NAMES = 10_000;
+
+    private final ObjectMapper objectMapper;
+    private final int maxChars;
+    // Field names are mostly the same few hundred bean properties
+    private final Map<String, Boolean> secretNames = new ConcurrentHashMap<>();
+
+    public AuditDetailsSerializer(ObjectMapper objectMapper,
+                                  @Value("${app.audit.details.max-chars:20000}") int maxChars) {
+        this.objectMapper = objectMapper;
+        this.maxChars = Math.max(1, maxChars);
+    }
+
+    /**
+     * Details for an audited call: its arguments by parameter name (when {@code args} is not null), its
+     * result (when {@code includeResult}), the exception class (when {@code failure} is not null) and, if
+     * anything but the arguments was asked for, the duration. Returns null when there is nothing to record.
+     */
+    public String serialize(String[] names, Object[] args, boolean includeResult, Object result,
+                            Throwable failure, Long durationMs) {
+        if (args == null && !includeResult && failure == null) return null;
+        CappedWriter out = new CappedWriter(maxChars);
+        try (JsonGenerator generator = new RedactingGenerator(objectMapper.getFactory().createGenerator(out))) {
+            generator.writeStartObject();
+            if (args != null) {
+                generator.writeFieldName("args");
+                generator.writeStartObject();
+                for (int i = 0; i < names.length && i < args.length; i++) {
+                    generator.writeFieldName(names[i]);
+                    objectMapper.writeValue(generator, args[i]);
+                }
+                generator.writeEndObject();
+            }
+            if (includeResult && failure == null) {
+                generator.writeFieldName("result");
+                objectMapper.writeValue(generator, result);
+            }
+            if (failure != null) {
+                generator.writeStringField("exception", failure.getClass().getName());
+            }
+            if (durationMs != null && (includeResult || failure != null)) {
+                generator.writeNumberField("durationMs", durationMs);
+            }
+            generator.writeEndObject();
+        } catch (CapReached e) {
+            return out.capped();
+        } catch (IOException | RuntimeException e) {
+            if (out.reachedCap()) return out.capped();
+            // Not serializable as JSON; keep what the old string form would have shown
+            return fallback(names, args, includeResult, result, failure, durationMs);
+        }
+        return out.capped();
+    }
+
+    boolean isSecret(String name) {
+        if (name == null) return false;
+        Boolean cached = secretNames.get(name);
+        if (cached != null) return cached;
+        String lower = name.toLowerCase(Locale.ROOT);
+        // "ssn" only as a suffix, so names like "businessName" stay readable
+        boolean secret = lower.endsWith("ssn");
+        for (String secretName : SECRET_NAMES) {
+            secret |= lower.contains(secretName);
+        }
+        if (secretNames.size() < MAX_CACHED_NAMES) secretNames.put(name, secret);
+        return secret;
+    }
+
+    private String fallback(String[] names, Object[] args, boolean includeResult, Object result,
+                            Throwable failure, Long durationMs) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        if (args != null) {
+            Map<String, Object> byName = new LinkedHashMap<>();
+            for (int i = 0; i < names.length && i < args.length; i++) {
+                byName.put(names[i], isSecret(names[i]) ? REDACTED : args[i]);
+            }
+            details.put("args", byName);
+        }
+        if (includeResult && failure == null) details.put("result", result);
+        if (failure != null) details.put("exception", failure.getClass().getName());
+        if (durationMs != null && (includeResult || failure != null)) details.put("durationMs", durationMs);
+        String text = String.valueOf(details);
+        return text.length() <= maxChars ? text : text.substring(0, maxChars);
+    }
+
+    /**
+     * Replaces the value of every secret-named field with {@link #REDACTED}. The marker is written in place of
+     * the value, then a placeholder field name that the filter excludes takes the real value, which Jackson's
+     * filtering then skips however deeply it nests.
+     */
+    private final class RedactingGenerator extends FilteringGeneratorDelegate {
+
+        private static final String SKIPPED = "\u0000redacted";
+
+        RedactingGenerator(JsonGenerator delegate) {
+            super(delegate, new SkipFilter(), TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true);
+        }
+
+        @Override
+        public void writeFieldName(String name) throws IOException {
+            super.writeFieldName(name);
+            if (isSecret(name)) {
+                super.writeString(REDACTED);
+                super.writeFieldName(SKIPPED);
+            }
+        }
+
+        @Override
+        public void writeFieldName(SerializableString name) throws IOException {
+            if (isSecret(name.getValue())) {
+                writeFieldName(name.getValue());
+            } else {
+                super.writeFieldName(name);
+            }
+        }
+    }
+
+    private static final class SkipFilter extends TokenFilter {
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            return RedactingGenerator.SKIPPED.equals(name) ? null : this;
+        }
+
+        @Override
+        public TokenFilter includeElement(int index) {
+            return this;
+        }
+
+        @Override
+        public TokenFilter includeRootValue(int index) {
+            return this;
+        }
+
+        @Override
+        public boolean includeEmptyObject(boolean contentsFiltered) {
+            return true;
+        }
+
+        @Override
+        public boolean includeEmptyArray(boolean contentsFiltered) {
+            return true;
+        }
+    }
+
+    // Thrown from the writer to abandon generation once the cap is reached
+    private static final class CapReached extends IOException {
+        CapReached() {
+            super("Audit details cap reached", null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final class CappedWriter extends Writer {
+        private final StringBuilder buffer = new StringBuilder(256);
+        private final int maxChars;
+
+        CappedWriter(int maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            int room = maxChars - buffer.length();
+            buffer.append(chars, offset, Math.min(room, length));
+            if (length > room) throw new CapReached();
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            int room = maxChars - buffer.length();
+            buffer.append(text, offset, offset + Math.min(room, length));
+            if (length > room) throw new CapReached();
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (buffer.length() >= maxChars) throw new CapReached();
+            buffer.append((char) c);
+        }
+
+        boolean reachedCap() {
+            return buffer.length() >= maxChars;
+        }
+
+        String capped() {
+            return buffer.toString();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.codebasebackend.configs;
 
-import com.example.codebasebackend.services.AuditService;
+import com.example.codebasebackend.services.AuditRetentionPurger;
+import com.example.codebasebackend.services.TimePartitionManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,13 +9,15 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.OffsetDateTime;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class AuditRetentionJob {
 
-    private final AuditService auditService;
+    private final AuditRetentionPurger retentionPurger;
+    private final TimePartitionManager partitionManager;
 
     @Value("${app.audit.retention-days:365}")
     private int retentionDays;
@@ -23,8 +26,17 @@ public class AuditRetentionJob {
     @Scheduled(cron = "0 0 3 * * *")
     public void purgeOldLogs() {
         OffsetDateTime cutoff = OffsetDateTime.now().minusDays(retentionDays);
-        long deleted = auditService.purgeBefore(cutoff);
-        log.info("Audit retention purge complete: {} records deleted (before {}).", deleted, cutoff);
+        if (partitionManager.isPartitioned(TimePartitionManager.PartitionedTable.AUDIT_LOGS)) {
+            // Whole months only: a month's partition is dropped once all of it is past retention
+            List<String> dropped = partitionManager.dropPartitionsBefore(
+                    TimePartitionManager.PartitionedTable.AUDIT_LOGS, cutoff, false);
+            log.info("Audit retention purge complete: {} partitions dropped (before {}).", dropped.size(), cutoff);
+            return;
+        }
+        // Chunked and throttled on the purger's own thread, which logs the outcome
+        if (!retentionPurger.purgeInBackground(cutoff)) {
+            log.info("Audit retention purge still running; skipped this run.");
+        }
     }
 }
 
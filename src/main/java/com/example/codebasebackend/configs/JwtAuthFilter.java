@@ -1,26 +1,46 @@
 package com.example.codebasebackend.configs;
 
 import com.example.codebasebackend.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
-@RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsServiceImpl userDetailsService;
+    private final JwtTokenCache tokenCache;
+    private final TokenRevocationList revocationList;
+
+    // true: authorities come from the token's role claim, no user lookup at all
+    private final boolean authoritiesFromToken;
+
+    public JwtAuthFilter(JwtUtil jwtUtil,
+                         UserDetailsServiceImpl userDetailsService,
+                         JwtTokenCache tokenCache,
+                         TokenRevocationList revocationList,
+                         @Value("${app.security.jwt.authorities-from-token:false}") boolean authoritiesFromToken) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+        this.tokenCache = tokenCache;
+        this.revocationList = revocationList;
+        this.authoritiesFromToken = authoritiesFromToken;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -37,28 +57,51 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         String token = authHeader.substring(7);
 
-        if (!jwtUtil.isTokenValid(token)) {
-            filterChain.doFilter(request, response);
-            return;
+        // Only set auth if not already authenticated
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = resolveUser(token);
+            if (userDetails != null) {
+                UsernamePasswordAuthenticationToken authToken =
+                        new UsernamePasswordAuthenticationToken(
+                                userDetails,
+                                null,
+                                userDetails.getAuthorities()
+                        );
+
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+            }
         }
 
-        String username = jwtUtil.extractUsername(token);
+        filterChain.doFilter(request, response);
+    }
 
-        // Only set auth if not already authenticated
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            UsernamePasswordAuthenticationToken authToken =
-                    new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-
-            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authToken);
+    // Cache hit: no signature check and no user lookup. Miss: parse once, resolve the user once, remember both.
+    private UserDetails resolveUser(String token) {
+        JwtTokenCache.Entry cached = tokenCache.get(token);
+        if (cached != null) {
+            return revocationList.isRevoked(cached.claims()) ? null : cached.userDetails();
         }
 
-        filterChain.doFilter(request, response);
+        JwtClaims claims;
+        try {
+            claims = jwtUtil.parse(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        if (claims.subject() == null || revocationList.isRevoked(claims)) {
+            return null;
+        }
+
+        UserDetails userDetails;
+        if (authoritiesFromToken && claims.role() != null) {
+            userDetails = new User(claims.subject(), "",
+                    List.of(new SimpleGrantedAuthority("ROLE_" + claims.role())));
+        } else {
+            // Tokens without a role claim (e.g. refresh tokens) still go through the user lookup
+            userDetails = userDetailsService.loadUserByUsername(claims.subject());
+        }
+        tokenCache.put(token, claims, userDetails);
+        return userDetails;
     }
-}
\ No newline at end of file
+}
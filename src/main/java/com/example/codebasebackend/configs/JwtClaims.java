@@ -0,0 +1,14 @@
+package com.example.codebasebackend.configs;
+
+import java.time.Instant;
+
+/**
+ * The parts of a verified token the app actually uses, read once by {@link JwtUtil#parse(String)}.
+ * {@code role} is null for refresh tokens; {@code type} is null for access tokens.
+ */
+public record JwtClaims(String subject, String role, String type, Instant issuedAt, Instant expiresAt) {
+
+    public boolean isRefreshToken() {
+        return "refresh".equals(type);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.codebasebackend.configs;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of already-verified access tokens.
+ * Keyed by a SHA-256 digest of the raw token (the token itself is never kept as a key),
+ * each entry lives until the token's exp or the configured max TTL, whichever comes first.
+ */
+@Component
+@Slf4j
+public class JwtTokenCache {
+
+    public record Entry(JwtClaims claims, UserDetails userDetails, long expiresAtMillis) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final int maxSize;
+    private final long maxTtlMillis;
+
+    public JwtTokenCache(@Value("${app.security.token-cache.max-size:10000}") int maxSize,
+                         @Value("${app.security.token-cache.max-ttl-seconds:300}") long maxTtlSeconds,
+                         MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.maxTtlMillis = maxTtlSeconds * 1000L;
+
+        FunctionCounter.builder("auth.token.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("auth.token.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("auth.token.cache.evictions", evictions, LongAdder::sum)
+                .register(meterRegistry);
+        Gauge.builder("auth.token.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    /** Returns the cached entry for this token, or null on a miss / expired entry. */
+    public Entry get(String token) {
+        String key = digest(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, entry);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    public void put(String token, JwtClaims claims, UserDetails userDetails) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + maxTtlMillis;
+        if (claims.expiresAt() != null) {
+            expiresAt = Math.min(expiresAt, claims.expiresAt().toEpochMilli());
+        }
+        if (expiresAt <= now || maxSize <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            makeRoom();
+        }
+        entries.put(digest(token), new Entry(claims, userDetails, expiresAt));
+    }
+
+    /** Drops every cached token belonging to the user, e.g. after a role or status change. */
+    public void invalidateUser(String username) {
+        if (username == null) return;
+        int before = entries.size();
+        entries.values().removeIf(e -> username.equalsIgnoreCase(e.userDetails().getUsername()));
+        int removed = before - entries.size();
+        if (removed > 0) {
+            evictions.add(removed);
+            log.debug("Invalidated {} cached token(s) for user {}", removed, username);
+        }
+    }
+
+    public void invalidateAll() {
+        evictions.add(entries.size());
+        entries.clear();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Sweep expired entries every minute so idle tokens do not sit in memory until the cap is hit
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        int before = entries.size();
+        entries.values().removeIf(e -> e.isExpired(now));
+        evictions.add(Math.max(0, before - entries.size()));
+    }
+
+    private void makeRoom() {
+        evictExpired();
+        // Still full: drop arbitrary entries; they are simply re-verified on the next request
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -33,8 +33,7 @@ public class JwtUtil {
 
     public boolean isRefreshToken(String token) {
         try {
-            Claims claims = getClaims(token);
-            return "refresh".equals(claims.get("type", String.class));
+            return parse(token).isRefreshToken();
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
@@ -71,6 +70,21 @@ public class JwtUtil {
         }
     }
 
+    /**
+     * Verifies the signature and expiry once and returns everything callers need from the token.
+     * Throws {@link JwtException} / {@link IllegalArgumentException} when the token is not usable.
+     */
+    public JwtClaims parse(String token) {
+        Claims claims = getClaims(token);
+        return new JwtClaims(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.get("type", String.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null
+        );
+    }
+
     private Claims getClaims(String token) {
         return Jwts.parser()
                 .verifyWith(getSigningKey())
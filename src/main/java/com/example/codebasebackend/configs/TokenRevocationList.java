@@ -0,0 +1,141 @@
+package com.example.codebasebackend.configs;
+
+import com.example.codebasebackend.Entities.TokenRevocation;
+import com.example.codebasebackend.Entities.UserStatus;
+import com.example.codebasebackend.repositories.TokenRevocationRepository;
+import com.example.codebasebackend.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lets the filter trust role claims from the token while still rejecting users who were
+ * disabled or re-roled after the token was issued.
+ *
+ * Two kinds of entries:
+ *  - blocked users (status INACTIVE/SUSPENDED): every token is rejected. This set is re-read from
+ *    the database every {@code app.security.revocation.refresh-ms}, which also covers status changes
+ *    made on other nodes.
+ *  - revoked-before timestamps (role change, reactivation, delete): tokens issued before the change
+ *    are rejected. They are stored in {@code token_revocations} and re-read on the same interval, so
+ *    they hold on every node and across restarts. An entry only has to outlive the access-token
+ *    lifetime, after which it is swept.
+ *
+ * Only the node that made the change applies it at once; every other node keeps accepting the old
+ * tokens until its next refresh, so for up to {@code refresh-ms} after a disable or role change.
+ */
+@Component
+@Slf4j
+public class TokenRevocationList {
+
+    private static final List<UserStatus> BLOCKED_STATUSES = List.of(UserStatus.INACTIVE, UserStatus.SUSPENDED);
+
+    private final UserRepository userRepository;
+    private final TokenRevocationRepository revocationRepository;
+    private final long accessTokenLifetimeMs;
+
+    private volatile Set<String> blockedFromDb = ConcurrentHashMap.newKeySet();
+    private final Map<String, Instant> blockedLocally = new ConcurrentHashMap<>();
+    private final Map<String, Instant> revokedBefore = new ConcurrentHashMap<>();
+
+    public TokenRevocationList(UserRepository userRepository,
+                               TokenRevocationRepository revocationRepository,
+                               @Value("${jwt.expiration:86400000}") long accessTokenLifetimeMs) {
+        this.userRepository = userRepository;
+        this.revocationRepository = revocationRepository;
+        this.accessTokenLifetimeMs = accessTokenLifetimeMs;
+    }
+
+    public boolean isRevoked(JwtClaims claims) {
+        String key = key(claims.subject());
+        if (key == null) return true;
+        if (blockedLocally.containsKey(key) || blockedFromDb.contains(key)) {
+            return true;
+        }
+        Instant cutoff = revokedBefore.get(key);
+        return cutoff != null && (claims.issuedAt() == null || claims.issuedAt().isBefore(cutoff));
+    }
+
+    public void block(String username) {
+        String key = key(username);
+        if (key != null) blockedLocally.put(key, Instant.now());
+    }
+
+    public void unblock(String username) {
+        String key = key(username);
+        if (key == null) return;
+        blockedLocally.remove(key);
+        blockedFromDb.remove(key);
+        // Tokens issued while the user was disabled are still refused
+        revokeIssuedBefore(username);
+    }
+
+    /**
+     * Rejects tokens issued up to now; the user has to log in (or refresh) to pick up the new claims.
+     * iat has second precision, so the cutoff is the next whole second: a token minted in the same second
+     * as the change may predate it and is refused too, and a login in that second has to be retried.
+     */
+    public void revokeIssuedBefore(String username) {
+        String key = key(username);
+        if (key == null) return;
+        Instant cutoff = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        revokedBefore.merge(key, cutoff, TokenRevocationList::later);
+        // Persisted for other nodes and restarts; the caller's change has already been saved
+        revocationRepository.save(TokenRevocation.builder()
+                .username(key)
+                .revokedBefore(OffsetDateTime.ofInstant(cutoff, ZoneOffset.UTC))
+                .build());
+    }
+
+    // Before the first request, so a restarted node does not accept tokens revoked elsewhere
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.security.revocation.refresh-ms:60000}")
+    public void refresh() {
+        Instant readStartedAt = Instant.now();
+        try {
+            Set<String> fresh = ConcurrentHashMap.newKeySet();
+            for (String username : userRepository.findUsernamesByStatusIn(BLOCKED_STATUSES)) {
+                String key = key(username);
+                if (key != null) fresh.add(key);
+            }
+            blockedFromDb = fresh;
+            // Local blocks made before this read are now reflected in the DB snapshot
+            blockedLocally.values().removeIf(blockedAt -> blockedAt.isBefore(readStartedAt));
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh blocked users, keeping previous list: {}", e.getMessage());
+        }
+
+        Instant expiredBefore = Instant.now().minusMillis(accessTokenLifetimeMs);
+        revokedBefore.values().removeIf(cutoff -> cutoff.isBefore(expiredBefore));
+        try {
+            OffsetDateTime expired = OffsetDateTime.ofInstant(expiredBefore, ZoneOffset.UTC);
+            for (TokenRevocation revocation : revocationRepository.findByRevokedBeforeAfter(expired)) {
+                revokedBefore.merge(revocation.getUsername(), revocation.getRevokedBefore().toInstant(),
+                        TokenRevocationList::later);
+            }
+            revocationRepository.deleteExpired(expired);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh revoked tokens, keeping previous list: {}", e.getMessage());
+        }
+    }
+
+    private static Instant later(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static String key(String username) {
+        return username == null ? null : username.toLowerCase(Locale.ROOT);
+    }
+}
@@ -5,13 +5,16 @@ import com.example.codebasebackend.dto.request.LocationUpdateRequest;
 import com.example.codebasebackend.dto.response.AmbulanceDispatchResponse;
 import com.example.codebasebackend.dto.response.AmbulanceResponse;
 import com.example.codebasebackend.dto.response.AmbulanceStatistics;
+import com.example.codebasebackend.dto.response.AmbulanceTrackSegmentResponse;
 import com.example.codebasebackend.dto.response.AmbulanceTrackingResponse;
 import com.example.codebasebackend.services.AmbulanceService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -95,6 +98,7 @@ public class AmbulanceController {
         @PathVariable Long id,
         @RequestBody LocationUpdateRequest request
     ) {
+        // The ping is queued and written in the next batch; 429 asks the device to back off
         return ResponseEntity.ok(ambulanceService.updateLocation(id, request));
     }
 
@@ -108,6 +112,17 @@ public class AmbulanceController {
         return ResponseEntity.ok(ambulanceService.getTrackingHistory(id, from, to));
     }
 
+    // The same history as simplified, encoded polylines; weeks of movement in a few kilobytes
+    @GetMapping("/{id}/track")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PATIENT')")
+    public ResponseEntity<List<AmbulanceTrackSegmentResponse>> getTrack(
+        @PathVariable Long id,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to
+    ) {
+        return ResponseEntity.ok(ambulanceService.getTrack(id, from, to));
+    }
+
     @GetMapping("/{id}/current-location")
     @PreAuthorize("hasAnyRole('ADMIN', 'PATIENT')")
     public ResponseEntity<AmbulanceTrackingResponse> getCurrentLocation(@PathVariable Long id) {
@@ -120,6 +135,18 @@ public class AmbulanceController {
         return ResponseEntity.ok(ambulanceService.getAllActiveTracking());
     }
 
+    // Live positions for a map instead of polling; the bounding box is optional (all four or none)
+    @GetMapping(value = "/tracking/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'PATIENT')")
+    public SseEmitter streamFleetMap(
+        @RequestParam(required = false) Double minLat,
+        @RequestParam(required = false) Double minLon,
+        @RequestParam(required = false) Double maxLat,
+        @RequestParam(required = false) Double maxLon
+    ) {
+        return ambulanceService.streamFleetMap(minLat, minLon, maxLat, maxLon);
+    }
+
     // ==================== MAINTENANCE ====================
     @GetMapping("/maintenance-due")
     @PreAuthorize("hasRole('ADMIN')")
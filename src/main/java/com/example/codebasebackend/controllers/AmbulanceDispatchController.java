@@ -5,6 +5,7 @@ import com.example.codebasebackend.Entities.AuditLog;
 import com.example.codebasebackend.Entities.Patient;
 import com.example.codebasebackend.dto.AssistanceRequest;
 import com.example.codebasebackend.dto.response.AmbulanceDispatchResponse;
+import com.example.codebasebackend.dto.response.AmbulanceTrackSegmentResponse;
 import com.example.codebasebackend.repositories.PatientRepository;
 import com.example.codebasebackend.services.AmbulanceService;
 import jakarta.validation.Valid;
@@ -66,6 +67,12 @@ public class AmbulanceDispatchController {
         return ResponseEntity.ok(ambulanceService.updateDispatch(id, request));
     }
 
+    @PreAuthorize("hasRole('ADMIN')")
+    @PatchMapping("/{id}/status")
+    public ResponseEntity<AmbulanceDispatchResponse> updateDispatchStatus(@PathVariable Long id, @RequestParam String status) {
+        return ResponseEntity.ok(ambulanceService.updateDispatchStatus(id, status));
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteDispatch(@PathVariable Long id) {
@@ -78,4 +85,10 @@ public class AmbulanceDispatchController {
     public ResponseEntity<AmbulanceDispatchResponse> trackDispatch(@PathVariable Long id) {
         return ResponseEntity.ok(ambulanceService.trackDispatch(id));
     }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/{id}/route")
+    public ResponseEntity<List<AmbulanceTrackSegmentResponse>> getDispatchRoute(@PathVariable Long id) {
+        return ResponseEntity.ok(ambulanceService.getDispatchRoute(id));
+    }
 }
@@ -2,6 +2,7 @@ package com.example.codebasebackend.controllers;
 
 import com.example.codebasebackend.dto.AuditLogRequest;
 import com.example.codebasebackend.dto.AuditLogResponse;
+import com.example.codebasebackend.dto.AuditLogScrollResponse;
 import com.example.codebasebackend.services.AuditService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -54,10 +55,34 @@ public class AuditLogController {
                 integrationPartnerId, from, to, pageable));
     }
 
+    // Keyset pages for large tables: pass the previous page's nextCursor with the same filters; no COUNT is run
+    @GetMapping("/scroll")
+    @PreAuthorize("hasAnyRole('ADMIN','CHW')")
+    public ResponseEntity<AuditLogScrollResponse> scroll(@RequestParam(required = false) String eventType,
+                                                         @RequestParam(required = false) String entityType,
+                                                         @RequestParam(required = false) String entityId,
+                                                         @RequestParam(required = false) Long userId,
+                                                         @RequestParam(required = false) String username,
+                                                         @RequestParam(required = false) String searchTerm,
+                                                         @RequestParam(required = false) String status,
+                                                         @RequestParam(required = false) Long integrationPartnerId,
+                                                         @RequestParam(required = false)
+                                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                                         @RequestParam(required = false)
+                                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer size,
+                                                         @RequestParam(defaultValue = "false") boolean estimateTotal) {
+        return ResponseEntity.ok(auditService.scroll(eventType, entityType, entityId, userId, username, searchTerm, status,
+                integrationPartnerId, from, to, cursor, size, estimateTotal));
+    }
+
+    // Runs on the retention thread; follow it with the audit.retention.* metrics
     @DeleteMapping("/purge")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Long> purge(@RequestParam
+    public ResponseEntity<Void> purge(@RequestParam
                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime before) {
-        return ResponseEntity.ok(auditService.purgeBefore(before));
+        auditService.purgeInBackground(before);
+        return ResponseEntity.accepted().build();
     }
 }
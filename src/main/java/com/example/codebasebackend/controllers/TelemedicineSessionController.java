@@ -2,6 +2,7 @@ package com.example.codebasebackend.controllers;
 
 import com.example.codebasebackend.Entities.*;
 import com.example.codebasebackend.dto.*;
+import com.example.codebasebackend.services.SessionHistoryExporter;
 import com.example.codebasebackend.services.TelemedicineSessionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -10,10 +11,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -124,6 +129,18 @@ public class TelemedicineSessionController {
     }
 
 
+    // Status transitions (start, pause, resume, complete, cancel, terminate) as they commit; all filters are
+    // optional for ADMIN and CHW, a patient must filter on their own patientId
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN','CHW') or @patientSecurity.isOwner(#patientId, authentication)")
+    public SseEmitter streamSessionEvents(
+            @RequestParam(required = false) Long doctorId,
+            @RequestParam(required = false) Long patientId,
+            @RequestParam(required = false) String sessionId) {
+        return sessionService.streamSessionEvents(doctorId, patientId, sessionId);
+    }
+
+
     @PostMapping("/{id}/rate")
     public ResponseEntity<TelemedicineSessionResponse> rateSession(
             @PathVariable Long id,
@@ -264,6 +281,13 @@ public class TelemedicineSessionController {
     }
 
 
+    // Pushes the online-doctor board on connect and after every change, so clients can stop polling
+    @GetMapping(value = "/doctors/online/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOnlineDoctors() {
+        return sessionService.streamOnlineDoctors();
+    }
+
+
     @GetMapping("/history")
     public ResponseEntity<List<SessionHistoryResponse>> getSessionHistory(
             @RequestParam(defaultValue = "today") String period) {
@@ -272,6 +296,22 @@ public class TelemedicineSessionController {
     }
 
 
+    // Streams the whole period page by page; pass the last row's cursor to resume an interrupted export
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportSessionHistory(
+            @RequestParam(defaultValue = "today") String period,
+            @RequestParam(defaultValue = "json") String format,
+            @RequestParam(required = false) String cursor) {
+        StreamingResponseBody body = sessionService.exportSessionHistory(period, cursor, format);
+        SessionHistoryExporter.Format exportFormat = SessionHistoryExporter.Format.parse(format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"session-history." + exportFormat.extension() + "\"")
+                .body(body);
+    }
+
+
     @PostMapping("/send-reminders")
     public ResponseEntity<Void> sendSessionReminders() {
         sessionService.sendSessionReminders();
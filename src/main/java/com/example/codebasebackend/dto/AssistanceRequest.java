@@ -27,6 +27,10 @@ public class AssistanceRequest {
 
     private Long hospitalId; // optional preferred hospital
 
+    // Optional dispatch constraints, e.g. ADVANCED_LIFE_SUPPORT; any type when absent
+    private String ambulanceType;
+    private Boolean requiresIcu;
+
     // LOW, MEDIUM, HIGH, CRITICAL
     private String priority;
 
@@ -0,0 +1,22 @@
+package com.example.codebasebackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One keyset page of audit logs, newest first. Pass {@code nextCursor} with the same filters for the next
+ * page; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditLogScrollResponse {
+    private List<AuditLogResponse> items;
+    private String nextCursor;
+    private Long estimatedTotal; // planner estimate for the filters, only when asked for (count=estimated)
+}
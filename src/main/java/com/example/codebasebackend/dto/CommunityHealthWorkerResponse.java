@@ -1,5 +1,6 @@
 package com.example.codebasebackend.dto;
 
+import com.example.codebasebackend.Entities.CommunityHealthWorkers;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -41,6 +42,65 @@ public class CommunityHealthWorkerResponse {
     // Computed Fields (not stored in DB)
     private String fullName; // firstName + middleName + lastName
     private String avatar; // Initials (e.g., "GA" for Grace Akinyi)
-}
 
+    public static CommunityHealthWorkerResponse from(CommunityHealthWorkers e) {
+        CommunityHealthWorkerResponse dto = new CommunityHealthWorkerResponse();
+        dto.setId(e.getId());
+        dto.setCode(e.getCode());
+        dto.setFirstName(e.getFirstName());
+        dto.setMiddleName(e.getMiddleName());
+        dto.setLastName(e.getLastName());
+        dto.setEmail(e.getEmail());
+        dto.setPhone(e.getPhone());
+        dto.setCity(e.getCity());
+        dto.setState(e.getState());
+        dto.setCountry(e.getCountry());
+        dto.setLatitude(e.getLatitude());
+        dto.setLongitude(e.getLongitude());
+        dto.setHospitalId(e.getHospital() != null ? e.getHospital().getId() : null);
+        dto.setStatus(e.getStatus() != null ? e.getStatus().name() : null);
+        dto.setSpecialization(e.getSpecialization());
+        dto.setCreatedAt(e.getCreatedAt());
+        dto.setUpdatedAt(e.getUpdatedAt());
+
+        // New fields
+        dto.setRegion(e.getRegion());
+        dto.setAssignedPatients(e.getAssignedPatients());
+        dto.setStartDate(e.getStartDate());
+        dto.setLastStatusUpdate(e.getLastStatusUpdate());
+        dto.setMonthlyVisits(e.getMonthlyVisits());
+        dto.setSuccessRate(e.getSuccessRate());
+        dto.setResponseTime(e.getResponseTime());
+        dto.setRating(e.getRating());
+
+        // Computed fields
+        dto.setFullName(buildFullName(e.getFirstName(), e.getMiddleName(), e.getLastName()));
+        dto.setAvatar(buildAvatar(e.getFirstName(), e.getLastName()));
 
+        return dto;
+    }
+
+    private static String buildFullName(String firstName, String middleName, String lastName) {
+        StringBuilder fullName = new StringBuilder();
+        if (firstName != null && !firstName.isEmpty()) {
+            fullName.append(firstName);
+        }
+        if (middleName != null && !middleName.isEmpty()) {
+            if (fullName.length() > 0) fullName.append(" ");
+            fullName.append(middleName);
+        }
+        if (lastName != null && !lastName.isEmpty()) {
+            if (fullName.length() > 0) fullName.append(" ");
+            fullName.append(lastName);
+        }
+        return fullName.toString();
+    }
+
+    private static String buildAvatar(String firstName, String lastName) {
+        String firstInitial = firstName != null && !firstName.isEmpty()
+            ? firstName.substring(0, 1) : "";
+        String lastInitial = lastName != null && !lastName.isEmpty()
+            ? lastName.substring(0, 1) : "";
+        return (firstInitial + lastInitial).toUpperCase();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.codebasebackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One update of a live fleet map stream. Rows are {@code [ambulanceId, latitude, longitude, time, heading]}
+ * with coordinates in 1e-5 degrees and heading -1 when unknown. {@code enter} rows are absolute (time in
+ * epoch seconds); {@code move} rows carry latitude, longitude and time as differences from the last row
+ * sent for that ambulance on this stream.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FleetMapFrame {
+    private boolean snapshot; // first frame of a stream: enter holds every ambulance in the box
+    private List<long[]> enter; // ambulances new to the box
+    private List<long[]> move;
+    private List<Long> leave; // ambulances that moved out of the box or were removed
+}
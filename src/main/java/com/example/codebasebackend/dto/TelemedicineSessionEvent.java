@@ -0,0 +1,26 @@
+package com.example.codebasebackend.dto;
+
+import com.example.codebasebackend.Entities.SessionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class TelemedicineSessionEvent {
+    private long sequence; // also sent as the SSE id; gaps mean events were dropped or filtered
+    private String action; // started, paused, resumed, completed, cancelled, terminated
+    private Long id;
+    private String sessionId;
+    private Long doctorId;
+    private Long patientId;
+    private SessionStatus previousStatus;
+    private SessionStatus status;
+    private OffsetDateTime occurredAt;
+    private long droppedBefore; // events discarded for this subscriber since the previous delivery
+}
@@ -34,5 +34,8 @@ public class AmbulanceDispatchResponse {
     BigDecimal dropoffLongitude;
     String dropoffAddressLine1;
     String dropoffCity;
+
+    String estimatedResponseTime;
+    BigDecimal estimatedDistance; // km by road, ambulance to pickup
 }
 
@@ -0,0 +1,22 @@
+package com.example.codebasebackend.dto.response;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A stretch of an ambulance's track as an encoded polyline: per point, latitude and longitude (1e-5 degrees)
+ * and seconds since {@code startTime}, each as a delta from the previous point.
+ */
+@Value
+@Builder
+public class AmbulanceTrackSegmentResponse {
+    Long ambulanceId;
+    Long dispatchId;
+    OffsetDateTime startTime;
+    OffsetDateTime endTime;
+    Integer pointCount;
+    Integer rawPointCount;
+    String encodedPoints;
+}
@@ -7,7 +7,7 @@ import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 
 @Value
-@Builder
+@Builder(toBuilder = true)
 public class AmbulanceTrackingResponse {
     Long id;
     Long ambulanceId;
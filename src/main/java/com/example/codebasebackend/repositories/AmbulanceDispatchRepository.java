@@ -1,7 +1,9 @@
 package com.example.codebasebackend.repositories;
 
 import com.example.codebasebackend.Entities.AmbulanceDispatch;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -11,6 +13,11 @@ import java.util.Optional;
 
 public interface AmbulanceDispatchRepository extends JpaRepository<AmbulanceDispatch, Long> {
     Optional<AmbulanceDispatch> findByIncidentId(String incidentId);
+
+    // Serializes status changes and deletes of one dispatch, so its hospital unit is released only once
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM AmbulanceDispatch d WHERE d.id = :id")
+    Optional<AmbulanceDispatch> findByIdForUpdate(@Param("id") Long id);
     List<AmbulanceDispatch> findByStatus(AmbulanceDispatch.DispatchStatus status);
     List<AmbulanceDispatch> findByPriority(AmbulanceDispatch.DispatchPriority priority);
     List<AmbulanceDispatch> findByHospitalId(Long hospitalId);
@@ -45,6 +45,12 @@ public interface AmbulanceRepository extends JpaRepository<Ambulances, Long> {
     @Query("SELECT a FROM Ambulances a WHERE a.currentLatitude IS NOT NULL AND a.currentLongitude IS NOT NULL")
     List<Ambulances> findAllWithLocation();
 
+    @Query("SELECT a.id, a.vehiclePlate FROM Ambulances a")
+    List<Object[]> findVehiclePlates();
+
+    @Query("SELECT a.vehiclePlate FROM Ambulances a WHERE a.id = :id")
+    Optional<String> findVehiclePlateById(@Param("id") Long id);
+
     // ==================== MAINTENANCE ====================
     @Query("SELECT a FROM Ambulances a WHERE a.nextMaintenanceDate <= :date AND a.status != 'MAINTENANCE'")
     List<Ambulances> findMaintenanceDue(@Param("date") LocalDate date);
@@ -74,6 +80,15 @@ public interface AmbulanceRepository extends JpaRepository<Ambulances, Long> {
     @Query("SELECT SUM(a.totalDispatches) FROM Ambulances a")
     Long getTotalDispatches();
 
+    // status, type, count, sum and count of mileage, sum and count of fuel level, sum of dispatches
+    @Query("SELECT a.status, a.type, COUNT(a), SUM(a.mileage), COUNT(a.mileage), SUM(a.fuelLevel), COUNT(a.fuelLevel), " +
+           "SUM(a.totalDispatches) FROM Ambulances a GROUP BY a.status, a.type")
+    List<Object[]> getFleetAggregates();
+
+    // id, status, type, mileage, fuel level, dispatches
+    @Query("SELECT a.id, a.status, a.type, a.mileage, a.fuelLevel, a.totalDispatches FROM Ambulances a")
+    List<Object[]> findFleetFigures();
+
     // ==================== SEARCH ====================
     @Query("SELECT a FROM Ambulances a WHERE " +
            "LOWER(a.vehiclePlate) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
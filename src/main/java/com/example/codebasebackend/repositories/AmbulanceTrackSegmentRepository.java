@@ -0,0 +1,28 @@
+package com.example.codebasebackend.repositories;
+
+import com.example.codebasebackend.Entities.AmbulanceTrackSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Repository
+public interface AmbulanceTrackSegmentRepository extends JpaRepository<AmbulanceTrackSegment, Long> {
+
+    // Segments overlapping [from, to]
+    @Query("SELECT s FROM AmbulanceTrackSegment s WHERE s.ambulanceId = :ambulanceId " +
+           "AND s.startTime <= :to AND s.endTime >= :from ORDER BY s.startTime")
+    List<AmbulanceTrackSegment> findOverlapping(@Param("ambulanceId") Long ambulanceId,
+                                                @Param("from") OffsetDateTime from,
+                                                @Param("to") OffsetDateTime to);
+
+    List<AmbulanceTrackSegment> findByDispatchIdOrderByStartTimeAsc(Long dispatchId);
+
+    @Modifying
+    @Query("DELETE FROM AmbulanceTrackSegment s WHERE s.ambulanceId = :ambulanceId")
+    int deleteByAmbulanceId(@Param("ambulanceId") Long ambulanceId);
+}
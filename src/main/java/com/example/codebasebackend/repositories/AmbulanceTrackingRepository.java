@@ -19,12 +19,19 @@ public interface AmbulanceTrackingRepository extends JpaRepository<AmbulanceTrac
            "ORDER BY t.timestamp DESC")
     List<AmbulanceTracking> findByAmbulanceIdOrderByTimestampDesc(@Param("ambulanceId") Long ambulanceId);
 
-    // Helper method to get just the latest one
+    // Latest tracking point for an ambulance (LIMIT 1 on the ambulance/timestamp index)
+    Optional<AmbulanceTracking> findFirstByAmbulanceIdOrderByTimestampDescIdDesc(Long ambulanceId);
+
     default Optional<AmbulanceTracking> findLatestByAmbulanceId(Long ambulanceId) {
-        List<AmbulanceTracking> results = findByAmbulanceIdOrderByTimestampDesc(ambulanceId);
-        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+        return findFirstByAmbulanceIdOrderByTimestampDescIdDesc(ambulanceId);
     }
 
+    // Latest tracking point of every ambulance with one at or after :since
+    @Query(value = "SELECT DISTINCT ON (t.ambulance_id) t.* FROM ambulance_tracking t " +
+                   "WHERE t.timestamp >= :since ORDER BY t.ambulance_id, t.timestamp DESC, t.id DESC",
+           nativeQuery = true)
+    List<AmbulanceTracking> findLatestPerAmbulanceSince(@Param("since") OffsetDateTime since);
+
     // Get tracking history for an ambulance
     List<AmbulanceTracking> findByAmbulanceIdAndTimestampBetweenOrderByTimestampDesc(
         Long ambulanceId,
@@ -4,9 +4,6 @@ import com.example.codebasebackend.Entities.AuditLog;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
-import java.time.OffsetDateTime;
-
 public interface AuditLogRepository extends JpaRepository<AuditLog, Long>, JpaSpecificationExecutor<AuditLog> {
-    long deleteByEventTimeBefore(OffsetDateTime cutoff);
 }
 
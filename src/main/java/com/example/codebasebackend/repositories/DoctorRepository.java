@@ -4,11 +4,13 @@ import com.example.codebasebackend.Entities.Doctor;
 import com.example.codebasebackend.Entities.DoctorStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,17 +29,20 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
 
     List<Doctor> findByActiveTrue();
 
+    Page<Doctor> findByActiveTrue(Pageable pageable);
+
     Page<Doctor> findBySpecialtyId(Long specialtyId, Pageable pageable);
 
+    @EntityGraph(attributePaths = "specialty")
     @Query("SELECT d FROM Doctor d WHERE d.active = true AND d.status IN :statuses")
     List<Doctor> findByActiveTrueAndStatusIn(@Param("statuses") List<DoctorStatus> statuses);
 
     List<Doctor> findTop20ByActiveTrueAndStatusInAndLastStatusUpdateIsNotNullOrderByLastStatusUpdateDesc(List<DoctorStatus> statuses);
 
-    @Query("SELECT d FROM Doctor d WHERE " +
-           "d.active = true AND " +
-           "(LOWER(d.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(d.lastName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(d.email) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Page<Doctor> searchDoctors(@Param("searchTerm") String searchTerm, Pageable pageable);
+    @EntityGraph(attributePaths = "specialty")
+    List<Doctor> findByIdIn(Collection<Long> ids);
+
+    // Search index rows (id, firstName, middleName, lastName, email, active)
+    @Query("SELECT d.id, d.firstName, d.middleName, d.lastName, d.email, d.active FROM Doctor d")
+    List<Object[]> findSearchRows();
 }
@@ -1,7 +1,10 @@
 package com.example.codebasebackend.repositories;
 
 import com.example.codebasebackend.Entities.Patient;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,4 +22,8 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
     List<Patient> findByLastNameIgnoreCase(String lastName);
     List<Patient> findByFirstNameIgnoreCaseAndLastNameIgnoreCase(String firstName, String lastName);
     List<Patient> findByHospitalId(Long hospitalId);
+
+    // Search index rows (id, firstName, middleName, lastName, email), read in id order
+    @Query("SELECT p.id, p.firstName, p.middleName, p.lastName, p.email FROM Patient p WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable limit);
 }
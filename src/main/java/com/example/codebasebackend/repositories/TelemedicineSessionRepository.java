@@ -3,6 +3,7 @@ package com.example.codebasebackend.repositories;
 import com.example.codebasebackend.Entities.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,12 +11,18 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TelemedicineSessionRepository extends JpaRepository<TelemedicineSession, Long> {
 
+    // Page queries load the list-view graph so mapping a page costs a fixed number of statements
+    @Override
+    @EntityGraph(TelemedicineSession.LIST_VIEW_GRAPH)
+    Page<TelemedicineSession> findAll(Pageable pageable);
+
     // Find by session ID
     Optional<TelemedicineSession> findBySessionId(String sessionId);
     Optional<TelemedicineSession> findByAppointmentId(Long appointmentId);
@@ -23,6 +30,7 @@ public interface TelemedicineSessionRepository extends JpaRepository<Telemedicin
 
     // Find by status
     List<TelemedicineSession> findByStatus(SessionStatus status);
+    @EntityGraph(TelemedicineSession.LIST_VIEW_GRAPH)
     Page<TelemedicineSession> findByStatus(SessionStatus status, Pageable pageable);
 
     // Find active sessions
@@ -34,11 +42,14 @@ public interface TelemedicineSessionRepository extends JpaRepository<Telemedicin
     List<TelemedicineSession> findTop20ByOrderByUpdatedAtDesc();
 
     // Find by patient
+    @EntityGraph(TelemedicineSession.LIST_VIEW_GRAPH)
     Page<TelemedicineSession> findByPatientId(Long patientId, Pageable pageable);
+    @EntityGraph(TelemedicineSession.LIST_VIEW_GRAPH)
     Page<TelemedicineSession> findByPatientIdAndUpdatedAtAfter(Long patientId, OffsetDateTime updatedSince, Pageable pageable);
     List<TelemedicineSession> findByPatientIdAndStatus(Long patientId, SessionStatus status);
 
     // Find by doctor
+    @EntityGraph(TelemedicineSession.LIST_VIEW_GRAPH)
     Page<TelemedicineSession> findByDoctorId(Long doctorId, Pageable pageable);
     List<TelemedicineSession> findByDoctorIdAndStatus(Long doctorId, SessionStatus status);
 
@@ -63,20 +74,69 @@ public interface TelemedicineSessionRepository extends JpaRepository<Telemedicin
     );
     long countByStartTimeGreaterThanEqualAndStartTimeLessThan(OffsetDateTime from, OffsetDateTime to);
 
+    // Keyset page of history rows ordered by (startTime, id); scalar columns only, so nothing is left in the persistence context
+    @Query("SELECT s.id, s.sessionId, s.startTime, p.firstName, p.lastName, d.firstName, d.middleName, d.lastName, " +
+           "s.duration, s.status, s.rating, s.actualCost, s.diagnosis, s.followUpRequired, s.prescription " +
+           "FROM TelemedicineSession s JOIN s.patient p JOIN s.doctor d WHERE " +
+           "s.startTime <= :to AND s.startTime >= :afterStartTime AND " +
+           "(s.startTime > :afterStartTime OR s.id > :afterId) " +
+           "ORDER BY s.startTime ASC, s.id ASC")
+    List<Object[]> findHistoryPage(
+        @Param("afterStartTime") OffsetDateTime afterStartTime,
+        @Param("afterId") Long afterId,
+        @Param("to") OffsetDateTime to,
+        Pageable limit
+    );
+
     // Find by platform
+    @EntityGraph(TelemedicineSession.LIST_VIEW_GRAPH)
     Page<TelemedicineSession> findByPlatform(PlatformType platform, Pageable pageable);
 
     // Find by priority
     List<TelemedicineSession> findByPriorityOrderByStartTimeAsc(Priority priority);
 
-    // Search functionality
-    @Query("SELECT s FROM TelemedicineSession s WHERE " +
+    // Search functionality: sessions of the patients/doctors the search index resolved the term to, or
+    // whose session ID equals or starts with it; better name matches and the exact session ID rank first
+    @EntityGraph(TelemedicineSession.LIST_VIEW_GRAPH)
+    @Query(value = "SELECT s FROM TelemedicineSession s WHERE " +
+           "s.patient.id IN :patientIds OR s.doctor.id IN :doctorIds OR s.sessionId = :sessionId OR " +
+           "(s.sessionId >= :sessionIdFrom AND s.sessionId < :sessionIdTo) " +
+           "ORDER BY CASE " +
+           "WHEN s.sessionId = :sessionId OR s.patient.id IN :exactPatientIds OR s.doctor.id IN :exactDoctorIds THEN 0 " +
+           "WHEN s.patient.id IN :closePatientIds OR s.doctor.id IN :closeDoctorIds THEN 1 " +
+           "ELSE 2 END",
+           countQuery = "SELECT COUNT(s) FROM TelemedicineSession s WHERE " +
+           "s.patient.id IN :patientIds OR s.doctor.id IN :doctorIds OR s.sessionId = :sessionId OR " +
+           "(s.sessionId >= :sessionIdFrom AND s.sessionId < :sessionIdTo)")
+    Page<TelemedicineSession> searchSessions(@Param("patientIds") Collection<Long> patientIds,
+                                             @Param("doctorIds") Collection<Long> doctorIds,
+                                             @Param("exactPatientIds") Collection<Long> exactPatientIds,
+                                             @Param("exactDoctorIds") Collection<Long> exactDoctorIds,
+                                             @Param("closePatientIds") Collection<Long> closePatientIds,
+                                             @Param("closeDoctorIds") Collection<Long> closeDoctorIds,
+                                             @Param("sessionId") String sessionId,
+                                             @Param("sessionIdFrom") String sessionIdFrom,
+                                             @Param("sessionIdTo") String sessionIdTo,
+                                             Pageable pageable);
+
+    // Substring search on names and session ID, for custom-sorted searches matching more patients or
+    // doctors than the search index hands over as ids
+    @EntityGraph(TelemedicineSession.LIST_VIEW_GRAPH)
+    @Query(value = "SELECT s FROM TelemedicineSession s WHERE " +
            "LOWER(s.patient.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(s.patient.lastName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(s.doctor.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(s.doctor.lastName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(s.sessionId) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    Page<TelemedicineSession> searchSessions(@Param("searchTerm") String searchTerm, Pageable pageable);
+    Page<TelemedicineSession> searchSessionsByText(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    // One page of a search the session participant index resolved, in any order
+    @EntityGraph(TelemedicineSession.LIST_VIEW_GRAPH)
+    List<TelemedicineSession> findByIdIn(Collection<Long> ids);
+
+    // Keyset page of [id, patientId, doctorId] for building the session participant index
+    @Query("SELECT s.id, s.patient.id, s.doctor.id FROM TelemedicineSession s WHERE s.id > :afterId ORDER BY s.id")
+    List<Object[]> findParticipantRowsAfter(@Param("afterId") Long afterId, Pageable limit);
 
     // Statistics queries
     @Query("SELECT COUNT(s) FROM TelemedicineSession s WHERE s.status = :status")
@@ -100,6 +160,7 @@ public interface TelemedicineSessionRepository extends JpaRepository<Telemedicin
     );
 
     // Advanced filters
+    @EntityGraph(TelemedicineSession.LIST_VIEW_GRAPH)
     @Query("SELECT s FROM TelemedicineSession s WHERE " +
            "(:status IS NULL OR s.status = :status) AND " +
            "(:platform IS NULL OR s.platform = :platform) AND " +
@@ -134,6 +195,40 @@ public interface TelemedicineSessionRepository extends JpaRepository<Telemedicin
            "ORDER BY SUM(s.actualCost) DESC")
     List<Object[]> findRevenueBySpecialty();
 
+    // Aggregate snapshots used to (re)build TelemedicineAggregateStore
+    @Query("SELECT s.status, COUNT(s) FROM TelemedicineSession s GROUP BY s.status")
+    List<Object[]> countGroupedByStatus();
+
+    @Query("SELECT s.doctor.id, COUNT(s) FROM TelemedicineSession s WHERE s.status = 'ACTIVE' GROUP BY s.doctor.id")
+    List<Object[]> countActiveSessionsGroupedByDoctor();
+
+    // Doctor id and session id
+    @Query("SELECT s.doctor.id, s.id FROM TelemedicineSession s WHERE " +
+           "s.actualStartTime >= :from AND s.actualStartTime < :to")
+    List<Object[]> findStartedByDoctor(@Param("from") OffsetDateTime from, @Param("to") OffsetDateTime to);
+
+    // Doctor id, session id and cost
+    @Query("SELECT s.doctor.id, s.id, s.actualCost FROM TelemedicineSession s WHERE " +
+           "s.status = 'COMPLETED' AND s.endTime >= :from AND s.endTime < :to AND s.actualCost IS NOT NULL")
+    List<Object[]> findCompletedRevenueByDoctor(@Param("from") OffsetDateTime from, @Param("to") OffsetDateTime to);
+
+    @Query("SELECT COALESCE(SUM(s.duration), 0), COUNT(s.duration) FROM TelemedicineSession s WHERE s.status = 'COMPLETED'")
+    List<Object[]> sumAndCountCompletedDuration();
+
+    @Query("SELECT COALESCE(SUM(s.rating), 0), COUNT(s.rating) FROM TelemedicineSession s WHERE s.rating IS NOT NULL")
+    List<Object[]> sumAndCountRating();
+
+    @Query("SELECT s.createdAt, s.actualCost FROM TelemedicineSession s WHERE " +
+           "s.status = 'COMPLETED' AND s.paymentStatus = 'PAID' AND s.actualCost IS NOT NULL AND " +
+           "s.createdAt >= :since")
+    List<Object[]> findPaidRevenueSince(@Param("since") OffsetDateTime since);
+
+    @Query("SELECT d.specialty.name, COALESCE(SUM(s.actualCost), 0), COUNT(s), COUNT(s.actualCost) " +
+           "FROM TelemedicineSession s JOIN s.doctor d " +
+           "WHERE s.status = 'COMPLETED' AND s.paymentStatus = 'PAID' " +
+           "GROUP BY d.specialty.name")
+    List<Object[]> sumRevenueGroupedBySpecialty();
+
     // Platform statistics
     @Query("SELECT s.platform, COUNT(s), AVG(s.duration) " +
            "FROM TelemedicineSession s " +
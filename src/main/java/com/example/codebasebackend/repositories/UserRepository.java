@@ -1,7 +1,13 @@
 package com.example.codebasebackend.repositories;
 
 import com.example.codebasebackend.Entities.User;
+import com.example.codebasebackend.Entities.UserStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -11,4 +17,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmailIgnoreCase(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+
+    @Query("SELECT u.username FROM User u WHERE u.status IN :statuses")
+    List<String> findUsernamesByStatusIn(@Param("statuses") Collection<UserStatus> statuses);
 }
\ No newline at end of file
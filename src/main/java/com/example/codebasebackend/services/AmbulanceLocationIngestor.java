@@ -0,0 +1,338 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.dto.request.LocationUpdateRequest;
+import com.example.codebasebackend.repositories.AmbulanceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * Write-behind pipeline for ambulance GPS pings.
+ *
+ * {@link #submit} only validates the ping and puts it on a bounded queue; when the queue is full the ping
+ * is rejected with 429 so devices back off instead of piling up work. A single flusher thread drains the
+ * queue every {@code app.ambulance.gps.flush-interval-ms} (or as soon as a full batch is waiting) and
+ * writes the batch in one transaction: the tracking rows as one JDBC batch insert, and each ambulance's
+ * latest position as one bulk UPDATE, so N pings from one vehicle cost one row update. A failed flush is
+ * retried with backoff while new pings keep queuing; after {@code max-attempts} the batch is dropped and
+ * handed to the {@link #onDropped} listeners, so state updated when the pings were accepted can be wound back.
+ */
+@Component
+@Slf4j
+public class AmbulanceLocationIngestor {
+
+    private static final String INSERT_TRACKING_SQL =
+            "INSERT INTO ambulance_tracking (ambulance_id, latitude, longitude, speed, heading, battery_level, " +
+            "signal_strength, location_address, dispatch_id, timestamp, is_active) " +
+            // The ambulance may have been deleted since the ping was accepted, and an unknown dispatch id, or one
+            // assigned to another ambulance, is dropped rather than failing the batch
+            "SELECT a.id, ?, ?, ?, ?, ?, ?, ?, " +
+            "(SELECT d.id FROM ambulance_dispatches d WHERE d.id = ? AND d.ambulance_id = a.id), ?, true " +
+            "FROM ambulances a WHERE a.id = ?";
+
+    // Each ambulance in the bulk UPDATE binds seven parameters; stay well below driver parameter limits
+    private static final int MAX_AMBULANCES_PER_UPDATE = 1000;
+
+    public record Ping(long ambulanceId,
+                       BigDecimal latitude,
+                       BigDecimal longitude,
+                       Integer speed,
+                       Integer heading,
+                       Integer batteryLevel,
+                       Integer signalStrength,
+                       String locationAddress,
+                       Long dispatchId,
+                       OffsetDateTime timestamp,
+                       long receivedNanos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AmbulanceRepository ambulanceRepository;
+    private final BlockingQueue<Ping> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final int maxAttempts;
+    private final ExecutorService flusher;
+    private final Set<Long> knownAmbulances = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<List<Ping>>> dropListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter droppedBatchesCounter;
+    private final Timer flushTimer;
+    private final Timer lagTimer;
+
+    public AmbulanceLocationIngestor(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     AmbulanceRepository ambulanceRepository,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.ambulance.gps.queue-capacity:50000}") int queueCapacity,
+                                     @Value("${app.ambulance.gps.batch-size:1000}") int batchSize,
+                                     @Value("${app.ambulance.gps.flush-interval-ms:250}") long flushIntervalMs,
+                                     @Value("${app.ambulance.gps.max-attempts:5}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ambulanceRepository = ambulanceRepository;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.flusher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ambulance-gps-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("ambulance.gps.queue.depth", queue, BlockingQueue::size)
+                .description("GPS pings accepted but not yet written")
+                .register(meterRegistry);
+        this.acceptedCounter = Counter.builder("ambulance.gps.pings.accepted")
+                .description("GPS pings accepted into the ingestion queue")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("ambulance.gps.pings.rejected")
+                .description("GPS pings rejected because the ingestion queue was full")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("ambulance.gps.pings.written")
+                .description("GPS pings written to ambulance_tracking")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("ambulance.gps.pings.dropped")
+                .description("GPS pings dropped after exhausting flush retries")
+                .register(meterRegistry);
+        this.droppedBatchesCounter = Counter.builder("ambulance.gps.batches.dropped")
+                .description("GPS ping batches dropped after exhausting flush retries")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("ambulance.gps.flush")
+                .description("Time to write one batch of GPS pings")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("ambulance.gps.lag")
+                .description("Delay between accepting a GPS ping and committing it")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher.execute(this::runFlusher);
+    }
+
+    /** Queues the ping; 404 for an unknown ambulance, 429 when the queue is full. */
+    public Ping submit(Long ambulanceId, LocationUpdateRequest request) {
+        if (!knownAmbulances.contains(ambulanceId)) {
+            if (!ambulanceRepository.existsById(ambulanceId)) {
+                throw new ResponseStatusException(NOT_FOUND, "Ambulance not found");
+            }
+            knownAmbulances.add(ambulanceId);
+        }
+        Ping ping = new Ping(ambulanceId, request.getLatitude(), request.getLongitude(), request.getSpeed(),
+                request.getHeading(), request.getBatteryLevel(), request.getSignalStrength(),
+                request.getLocationAddress(), request.getDispatchId(), OffsetDateTime.now(), System.nanoTime());
+        if (!queue.offer(ping)) {
+            rejectedCounter.increment();
+            throw new ResponseStatusException(TOO_MANY_REQUESTS, "Location updates are backlogged, retry shortly");
+        }
+        acceptedCounter.increment();
+        return ping;
+    }
+
+    /** Registers a listener for batches that were accepted but dropped without being written. */
+    public void onDropped(Consumer<List<Ping>> listener) {
+        dropListeners.add(listener);
+    }
+
+    /** Call when an ambulance is deleted so its pings are no longer accepted. */
+    public void forgetAmbulance(Long ambulanceId) {
+        knownAmbulances.remove(ambulanceId);
+    }
+
+    int queueDepth() {
+        return queue.size();
+    }
+
+    private void runFlusher() {
+        List<Ping> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Ping first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                // Give a trickle of pings a moment to accumulate; a backlog is drained immediately
+                if (queue.size() < batchSize - 1 && running) {
+                    Thread.sleep(Math.min(flushIntervalMs, 50));
+                }
+                queue.drainTo(batch, batchSize - 1);
+                flushWithRetry(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) flushWithRetry(batch);
+                running = false;
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushWithRetry(List<Ping> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                flush(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    droppedCounter.increment(batch.size());
+                    droppedBatchesCounter.increment();
+                    log.error("Dropping {} GPS pings after {} failed flushes: {}", batch.size(), attempt, e.getMessage());
+                    notifyDropped(List.copyOf(batch));
+                    return;
+                }
+                log.warn("GPS flush of {} pings failed (attempt {}), retrying: {}", batch.size(), attempt, e.getMessage());
+                try {
+                    Thread.sleep(Math.min(200L << attempt, 10_000L));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void notifyDropped(List<Ping> dropped) {
+        for (Consumer<List<Ping>> listener : dropListeners) {
+            try {
+                listener.accept(dropped);
+            } catch (RuntimeException e) {
+                log.warn("GPS drop listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    void flush(List<Ping> batch) {
+        Timer.Sample sample = Timer.start();
+        // Latest ping per ambulance, in first-seen order
+        Map<Long, Ping> latest = new LinkedHashMap<>();
+        for (Ping ping : batch) {
+            latest.merge(ping.ambulanceId(), ping,
+                    (current, next) -> next.timestamp().isBefore(current.timestamp()) ? current : next);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_TRACKING_SQL, batch, batch.size(), AmbulanceLocationIngestor::bindTracking);
+            List<Ping> positions = new ArrayList<>(latest.values());
+            for (int from = 0; from < positions.size(); from += MAX_AMBULANCES_PER_UPDATE) {
+                updatePositions(positions.subList(from, Math.min(from + MAX_AMBULANCES_PER_UPDATE, positions.size())));
+            }
+        });
+        sample.stop(flushTimer);
+        writtenCounter.increment(batch.size());
+        long now = System.nanoTime();
+        for (Ping ping : batch) {
+            lagTimer.record(Duration.ofNanos(now - ping.receivedNanos()));
+        }
+    }
+
+    private void updatePositions(List<Ping> positions) {
+        StringBuilder latitude = new StringBuilder("CASE id");
+        StringBuilder longitude = new StringBuilder("CASE id");
+        StringBuilder location = new StringBuilder("CASE id");
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < positions.size(); i++) {
+            latitude.append(" WHEN ? THEN ?");
+            longitude.append(" WHEN ? THEN ?");
+            location.append(" WHEN ? THEN ?");
+            ids.append(i == 0 ? "?" : ", ?");
+        }
+        String sql = "UPDATE ambulances SET current_latitude = " + latitude + " END, current_longitude = " + longitude +
+                " END, current_location = " + location + " END, updated_at = ? WHERE id IN (" + ids + ")";
+        jdbcTemplate.update(sql, statement -> {
+            int index = 1;
+            for (Ping ping : positions) {
+                statement.setLong(index++, ping.ambulanceId());
+                statement.setBigDecimal(index++, ping.latitude());
+            }
+            for (Ping ping : positions) {
+                statement.setLong(index++, ping.ambulanceId());
+                statement.setBigDecimal(index++, ping.longitude());
+            }
+            for (Ping ping : positions) {
+                statement.setLong(index++, ping.ambulanceId());
+                setNullable(statement, index++, ping.locationAddress(), Types.VARCHAR);
+            }
+            statement.setObject(index++, OffsetDateTime.now());
+            for (Ping ping : positions) {
+                statement.setLong(index++, ping.ambulanceId());
+            }
+        });
+    }
+
+    private static void bindTracking(PreparedStatement statement, Ping ping) throws SQLException {
+        statement.setBigDecimal(1, ping.latitude());
+        statement.setBigDecimal(2, ping.longitude());
+        setNullable(statement, 3, ping.speed(), Types.INTEGER);
+        setNullable(statement, 4, ping.heading(), Types.INTEGER);
+        setNullable(statement, 5, ping.batteryLevel(), Types.INTEGER);
+        setNullable(statement, 6, ping.signalStrength(), Types.INTEGER);
+        setNullable(statement, 7, ping.locationAddress(), Types.VARCHAR);
+        setNullable(statement, 8, ping.dispatchId(), Types.BIGINT);
+        statement.setObject(9, ping.timestamp());
+        statement.setLong(10, ping.ambulanceId());
+    }
+
+    private static void setNullable(PreparedStatement statement, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, sqlType);
+        } else {
+            statement.setObject(index, value, sqlType);
+        }
+    }
+
+    /** Stops accepting work and writes whatever is still queued. */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("GPS flusher did not drain in time; {} pings not written", queue.size());
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            flusher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AmbulanceTracking;
+import com.example.codebasebackend.dto.response.AmbulanceTrackingResponse;
+import com.example.codebasebackend.repositories.AmbulanceRepository;
+import com.example.codebasebackend.repositories.AmbulanceTrackingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Last known position of every ambulance, so current-location and live-map reads never touch the
+ * tracking history.
+ *
+ * Accepted GPS pings are recorded as they arrive (before the write-behind flush commits them). The
+ * registry is loaded with one {@code DISTINCT ON (ambulance_id)} query at startup, and every
+ * {@code app.ambulance.positions.reconcile-ms} the tracking rows written since the previous pass are
+ * merged in, which picks up pings received by other nodes; positions that advance this way are handed to
+ * the {@link #onReconciled} listeners. A position only ever replaces an older one,
+ * except that a position from a ping the ingestor dropped falls back to the latest stored row.
+ * An ambulance missing from the registry is looked up with a LIMIT 1 query and cached.
+ */
+@Component
+@Slf4j
+public class AmbulancePositionRegistry {
+
+    // Pings are committed a few seconds after they are accepted (longer while flushes are retried)
+    private static final long RECONCILE_OVERLAP_MINUTES = 5;
+    private static final OffsetDateTime EPOCH = OffsetDateTime.parse("1970-01-01T00:00:00Z");
+
+    private final AmbulanceTrackingRepository trackingRepository;
+    private final AmbulanceRepository ambulanceRepository;
+    private final Map<Long, AmbulanceTrackingResponse> positions = new ConcurrentHashMap<>();
+    private final Map<Long, String> vehiclePlates = new ConcurrentHashMap<>();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final List<Consumer<AmbulanceTrackingResponse>> reconcileListeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean ready;
+    // Guarded by loadLock
+    private OffsetDateTime loadedUpTo;
+
+    public AmbulancePositionRegistry(AmbulanceTrackingRepository trackingRepository,
+                                     AmbulanceRepository ambulanceRepository) {
+        this.trackingRepository = trackingRepository;
+        this.ambulanceRepository = ambulanceRepository;
+    }
+
+    /** Records an accepted ping and returns it as the ambulance's current position. */
+    public AmbulanceTrackingResponse record(AmbulanceLocationIngestor.Ping ping) {
+        AmbulanceTrackingResponse position = AmbulanceTrackingResponse.builder()
+                .ambulanceId(ping.ambulanceId())
+                .vehiclePlate(vehiclePlate(ping.ambulanceId()))
+                .dispatchId(ping.dispatchId())
+                .latitude(ping.latitude())
+                .longitude(ping.longitude())
+                .speed(ping.speed())
+                .heading(ping.heading())
+                .batteryLevel(ping.batteryLevel())
+                .signalStrength(ping.signalStrength())
+                .locationAddress(ping.locationAddress())
+                .timestamp(ping.timestamp())
+                .isActive(true)
+                .build();
+        merge(position);
+        return position;
+    }
+
+    /**
+     * Winds back positions taken from pings the ingestor dropped to each ambulance's latest stored row, and
+     * returns them. An ambulance that has reported again since keeps its newer position.
+     */
+    public List<AmbulanceTrackingResponse> discard(List<AmbulanceLocationIngestor.Ping> dropped) {
+        Map<Long, Set<OffsetDateTime>> droppedTimes = new HashMap<>();
+        for (AmbulanceLocationIngestor.Ping ping : dropped) {
+            droppedTimes.computeIfAbsent(ping.ambulanceId(), id -> new HashSet<>()).add(ping.timestamp());
+        }
+        List<AmbulanceTrackingResponse> restored = new ArrayList<>();
+        droppedTimes.forEach((ambulanceId, times) -> {
+            AmbulanceTrackingResponse current = positions.get(ambulanceId);
+            if (current == null || current.getId() != null || !times.contains(current.getTimestamp())) return;
+            if (!positions.remove(ambulanceId, current)) return;
+            trackingRepository.findLatestByAmbulanceId(ambulanceId)
+                    .map(this::toResponse)
+                    .map(this::merge)
+                    .ifPresent(restored::add);
+        });
+        return restored;
+    }
+
+    /**
+     * Registers a listener for positions a reconcile pass moved forward: pings accepted by other nodes, or
+     * by this one but not recorded here.
+     */
+    public void onReconciled(Consumer<AmbulanceTrackingResponse> listener) {
+        reconcileListeners.add(listener);
+    }
+
+    public Optional<AmbulanceTrackingResponse> latest(Long ambulanceId) {
+        AmbulanceTrackingResponse position = positions.get(ambulanceId);
+        if (position != null) return Optional.of(position);
+        return trackingRepository.findLatestByAmbulanceId(ambulanceId)
+                .map(this::toResponse)
+                .map(this::merge);
+    }
+
+    /** The position held in memory, without falling back to the database. */
+    public Optional<AmbulanceTrackingResponse> peek(Long ambulanceId) {
+        return Optional.ofNullable(positions.get(ambulanceId));
+    }
+
+    /** Latest active position of each ambulance reported at or after {@code since}, by ambulance id. */
+    public List<AmbulanceTrackingResponse> activeSince(OffsetDateTime since) {
+        ensureReady();
+        return positions.values().stream()
+                .filter(position -> Boolean.TRUE.equals(position.getIsActive()))
+                .filter(position -> !position.getTimestamp().isBefore(since))
+                .sorted(Comparator.comparing(AmbulanceTrackingResponse::getAmbulanceId))
+                .toList();
+    }
+
+    public void updateVehiclePlate(Long ambulanceId, String vehiclePlate) {
+        if (ambulanceId == null || vehiclePlate == null) return;
+        vehiclePlates.put(ambulanceId, vehiclePlate);
+        positions.computeIfPresent(ambulanceId, (id, position) -> position.toBuilder().vehiclePlate(vehiclePlate).build());
+    }
+
+    public void forget(Long ambulanceId) {
+        positions.remove(ambulanceId);
+        vehiclePlates.remove(ambulanceId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureReady();
+    }
+
+    @Scheduled(fixedDelayString = "${app.ambulance.positions.reconcile-ms:60000}")
+    public void reconcile() {
+        if (!ready) {
+            ensureReady();
+            return;
+        }
+        // A pass overlapping a running one has nothing to add
+        if (!loadLock.tryLock()) return;
+        try {
+            load(loadedUpTo.minusMinutes(RECONCILE_OVERLAP_MINUTES));
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void ensureReady() {
+        if (ready) return;
+        loadLock.lock();
+        try {
+            if (!ready && load(null)) {
+                log.info("Ambulance positions loaded: {} ambulances", positions.size());
+                ready = true;
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    // Called with loadLock held; a null since loads every ambulance's latest position
+    private boolean load(OffsetDateTime since) {
+        OffsetDateTime startedAt = OffsetDateTime.now();
+        try {
+            if (since == null) {
+                for (Object[] row : ambulanceRepository.findVehiclePlates()) {
+                    if (row[1] != null) vehiclePlates.put(((Number) row[0]).longValue(), (String) row[1]);
+                }
+            }
+            for (AmbulanceTracking tracking : trackingRepository.findLatestPerAmbulanceSince(since != null ? since : EPOCH)) {
+                AmbulanceTrackingResponse stored = toResponse(tracking);
+                AmbulanceTrackingResponse previous = positions.get(stored.getAmbulanceId());
+                if (merge(stored) == stored && since != null
+                        && (previous == null || previous.getTimestamp().isBefore(stored.getTimestamp()))) {
+                    notifyReconciled(stored);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ambulance position load failed, keeping current positions: {}", e.getMessage());
+            return false;
+        }
+        loadedUpTo = startedAt;
+        return true;
+    }
+
+    private void notifyReconciled(AmbulanceTrackingResponse position) {
+        for (Consumer<AmbulanceTrackingResponse> listener : reconcileListeners) {
+            try {
+                listener.accept(position);
+            } catch (RuntimeException e) {
+                log.warn("Ambulance position listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Keeps whichever position is newer; on a tie the stored row (which has an id) wins over the ping
+    private AmbulanceTrackingResponse merge(AmbulanceTrackingResponse position) {
+        return positions.merge(position.getAmbulanceId(), position, (current, candidate) -> {
+            int order = candidate.getTimestamp().toInstant().compareTo(current.getTimestamp().toInstant());
+            if (order > 0 || (order == 0 && current.getId() == null && candidate.getId() != null)) return candidate;
+            return current;
+        });
+    }
+
+    // A failed lookup leaves the plate out rather than failing a ping that is already queued
+    private String vehiclePlate(Long ambulanceId) {
+        String plate = vehiclePlates.get(ambulanceId);
+        if (plate == null) {
+            try {
+                plate = ambulanceRepository.findVehiclePlateById(ambulanceId).orElse(null);
+            } catch (DataAccessException e) {
+                log.warn("Vehicle plate lookup for ambulance {} failed: {}", ambulanceId, e.getMessage());
+                return null;
+            }
+            if (plate != null) vehiclePlates.put(ambulanceId, plate);
+        }
+        return plate;
+    }
+
+    // Only the ids of the lazy associations are read, so neither is loaded
+    private AmbulanceTrackingResponse toResponse(AmbulanceTracking tracking) {
+        Long ambulanceId = tracking.getAmbulance().getId();
+        return AmbulanceTrackingResponse.builder()
+                .id(tracking.getId())
+                .ambulanceId(ambulanceId)
+                .vehiclePlate(vehiclePlate(ambulanceId))
+                .dispatchId(tracking.getDispatch() != null ? tracking.getDispatch().getId() : null)
+                .latitude(tracking.getLatitude())
+                .longitude(tracking.getLongitude())
+                .speed(tracking.getSpeed())
+                .heading(tracking.getHeading())
+                .altitude(tracking.getAltitude())
+                .accuracy(tracking.getAccuracy())
+                .batteryLevel(tracking.getBatteryLevel())
+                .signalStrength(tracking.getSignalStrength())
+                .locationAddress(tracking.getLocationAddress())
+                .timestamp(tracking.getTimestamp())
+                .isActive(tracking.getIsActive())
+                .build();
+    }
+}
@@ -6,7 +6,9 @@ import com.example.codebasebackend.dto.request.LocationUpdateRequest;
 import com.example.codebasebackend.dto.response.AmbulanceDispatchResponse;
 import com.example.codebasebackend.dto.response.AmbulanceResponse;
 import com.example.codebasebackend.dto.response.AmbulanceStatistics;
+import com.example.codebasebackend.dto.response.AmbulanceTrackSegmentResponse;
 import com.example.codebasebackend.dto.response.AmbulanceTrackingResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -34,6 +36,8 @@ public interface AmbulanceService {
 
     AmbulanceDispatchResponse updateDispatch(Long id, AssistanceRequest request);
 
+    AmbulanceDispatchResponse updateDispatchStatus(Long id, String status);
+
     void deleteDispatch(Long id);
 
     AmbulanceDispatchResponse trackDispatch(Long id);
@@ -47,8 +51,11 @@ public interface AmbulanceService {
     // Location & tracking
     AmbulanceTrackingResponse updateLocation(Long id, LocationUpdateRequest request);
     List<AmbulanceTrackingResponse> getTrackingHistory(Long id, OffsetDateTime from, OffsetDateTime to);
+    List<AmbulanceTrackSegmentResponse> getTrack(Long id, OffsetDateTime from, OffsetDateTime to);
+    List<AmbulanceTrackSegmentResponse> getDispatchRoute(Long dispatchId);
     AmbulanceTrackingResponse getCurrentLocation(Long id);
     List<AmbulanceTrackingResponse> getAllActiveTracking();
+    SseEmitter streamFleetMap(Double minLatitude, Double minLongitude, Double maxLatitude, Double maxLongitude);
 
     // Maintenance
 //    List<Ambulances> getMaintenanceDue();
@@ -4,28 +4,41 @@ import com.example.codebasebackend.Entities.Ambulances;
 import com.example.codebasebackend.Entities.Hospital;
 import com.example.codebasebackend.Entities.Patient;
 import com.example.codebasebackend.Entities.AmbulanceTracking;
+import com.example.codebasebackend.Entities.AmbulanceTrackSegment;
 import com.example.codebasebackend.dto.AssistanceRequest;
 import com.example.codebasebackend.Entities.AmbulanceDispatch;
 import com.example.codebasebackend.dto.request.LocationUpdateRequest;
 import com.example.codebasebackend.dto.response.AmbulanceDispatchResponse;
 import com.example.codebasebackend.dto.response.AmbulanceResponse;
 import com.example.codebasebackend.dto.response.AmbulanceStatistics;
+import com.example.codebasebackend.dto.response.AmbulanceTrackSegmentResponse;
 import com.example.codebasebackend.dto.response.AmbulanceTrackingResponse;
 import com.example.codebasebackend.repositories.AmbulanceRepository;
 import com.example.codebasebackend.repositories.AmbulanceDispatchRepository;
+import com.example.codebasebackend.repositories.AmbulanceTrackSegmentRepository;
 import com.example.codebasebackend.repositories.AmbulanceTrackingRepository;
 import com.example.codebasebackend.repositories.HospitalRepository;
 import com.example.codebasebackend.repositories.PatientRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
+import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
@@ -37,12 +50,24 @@ public class AmbulanceServiceImplementation implements AmbulanceService {
     private final AmbulanceRepository ambulanceRepository;
     private final AmbulanceDispatchRepository dispatchRepository;
     private final AmbulanceTrackingRepository trackingRepository;
+    private final AmbulanceTrackSegmentRepository segmentRepository;
     private final PatientRepository patientRepository;
     private final HospitalRepository hospitalRepository;
+    private final AmbulanceLocationIngestor locationIngestor;
+    private final AmbulancePositionRegistry positionRegistry;
+    private final AvailableAmbulanceIndex availableIndex;
+    private final HospitalCapacityLedger capacityLedger;
+    private final DispatchEtaTracker etaTracker;
+    private final TrackingHistoryCompactor historyCompactor;
+    private final FleetStatistics fleetStatistics;
+    private final FleetMapBroadcaster fleetMap;
 
     @Override
     public AmbulanceResponse addAmbulance(Ambulances ambulance) {
-        return AmbulanceResponse.from(ambulanceRepository.save(ambulance));
+        Ambulances saved = ambulanceRepository.save(ambulance);
+        availableIndex.record(saved);
+        fleetStatistics.record(saved);
+        return AmbulanceResponse.from(saved);
     }
 
     @Override
@@ -90,7 +115,11 @@ public class AmbulanceServiceImplementation implements AmbulanceService {
         if (ambulance.getFuelLevel() != null) existingAmbulance.setFuelLevel(ambulance.getFuelLevel());
         if (ambulance.getType() != null) existingAmbulance.setType(ambulance.getType());
 
-        return AmbulanceResponse.from(ambulanceRepository.save(existingAmbulance));
+        positionRegistry.updateVehiclePlate(existingAmbulance.getId(), existingAmbulance.getVehiclePlate());
+        Ambulances saved = ambulanceRepository.save(existingAmbulance);
+        availableIndex.record(saved);
+        fleetStatistics.record(saved);
+        return AmbulanceResponse.from(saved);
     }
 
     @Override
@@ -116,7 +145,11 @@ public class AmbulanceServiceImplementation implements AmbulanceService {
         if (ambulance.getFuelLevel() != null) existingAmbulance.setFuelLevel(ambulance.getFuelLevel());
         if (ambulance.getType() != null) existingAmbulance.setType(ambulance.getType());
 
-        return AmbulanceResponse.from(ambulanceRepository.save(existingAmbulance));
+        positionRegistry.updateVehiclePlate(existingAmbulance.getId(), existingAmbulance.getVehiclePlate());
+        Ambulances saved = ambulanceRepository.save(existingAmbulance);
+        availableIndex.record(saved);
+        fleetStatistics.record(saved);
+        return AmbulanceResponse.from(saved);
     }
 
     @Override
@@ -125,19 +158,30 @@ public class AmbulanceServiceImplementation implements AmbulanceService {
             throw new ResponseStatusException(NOT_FOUND, "Ambulance not found");
         }
         ambulanceRepository.deleteById(id);
+        segmentRepository.deleteByAmbulanceId(id);
+        locationIngestor.forgetAmbulance(id);
+        positionRegistry.forget(id);
+        availableIndex.remove(id);
+        fleetStatistics.remove(id);
+        fleetMap.forget(id);
     }
 
     @Override
     public AmbulanceDispatchResponse createDispatch(AssistanceRequest request) {
         AmbulanceDispatch dispatch = new AmbulanceDispatch();
+        // Validate the request before an ambulance is claimed for it
+        applyRequestToDispatch(dispatch, request);
 
-        Ambulances selectedAmbulance = pickAvailableAmbulanceForDispatch();
+        Ambulances selectedAmbulance = pickAvailableAmbulanceForDispatch(request);
         dispatch.setAmbulance(selectedAmbulance);
         selectedAmbulance.setStatus(Ambulances.AmbulanceStatus.DISPATCHED);
         selectedAmbulance.setLastDispatchTime(OffsetDateTime.now());
-        ambulanceRepository.save(selectedAmbulance);
-
-        applyRequestToDispatch(dispatch, request);
+        Ambulances dispatched = ambulanceRepository.save(selectedAmbulance);
+        availableIndex.record(dispatched);
+        fleetStatistics.record(dispatched);
+        // The ambulance is already chosen, so the destination hospital's unit is taken even at capacity
+        capacityLedger.occupy(heldHospitalId(dispatch));
+        etaTracker.estimate(dispatch);
 
         AmbulanceDispatch savedDispatch = dispatchRepository.save(dispatch);
         return mapToResponse(savedDispatch);
@@ -161,18 +205,69 @@ public class AmbulanceServiceImplementation implements AmbulanceService {
 
     @Override
     public AmbulanceDispatchResponse updateDispatch(Long id, AssistanceRequest request) {
-        AmbulanceDispatch dispatch = dispatchRepository.findById(id)
+        AmbulanceDispatch dispatch = dispatchRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Dispatch not found"));
+        Long previousHospitalId = heldHospitalId(dispatch);
         applyRequestToDispatch(dispatch, request);
+        Long hospitalId = heldHospitalId(dispatch);
+        if (!Objects.equals(previousHospitalId, hospitalId)) {
+            capacityLedger.release(previousHospitalId);
+            capacityLedger.occupy(hospitalId);
+        }
+        etaTracker.estimate(dispatch);
+        etaTracker.forget(id);
+        return mapToResponse(dispatchRepository.save(dispatch));
+    }
+
+    @Override
+    public AmbulanceDispatchResponse updateDispatchStatus(Long id, String status) {
+        AmbulanceDispatch.DispatchStatus next;
+        try {
+            next = AmbulanceDispatch.DispatchStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid dispatch status: " + status);
+        }
+        AmbulanceDispatch dispatch = dispatchRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Dispatch not found"));
+        if (HospitalCapacityLedger.isTerminal(dispatch.getStatus())) {
+            if (dispatch.getStatus() == next) return mapToResponse(dispatch);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Dispatch is already " + dispatch.getStatus());
+        }
+
+        if (HospitalCapacityLedger.isTerminal(next)) {
+            capacityLedger.release(heldHospitalId(dispatch));
+            returnToService(dispatch.getAmbulance());
+        }
+        dispatch.setStatus(next);
+        stampStatusTime(dispatch, next, OffsetDateTime.now());
+        etaTracker.forget(id);
         return mapToResponse(dispatchRepository.save(dispatch));
     }
 
     @Override
     public void deleteDispatch(Long id) {
-        if (!dispatchRepository.existsById(id)) {
-            throw new ResponseStatusException(NOT_FOUND, "Dispatch not found");
+        AmbulanceDispatch dispatch = dispatchRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Dispatch not found"));
+        capacityLedger.release(heldHospitalId(dispatch));
+        if (!HospitalCapacityLedger.isTerminal(dispatch.getStatus())) {
+            returnToService(dispatch.getAmbulance());
+        }
+        dispatchRepository.delete(dispatch);
+        etaTracker.forget(id);
+    }
+
+    // Frees the ambulance of a finished dispatch for the next one, unless it was taken off the road meanwhile
+    private void returnToService(Ambulances ambulance) {
+        if (ambulance == null) return;
+        Ambulances.AmbulanceStatus status = ambulance.getStatus();
+        if (status == Ambulances.AmbulanceStatus.AVAILABLE || status == Ambulances.AmbulanceStatus.MAINTENANCE
+                || status == Ambulances.AmbulanceStatus.OUT_OF_SERVICE) {
+            return;
         }
-        dispatchRepository.deleteById(id);
+        ambulance.setStatus(Ambulances.AmbulanceStatus.AVAILABLE);
+        Ambulances saved = ambulanceRepository.save(ambulance);
+        availableIndex.record(saved);
+        fleetStatistics.record(saved);
     }
 
     @Override
@@ -210,39 +305,44 @@ public class AmbulanceServiceImplementation implements AmbulanceService {
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Ambulance not found"));
         try {
             ambulance.setStatus(Ambulances.AmbulanceStatus.fromString(status));
-            return AmbulanceResponse.from(ambulanceRepository.save(ambulance));
+            Ambulances saved = ambulanceRepository.save(ambulance);
+            availableIndex.record(saved);
+            fleetStatistics.record(saved);
+            return AmbulanceResponse.from(saved);
         } catch (IllegalArgumentException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid status: " + status);
         }
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public AmbulanceTrackingResponse updateLocation(Long id, LocationUpdateRequest request) {
-        Ambulances ambulance = ambulanceRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Ambulance not found"));
+        if (request.getLatitude() == null || request.getLongitude() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "latitude and longitude are required");
+        }
+        // Written asynchronously in batches; the response echoes the accepted ping (no tracking id yet). Once
+        // queued the ping will be stored, so nothing below may fail the request and make the device resend it
+        AmbulanceLocationIngestor.Ping ping = locationIngestor.submit(id, request);
+        availableIndex.moveTo(ping.ambulanceId(), ping.latitude(), ping.longitude());
+        etaTracker.onPing(ping);
+        AmbulanceTrackingResponse position = positionRegistry.record(ping);
+        fleetMap.publish(position);
+        return position;
+    }
 
-        ambulance.setCurrentLatitude(request.getLatitude());
-        ambulance.setCurrentLongitude(request.getLongitude());
-        ambulance.setCurrentLocation(request.getLocationAddress());
-        ambulanceRepository.save(ambulance);
-
-        AmbulanceTracking tracking = AmbulanceTracking.builder()
-                .ambulance(ambulance)
-                .latitude(request.getLatitude())
-                .longitude(request.getLongitude())
-                .speed(request.getSpeed())
-                .heading(request.getHeading())
-                .batteryLevel(request.getBatteryLevel())
-                .signalStrength(request.getSignalStrength())
-                .locationAddress(request.getLocationAddress())
-                .isActive(true)
-                .build();
+    @PostConstruct
+    void windBackDroppedPings() {
+        locationIngestor.onDropped(this::onPingsDropped);
+    }
 
-        if (request.getDispatchId() != null) {
-            dispatchRepository.findById(request.getDispatchId()).ifPresent(tracking::setDispatch);
+    // Positions recorded when a dropped batch was accepted were never stored; the map and the dispatch
+    // index go back to the last stored ones. The map fan-out keeps the newer of two positions, but the
+    // dropped pings were fanned out long before their retries ran out
+    private void onPingsDropped(List<AmbulanceLocationIngestor.Ping> pings) {
+        for (AmbulanceTrackingResponse position : positionRegistry.discard(pings)) {
+            availableIndex.moveTo(position.getAmbulanceId(), position.getLatitude(), position.getLongitude());
+            fleetMap.publish(position);
         }
-
-        return mapToResponse(trackingRepository.save(tracking));
     }
 
     @Override
@@ -253,8 +353,64 @@ public class AmbulanceServiceImplementation implements AmbulanceService {
         }
         OffsetDateTime fromTime = from != null ? from : OffsetDateTime.now().minusDays(1);
         OffsetDateTime toTime = to != null ? to : OffsetDateTime.now();
-        return trackingRepository.findByAmbulanceIdAndTimestampBetweenOrderByTimestampDesc(id, fromTime, toTime)
-                .stream().map(this::mapToResponse).collect(Collectors.toList());
+        List<AmbulanceTrackingResponse> history = trackingRepository
+                .findByAmbulanceIdAndTimestampBetweenOrderByTimestampDesc(id, fromTime, toTime)
+                .stream().map(this::mapToResponse).collect(Collectors.toCollection(ArrayList::new));
+        // Older history has been compacted; its points carry position and time only
+        for (AmbulanceTrackSegment segment : segmentRepository.findOverlapping(id, fromTime, toTime)) {
+            for (TrackPolyline.Fix fix : fixesWithin(segment, fromTime, toTime)) {
+                history.add(AmbulanceTrackingResponse.builder()
+                        .ambulanceId(segment.getAmbulanceId())
+                        .dispatchId(segment.getDispatchId())
+                        .latitude(BigDecimal.valueOf(fix.latitude()))
+                        .longitude(BigDecimal.valueOf(fix.longitude()))
+                        .timestamp(TrackingHistoryCompactor.toTime(fix.epochSecond()))
+                        .isActive(false)
+                        .build());
+            }
+        }
+        history.sort(Comparator.comparing(AmbulanceTrackingResponse::getTimestamp).reversed());
+        return history;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AmbulanceTrackSegmentResponse> getTrack(Long id, OffsetDateTime from, OffsetDateTime to) {
+        if (!ambulanceRepository.existsById(id)) {
+            throw new ResponseStatusException(NOT_FOUND, "Ambulance not found");
+        }
+        OffsetDateTime fromTime = from != null ? from : OffsetDateTime.now().minusDays(1);
+        OffsetDateTime toTime = to != null ? to : OffsetDateTime.now();
+        List<AmbulanceTrackSegmentResponse> track = new ArrayList<>();
+        for (AmbulanceTrackSegment segment : segmentRepository.findOverlapping(id, fromTime, toTime)) {
+            List<TrackPolyline.Fix> fixes = fixesWithin(segment, fromTime, toTime);
+            if (!fixes.isEmpty()) track.add(mapToResponse(segment, fixes));
+        }
+        // Recent history is still raw; simplify it the same way on the fly
+        List<AmbulanceTracking> raw = new ArrayList<>(
+                trackingRepository.findByAmbulanceIdAndTimestampBetweenOrderByTimestampDesc(id, fromTime, toTime));
+        Collections.reverse(raw);
+        track.addAll(simplifyRaw(id, raw));
+        track.sort(Comparator.comparing(AmbulanceTrackSegmentResponse::getStartTime));
+        return track;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AmbulanceTrackSegmentResponse> getDispatchRoute(Long dispatchId) {
+        AmbulanceDispatch dispatch = dispatchRepository.findById(dispatchId)
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Dispatch not found"));
+        List<AmbulanceTrackSegmentResponse> route = new ArrayList<>();
+        for (AmbulanceTrackSegment segment : segmentRepository.findByDispatchIdOrderByStartTimeAsc(dispatchId)) {
+            route.add(mapToResponse(segment, null));
+        }
+        List<AmbulanceTracking> raw = trackingRepository.findByDispatchIdOrderByTimestampAsc(dispatchId);
+        if (!raw.isEmpty()) {
+            Long ambulanceId = dispatch.getAmbulance() != null ? dispatch.getAmbulance().getId() : raw.get(0).getAmbulance().getId();
+            route.addAll(simplifyRaw(ambulanceId, raw));
+        }
+        route.sort(Comparator.comparing(AmbulanceTrackSegmentResponse::getStartTime));
+        return route;
     }
 
     @Override
@@ -263,16 +419,27 @@ public class AmbulanceServiceImplementation implements AmbulanceService {
         if (!ambulanceRepository.existsById(id)) {
             throw new ResponseStatusException(NOT_FOUND, "Ambulance not found");
         }
-        AmbulanceTracking tracking = trackingRepository.findLatestByAmbulanceId(id)
+        return positionRegistry.latest(id)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "No tracking data found"));
-        return mapToResponse(tracking);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<AmbulanceTrackingResponse> getAllActiveTracking() {
-        return trackingRepository.findAllActiveTracking(OffsetDateTime.now().minusHours(1))
-                .stream().map(this::mapToResponse).collect(Collectors.toList());
+        return positionRegistry.activeSince(OffsetDateTime.now().minusHours(1));
+    }
+
+    @Override
+    public SseEmitter streamFleetMap(Double minLatitude, Double minLongitude, Double maxLatitude, Double maxLongitude) {
+        if (minLatitude == null && minLongitude == null && maxLatitude == null && maxLongitude == null) {
+            return fleetMap.subscribe(FleetMapBroadcaster.BoundingBox.WORLD);
+        }
+        if (minLatitude == null || minLongitude == null || maxLatitude == null || maxLongitude == null
+                || minLatitude > maxLatitude || minLongitude > maxLongitude) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "minLat, minLon, maxLat and maxLon must all be given, with min <= max");
+        }
+        return fleetMap.subscribe(new FleetMapBroadcaster.BoundingBox(minLatitude, minLongitude, maxLatitude, maxLongitude));
     }
 
     @Override
@@ -286,20 +453,7 @@ public class AmbulanceServiceImplementation implements AmbulanceService {
     @Override
     @Transactional(readOnly = true)
     public AmbulanceStatistics getStatistics() {
-        return AmbulanceStatistics.builder()
-                .totalFleet(ambulanceRepository.count())
-                .available(ambulanceRepository.countByStatus(Ambulances.AmbulanceStatus.AVAILABLE))
-                .busy(ambulanceRepository.countBusy())
-                .maintenance(ambulanceRepository.countByStatus(Ambulances.AmbulanceStatus.MAINTENANCE))
-                .outOfService(ambulanceRepository.countByStatus(Ambulances.AmbulanceStatus.OUT_OF_SERVICE))
-                .averageMileage(ambulanceRepository.getAverageMileage())
-                .averageFuelLevel(ambulanceRepository.getAverageFuelLevel())
-                .totalDispatches(ambulanceRepository.getTotalDispatches())
-                .basicLifeSupport(ambulanceRepository.countByType(Ambulances.AmbulanceType.BASIC_LIFE_SUPPORT))
-                .advancedLifeSupport(ambulanceRepository.countByType(Ambulances.AmbulanceType.ADVANCED_LIFE_SUPPORT))
-                .criticalCare(ambulanceRepository.countByType(Ambulances.AmbulanceType.CRITICAL_CARE))
-                .patientTransport(ambulanceRepository.countByType(Ambulances.AmbulanceType.PATIENT_TRANSPORT))
-                .build();
+        return fleetStatistics.current();
     }
 
     @Override
@@ -335,14 +489,94 @@ public class AmbulanceServiceImplementation implements AmbulanceService {
 
     // ==================== PRIVATE HELPERS ====================
 
-    private Ambulances pickAvailableAmbulanceForDispatch() {
-        List<Ambulances> noDriverAvailable = ambulanceRepository.findAvailableWithoutDriver();
-        if (!noDriverAvailable.isEmpty()) return noDriverAvailable.get(0);
+    private static Long heldHospitalId(AmbulanceDispatch dispatch) {
+        return HospitalCapacityLedger.holdsUnit(dispatch) ? dispatch.getHospital().getId() : null;
+    }
 
-        List<Ambulances> available = ambulanceRepository.findByStatus(Ambulances.AmbulanceStatus.AVAILABLE);
-        if (!available.isEmpty()) return available.get(0);
+    private static List<TrackPolyline.Fix> fixesWithin(AmbulanceTrackSegment segment, OffsetDateTime from, OffsetDateTime to) {
+        long fromSecond = from.toEpochSecond();
+        long toSecond = to.toEpochSecond();
+        return TrackPolyline.decode(segment.getEncodedPoints(), segment.getStartTime().toEpochSecond()).stream()
+                .filter(fix -> fix.epochSecond() >= fromSecond && fix.epochSecond() <= toSecond)
+                .toList();
+    }
+
+    private List<AmbulanceTrackSegmentResponse> simplifyRaw(Long ambulanceId, List<AmbulanceTracking> ascending) {
+        if (ascending.isEmpty()) return List.of();
+        List<TrackingHistoryCompactor.TrackedFix> fixes = ascending.stream()
+                .map(t -> new TrackingHistoryCompactor.TrackedFix(new TrackPolyline.Fix(t.getLatitude().doubleValue(),
+                        t.getLongitude().doubleValue(), t.getTimestamp().toEpochSecond()),
+                        t.getDispatch() != null ? t.getDispatch().getId() : null))
+                .toList();
+        return TrackingHistoryCompactor.toSegments(ambulanceId, fixes, historyCompactor.toleranceMeters()).stream()
+                .map(segment -> mapToResponse(segment, null))
+                .toList();
+    }
+
+    // With fixes, the segment is re-encoded to just those (a segment clipped to a time range)
+    private static AmbulanceTrackSegmentResponse mapToResponse(AmbulanceTrackSegment segment, List<TrackPolyline.Fix> fixes) {
+        boolean clipped = fixes != null && fixes.size() != segment.getPointCount();
+        if (!clipped) {
+            return AmbulanceTrackSegmentResponse.builder()
+                    .ambulanceId(segment.getAmbulanceId())
+                    .dispatchId(segment.getDispatchId())
+                    .startTime(segment.getStartTime())
+                    .endTime(segment.getEndTime())
+                    .pointCount(segment.getPointCount())
+                    .rawPointCount(segment.getRawPointCount())
+                    .encodedPoints(segment.getEncodedPoints())
+                    .build();
+        }
+        long first = fixes.get(0).epochSecond();
+        return AmbulanceTrackSegmentResponse.builder()
+                .ambulanceId(segment.getAmbulanceId())
+                .dispatchId(segment.getDispatchId())
+                .startTime(TrackingHistoryCompactor.toTime(first))
+                .endTime(TrackingHistoryCompactor.toTime(fixes.get(fixes.size() - 1).epochSecond()))
+                .pointCount(fixes.size())
+                .encodedPoints(TrackPolyline.encode(fixes, first))
+                .build();
+    }
+
+    private static void stampStatusTime(AmbulanceDispatch dispatch, AmbulanceDispatch.DispatchStatus status, OffsetDateTime now) {
+        switch (status) {
+            case DISPATCHED -> { if (dispatch.getDispatchTime() == null) dispatch.setDispatchTime(now); }
+            case EN_ROUTE -> { if (dispatch.getEnRouteTime() == null) dispatch.setEnRouteTime(now); }
+            case ON_SCENE -> { if (dispatch.getOnSceneTime() == null) dispatch.setOnSceneTime(now); }
+            case TRANSPORTING -> { if (dispatch.getDepartSceneTime() == null) dispatch.setDepartSceneTime(now); }
+            case AT_HOSPITAL -> { if (dispatch.getArrivalAtHospitalTime() == null) dispatch.setArrivalAtHospitalTime(now); }
+            case COMPLETED, CANCELED -> dispatch.setCompletionTime(now);
+            default -> { }
+        }
+    }
 
-        throw new ResponseStatusException(HttpStatus.CONFLICT, "No available ambulance for dispatch");
+    private Ambulances pickAvailableAmbulanceForDispatch(AssistanceRequest request) {
+        Ambulances.AmbulanceType type;
+        try {
+            type = Ambulances.AmbulanceType.fromString(request.getAmbulanceType());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid type: " + request.getAmbulanceType());
+        }
+        boolean requireIcu = Boolean.TRUE.equals(request.getRequiresIcu());
+
+        if (request.getPickupLatitude() != null && request.getPickupLongitude() != null) {
+            // Nearest first; the index may lag a status change made on another node, so re-check the row
+            for (GeoGridIndex.Neighbour<AvailableAmbulanceIndex.Candidate> candidate : availableIndex.nearest(
+                    request.getPickupLatitude().doubleValue(), request.getPickupLongitude().doubleValue(), type, requireIcu)) {
+                if (!availableIndex.claim(candidate.id())) continue;
+                Optional<Ambulances> ambulance = ambulanceRepository.findById(candidate.id())
+                        .filter(a -> a.getStatus() == Ambulances.AmbulanceStatus.AVAILABLE);
+                if (ambulance.isPresent()) return ambulance.get();
+            }
+        }
+
+        // No pickup position, or no suitable ambulance has reported one
+        List<Ambulances> noDriverAvailable = ambulanceRepository.findAvailableWithoutDriver();
+        List<Ambulances> available = ambulanceRepository.findByStatus(Ambulances.AmbulanceStatus.AVAILABLE);
+        return Stream.concat(noDriverAvailable.stream(), available.stream())
+                .filter(a -> (type == null || a.getType() == type) && (!requireIcu || a.isEquippedForICU()))
+                .findFirst()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "No available ambulance for dispatch"));
     }
 
     private void applyRequestToDispatch(AmbulanceDispatch dispatch, AssistanceRequest request) {
@@ -413,6 +647,8 @@ public class AmbulanceServiceImplementation implements AmbulanceService {
                 .dropoffLongitude(dispatch.getDropoffLongitude())
                 .dropoffAddressLine1(dispatch.getDropoffAddressLine1())
                 .dropoffCity(dispatch.getDropoffCity())
+                .estimatedResponseTime(dispatch.getEstimatedResponseTime())
+                .estimatedDistance(dispatch.getEstimatedDistance())
                 .build();
     }
 
@@ -50,6 +50,8 @@ public class AppointmentServiceImplementation implements AppointmentService {
     private final CommunityHealthWorkersRepository communityHealthWorkersRepository;
     private final DoctorRepository doctorRepository;
     private final TelemedicineSessionRepository telemedicineSessionRepository;
+    private final TelemedicineAggregateStore telemedicineAggregateStore;
+    private final SequenceIdAllocator idAllocator;
     private final CommunityHealthWorkerAssignmentService assignmentService;
 
     @Override
@@ -145,7 +147,7 @@ public class AppointmentServiceImplementation implements AppointmentService {
         if (!appointmentRepository.existsById(id)) {
             throw new ResponseStatusException(NOT_FOUND, "Appointment not found");
         }
-        telemedicineSessionRepository.deleteByAppointmentId(id);
+        removeTelemedicineSession(id);
         assignmentService.removeForAppointment(id);
         appointmentRepository.deleteById(id);
     }
@@ -628,18 +630,20 @@ public class AppointmentServiceImplementation implements AppointmentService {
         }
 
         if (!isTelemedicineType(appointment.getType())) {
-            telemedicineSessionRepository.deleteByAppointmentId(appointment.getId());
+            removeTelemedicineSession(appointment.getId());
             return;
         }
 
         if (appointment.getProviderRole() != Appointment.ProviderRole.DOCTOR || appointment.getDoctor() == null) {
-            telemedicineSessionRepository.deleteByAppointmentId(appointment.getId());
+            removeTelemedicineSession(appointment.getId());
             return;
         }
 
         TelemedicineSession session = telemedicineSessionRepository
                 .findByAppointmentId(appointment.getId())
                 .orElseGet(TelemedicineSession::new);
+        TelemedicineAggregateStore.SessionFacts before =
+                session.getId() != null ? TelemedicineAggregateStore.SessionFacts.of(session) : null;
 
         if (session.getSessionId() == null || session.getSessionId().isBlank()) {
             session.setSessionId(generateTelemedicineSessionId());
@@ -683,7 +687,16 @@ public class AppointmentServiceImplementation implements AppointmentService {
             session.setMeetingId(UUID.randomUUID().toString());
         }
 
-        telemedicineSessionRepository.save(session);
+        TelemedicineSession saved = telemedicineSessionRepository.save(session);
+        telemedicineAggregateStore.record(before, TelemedicineAggregateStore.SessionFacts.of(saved));
+    }
+
+    private void removeTelemedicineSession(Long appointmentId) {
+        telemedicineSessionRepository.findByAppointmentId(appointmentId).ifPresent(session -> {
+            TelemedicineAggregateStore.SessionFacts facts = TelemedicineAggregateStore.SessionFacts.of(session);
+            telemedicineSessionRepository.delete(session);
+            telemedicineAggregateStore.record(facts, null);
+        });
     }
 
     private SessionStatus mapAppointmentStatusToSessionStatus(Appointment.AppointmentStatus status) {
@@ -724,6 +737,6 @@ public class AppointmentServiceImplementation implements AppointmentService {
     }
 
     private String generateTelemedicineSessionId() {
-        return "TM-" + UUID.randomUUID().toString().replace("-", "").substring(0, 12).toUpperCase();
+        return idAllocator.nextId(SequenceIdAllocator.Kind.TELEMEDICINE_SESSION);
     }
 }
@@ -36,6 +36,8 @@ public class AssistanceServiceImplementation implements AssistanceService {
     private final CommunityHealthWorkersService chwService;
     private final CommunityHealthWorkersRepository chwRepo;
     private final CommunityHealthWorkerAssignmentRepository assignmentRepo;
+    private final AvailableChwIndex chwIndex;
+    private final HospitalCapacityLedger capacityLedger;
 
     @Override
     public AssistanceResponse requestAssistance(AssistanceRequest r) {
@@ -54,17 +56,8 @@ public class AssistanceServiceImplementation implements AssistanceService {
                     .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Hospital not found"));
         }
 
-        boolean ambulanceAvailable = false;
-        if (hospital != null && hospital.getNumberOfAmbulances() != null && hospital.getNumberOfAmbulances() > 0) {
-            var activeStatuses = List.of(
-                    AmbulanceDispatch.DispatchStatus.DISPATCHED,
-                    AmbulanceDispatch.DispatchStatus.EN_ROUTE,
-                    AmbulanceDispatch.DispatchStatus.ON_SCENE,
-                    AmbulanceDispatch.DispatchStatus.TRANSPORTING
-            );
-            long active = dispatchRepo.countByHospitalIdAndStatusIn(hospital.getId(), activeStatuses);
-            ambulanceAvailable = active < hospital.getNumberOfAmbulances();
-        }
+        // Reserves one of the hospital's units for the dispatch created below; released when it closes
+        boolean ambulanceAvailable = hospital != null && capacityLedger.tryReserve(hospital);
 
         if (ambulanceAvailable) {
             AmbulanceDispatch dispatch = new AmbulanceDispatch();
@@ -123,7 +116,7 @@ public class AssistanceServiceImplementation implements AssistanceService {
                 )
         );
         chw.setAssignedPatients(Math.toIntExact(activeAssignments));
-        chwRepo.save(chw);
+        chwIndex.record(chwRepo.save(chw));
 
         AssistanceResponse response = new AssistanceResponse();
         response.setMode(AssistanceResponse.Mode.CHW);
@@ -169,10 +162,12 @@ public class AssistanceServiceImplementation implements AssistanceService {
 
     @Override
     public void deleteDispatch(Long id) {
-        if (!dispatchRepo.existsById(id)) {
-            throw new ResponseStatusException(NOT_FOUND, "Dispatch not found");
+        AmbulanceDispatch dispatch = dispatchRepo.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Dispatch not found"));
+        if (HospitalCapacityLedger.holdsUnit(dispatch)) {
+            capacityLedger.release(dispatch.getHospital().getId());
         }
-        dispatchRepo.deleteById(id);
+        dispatchRepo.delete(dispatch);
     }
 
     private AssistanceResponse mapToResponse(AmbulanceDispatch dispatch) {
@@ -0,0 +1,437 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AuditLog;
+import com.example.codebasebackend.Entities.User;
+import com.example.codebasebackend.configs.RequestCorrelationFilter;
+import com.example.codebasebackend.dto.AuditLogRequest;
+import com.example.codebasebackend.repositories.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.rowset.serial.SerialClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Writes audit events off the audited call's critical path.
+ *
+ * {@link #capture} snapshots everything that only exists on the calling thread (principal, client IP,
+ * session, user agent, request id) into an immutable {@link AuditEvent}. In the default
+ * {@code fire-and-forget} mode the event goes onto a bounded queue, and is dropped (and counted) when the
+ * queue is full rather than slowing the caller; a writer thread resolves users through a short-lived cache,
+ * redacts details and writes each batch with one JDBC batch insert. In {@code flush-before-commit} mode
+ * successful events are buffered on the surrounding transaction and batch-inserted just before it commits,
+ * so they commit or roll back with the change they describe; failures still go through the queue, since
+ * their transaction usually rolls back. Outside a transaction that mode writes immediately; the
+ * {@code AuditAspect} opens one around audited calls that change something, for their services to join.
+ */
+@Component
+@Slf4j
+public class AuditEventWriter {
+
+    public enum DurabilityMode { FIRE_AND_FORGET, FLUSH_BEFORE_COMMIT }
+
+    private static final String INSERT_SQL = "INSERT INTO audit_logs (event_type, entity_type, entity_id, user_id, username, " +
+            "ip_address, event_time, details, status, error_message, integration_partner_id, session_id, correlation_id, " +
+            "user_agent, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int MAX_CACHED_USERS = 10_000;
+
+    /** An audit event as captured on the audited thread. */
+    public record AuditEvent(AuditLog.EventType eventType,
+                             String entityType,
+                             String entityId,
+                             Long userId,
+                             String requestedUsername,
+                             String authenticatedUsername,
+                             String ipAddress,
+                             String sessionId,
+                             String correlationId,
+                             String userAgent,
+                             AuditLog.EventStatus status,
+                             String errorMessage,
+                             Long integrationPartnerId,
+                             String details,
+                             boolean detailsRedacted,
+                             OffsetDateTime eventTime) {
+    }
+
+    // An event with its user resolved and details redacted, ready to insert
+    private record Row(AuditEvent event, Long userId, String username, String entityId, String details) {
+    }
+
+    // A user id and canonical username, or neither when nobody matched
+    private record CachedUser(Long id, String username, long loadedAtNanos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final DurabilityMode mode;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final int maxAttempts;
+    private final long userCacheTtlNanos;
+    private final Map<String, CachedUser> users = new ConcurrentHashMap<>();
+    private final ExecutorService writer;
+    private volatile boolean running;
+
+    private final Counter droppedCounter;
+    private final Counter flushedCounter;
+    private final Timer flushTimer;
+
+    public AuditEventWriter(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            UserRepository userRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.audit.writer.mode:fire-and-forget}") String mode,
+                            @Value("${app.audit.writer.queue-capacity:10000}") int queueCapacity,
+                            @Value("${app.audit.writer.batch-size:500}") int batchSize,
+                            @Value("${app.audit.writer.flush-interval-ms:200}") long flushIntervalMs,
+                            @Value("${app.audit.writer.max-attempts:5}") int maxAttempts,
+                            @Value("${app.audit.writer.user-cache-ttl-ms:300000}") long userCacheTtlMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userRepository = userRepository;
+        this.mode = DurabilityMode.valueOf(mode.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.userCacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, userCacheTtlMs));
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("audit.events.queued", queue, BlockingQueue::size)
+                .description("Audit events captured but not yet written")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("audit.events.dropped")
+                .description("Audit events dropped because the queue was full or writes kept failing")
+                .register(meterRegistry);
+        this.flushedCounter = Counter.builder("audit.events.flushed")
+                .description("Audit events written to audit_logs")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("audit.events.flush")
+                .description("Time to write one batch of audit events")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer.execute(this::runWriter);
+    }
+
+    public DurabilityMode mode() {
+        return mode;
+    }
+
+    /** Captures the request into an event and hands it to the configured durability mode. */
+    public void enqueue(AuditLogRequest request) {
+        submit(capture(request, false));
+    }
+
+    /** As {@link #enqueue(AuditLogRequest)}, for details that are already redacted and capped. */
+    public void enqueue(AuditLogRequest request, boolean detailsRedacted) {
+        submit(capture(request, detailsRedacted));
+    }
+
+    /** Snapshots the request together with the calling thread's security and request context. */
+    public AuditEvent capture(AuditLogRequest request, boolean detailsRedacted) {
+        HttpServletRequest http = currentRequest();
+        String correlationId = StringUtils.hasText(request.getCorrelationId()) ? request.getCorrelationId()
+                : http != null && StringUtils.hasText(http.getHeader(RequestCorrelationFilter.HEADER))
+                ? http.getHeader(RequestCorrelationFilter.HEADER) : MDC.get(RequestCorrelationFilter.MDC_KEY);
+        return new AuditEvent(
+                AuditServiceImplementation.parseEventType(request.getEventType()),
+                request.getEntityType(),
+                StringUtils.hasText(request.getEntityId()) ? request.getEntityId().trim() : null,
+                request.getUserId(),
+                StringUtils.hasText(request.getUsername()) ? request.getUsername().trim() : null,
+                currentUsername(),
+                StringUtils.hasText(request.getIpAddress()) ? request.getIpAddress() : clientIp(http),
+                StringUtils.hasText(request.getSessionId()) ? request.getSessionId()
+                        : http != null && http.getSession(false) != null ? http.getSession(false).getId() : null,
+                correlationId,
+                StringUtils.hasText(request.getUserAgent()) ? request.getUserAgent()
+                        : http != null ? http.getHeader("User-Agent") : null,
+                AuditServiceImplementation.parseStatus(request.getStatus()),
+                request.getErrorMessage(),
+                request.getIntegrationPartnerId(),
+                request.getDetails(),
+                detailsRedacted,
+                OffsetDateTime.now());
+    }
+
+    public void submit(AuditEvent event) {
+        if (mode == DurabilityMode.FLUSH_BEFORE_COMMIT && event.status() != AuditLog.EventStatus.FAILURE) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                write(List.of(event));
+                return;
+            }
+            transactionBuffer().add(event);
+            return;
+        }
+        if (!queue.offer(event)) {
+            droppedCounter.increment();
+            log.warn("Audit queue full; dropped {} {} event for {} {}", event.status(), event.eventType(),
+                    event.entityType(), event.entityId());
+        }
+    }
+
+    int queueDepth() {
+        return queue.size();
+    }
+
+    // The events buffered on the current transaction, written just before it commits
+    @SuppressWarnings("unchecked")
+    private List<AuditEvent> transactionBuffer() {
+        List<AuditEvent> buffer = (List<AuditEvent>) TransactionSynchronizationManager.getResource(this);
+        if (buffer != null) return buffer;
+        List<AuditEvent> events = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, events);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (!events.isEmpty()) write(events);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(AuditEventWriter.this);
+            }
+        });
+        return events;
+    }
+
+    private void runWriter() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeWithRetry(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) writeWithRetry(batch);
+                running = false;
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeWithRetry(List<AuditEvent> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+                return;
+            } catch (NonTransientDataAccessException e) {
+                // Retrying cannot fix a rejected row, and one bad row must not cost the rest of the batch
+                if (batch.size() > 1) {
+                    log.warn("Audit write of {} events rejected, writing them one by one: {}", batch.size(), e.getMessage());
+                    for (AuditEvent event : batch) {
+                        writeWithRetry(List.of(event));
+                    }
+                    return;
+                }
+                AuditEvent event = batch.get(0);
+                droppedCounter.increment();
+                log.error("Dropping {} {} audit event for {} {} the database rejected: {}", event.status(),
+                        event.eventType(), event.entityType(), event.entityId(), e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    droppedCounter.increment(batch.size());
+                    log.error("Dropping {} audit events after {} failed writes: {}", batch.size(), attempt, e.getMessage());
+                    return;
+                }
+                log.warn("Audit write of {} events failed (attempt {}), retrying: {}", batch.size(), attempt, e.getMessage());
+                try {
+                    Thread.sleep(Math.min(200L << attempt, 10_000L));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    // Joins the current transaction if there is one
+    void write(List<AuditEvent> batch) {
+        Timer.Sample sample = Timer.start();
+        List<Row> rows = new ArrayList<>(batch.size());
+        for (AuditEvent event : batch) {
+            rows.add(toRow(event));
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), AuditEventWriter::bind);
+        sample.stop(flushTimer);
+        flushedCounter.increment(batch.size());
+    }
+
+    // Same user and entity id resolution as AuditServiceImplementation.log
+    private Row toRow(AuditEvent event) {
+        CachedUser user = null;
+        if (event.userId() != null) {
+            user = cached("id:" + event.userId(), () -> userRepository.findById(event.userId()).orElse(null));
+        }
+        if (user == null && event.requestedUsername() != null) {
+            user = byName(event.requestedUsername());
+        }
+        String authenticated = event.authenticatedUsername();
+        if (user == null && StringUtils.hasText(authenticated) && !"system".equalsIgnoreCase(authenticated)) {
+            user = byName(authenticated);
+        }
+
+        String username = event.requestedUsername();
+        if (!StringUtils.hasText(username) && user != null) username = user.username();
+        if (!StringUtils.hasText(username)) username = authenticated;
+
+        String entityId = event.entityId();
+        if (entityId == null && "USER".equalsIgnoreCase(event.entityType()) && user != null) {
+            entityId = String.valueOf(user.id());
+        }
+        if (entityId == null && StringUtils.hasText(username)
+                && (event.eventType() == AuditLog.EventType.LOGIN || event.eventType() == AuditLog.EventType.LOGOUT)) {
+            entityId = username;
+        }
+
+        String details = event.detailsRedacted() ? event.details() : AuditServiceImplementation.truncate(
+                AuditServiceImplementation.redact(event.details()), AuditServiceImplementation.MAX_DETAILS_LENGTH);
+        return new Row(event, user != null ? user.id() : null, username, entityId, details);
+    }
+
+    private CachedUser byName(String name) {
+        return cached("name:" + name.toLowerCase(Locale.ROOT), () -> userRepository.findByUsernameIgnoreCase(name)
+                .or(() -> userRepository.findByEmailIgnoreCase(name))
+                .orElse(null));
+    }
+
+    // Returns null when nobody matched; misses are cached too
+    private CachedUser cached(String key, Supplier<User> lookup) {
+        long now = System.nanoTime();
+        CachedUser user = users.get(key);
+        if (user == null || now - user.loadedAtNanos() > userCacheTtlNanos) {
+            User found = lookup.get();
+            user = new CachedUser(found != null ? found.getId() : null, found != null ? found.getUsername() : null, now);
+            if (users.size() >= MAX_CACHED_USERS) users.clear();
+            users.put(key, user);
+        }
+        return user.id() != null ? user : null;
+    }
+
+    // Strings are cut to their audit_logs column lengths, as AuditServiceImplementation does for error_message
+    private static void bind(PreparedStatement statement, Row row) throws SQLException {
+        AuditEvent event = row.event();
+        statement.setString(1, event.eventType().name());
+        setNullable(statement, 2, truncate(event.entityType(), 80), Types.VARCHAR);
+        setNullable(statement, 3, truncate(row.entityId(), 64), Types.VARCHAR);
+        setNullable(statement, 4, row.userId(), Types.BIGINT);
+        setNullable(statement, 5, truncate(row.username(), 120), Types.VARCHAR);
+        setNullable(statement, 6, truncate(event.ipAddress(), 64), Types.VARCHAR);
+        statement.setObject(7, event.eventTime());
+        // details is a @Lob; bound as a Clob the way Hibernate binds it
+        if (row.details() == null) {
+            statement.setNull(8, Types.CLOB);
+        } else {
+            statement.setClob(8, new SerialClob(row.details().toCharArray()));
+        }
+        statement.setString(9, event.status().name());
+        setNullable(statement, 10, truncate(event.errorMessage(), 500), Types.VARCHAR);
+        setNullable(statement, 11, event.integrationPartnerId(), Types.BIGINT);
+        setNullable(statement, 12, truncate(event.sessionId(), 120), Types.VARCHAR);
+        setNullable(statement, 13, truncate(event.correlationId(), 120), Types.VARCHAR);
+        setNullable(statement, 14, truncate(event.userAgent(), 200), Types.VARCHAR);
+        statement.setObject(15, event.eventTime());
+    }
+
+    private static String truncate(String value, int max) {
+        return AuditServiceImplementation.truncate(value, max);
+    }
+
+    private static void setNullable(PreparedStatement statement, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, sqlType);
+        } else {
+            statement.setObject(index, value, sqlType);
+        }
+    }
+
+    private static String currentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && StringUtils.hasText(auth.getName())
+                && !"anonymousUser".equalsIgnoreCase(auth.getName())) {
+            return auth.getName();
+        }
+        return "system";
+    }
+
+    private static String clientIp(HttpServletRequest request) {
+        if (request == null) return null;
+        String ip = request.getHeader("X-Forwarded-For");
+        if (StringUtils.hasText(ip)) return ip.split(",")[0].trim();
+        return request.getRemoteAddr();
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attrs = RequestContextHolder.getRequestAttributes();
+        if (attrs instanceof ServletRequestAttributes sra) return sra.getRequest();
+        return null;
+    }
+
+    /** Stops accepting work and writes whatever is still queued. */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Audit writer did not drain in time; {} events not written", queue.size());
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AuditLog;
+import com.example.codebasebackend.Entities.User;
+import com.example.codebasebackend.Entities.UserRole;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Audit log search for large tables: keyset pages on (event_time, id) instead of offsets, no exact COUNT,
+ * and text filters an index can answer.
+ *
+ * Filters match exactly as the offset search does (case-insensitive substring matches on the text columns).
+ * Each text filter is also checked against one lower-cased expression joining those columns, which
+ * Postgres can answer from a single pg_trgm GIN index ({@code idx_audit_search_text_trgm}, created when
+ * {@code app.audit.search.trigram-index} is enabled); the per-column condition then rechecks the candidates.
+ * Equality filters and the keyset are served by the composite (..., event_time, id) indexes on
+ * {@link AuditLog}. The total, when asked for, is the planner's estimate for the filters, never a COUNT.
+ */
+@Component
+@Slf4j
+public class AuditLogSearch {
+
+    private static final String[] TEXT_COLUMNS = {
+            "username", "entity_type", "entity_id", "ip_address", "session_id", "correlation_id", "error_message"
+    };
+    static final String TEXT_INDEX = "idx_audit_search_text_trgm";
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+
+    private static final String COLUMNS = "a.id, a.event_type, a.entity_type, a.entity_id, a.user_id, a.username, " +
+            "a.ip_address, a.event_time, a.details, a.status, a.error_message, a.integration_partner_id, a.session_id, " +
+            "a.correlation_id, a.user_agent, a.updated_at";
+
+    /** Filters of a search, already scoped to what the caller may see. */
+    public record Criteria(AuditLog.EventType eventType,
+                           String entityType,
+                           String entityId,
+                           Long userId,
+                           String userIdUsername, // the userId's username, also matched for rows without a linked user
+                           String username,
+                           String searchTerm,
+                           AuditLog.EventStatus status,
+                           Long integrationPartnerId,
+                           OffsetDateTime from,
+                           OffsetDateTime to) {
+    }
+
+    /** Position after the last row of a page, newest first. */
+    public record Cursor(OffsetDateTime eventTime, long id) {
+
+        public String encode() {
+            String raw = eventTime + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|");
+                if (parts.length != 2) throw new IllegalArgumentException("wrong number of parts");
+                return new Cursor(OffsetDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid audit log cursor");
+            }
+        }
+    }
+
+    /** A page of logs (users attached where linked), the cursor of the next page if any, and an estimated total. */
+    public record Page(List<AuditLog> logs, Cursor next, Long estimatedTotal) {
+    }
+
+    private static final RowMapper<AuditLog> LOG_MAPPER = (rs, rowNum) -> {
+        Long userId = rs.getObject("u_id", Long.class);
+        User user = userId == null ? null : User.builder()
+                .id(userId)
+                .username(rs.getString("u_username"))
+                .email(rs.getString("u_email"))
+                .fullName(rs.getString("u_full_name"))
+                .role(rs.getString("u_role") != null ? UserRole.valueOf(rs.getString("u_role")) : null)
+                .build();
+        String eventType = rs.getString("event_type");
+        String status = rs.getString("status");
+        return AuditLog.builder()
+                .id(rs.getLong("id"))
+                .eventType(eventType != null ? AuditLog.EventType.valueOf(eventType) : null)
+                .entityType(rs.getString("entity_type"))
+                .entityId(rs.getString("entity_id"))
+                .user(user)
+                .username(rs.getString("username"))
+                .ipAddress(rs.getString("ip_address"))
+                .eventTime(rs.getObject("event_time", OffsetDateTime.class))
+                .details(details(rs))
+                .status(status != null ? AuditLog.EventStatus.valueOf(status) : null)
+                .errorMessage(rs.getString("error_message"))
+                .integrationPartnerId(rs.getObject("integration_partner_id", Long.class))
+                .sessionId(rs.getString("session_id"))
+                .correlationId(rs.getString("correlation_id"))
+                .userAgent(rs.getString("user_agent"))
+                .updatedAt(rs.getObject("updated_at", OffsetDateTime.class))
+                .build();
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final boolean trigramIndex;
+    private volatile Boolean postgres;
+
+    public AuditLogSearch(NamedParameterJdbcTemplate jdbcTemplate,
+                          @Value("${app.audit.search.page-size:50}") int defaultPageSize,
+                          @Value("${app.audit.search.max-page-size:500}") int maxPageSize,
+                          @Value("${app.audit.search.trigram-index:false}") boolean trigramIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxPageSize = Math.max(1, maxPageSize);
+        this.defaultPageSize = Math.min(Math.max(1, defaultPageSize), this.maxPageSize);
+        this.trigramIndex = trigramIndex;
+    }
+
+    /**
+     * Up to {@code requestedSize} (capped, default when null) logs matching the criteria, newest first, strictly
+     * after {@code after} (null for the first page). Must run in a transaction: details are a large object on
+     * Postgres.
+     */
+    public Page page(Criteria criteria, Cursor after, Integer requestedSize, boolean estimateTotal) {
+        int size = requestedSize == null ? defaultPageSize : Math.max(1, Math.min(requestedSize, maxPageSize));
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String where = where(criteria, params);
+        String keyset = "";
+        if (after != null) {
+            keyset = (where.isEmpty() ? " WHERE " : " AND ") + "(a.event_time, a.id) < (:afterTime, :afterId)";
+            params.addValue("afterTime", after.eventTime()).addValue("afterId", after.id());
+        }
+        params.addValue("limit", size + 1);
+        // Users are joined to the page only, not to every row the page was picked from
+        List<AuditLog> logs = jdbcTemplate.query("SELECT a.*, u.id AS u_id, u.username AS u_username, u.email AS u_email, " +
+                "u.full_name AS u_full_name, u.role AS u_role FROM (SELECT " + COLUMNS + " FROM audit_logs a" + where + keyset +
+                " ORDER BY a.event_time DESC, a.id DESC LIMIT :limit) a LEFT JOIN users u ON u.id = a.user_id " +
+                "ORDER BY a.event_time DESC, a.id DESC", params, LOG_MAPPER);
+
+        Cursor next = null;
+        if (logs.size() > size) {
+            logs = new ArrayList<>(logs.subList(0, size));
+            AuditLog last = logs.get(size - 1);
+            next = new Cursor(last.getEventTime(), last.getId());
+        }
+        Long total = estimateTotal ? estimateRows(where, params) : null;
+        return new Page(logs, next, total);
+    }
+
+    /** Creates the trigram index behind the text filters, if enabled and on Postgres. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureTextIndex() {
+        if (!trigramIndex) return;
+        if (!isPostgres()) {
+            log.warn("The audit search trigram index needs PostgreSQL; text filters stay unindexed");
+            return;
+        }
+        try {
+            String kind = jdbcTemplate.getJdbcTemplate().query("SELECT c.relkind FROM pg_class c JOIN pg_namespace n " +
+                    "ON n.oid = c.relnamespace WHERE n.nspname = current_schema() AND c.relname = 'audit_logs'",
+                    rs -> rs.next() ? rs.getString(1) : null);
+            if (kind == null) return;
+            jdbcTemplate.getJdbcTemplate().execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            // A partitioned table cannot be indexed concurrently; its partitions are indexed in one pass instead
+            long start = System.nanoTime();
+            jdbcTemplate.getJdbcTemplate().execute("CREATE INDEX " + ("p".equals(kind) ? "" : "CONCURRENTLY ") +
+                    "IF NOT EXISTS " + TEXT_INDEX + " ON audit_logs USING gin ((" + searchText("") + ") gin_trgm_ops)");
+            log.info("Audit search trigram index ready in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (DataAccessException e) {
+            log.error("Could not create the audit search trigram index; text filters stay unindexed", e);
+        }
+    }
+
+    private String where(Criteria criteria, MapSqlParameterSource params) {
+        List<String> conditions = new ArrayList<>();
+        String searchText = searchText("a.");
+        if (criteria.eventType() != null) {
+            conditions.add("a.event_type = :eventType");
+            params.addValue("eventType", criteria.eventType().name());
+        }
+        if (StringUtils.hasText(criteria.entityType())) {
+            conditions.add(searchText + " LIKE :entityType AND lower(a.entity_type) LIKE :entityType");
+            params.addValue("entityType", contains(criteria.entityType()));
+        }
+        if (StringUtils.hasText(criteria.entityId())) {
+            conditions.add(searchText + " LIKE :entityId AND lower(a.entity_id) LIKE :entityId");
+            params.addValue("entityId", contains(criteria.entityId()));
+        }
+        if (criteria.userId() != null) {
+            if (StringUtils.hasText(criteria.userIdUsername())) {
+                conditions.add("(a.user_id = :userId OR lower(a.username) = :userIdUsername)");
+                params.addValue("userIdUsername", criteria.userIdUsername().toLowerCase(Locale.ROOT));
+            } else {
+                conditions.add("a.user_id = :userId");
+            }
+            params.addValue("userId", criteria.userId());
+        }
+        if (StringUtils.hasText(criteria.username())) {
+            conditions.add(searchText + " LIKE :username AND lower(a.username) LIKE :username");
+            params.addValue("username", contains(criteria.username()));
+        }
+        if (StringUtils.hasText(criteria.searchTerm())) {
+            List<String> anyColumn = new ArrayList<>();
+            for (String column : TEXT_COLUMNS) {
+                anyColumn.add("lower(a." + column + ") LIKE :term");
+            }
+            conditions.add(searchText + " LIKE :term AND (" + String.join(" OR ", anyColumn) + ")");
+            params.addValue("term", contains(criteria.searchTerm()));
+        }
+        if (criteria.status() != null) {
+            conditions.add("a.status = :status");
+            params.addValue("status", criteria.status().name());
+        }
+        if (criteria.integrationPartnerId() != null) {
+            conditions.add("a.integration_partner_id = :integrationPartnerId");
+            params.addValue("integrationPartnerId", criteria.integrationPartnerId());
+        }
+        if (criteria.from() != null) {
+            conditions.add("a.event_time >= :from");
+            params.addValue("from", criteria.from());
+        }
+        if (criteria.to() != null) {
+            conditions.add("a.event_time <= :to");
+            params.addValue("to", criteria.to());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    // The planner's row estimate for the filters; null where there is no planner to ask
+    private Long estimateRows(String where, MapSqlParameterSource params) {
+        if (!isPostgres()) return null;
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN (FORMAT JSON) SELECT 1 FROM audit_logs a" + where,
+                params, String.class);
+        Matcher rows = PLAN_ROWS.matcher(String.join("", plan));
+        return rows.find() ? Long.parseLong(rows.group(1)) : null;
+    }
+
+    private boolean isPostgres() {
+        Boolean known = postgres;
+        if (known == null) {
+            String database = jdbcTemplate.getJdbcTemplate().execute(
+                    (ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            postgres = known = "PostgreSQL".equals(database);
+        }
+        return known;
+    }
+
+    // Kept identical to the indexed expression so the planner can match it
+    private static String searchText(String alias) {
+        List<String> parts = new ArrayList<>();
+        for (String column : TEXT_COLUMNS) {
+            parts.add("coalesce(" + alias + column + ", '')");
+        }
+        return "lower(" + String.join(" || ' ' || ", parts) + ")";
+    }
+
+    private static String contains(String value) {
+        return "%" + value.toLowerCase(Locale.ROOT) + "%";
+    }
+
+    private static String details(ResultSet rs) throws SQLException {
+        Clob clob = rs.getClob("details");
+        if (clob == null) return null;
+        try {
+            return clob.getSubString(1, (int) clob.length());
+        } finally {
+            clob.free();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.codebasebackend.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Deletes audit logs older than a cutoff without one long transaction.
+ *
+ * The ids of the rows past the cutoff are walked in windows of {@code app.audit.retention.chunk-size};
+ * each window is deleted in its own short transaction, and the pace is held to
+ * {@code app.audit.retention.rows-per-second} (0 for no limit). A purge that stops part way (shutdown,
+ * a failure, a crash) leaves only whole windows deleted, so the next purge simply carries on from the
+ * oldest remaining id.
+ *
+ * When {@code app.audit.retention.archive-dir} is set, each window's rows are first written there as
+ * gzipped NDJSON, {@code audit_logs-<first id>-<last id>.ndjson.gz}, and only deleted if the delete
+ * removes exactly the rows written. The file is in place before the delete commits; a purge interrupted
+ * between the two rewrites the same file on the next run, so every purged row is archived exactly once.
+ */
+@Component
+@Slf4j
+public class AuditRetentionPurger {
+
+    private static final String COLUMNS = "id, event_type, entity_type, entity_id, user_id, username, ip_address, " +
+            "event_time, details, status, error_message, integration_partner_id, session_id, correlation_id, " +
+            "user_agent, updated_at";
+    private static final String IN_WINDOW = " FROM audit_logs WHERE id >= ? AND id < ? AND event_time < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final double rowsPerSecond;
+    private final Path archiveDir;
+    private final ReentrantLock running = new ReentrantLock();
+    private final ExecutorService purger;
+    private volatile boolean stopping;
+
+    // Progress of the current purge, as ids; both zero when idle
+    private final AtomicLong windowStart = new AtomicLong();
+    private final AtomicLong windowEnd = new AtomicLong();
+    private final Counter deletedCounter;
+    private final Counter archivedCounter;
+    private final Timer chunkTimer;
+
+    public AuditRetentionPurger(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.audit.retention.chunk-size:5000}") int chunkSize,
+                                @Value("${app.audit.retention.rows-per-second:20000}") double rowsPerSecond,
+                                @Value("${app.audit.retention.archive-dir:}") String archiveDir) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.rowsPerSecond = Math.max(0, rowsPerSecond);
+        this.archiveDir = StringUtils.hasText(archiveDir) ? Path.of(archiveDir.trim()) : null;
+        this.purger = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("audit.retention.remaining.ids", this, p -> Math.max(0, p.windowEnd.get() - p.windowStart.get()))
+                .description("Ids left to walk in the running audit retention purge")
+                .register(meterRegistry);
+        this.deletedCounter = Counter.builder("audit.retention.deleted")
+                .description("Audit logs deleted by retention")
+                .register(meterRegistry);
+        this.archivedCounter = Counter.builder("audit.retention.archived")
+                .description("Audit logs written to the retention archive")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("audit.retention.chunk")
+                .description("Time to archive and delete one window of audit logs")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts a purge of everything older than {@code cutoff} on the retention thread, so a long throttled
+     * purge holds up neither the scheduler nor the caller. Returns false if a purge is already running.
+     */
+    public boolean purgeInBackground(OffsetDateTime cutoff) {
+        if (running.isLocked() || stopping) return false;
+        purger.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                long deleted = purgeBefore(cutoff);
+                log.info("Audit retention purge complete: {} records deleted (before {}) in {} s.",
+                        deleted, cutoff, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+            } catch (IllegalStateException e) {
+                log.info("Audit retention purge skipped: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                log.warn("Audit retention purge failed; the next run resumes from the oldest remaining row", e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Deletes (and archives, if configured) every audit log older than {@code cutoff} on the calling thread;
+     * returns how many were deleted. Stops early, keeping what was done, if the thread is interrupted.
+     *
+     * @throws IllegalStateException if another purge is running
+     */
+    public long purgeBefore(OffsetDateTime cutoff) {
+        if (!running.tryLock()) throw new IllegalStateException("An audit retention purge is already running");
+        try {
+            // One pass over the (event_time, id) index bounds the ids to walk
+            Map<String, Object> bounds = jdbcTemplate.queryForMap(
+                    "SELECT MIN(id) AS lo, MAX(id) AS hi FROM audit_logs WHERE event_time < ?", cutoff);
+            Number lo = (Number) bounds.get("lo");
+            Number hi = (Number) bounds.get("hi");
+            if (lo == null || hi == null) return 0;
+            windowEnd.set(hi.longValue() + 1);
+            long deleted = 0;
+            long started = System.nanoTime();
+            for (long from = lo.longValue(); from <= hi.longValue() && !stopping; from += chunkSize) {
+                windowStart.set(from);
+                long to = Math.min(from + chunkSize, hi.longValue() + 1);
+                long window = from;
+                Integer removed = chunkTimer.record(() -> purgeWindow(window, to, cutoff));
+                deleted += removed != null ? removed : 0;
+                if (!throttle(deleted, started)) break;
+            }
+            return deleted;
+        } finally {
+            windowStart.set(0);
+            windowEnd.set(0);
+            running.unlock();
+        }
+    }
+
+    public boolean isRunning() {
+        return running.isLocked();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // The window in progress finishes; the rest is left for the next purge
+        stopping = true;
+        purger.shutdown();
+        try {
+            if (!purger.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Audit retention purge did not stop in time; the next run resumes from the oldest remaining row");
+                purger.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            purger.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int purgeWindow(long from, long to, OffsetDateTime cutoff) {
+        Integer removed = transactionTemplate.execute(status -> {
+            if (archiveDir == null) {
+                return jdbcTemplate.update("DELETE" + IN_WINDOW, from, to, cutoff);
+            }
+            Archive archive = archive(from, to, cutoff);
+            if (archive == null) return 0;
+            int deleted = jdbcTemplate.update("DELETE" + IN_WINDOW, from, to, cutoff);
+            if (deleted != archive.rows()) {
+                // Rows changed under us; the window and its archive are left for the next purge
+                log.debug("Audit logs {}..{} changed while purging; skipped", from, to);
+                status.setRollbackOnly();
+                deleteQuietly(archive.file());
+                return 0;
+            }
+            archivedCounter.increment(archive.rows());
+            return deleted;
+        });
+        int deleted = removed != null ? removed : 0;
+        deletedCounter.increment(deleted);
+        return deleted;
+    }
+
+    private record Archive(Path file, int rows) {
+    }
+
+    private Archive archive(long from, long to, OffsetDateTime cutoff) {
+        try {
+            Files.createDirectories(archiveDir);
+            Path part = Files.createTempFile(archiveDir, "audit_logs-", ".ndjson.gz.part");
+            long[] ids = {-1, -1};
+            int rows = 0;
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(part));
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(new SerializedString("\n"));
+                int[] count = {0};
+                jdbcTemplate.query("SELECT " + COLUMNS + IN_WINDOW + " ORDER BY id", rs -> {
+                    try {
+                        writeRow(generator, rs);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (ids[0] < 0) ids[0] = rs.getLong("id");
+                    ids[1] = rs.getLong("id");
+                    count[0]++;
+                }, from, to, cutoff);
+                rows = count[0];
+                if (rows > 0) generator.writeRaw('\n');
+            }
+            if (rows == 0) {
+                Files.delete(part);
+                return null;
+            }
+            Path file = archiveDir.resolve("audit_logs-" + ids[0] + "-" + ids[1] + ".ndjson.gz");
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new Archive(file, rows);
+        } catch (IOException e) {
+            // Nothing is deleted without its archive
+            throw new UncheckedIOException("Could not archive audit logs " + from + ".." + to, e);
+        }
+    }
+
+    private static void writeRow(JsonGenerator generator, ResultSet rs) throws IOException, SQLException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", rs.getLong("id"));
+        generator.writeStringField("eventType", rs.getString("event_type"));
+        generator.writeStringField("entityType", rs.getString("entity_type"));
+        generator.writeStringField("entityId", rs.getString("entity_id"));
+        writeLong(generator, "userId", rs.getObject("user_id", Long.class));
+        generator.writeStringField("username", rs.getString("username"));
+        generator.writeStringField("ipAddress", rs.getString("ip_address"));
+        writeTime(generator, "eventTime", rs.getObject("event_time", OffsetDateTime.class));
+        generator.writeStringField("details", details(rs));
+        generator.writeStringField("status", rs.getString("status"));
+        generator.writeStringField("errorMessage", rs.getString("error_message"));
+        writeLong(generator, "integrationPartnerId", rs.getObject("integration_partner_id", Long.class));
+        generator.writeStringField("sessionId", rs.getString("session_id"));
+        generator.writeStringField("correlationId", rs.getString("correlation_id"));
+        generator.writeStringField("userAgent", rs.getString("user_agent"));
+        writeTime(generator, "updatedAt", rs.getObject("updated_at", OffsetDateTime.class));
+        generator.writeEndObject();
+    }
+
+    private static void writeLong(JsonGenerator generator, String name, Long value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(name);
+        } else {
+            generator.writeNumberField(name, value);
+        }
+    }
+
+    private static void writeTime(JsonGenerator generator, String name, OffsetDateTime value) throws IOException {
+        generator.writeStringField(name, value != null ? value.toString() : null);
+    }
+
+    // details is a large object on Postgres, so it is read as a Clob there as well
+    private static String details(ResultSet rs) throws SQLException {
+        Clob clob = rs.getClob("details");
+        if (clob == null) return null;
+        try {
+            return clob.getSubString(1, (int) clob.length());
+        } finally {
+            clob.free();
+        }
+    }
+
+    /** Sleeps until {@code deleted} rows fit the configured rate; false if interrupted. */
+    private boolean throttle(long deleted, long startedNanos) {
+        if (rowsPerSecond <= 0) return !Thread.currentThread().isInterrupted();
+        long dueNanos = startedNanos + (long) (deleted / rowsPerSecond * 1_000_000_000L);
+        long waitNanos = dueNanos - System.nanoTime();
+        try {
+            if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+            return !Thread.currentThread().isInterrupted();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not remove audit archive {} of a skipped window", file, e);
+        }
+    }
+}
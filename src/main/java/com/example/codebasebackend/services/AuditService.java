@@ -2,6 +2,7 @@ package com.example.codebasebackend.services;
 
 import com.example.codebasebackend.dto.AuditLogRequest;
 import com.example.codebasebackend.dto.AuditLogResponse;
+import com.example.codebasebackend.dto.AuditLogScrollResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -21,5 +22,18 @@ public interface AuditService {
                                   OffsetDateTime from,
                                   OffsetDateTime to,
                                   Pageable pageable);
-    long purgeBefore(OffsetDateTime before);
+    AuditLogScrollResponse scroll(String eventType,
+                                  String entityType,
+                                  String entityId,
+                                  Long userId,
+                                  String username,
+                                  String searchTerm,
+                                  String status,
+                                  Long integrationPartnerId,
+                                  OffsetDateTime from,
+                                  OffsetDateTime to,
+                                  String cursor,
+                                  Integer size,
+                                  boolean estimateTotal);
+    void purgeInBackground(OffsetDateTime before);
 }
@@ -4,6 +4,7 @@ import com.example.codebasebackend.Entities.AuditLog;
 import com.example.codebasebackend.Entities.User;
 import com.example.codebasebackend.dto.AuditLogRequest;
 import com.example.codebasebackend.dto.AuditLogResponse;
+import com.example.codebasebackend.dto.AuditLogScrollResponse;
 import com.example.codebasebackend.repositories.AuditLogRepository;
 import com.example.codebasebackend.repositories.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +14,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -25,10 +27,16 @@ import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.regex.Pattern;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.FORBIDDEN;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
@@ -39,8 +47,11 @@ public class AuditServiceImplementation implements AuditService {
 
     private final AuditLogRepository auditRepo;
     private final UserRepository userRepo;
+    private final TimePartitionManager partitionManager;
+    private final AuditLogSearch auditSearch;
+    private final AuditRetentionPurger retentionPurger;
 
-    private static final int MAX_DETAILS_LENGTH = 20000; // safety cap to avoid huge rows
+    static final int MAX_DETAILS_LENGTH = 20000; // safety cap to avoid huge rows
 
     @Override
     public AuditLogResponse log(AuditLogRequest r) {
@@ -129,29 +140,9 @@ public class AuditServiceImplementation implements AuditService {
             throw new ResponseStatusException(BAD_REQUEST, "'from' must be before or equal to 'to'");
         }
 
-        Long scopedUserId = userId;
-        String scopedUsername = username;
-        if (isChw()) {
-            User currentUser = currentUserEntity();
-            if (currentUser != null && currentUser.getId() != null) {
-                scopedUserId = currentUser.getId();
-                scopedUsername = currentUser.getUsername();
-            } else {
-                String principal = currentUsername();
-                if (!StringUtils.hasText(principal) || "system".equalsIgnoreCase(principal)) {
-                    throw new ResponseStatusException(FORBIDDEN, "Unable to resolve authenticated CHW for audit scope");
-                }
-                scopedUserId = null;
-                scopedUsername = principal;
-            }
-        }
-
+        Scope scope = scope(userId, username);
         AuditLog.EventType parsedEventType = parseOptionalEventType(eventType);
         AuditLog.EventStatus parsedStatus = parseOptionalStatus(status);
-        String resolvedUsernameFromUserId = null;
-        if (scopedUserId != null) {
-            resolvedUsernameFromUserId = userRepo.findById(scopedUserId).map(User::getUsername).orElse(null);
-        }
 
         Pageable safePageable = pageable;
         if (pageable == null || pageable.getSort().isUnsorted()) {
@@ -166,7 +157,7 @@ public class AuditServiceImplementation implements AuditService {
                 eqEventType(parsedEventType),
                 like("entityType", entityType),
                 like("entityId", entityId),
-                userIdentityFilter(scopedUserId, scopedUsername, resolvedUsernameFromUserId),
+                userIdentityFilter(scope.userId(), scope.username(), scope.userIdUsername()),
                 containsAny(searchTerm),
                 eqStatus(parsedStatus),
                 eqLong("integrationPartnerId", integrationPartnerId),
@@ -175,6 +166,73 @@ public class AuditServiceImplementation implements AuditService {
         return auditRepo.findAll(spec, safePageable).map(this::toResponse);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public AuditLogScrollResponse scroll(String eventType, String entityType, String entityId, Long userId, String username,
+                                         String searchTerm, String status, Long integrationPartnerId, OffsetDateTime from,
+                                         OffsetDateTime to, String cursor, Integer size, boolean estimateTotal) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(BAD_REQUEST, "'from' must be before or equal to 'to'");
+        }
+        AuditLogSearch.Cursor after;
+        try {
+            after = StringUtils.hasText(cursor) ? AuditLogSearch.Cursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage());
+        }
+
+        Scope scope = scope(userId, username);
+        AuditLogSearch.Criteria criteria = new AuditLogSearch.Criteria(parseOptionalEventType(eventType), entityType,
+                entityId, scope.userId(), scope.userIdUsername(), scope.username(), searchTerm,
+                parseOptionalStatus(status), integrationPartnerId, from, to);
+        AuditLogSearch.Page page = auditSearch.page(criteria, after, size, estimateTotal);
+
+        // Rows without a linked user are mostly a handful of service names; look each up once per page
+        Map<String, Optional<User>> byUsername = new HashMap<>();
+        List<AuditLogResponse> items = new ArrayList<>(page.logs().size());
+        for (AuditLog log : page.logs()) {
+            User user = log.getUser();
+            if (user == null && StringUtils.hasText(log.getUsername())) {
+                user = byUsername.computeIfAbsent(log.getUsername().toLowerCase(Locale.ROOT),
+                        name -> Optional.ofNullable(resolveUserForResponse(log))).orElse(null);
+            }
+            items.add(toResponse(log, user));
+        }
+        return AuditLogScrollResponse.builder()
+                .items(items)
+                .nextCursor(page.next() != null ? page.next().encode() : null)
+                .estimatedTotal(page.estimatedTotal())
+                .build();
+    }
+
+    // Search filters narrowed to the caller: a CHW only sees their own activity
+    private record Scope(Long userId, String username, String userIdUsername) {
+    }
+
+    private Scope scope(Long userId, String username) {
+        Long scopedUserId = userId;
+        String scopedUsername = username;
+        if (isChw()) {
+            User currentUser = currentUserEntity();
+            if (currentUser != null && currentUser.getId() != null) {
+                scopedUserId = currentUser.getId();
+                scopedUsername = currentUser.getUsername();
+            } else {
+                String principal = currentUsername();
+                if (!StringUtils.hasText(principal) || "system".equalsIgnoreCase(principal)) {
+                    throw new ResponseStatusException(FORBIDDEN, "Unable to resolve authenticated CHW for audit scope");
+                }
+                scopedUserId = null;
+                scopedUsername = principal;
+            }
+        }
+        String resolvedUsernameFromUserId = null;
+        if (scopedUserId != null) {
+            resolvedUsernameFromUserId = userRepo.findById(scopedUserId).map(User::getUsername).orElse(null);
+        }
+        return new Scope(scopedUserId, scopedUsername, resolvedUsernameFromUserId);
+    }
+
     // Chain non-null specifications with AND, null-safe, avoids deprecated Specification.where
     @SafeVarargs
     private final Specification<AuditLog> andAll(Specification<AuditLog>... specs) {
@@ -188,12 +246,18 @@ public class AuditServiceImplementation implements AuditService {
     }
 
     @Override
-    public long purgeBefore(OffsetDateTime before) {
+    // The partition drops commit on their own and the purge runs on the retention thread
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void purgeInBackground(OffsetDateTime before) {
         if (before == null) throw new ResponseStatusException(BAD_REQUEST, "before timestamp required");
-        return auditRepo.deleteByEventTimeBefore(before);
+        // Whole months go with their partitions; the DELETE then only touches the month containing the cutoff
+        partitionManager.dropPartitionsBefore(TimePartitionManager.PartitionedTable.AUDIT_LOGS, before, false);
+        if (!retentionPurger.purgeInBackground(before)) {
+            throw new ResponseStatusException(CONFLICT, "An audit retention purge is already running");
+        }
     }
 
-    private AuditLog.EventType parseEventType(String s) {
+    static AuditLog.EventType parseEventType(String s) {
         try {
             String normalized = s.trim().toUpperCase(Locale.ROOT);
             if ("REGISTRATION".equals(normalized)) {
@@ -218,7 +282,7 @@ public class AuditServiceImplementation implements AuditService {
         }
     }
 
-    private AuditLog.EventStatus parseStatus(String s) {
+    static AuditLog.EventStatus parseStatus(String s) {
         if (!StringUtils.hasText(s)) return AuditLog.EventStatus.SUCCESS;
         try { return AuditLog.EventStatus.valueOf(s.trim().toUpperCase()); }
         catch (Exception ex) { throw new ResponseStatusException(BAD_REQUEST, "Invalid status"); }
@@ -233,11 +297,11 @@ public class AuditServiceImplementation implements AuditService {
         }
     }
 
-    private String truncate(String s, int max) { return s == null ? null : (s.length() <= max ? s : s.substring(0, max)); }
+    static String truncate(String s, int max) { return s == null ? null : (s.length() <= max ? s : s.substring(0, max)); }
 
     // naive redaction for common secrets/identifiers within JSON/Text
     private static final Pattern SECRET_KEYS = Pattern.compile("(password|apiKey|token|ssn|nationalId|cardNumber)\\s*[:=]\\s*\\\"?([A-Za-z0-9+/_\\n\\r\\-:.@]+)\\\"?", Pattern.CASE_INSENSITIVE);
-    private String redact(String details) {
+    static String redact(String details) {
         if (!StringUtils.hasText(details)) return details;
         return SECRET_KEYS.matcher(details).replaceAll("$1:\"***REDACTED***\"");
     }
@@ -370,8 +434,11 @@ public class AuditServiceImplementation implements AuditService {
     }
 
     private AuditLogResponse toResponse(AuditLog e) {
+        return toResponse(e, resolveUserForResponse(e));
+    }
+
+    private AuditLogResponse toResponse(AuditLog e, User responseUser) {
         AuditLogResponse dto = new AuditLogResponse();
-        User responseUser = resolveUserForResponse(e);
 
         dto.setId(e.getId());
         dto.setEventType(resolveEventTypeForResponse(e));
@@ -38,6 +38,8 @@ public class AuthServiceImpl implements AuthService {
     private final CommunityHealthWorkersRepository communityHealthWorkersRepository;
     private final HospitalRepository hospitalRepository;
     private final AuditService auditService;
+    private final DirectorySearchIndex searchIndex;
+    private final AvailableChwIndex chwIndex;
 
     @Override
     @Transactional
@@ -82,16 +84,16 @@ public class AuthServiceImpl implements AuthService {
         if (role == UserRole.PATIENT) {
             RegisterRequest.PatientProfileRequest patientRequest = request.getPatient();
             if (patientRequest == null) {
-                patientRepository.save(buildPatientFromUser(saved));
+                searchIndex.recordPatient(patientRepository.save(buildPatientFromUser(saved)));
             } else {
-                patientRepository.save(buildPatient(saved, patientRequest));
+                searchIndex.recordPatient(patientRepository.save(buildPatient(saved, patientRequest)));
             }
         } else if (role == UserRole.CHW) {
             RegisterRequest.ChwProfileRequest chwRequest = request.getCommunityHealthWorker();
             if (chwRequest == null) {
-                communityHealthWorkersRepository.save(buildChwFromUser(saved));
+                chwIndex.record(communityHealthWorkersRepository.save(buildChwFromUser(saved)));
             } else {
-                communityHealthWorkersRepository.save(buildChw(saved, chwRequest));
+                chwIndex.record(communityHealthWorkersRepository.save(buildChw(saved, chwRequest)));
             }
         }
 
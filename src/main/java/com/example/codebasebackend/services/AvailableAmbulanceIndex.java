@@ -0,0 +1,224 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.Ambulances;
+import com.example.codebasebackend.dto.response.AmbulanceTrackingResponse;
+import com.example.codebasebackend.repositories.AmbulanceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.example.codebasebackend.services.TransactionCallbacks.afterCommit;
+
+/**
+ * Spatial index of AVAILABLE ambulances, used to dispatch the nearest suitable vehicle to a pickup.
+ *
+ * Status and profile changes are applied after commit; GPS pings move an ambulance as soon as they are
+ * accepted. Available ambulances without a known position are tracked but only enter the grid with their
+ * first ping. The index is built on first use and rebuilt every {@code app.ambulance.dispatch.reconcile-ms},
+ * which also picks up changes made on other nodes; changes arriving while a rebuild loads are replayed
+ * onto the new index before it is swapped in.
+ */
+@Component
+@Slf4j
+public class AvailableAmbulanceIndex {
+
+    public record Candidate(Ambulances.AmbulanceType type, boolean equippedForIcu) {
+
+        boolean suits(Ambulances.AmbulanceType requiredType, boolean requireIcu) {
+            return (requiredType == null || requiredType == type) && (!requireIcu || equippedForIcu);
+        }
+    }
+
+    private final AmbulanceRepository ambulanceRepository;
+    private final AmbulancePositionRegistry positionRegistry;
+    private final double cellDegrees;
+    private final int candidates;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile GeoGridIndex<Candidate> grid;
+    private volatile Map<Long, Candidate> available = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    // Guarded by this; non-null while a rebuild is loading
+    private List<Runnable> replay;
+
+    public AvailableAmbulanceIndex(AmbulanceRepository ambulanceRepository,
+                                   AmbulancePositionRegistry positionRegistry,
+                                   @Value("${app.ambulance.dispatch.cell-degrees:0.05}") double cellDegrees,
+                                   @Value("${app.ambulance.dispatch.candidates:5}") int candidates) {
+        this.ambulanceRepository = ambulanceRepository;
+        this.positionRegistry = positionRegistry;
+        this.cellDegrees = cellDegrees;
+        this.candidates = Math.max(1, candidates);
+        this.grid = new GeoGridIndex<>(cellDegrees);
+    }
+
+    /** The {@code app.ambulance.dispatch.candidates} nearest suitable ambulances; type null means any. */
+    public List<GeoGridIndex.Neighbour<Candidate>> nearest(double latitude, double longitude,
+                                                           Ambulances.AmbulanceType type, boolean requireIcu) {
+        return nearest(latitude, longitude, candidates, type, requireIcu);
+    }
+
+    public List<GeoGridIndex.Neighbour<Candidate>> nearest(double latitude, double longitude, int k,
+                                                           Ambulances.AmbulanceType type, boolean requireIcu) {
+        ensureReady();
+        return grid.nearest(latitude, longitude, k, candidate -> candidate.suits(type, requireIcu));
+    }
+
+    /**
+     * Takes the ambulance out of the index so concurrent dispatches on this node skip it. It is put back
+     * if the surrounding transaction rolls back. Returns false if another dispatch claimed it first.
+     */
+    public boolean claim(long ambulanceId) {
+        Candidate candidate;
+        double[] position;
+        synchronized (this) {
+            candidate = available.get(ambulanceId);
+            if (candidate == null) return false;
+            position = grid.locate(ambulanceId);
+            apply(() -> {
+                available.remove(ambulanceId);
+                grid.remove(ambulanceId);
+            });
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            BigDecimal latitude = position != null ? BigDecimal.valueOf(position[0]) : null;
+            BigDecimal longitude = position != null ? BigDecimal.valueOf(position[1]) : null;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) apply(() -> put(ambulanceId, candidate, latitude, longitude));
+                }
+            });
+        }
+        return true;
+    }
+
+    /** Call after saving an ambulance; its status, profile and position are captured now and applied on commit. */
+    public void record(Ambulances ambulance) {
+        if (ambulance == null || ambulance.getId() == null) return;
+        long id = ambulance.getId();
+        boolean isAvailable = ambulance.getStatus() == Ambulances.AmbulanceStatus.AVAILABLE;
+        Candidate candidate = new Candidate(ambulance.getType(), ambulance.isEquippedForICU());
+        BigDecimal latitude = ambulance.getCurrentLatitude();
+        BigDecimal longitude = ambulance.getCurrentLongitude();
+        afterCommit(() -> apply(() -> {
+            if (isAvailable) {
+                put(id, candidate, latitude, longitude);
+            } else {
+                available.remove(id);
+                grid.remove(id);
+            }
+        }));
+    }
+
+    public void remove(Long ambulanceId) {
+        if (ambulanceId == null) return;
+        afterCommit(() -> apply(() -> {
+            available.remove(ambulanceId);
+            grid.remove(ambulanceId);
+        }));
+    }
+
+    /** Moves an available ambulance to a newly accepted GPS position; other ambulances are ignored. */
+    public void moveTo(long ambulanceId, BigDecimal latitude, BigDecimal longitude) {
+        if (latitude == null || longitude == null) return;
+        apply(() -> {
+            Candidate candidate = available.get(ambulanceId);
+            if (candidate != null) grid.put(ambulanceId, latitude.doubleValue(), longitude.doubleValue(), candidate);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.ambulance.dispatch.reconcile-ms:300000}")
+    public void reconcile() {
+        if (!rebuildLock.tryLock()) return;
+        try {
+            rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void ensureReady() {
+        if (ready) return;
+        rebuildLock.lock();
+        try {
+            if (!ready) rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Called with rebuildLock held
+    private void rebuild() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        GeoGridIndex<Candidate> freshGrid = new GeoGridIndex<>(cellDegrees);
+        Map<Long, Candidate> freshAvailable = new ConcurrentHashMap<>();
+        try {
+            for (Ambulances ambulance : ambulanceRepository.findByStatus(Ambulances.AmbulanceStatus.AVAILABLE)) {
+                Candidate candidate = new Candidate(ambulance.getType(), ambulance.isEquippedForICU());
+                freshAvailable.put(ambulance.getId(), candidate);
+                double[] position = position(ambulance.getId(), ambulance.getCurrentLatitude(), ambulance.getCurrentLongitude());
+                if (position != null) freshGrid.put(ambulance.getId(), position[0], position[1], candidate);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            log.warn("Available ambulance index rebuild failed, keeping current index: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            grid = freshGrid;
+            available = freshAvailable;
+            replay.forEach(Runnable::run);
+            replay = null;
+            if (!ready) {
+                log.info("Available ambulance index built: {} available, {} with a position",
+                        freshAvailable.size(), freshGrid.size());
+            }
+            ready = true;
+        }
+    }
+
+    // Called with the monitor held
+    private void put(long id, Candidate candidate, BigDecimal latitude, BigDecimal longitude) {
+        available.put(id, candidate);
+        double[] position = position(id, latitude, longitude);
+        if (position != null) {
+            grid.put(id, position[0], position[1], candidate);
+        } else {
+            grid.remove(id);
+        }
+    }
+
+    // The latest accepted ping is fresher than the ambulance row, which the flusher updates a moment later
+    private double[] position(long id, BigDecimal latitude, BigDecimal longitude) {
+        Optional<AmbulanceTrackingResponse> ping = positionRegistry.peek(id);
+        if (ping.isPresent()) {
+            return new double[]{ping.get().getLatitude().doubleValue(), ping.get().getLongitude().doubleValue()};
+        }
+        if (latitude == null || longitude == null) return null;
+        return new double[]{latitude.doubleValue(), longitude.doubleValue()};
+    }
+
+    private void apply(Runnable change) {
+        synchronized (this) {
+            if (replay != null) replay.add(change);
+            change.run();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.CommunityHealthWorkers;
+import com.example.codebasebackend.dto.CommunityHealthWorkerResponse;
+import com.example.codebasebackend.repositories.CommunityHealthWorkersRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.example.codebasebackend.services.TransactionCallbacks.afterCommit;
+
+/**
+ * Spatial index of AVAILABLE community health workers with a known location, for nearest-CHW lookups
+ * that run without touching the database.
+ *
+ * Each entry holds the CHW's response snapshot, taken when the CHW was saved and applied after commit,
+ * so a lookup returns it as is. The index is built on first use and rebuilt every
+ * {@code app.chw.locator.reconcile-ms}, which also picks up changes made on other nodes; changes arriving
+ * while a rebuild loads are replayed onto the new index before it is swapped in.
+ */
+@Component
+@Slf4j
+public class AvailableChwIndex {
+
+    private final CommunityHealthWorkersRepository chwRepository;
+    private final double cellDegrees;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile GeoGridIndex<CommunityHealthWorkerResponse> grid;
+    private volatile boolean ready;
+    // Guarded by this; non-null while a rebuild is loading
+    private List<Runnable> replay;
+
+    public AvailableChwIndex(CommunityHealthWorkersRepository chwRepository,
+                             @Value("${app.chw.locator.cell-degrees:0.05}") double cellDegrees) {
+        this.chwRepository = chwRepository;
+        this.cellDegrees = cellDegrees;
+        this.grid = new GeoGridIndex<>(cellDegrees);
+    }
+
+    /**
+     * Up to {@code k} nearest available CHWs within {@code radiusKm} (null for any distance), optionally of
+     * one hospital. The responses are the shared snapshots held by the index and must not be modified.
+     */
+    public List<GeoGridIndex.Neighbour<CommunityHealthWorkerResponse>> nearest(double latitude, double longitude, int k,
+                                                                             Double radiusKm, Long hospitalId) {
+        ensureReady();
+        return grid.nearest(latitude, longitude, k, radiusKm != null ? radiusKm : Double.POSITIVE_INFINITY,
+                hospitalId == null ? null : chw -> hospitalId.equals(chw.getHospitalId()));
+    }
+
+    /** Call after saving a CHW; the response is captured now and applied on commit. */
+    public void record(CommunityHealthWorkers chw) {
+        if (chw == null || chw.getId() == null) return;
+        CommunityHealthWorkerResponse snapshot = CommunityHealthWorkerResponse.from(chw);
+        afterCommit(() -> apply(() -> put(grid, snapshot)));
+    }
+
+    public void remove(Long chwId) {
+        if (chwId == null) return;
+        afterCommit(() -> apply(() -> grid.remove(chwId)));
+    }
+
+    @Scheduled(fixedDelayString = "${app.chw.locator.reconcile-ms:300000}")
+    public void reconcile() {
+        if (!rebuildLock.tryLock()) return;
+        try {
+            rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void ensureReady() {
+        if (ready) return;
+        rebuildLock.lock();
+        try {
+            if (!ready) rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Called with rebuildLock held
+    private void rebuild() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        GeoGridIndex<CommunityHealthWorkerResponse> fresh = new GeoGridIndex<>(cellDegrees);
+        try {
+            for (CommunityHealthWorkers chw : chwRepository.findByStatus(CommunityHealthWorkers.Status.AVAILABLE)) {
+                put(fresh, CommunityHealthWorkerResponse.from(chw));
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            log.warn("CHW locator rebuild failed, keeping current index: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            grid = fresh;
+            replay.forEach(Runnable::run);
+            replay = null;
+            if (!ready) {
+                log.info("CHW locator built: {} available CHWs with a location", fresh.size());
+            }
+            ready = true;
+        }
+    }
+
+    private static void put(GeoGridIndex<CommunityHealthWorkerResponse> grid, CommunityHealthWorkerResponse chw) {
+        boolean available = CommunityHealthWorkers.Status.AVAILABLE.name().equals(chw.getStatus());
+        if (available && chw.getLatitude() != null && chw.getLongitude() != null) {
+            grid.put(chw.getId(), chw.getLatitude().doubleValue(), chw.getLongitude().doubleValue(), chw);
+        } else {
+            grid.remove(chw.getId());
+        }
+    }
+
+    private void apply(Runnable change) {
+        synchronized (this) {
+            if (replay != null) replay.add(change);
+            change.run();
+        }
+    }
+}
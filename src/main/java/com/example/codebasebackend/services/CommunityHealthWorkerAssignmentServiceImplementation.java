@@ -41,6 +41,7 @@ public class CommunityHealthWorkerAssignmentServiceImplementation implements Com
     private final CommunityHealthWorkersRepository chwRepository;
     private final AppointmentRepository appointmentRepository;
     private final HomeVisitRepository homeVisitRepository;
+    private final AvailableChwIndex chwIndex;
 
     @PostConstruct
     void reconcileAssignedPatientsOnStartup() {
@@ -331,7 +332,7 @@ public class CommunityHealthWorkerAssignmentServiceImplementation implements Com
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "CHW not found"));
         long activeCount = assignmentRepository.countByChwIdAndStatusIn(chwId, ACTIVE_STATUSES);
         chw.setAssignedPatients(Math.toIntExact(activeCount));
-        chwRepository.save(chw);
+        chwIndex.record(chwRepository.save(chw));
     }
 
     private HomeVisit upsertHomeVisitForAssignment(CommunityHealthWorkerAssignment assignment, ChwAssignmentRequest request) {
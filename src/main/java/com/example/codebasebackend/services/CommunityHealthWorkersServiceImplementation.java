@@ -13,12 +13,12 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
-import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -32,6 +32,7 @@ public class CommunityHealthWorkersServiceImplementation implements CommunityHea
 
     private final CommunityHealthWorkersRepository chwRepo;
     private final HospitalRepository hospitalRepo;
+    private final AvailableChwIndex chwIndex;
 
     @Override
     public CommunityHealthWorkerResponse create(CommunityHealthWorkerRequest r) {
@@ -50,6 +51,7 @@ public class CommunityHealthWorkersServiceImplementation implements CommunityHea
             saved.setCode(String.format("CHW%03d", saved.getId()));
             saved = chwRepo.save(saved);
         }
+        chwIndex.record(saved);
         return toResponse(saved);
     }
 
@@ -94,13 +96,16 @@ public class CommunityHealthWorkersServiceImplementation implements CommunityHea
             e.setLastStatusUpdate(OffsetDateTime.now());
         }
 
-        return toResponse(chwRepo.save(e));
+        CommunityHealthWorkers saved = chwRepo.save(e);
+        chwIndex.record(saved);
+        return toResponse(saved);
     }
 
     @Override
     public void delete(Long id) {
         if (!chwRepo.existsById(id)) throw new ResponseStatusException(NOT_FOUND, "CHW not found");
         chwRepo.deleteById(id);
+        chwIndex.remove(id);
     }
 
     @Override
@@ -109,44 +114,32 @@ public class CommunityHealthWorkersServiceImplementation implements CommunityHea
         CommunityHealthWorkers e = chwRepo.findById(id).orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "CHW not found"));
         e.setLatitude(lat);
         e.setLongitude(lon);
-        return toResponse(chwRepo.save(e));
+        CommunityHealthWorkers saved = chwRepo.save(e);
+        chwIndex.record(saved);
+        return toResponse(saved);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public CommunityHealthWorkerResponse findNearestAvailable(BigDecimal lat, BigDecimal lon, Long hospitalId) {
-        if (lat == null || lon == null) throw new ResponseStatusException(BAD_REQUEST, "lat/lon required");
-        List<CommunityHealthWorkers> pool = hospitalId != null
-                ? chwRepo.findByStatusAndHospitalId(CommunityHealthWorkers.Status.AVAILABLE, hospitalId)
-                : chwRepo.findByStatus(CommunityHealthWorkers.Status.AVAILABLE);
-
-        return pool.stream()
-                .filter(c -> c.getLatitude() != null && c.getLongitude() != null)
-                .min(Comparator.comparingDouble(c -> distanceKm(lat.doubleValue(), lon.doubleValue(),
-                        c.getLatitude().doubleValue(), c.getLongitude().doubleValue())))
-                .map(this::toResponse)
-                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "No available CHW with location"));
+        return nearestAvailable(lat, lon, hospitalId, null, "No available CHW with location");
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public CommunityHealthWorkerResponse findNearestAvailable(BigDecimal lat, BigDecimal lon, Long hospitalId, BigDecimal radiusKm) {
-        List<CommunityHealthWorkers> pool = hospitalId != null
-                ? chwRepo.findByStatusAndHospitalId(CommunityHealthWorkers.Status.AVAILABLE, hospitalId)
-                : chwRepo.findByStatus(CommunityHealthWorkers.Status.AVAILABLE);
-
-        CommunityHealthWorkers match = pool.stream()
-                .filter(c -> c.getLatitude() != null && c.getLongitude() != null)
-                .map(c -> new Object[]{c, distanceKm(lat.doubleValue(), lon.doubleValue(), c.getLatitude().doubleValue(), c.getLongitude().doubleValue())})
-                .filter(arr -> {
-                    double d = (double) arr[1];
-                    return radiusKm == null || d <= radiusKm.doubleValue();
-                })
-                .min(java.util.Comparator.comparingDouble(arr -> (double) arr[1]))
-                .map(arr -> (CommunityHealthWorkers) arr[0])
-                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "No available CHW within radius"));
+        return nearestAvailable(lat, lon, hospitalId, radiusKm, "No available CHW within radius");
+    }
 
-        return toResponse(match);
+    // Answered from the in-memory index of available CHWs
+    private CommunityHealthWorkerResponse nearestAvailable(BigDecimal lat, BigDecimal lon, Long hospitalId,
+                                                           BigDecimal radiusKm, String notFoundMessage) {
+        if (lat == null || lon == null) throw new ResponseStatusException(BAD_REQUEST, "lat/lon required");
+        return chwIndex.nearest(lat.doubleValue(), lon.doubleValue(), 1,
+                        radiusKm != null ? radiusKm.doubleValue() : null, hospitalId).stream()
+                .findFirst()
+                .map(GeoGridIndex.Neighbour::value)
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, notFoundMessage));
     }
 
     private void apply(CommunityHealthWorkers e, CommunityHealthWorkerRequest r) {
@@ -176,64 +169,7 @@ public class CommunityHealthWorkersServiceImplementation implements CommunityHea
     }
 
     private CommunityHealthWorkerResponse toResponse(CommunityHealthWorkers e) {
-        CommunityHealthWorkerResponse dto = new CommunityHealthWorkerResponse();
-        dto.setId(e.getId());
-        dto.setCode(e.getCode());
-        dto.setFirstName(e.getFirstName());
-        dto.setMiddleName(e.getMiddleName());
-        dto.setLastName(e.getLastName());
-        dto.setEmail(e.getEmail());
-        dto.setPhone(e.getPhone());
-        dto.setCity(e.getCity());
-        dto.setState(e.getState());
-        dto.setCountry(e.getCountry());
-        dto.setLatitude(e.getLatitude());
-        dto.setLongitude(e.getLongitude());
-        dto.setHospitalId(e.getHospital() != null ? e.getHospital().getId() : null);
-        dto.setStatus(e.getStatus() != null ? e.getStatus().name() : null);
-        dto.setSpecialization(e.getSpecialization());
-        dto.setCreatedAt(e.getCreatedAt());
-        dto.setUpdatedAt(e.getUpdatedAt());
-
-        // New fields
-        dto.setRegion(e.getRegion());
-        dto.setAssignedPatients(e.getAssignedPatients());
-        dto.setStartDate(e.getStartDate());
-        dto.setLastStatusUpdate(e.getLastStatusUpdate());
-        dto.setMonthlyVisits(e.getMonthlyVisits());
-        dto.setSuccessRate(e.getSuccessRate());
-        dto.setResponseTime(e.getResponseTime());
-        dto.setRating(e.getRating());
-
-        // Computed fields
-        dto.setFullName(buildFullName(e.getFirstName(), e.getMiddleName(), e.getLastName()));
-        dto.setAvatar(buildAvatar(e.getFirstName(), e.getLastName()));
-
-        return dto;
-    }
-
-    private String buildFullName(String firstName, String middleName, String lastName) {
-        StringBuilder fullName = new StringBuilder();
-        if (firstName != null && !firstName.isEmpty()) {
-            fullName.append(firstName);
-        }
-        if (middleName != null && !middleName.isEmpty()) {
-            if (fullName.length() > 0) fullName.append(" ");
-            fullName.append(middleName);
-        }
-        if (lastName != null && !lastName.isEmpty()) {
-            if (fullName.length() > 0) fullName.append(" ");
-            fullName.append(lastName);
-        }
-        return fullName.toString();
-    }
-
-    private String buildAvatar(String firstName, String lastName) {
-        String firstInitial = firstName != null && !firstName.isEmpty()
-            ? firstName.substring(0, 1) : "";
-        String lastInitial = lastName != null && !lastName.isEmpty()
-            ? lastName.substring(0, 1) : "";
-        return (firstInitial + lastInitial).toUpperCase();
+        return CommunityHealthWorkerResponse.from(e);
     }
 
     // New service methods
@@ -257,6 +193,7 @@ public class CommunityHealthWorkersServiceImplementation implements CommunityHea
         }
 
         CommunityHealthWorkers updated = chwRepo.save(chw);
+        chwIndex.record(updated);
         return toResponse(updated);
     }
 
@@ -291,16 +228,4 @@ public class CommunityHealthWorkersServiceImplementation implements CommunityHea
 
         return chwPage.map(this::toResponse);
     }
-
-    // Haversine distance in KM
-    private double distanceKm(double lat1, double lon1, double lat2, double lon2) {
-        final double R = 6371.0; // km
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat/2) * Math.sin(dLat/2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon/2) * Math.sin(dLon/2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-        return R * c;
-    }
 }
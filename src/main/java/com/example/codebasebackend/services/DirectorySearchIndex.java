@@ -0,0 +1,204 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.Doctor;
+import com.example.codebasebackend.Entities.Patient;
+import com.example.codebasebackend.repositories.DoctorRepository;
+import com.example.codebasebackend.repositories.PatientRepository;
+import com.example.codebasebackend.services.TextSearchIndex.Field;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.example.codebasebackend.services.TransactionCallbacks.afterCommit;
+
+/**
+ * Name search over patients and doctors, used by the doctor and telemedicine session search endpoints
+ * instead of {@code LOWER(...) LIKE '%term%'} scans.
+ *
+ * Names carry full weight and e-mail addresses a lower one. Patient and doctor writes are applied after
+ * commit; the index is built on first use and rebuilt every {@code app.search.reconcile-ms}, which also
+ * picks up changes made on other nodes. Changes that commit while a rebuild is loading are replayed onto
+ * the new index before it is swapped in.
+ */
+@Component
+@Slf4j
+public class DirectorySearchIndex {
+
+    private static final double NAME_WEIGHT = 1.0;
+    private static final double EMAIL_WEIGHT = 0.6;
+
+    private final PatientRepository patientRepository;
+    private final DoctorRepository doctorRepository;
+    private final int loadPageSize;
+    private final int matchLimit;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile TextSearchIndex patients = new TextSearchIndex();
+    private volatile TextSearchIndex doctors = new TextSearchIndex();
+    private volatile Set<Long> inactiveDoctors = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+    // Guarded by this; non-null while a rebuild is loading
+    private List<Runnable> replay;
+
+    public DirectorySearchIndex(PatientRepository patientRepository,
+                                DoctorRepository doctorRepository,
+                                @Value("${app.search.load-page-size:5000}") int loadPageSize,
+                                @Value("${app.search.match-limit:200}") int matchLimit) {
+        this.patientRepository = patientRepository;
+        this.doctorRepository = doctorRepository;
+        this.loadPageSize = Math.max(1, loadPageSize);
+        this.matchLimit = Math.max(1, matchLimit);
+    }
+
+    /**
+     * Upper bound on how many patients or doctors a session search hands the database as ids, for
+     * session-ID terms and custom sorts; a term matching more is searched with the SQL predicate instead.
+     * Name searches in the default order go through {@link SessionParticipantIndex} and have no cap.
+     */
+    public int matchLimit() {
+        return matchLimit;
+    }
+
+    public TextSearchIndex.Result searchPatients(String term, int limit) {
+        ensureReady();
+        return patients.search(term, limit);
+    }
+
+    public TextSearchIndex.Result searchDoctors(String term, int limit, boolean activeOnly) {
+        ensureReady();
+        if (!activeOnly || inactiveDoctors.isEmpty()) {
+            return doctors.search(term, limit);
+        }
+        // Inactive doctors are rare, so filtering the full ranking is cheap
+        TextSearchIndex.Result all = doctors.search(term, Integer.MAX_VALUE);
+        List<TextSearchIndex.Hit> active = all.hits().stream()
+                .filter(hit -> !inactiveDoctors.contains(hit.id()))
+                .toList();
+        return new TextSearchIndex.Result(active.size() > limit ? active.subList(0, limit) : active, active.size());
+    }
+
+    /** Call after saving a patient; the fields are captured now and indexed on commit. */
+    public void recordPatient(Patient patient) {
+        if (patient == null || patient.getId() == null) return;
+        long id = patient.getId();
+        List<Field> fields = personFields(patient.getFirstName(), patient.getMiddleName(),
+                patient.getLastName(), patient.getEmail());
+        apply(() -> patients.put(id, fields));
+    }
+
+    public void removePatient(Long patientId) {
+        if (patientId == null) return;
+        apply(() -> patients.remove(patientId));
+    }
+
+    public void recordDoctor(Doctor doctor) {
+        if (doctor == null || doctor.getId() == null) return;
+        long id = doctor.getId();
+        boolean active = Boolean.TRUE.equals(doctor.getActive());
+        List<Field> fields = personFields(doctor.getFirstName(), doctor.getMiddleName(),
+                doctor.getLastName(), doctor.getEmail());
+        apply(() -> {
+            doctors.put(id, fields);
+            if (active) {
+                inactiveDoctors.remove(id);
+            } else {
+                inactiveDoctors.add(id);
+            }
+        });
+    }
+
+    public void removeDoctor(Long doctorId) {
+        if (doctorId == null) return;
+        apply(() -> {
+            doctors.remove(doctorId);
+            inactiveDoctors.remove(doctorId);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.reconcile-ms:900000}")
+    public void reconcile() {
+        // A scheduled run overlapping a running rebuild has nothing to add
+        if (!rebuildLock.tryLock()) return;
+        try {
+            rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void ensureReady() {
+        if (ready) return;
+        rebuildLock.lock();
+        try {
+            if (!ready) rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Called with rebuildLock held
+    private void rebuild() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        TextSearchIndex freshPatients = new TextSearchIndex();
+        TextSearchIndex freshDoctors = new TextSearchIndex();
+        Set<Long> freshInactive = ConcurrentHashMap.newKeySet();
+        try {
+            long afterId = 0;
+            for (List<Object[]> page = patientRepository.findSearchRowsAfter(afterId, PageRequest.of(0, loadPageSize));
+                 !page.isEmpty();
+                 page = patientRepository.findSearchRowsAfter(afterId, PageRequest.of(0, loadPageSize))) {
+                for (Object[] row : page) {
+                    afterId = ((Number) row[0]).longValue();
+                    freshPatients.put(afterId, personFields((String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+                }
+            }
+            for (Object[] row : doctorRepository.findSearchRows()) {
+                long id = ((Number) row[0]).longValue();
+                freshDoctors.put(id, personFields((String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+                if (!Boolean.TRUE.equals(row[5])) freshInactive.add(id);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            log.warn("Search index rebuild failed, keeping current index: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            patients = freshPatients;
+            doctors = freshDoctors;
+            inactiveDoctors = freshInactive;
+            replay.forEach(Runnable::run);
+            replay = null;
+            if (!ready) {
+                log.info("Search index built: {} patients, {} doctors", freshPatients.size(), freshDoctors.size());
+            }
+            ready = true;
+        }
+    }
+
+    private void apply(Runnable change) {
+        afterCommit(() -> {
+            synchronized (this) {
+                if (replay != null) replay.add(change);
+                change.run();
+            }
+        });
+    }
+
+    private static List<Field> personFields(String firstName, String middleName, String lastName, String email) {
+        return List.of(Field.of(firstName, NAME_WEIGHT), Field.of(middleName, NAME_WEIGHT),
+                Field.of(lastName, NAME_WEIGHT), Field.of(email, EMAIL_WEIGHT));
+    }
+}
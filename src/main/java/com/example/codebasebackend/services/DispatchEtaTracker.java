@@ -0,0 +1,239 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AmbulanceDispatch;
+import com.example.codebasebackend.Entities.Ambulances;
+import com.example.codebasebackend.dto.response.AmbulanceTrackingResponse;
+import com.example.codebasebackend.repositories.AmbulanceDispatchRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.example.codebasebackend.services.TransactionCallbacks.afterCommit;
+
+/**
+ * Keeps each dispatch's estimated response time and distance (ambulance to pickup, by road) current.
+ *
+ * The estimate is made when a dispatch is created or changed, from the ambulance's last known position.
+ * Afterwards GPS pings that name a dispatch may refresh it, at most once per
+ * {@code app.routing.eta-refresh-ms} per dispatch and only until the ambulance is on scene. The ping path
+ * only remembers each dispatch's latest ping; every {@code app.routing.eta-flush-ms} the tracker's own
+ * thread routes those pings and writes the refreshed estimates in one JDBC batch, so neither routing nor
+ * database access happens while a device waits. Each dispatch's pickup is read once and cached until the
+ * dispatch changes or stops reporting. Pings from an ambulance the dispatch is not assigned to are ignored.
+ */
+@Component
+@Slf4j
+public class DispatchEtaTracker {
+
+    private static final Set<AmbulanceDispatch.DispatchStatus> EN_ROUTE_TO_PICKUP = EnumSet.of(
+            AmbulanceDispatch.DispatchStatus.REQUESTED, AmbulanceDispatch.DispatchStatus.DISPATCHED,
+            AmbulanceDispatch.DispatchStatus.EN_ROUTE);
+    private static final String UPDATE_SQL = "UPDATE ambulance_dispatches SET estimated_response_time = ?, " +
+            "estimated_distance = ? WHERE id = ? AND status IN (" + EN_ROUTE_TO_PICKUP.stream()
+            .map(status -> "'" + status.name() + "'")
+            .collect(Collectors.joining(", ")) + ")";
+    private static final long IDLE_TARGET_NANOS = TimeUnit.MINUTES.toNanos(30);
+
+    private final RoadRouter router;
+    private final AmbulanceDispatchRepository dispatchRepository;
+    private final AmbulancePositionRegistry positionRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final long refreshNanos;
+    private final Map<Long, Target> targets = new ConcurrentHashMap<>();
+    private final Map<Long, AmbulanceLocationIngestor.Ping> latestPings = new ConcurrentHashMap<>();
+    private final ExecutorService worker;
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    public DispatchEtaTracker(RoadRouter router,
+                              AmbulanceDispatchRepository dispatchRepository,
+                              AmbulancePositionRegistry positionRegistry,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${app.routing.eta-refresh-ms:10000}") long refreshMs) {
+        this.router = router;
+        this.dispatchRepository = dispatchRepository;
+        this.positionRegistry = positionRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMs);
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dispatch-eta");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the dispatch's estimates from its ambulance's last known position to the pickup, or clears them
+     * if either is unknown or no road route links them.
+     */
+    public void estimate(AmbulanceDispatch dispatch) {
+        dispatch.setEstimatedResponseTime(null);
+        dispatch.setEstimatedDistance(null);
+        Ambulances ambulance = dispatch.getAmbulance();
+        if (ambulance == null || !headingToPickup(dispatch)) return;
+
+        BigDecimal latitude = ambulance.getCurrentLatitude();
+        BigDecimal longitude = ambulance.getCurrentLongitude();
+        AmbulanceTrackingResponse position = ambulance.getId() != null
+                ? positionRegistry.peek(ambulance.getId()).orElse(null) : null;
+        if (position != null) {
+            latitude = position.getLatitude();
+            longitude = position.getLongitude();
+        }
+        if (latitude == null || longitude == null) return;
+        router.route(latitude.doubleValue(), longitude.doubleValue(),
+                        dispatch.getPickupLatitude().doubleValue(), dispatch.getPickupLongitude().doubleValue())
+                .ifPresent(route -> {
+                    dispatch.setEstimatedResponseTime(formatMinutes(route));
+                    dispatch.setEstimatedDistance(kilometres(route));
+                });
+    }
+
+    /** Remembers the ping as its dispatch's latest; the next refresh may re-estimate from it. */
+    public void onPing(AmbulanceLocationIngestor.Ping ping) {
+        if (ping.dispatchId() == null || !router.isReady()) return;
+        latestPings.merge(ping.dispatchId(), ping,
+                (current, next) -> next.timestamp().isBefore(current.timestamp()) ? current : next);
+    }
+
+    /** Drops what is cached about the dispatch once the caller's transaction commits. */
+    public void forget(Long dispatchId) {
+        afterCommit(() -> {
+            targets.remove(dispatchId);
+            latestPings.remove(dispatchId);
+        });
+    }
+
+    // Routing and pickup lookups run on the tracker's thread, not on the shared scheduler
+    @Scheduled(fixedDelayString = "${app.routing.eta-flush-ms:5000}")
+    public void flush() {
+        if (!refreshQueued.compareAndSet(false, true)) return;
+        try {
+            worker.execute(() -> {
+                try {
+                    refresh();
+                } finally {
+                    refreshQueued.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshQueued.set(false);
+        }
+    }
+
+    /** Routes each dispatch's latest ping, if its last estimate is old enough, and writes the estimates. */
+    void refresh() {
+        long now = System.nanoTime();
+        targets.values().removeIf(target -> now - target.lastPing > IDLE_TARGET_NANOS);
+        if (latestPings.isEmpty()) return;
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Long dispatchId : List.copyOf(latestPings.keySet())) {
+            AmbulanceLocationIngestor.Ping ping = latestPings.remove(dispatchId);
+            if (ping == null) continue;
+            try {
+                route(ping, now).ifPresent(route ->
+                        rows.add(new Object[]{formatMinutes(route), kilometres(route), dispatchId}));
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh the ETA of dispatch {}: {}", dispatchId, e.getMessage());
+            }
+        }
+        if (rows.isEmpty()) return;
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+        } catch (DataAccessException e) {
+            // The next pings bring fresher estimates; nothing is worth retrying
+            log.warn("Failed to write {} dispatch ETA updates", rows.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private Optional<RoadRouter.Route> route(AmbulanceLocationIngestor.Ping ping, long now) {
+        Target target = targets.get(ping.dispatchId());
+        if (target == null) {
+            target = loadTarget(ping.dispatchId());
+            Target raced = targets.putIfAbsent(ping.dispatchId(), target);
+            if (raced != null) target = raced;
+        }
+        target.lastPing = now;
+        if (!target.active) return Optional.empty();
+        if (target.ambulanceId != ping.ambulanceId()) {
+            log.debug("Ignoring ping from ambulance {} for dispatch {} of ambulance {}",
+                    ping.ambulanceId(), ping.dispatchId(), target.ambulanceId);
+            return Optional.empty();
+        }
+        if (!target.claimRefresh(now, refreshNanos)) return Optional.empty();
+        return router.route(ping.latitude().doubleValue(), ping.longitude().doubleValue(),
+                target.latitude, target.longitude);
+    }
+
+    // Only the id of the lazy ambulance association is read
+    private Target loadTarget(Long dispatchId) {
+        return dispatchRepository.findById(dispatchId)
+                .filter(DispatchEtaTracker::headingToPickup)
+                .filter(dispatch -> dispatch.getAmbulance() != null && dispatch.getAmbulance().getId() != null)
+                .map(dispatch -> new Target(dispatch.getAmbulance().getId(), dispatch.getPickupLatitude().doubleValue(),
+                        dispatch.getPickupLongitude().doubleValue(), true))
+                .orElseGet(() -> new Target(0, 0, 0, false));
+    }
+
+    private static boolean headingToPickup(AmbulanceDispatch dispatch) {
+        return EN_ROUTE_TO_PICKUP.contains(dispatch.getStatus())
+                && dispatch.getPickupLatitude() != null && dispatch.getPickupLongitude() != null;
+    }
+
+    private static String formatMinutes(RoadRouter.Route route) {
+        return String.format(Locale.ROOT, "%.1f minutes", route.minutes());
+    }
+
+    private static BigDecimal kilometres(RoadRouter.Route route) {
+        return BigDecimal.valueOf(route.km()).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /** Where a dispatch's ambulance is heading; inactive once it no longer needs an ETA. */
+    private static final class Target {
+        final long ambulanceId;
+        final double latitude;
+        final double longitude;
+        final boolean active;
+        final AtomicLong refreshedAt = new AtomicLong();
+        volatile long lastPing = System.nanoTime();
+
+        Target(long ambulanceId, double latitude, double longitude, boolean active) {
+            this.ambulanceId = ambulanceId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.active = active;
+        }
+
+        boolean claimRefresh(long now, long intervalNanos) {
+            long last = refreshedAt.get();
+            return (last == 0 || now - last >= intervalNanos) && refreshedAt.compareAndSet(last, now);
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.Doctor;
+import com.example.codebasebackend.Entities.DoctorStatus;
+import com.example.codebasebackend.dto.DoctorOnlineResponse;
+import com.example.codebasebackend.repositories.DoctorRepository;
+import com.example.codebasebackend.repositories.TelemedicineSessionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.example.codebasebackend.services.TransactionCallbacks.afterCommit;
+
+/**
+ * In-memory board of online doctors (active, AVAILABLE or BUSY) with today's session count and earnings.
+ *
+ * Doctor saves and session start/complete events are applied once the surrounding transaction commits,
+ * so {@code getOnlineDoctors} is a snapshot instead of two queries per doctor. "Today" follows the
+ * server's time zone: sessions count on the day they were started, earnings on the day they were
+ * completed. The board is rebuilt from the database every {@code app.telemedicine.presence.reconcile-ms},
+ * which also picks up changes made on other nodes; changes arriving while a rebuild loads are replayed
+ * onto the new board before it is swapped in. Day totals are kept per session, so a replayed change the
+ * load already saw is not counted twice.
+ *
+ * SSE subscribers get the full board on connect and again (coalesced) after each change. The scheduled
+ * jobs only hand boards and heartbeats to subscribers; writes happen on a small sender pool, and a slow
+ * client only ever has the newest board waiting for it.
+ */
+@Component
+@Slf4j
+public class DoctorPresenceRegistry {
+
+    static final List<DoctorStatus> ONLINE_STATUSES = List.of(DoctorStatus.AVAILABLE, DoctorStatus.BUSY);
+
+    public record DoctorProfile(Long id,
+                                String doctorId,
+                                String name,
+                                String photo,
+                                String specialty,
+                                Integer experience,
+                                Double rating,
+                                Integer totalSessions,
+                                DoctorStatus status,
+                                boolean active,
+                                List<String> languages,
+                                String location,
+                                String email,
+                                String phone) {
+
+        public static DoctorProfile of(Doctor doctor) {
+            return new DoctorProfile(
+                    doctor.getId(),
+                    doctor.getDoctorId(),
+                    doctor.getFullName(),
+                    doctor.getPhotoUrl(),
+                    doctor.getSpecialty() != null ? doctor.getSpecialty().getName() : "General",
+                    doctor.getExperience(),
+                    doctor.getRating(),
+                    doctor.getTotalSessions(),
+                    doctor.getStatus(),
+                    Boolean.TRUE.equals(doctor.getActive()),
+                    doctor.getLanguages() != null ? List.copyOf(doctor.getLanguages()) : List.of(),
+                    doctor.getLocation(),
+                    doctor.getEmail(),
+                    doctor.getPhone());
+        }
+
+        boolean isOnline() {
+            return active && ONLINE_STATUSES.contains(status);
+        }
+    }
+
+    // Keyed by session id
+    private static final class DayTotals {
+        final Set<Long> started = new HashSet<>();
+        final Map<Long, BigDecimal> earnings = new HashMap<>();
+
+        BigDecimal totalEarnings() {
+            return earnings.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        // Guarded by this subscriber; the newest board replaces one not yet written
+        List<DoctorOnlineResponse> pending;
+        boolean heartbeatDue;
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized void offer(List<DoctorOnlineResponse> board) {
+            pending = board;
+        }
+
+        synchronized void offerHeartbeat() {
+            heartbeatDue = true;
+        }
+
+        synchronized boolean hasPending() {
+            return pending != null || heartbeatDue;
+        }
+    }
+
+    private final DoctorRepository doctorRepository;
+    private final TelemedicineSessionRepository sessionRepository;
+    private final long streamTimeoutMs;
+
+    // Guarded by this
+    private Map<Long, DoctorProfile> online = new HashMap<>();
+    private Map<Long, DayTotals> today = new HashMap<>();
+    private LocalDate day;
+    private boolean ready;
+    // Non-null while a rebuild is loading
+    private List<Runnable> replay;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final ExecutorService senders;
+
+    public DoctorPresenceRegistry(DoctorRepository doctorRepository,
+                                  TelemedicineSessionRepository sessionRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.telemedicine.presence.stream-timeout-ms:1800000}") long streamTimeoutMs,
+                                  @Value("${app.telemedicine.presence.sender-threads:2}") int senderThreads) {
+        this.doctorRepository = doctorRepository;
+        this.sessionRepository = sessionRepository;
+        this.streamTimeoutMs = streamTimeoutMs;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), runnable -> {
+            Thread thread = new Thread(runnable, "doctor-presence-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("telemedicine.presence.subscribers", subscribers, List::size)
+                .description("Open online-doctor SSE streams")
+                .register(meterRegistry);
+    }
+
+    /** Call after changing a doctor's status or profile; the profile is captured now and applied on commit. */
+    public void recordDoctor(Doctor doctor) {
+        if (doctor == null || doctor.getId() == null) return;
+        DoctorProfile profile = DoctorProfile.of(doctor);
+        afterCommit(() -> apply(() -> {
+            if (profile.isOnline()) {
+                online.put(profile.id(), profile);
+            } else {
+                online.remove(profile.id());
+            }
+        }));
+    }
+
+    public void removeDoctor(Long doctorId) {
+        if (doctorId == null) return;
+        afterCommit(() -> apply(() -> {
+            online.remove(doctorId);
+            today.remove(doctorId);
+        }));
+    }
+
+    public void recordSessionStarted(Long doctorId, Long sessionId) {
+        if (doctorId == null || sessionId == null) return;
+        afterCommit(() -> apply(() -> {
+            rollDay();
+            today.computeIfAbsent(doctorId, id -> new DayTotals()).started.add(sessionId);
+        }));
+    }
+
+    public void recordSessionCompleted(Long doctorId, Long sessionId, BigDecimal amount) {
+        if (doctorId == null || sessionId == null || amount == null) return;
+        afterCommit(() -> apply(() -> {
+            rollDay();
+            today.computeIfAbsent(doctorId, id -> new DayTotals()).earnings.put(sessionId, amount);
+        }));
+    }
+
+    public List<DoctorOnlineResponse> snapshot() {
+        ensureReady();
+        synchronized (this) {
+            rollDay();
+            List<DoctorOnlineResponse> board = new ArrayList<>(online.size());
+            for (DoctorProfile profile : online.values()) {
+                board.add(toResponse(profile, today.get(profile.id())));
+            }
+            board.sort(Comparator.comparing(DoctorOnlineResponse::getId));
+            return board;
+        }
+    }
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(streamTimeoutMs));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.offer(snapshot());
+        scheduleDrain(subscriber);
+        return emitter;
+    }
+
+    // Coalesces bursts of changes into at most one push per interval
+    @Scheduled(fixedDelayString = "${app.telemedicine.presence.push-interval-ms:1000}")
+    public void publishChanges() {
+        if (subscribers.isEmpty() || !changed.getAndSet(false)) return;
+        List<DoctorOnlineResponse> board = snapshot();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(board);
+            scheduleDrain(subscriber);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.telemedicine.presence.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offerHeartbeat();
+            scheduleDrain(subscriber);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.telemedicine.presence.reconcile-ms:300000}")
+    public void reconcile() {
+        if (!rebuildLock.tryLock()) return;
+        try {
+            rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void ensureReady() {
+        if (isReady()) return;
+        rebuildLock.lock();
+        try {
+            if (!isReady()) rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Called with rebuildLock held
+    private void rebuild() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        Map<Long, DoctorProfile> freshOnline = new HashMap<>();
+        Map<Long, DayTotals> freshToday = new HashMap<>();
+        LocalDate freshDay;
+        try {
+            OffsetDateTime now = OffsetDateTime.now();
+            freshDay = now.toLocalDate();
+            OffsetDateTime dayStart = freshDay.atStartOfDay(ZoneId.systemDefault()).toOffsetDateTime();
+            OffsetDateTime dayEnd = dayStart.plusDays(1);
+            for (Doctor doctor : doctorRepository.findByActiveTrueAndStatusIn(ONLINE_STATUSES)) {
+                freshOnline.put(doctor.getId(), DoctorProfile.of(doctor));
+            }
+            for (Object[] row : sessionRepository.findStartedByDoctor(dayStart, dayEnd)) {
+                freshToday.computeIfAbsent(((Number) row[0]).longValue(), id -> new DayTotals())
+                        .started.add(((Number) row[1]).longValue());
+            }
+            for (Object[] row : sessionRepository.findCompletedRevenueByDoctor(dayStart, dayEnd)) {
+                freshToday.computeIfAbsent(((Number) row[0]).longValue(), id -> new DayTotals())
+                        .earnings.put(((Number) row[1]).longValue(), (BigDecimal) row[2]);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            log.warn("Online doctor board rebuild failed, keeping current board: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            online = freshOnline;
+            today = freshToday;
+            day = freshDay;
+            replay.forEach(Runnable::run);
+            replay = null;
+            if (!ready) {
+                log.info("Online doctor board built: {} doctors online", online.size());
+            }
+            ready = true;
+        }
+        changed.set(true);
+    }
+
+    private synchronized boolean isReady() {
+        return ready;
+    }
+
+    private void apply(Runnable change) {
+        synchronized (this) {
+            if (replay != null) replay.add(change);
+            change.run();
+        }
+        changed.set(true);
+    }
+
+    // Called with the monitor held
+    private void rollDay() {
+        LocalDate current = LocalDate.now();
+        if (!current.equals(day)) {
+            day = current;
+            today = new HashMap<>();
+        }
+    }
+
+    // At most one drain task per subscriber, so its writes stay in order
+    private void scheduleDrain(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) return;
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.draining.set(false);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                List<DoctorOnlineResponse> board;
+                boolean heartbeat;
+                synchronized (subscriber) {
+                    if (!subscriber.hasPending()) break;
+                    board = subscriber.pending;
+                    heartbeat = subscriber.heartbeatDue;
+                    subscriber.pending = null;
+                    subscriber.heartbeatDue = false;
+                }
+                if (board != null) {
+                    subscriber.emitter.send(SseEmitter.event().name("online-doctors").data(board));
+                } else if (heartbeat) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            drop(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // A board may have arrived between the last check and clearing the flag
+        if (subscriber.hasPending()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            log.debug("Online doctor subscriber disconnected");
+            subscriber.emitter.completeWithError(new IOException("Subscriber disconnected"));
+        }
+    }
+
+    private static DoctorOnlineResponse toResponse(DoctorProfile profile, DayTotals totals) {
+        return DoctorOnlineResponse.builder()
+                .id(profile.id())
+                .doctorId(profile.doctorId())
+                .name(profile.name())
+                .photo(profile.photo())
+                .specialty(profile.specialty())
+                .experience(profile.experience())
+                .rating(profile.rating())
+                .sessionsToday(totals != null ? totals.started.size() : 0)
+                .totalSessions(profile.totalSessions())
+                .currentStatus(profile.status())
+                .currentStatusLabel(profile.status() != null ? profile.status().name().toLowerCase() : null)
+                .earnings(totals != null ? totals.totalEarnings() : BigDecimal.ZERO)
+                .languages(profile.languages())
+                .location(profile.location())
+                .email(profile.email())
+                .phone(profile.phone())
+                .build();
+    }
+}
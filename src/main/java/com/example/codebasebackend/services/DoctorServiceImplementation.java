@@ -7,15 +7,20 @@ import com.example.codebasebackend.repositories.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpStatus.*;
@@ -29,6 +34,10 @@ public class DoctorServiceImplementation implements DoctorService {
     private final DoctorRepository doctorRepository;
     private final SpecialtyRepository specialtyRepository;
     private final HospitalRepository hospitalRepository;
+    private final TelemedicineAggregateStore aggregateStore;
+    private final SequenceIdAllocator idAllocator;
+    private final DoctorPresenceRegistry presenceRegistry;
+    private final DirectorySearchIndex searchIndex;
 
     @Override
     public DoctorResponse createDoctor(DoctorRequest request) {
@@ -91,6 +100,9 @@ public class DoctorServiceImplementation implements DoctorService {
         doctor.setHospital(hospital);
 
         Doctor savedDoctor = doctorRepository.save(doctor);
+        aggregateStore.recordDoctorCountChange(1);
+        presenceRegistry.recordDoctor(savedDoctor);
+        searchIndex.recordDoctor(savedDoctor);
         log.info("Doctor created successfully: {}", doctorId);
 
         return mapToResponse(savedDoctor);
@@ -192,6 +204,8 @@ public class DoctorServiceImplementation implements DoctorService {
         }
 
         Doctor updatedDoctor = doctorRepository.save(doctor);
+        presenceRegistry.recordDoctor(updatedDoctor);
+        searchIndex.recordDoctor(updatedDoctor);
         log.info("Doctor updated: {}", doctor.getDoctorId());
 
         return mapToResponse(updatedDoctor);
@@ -204,6 +218,9 @@ public class DoctorServiceImplementation implements DoctorService {
                 "Doctor not found with ID: " + id));
 
         doctorRepository.delete(doctor);
+        aggregateStore.recordDoctorCountChange(-1);
+        presenceRegistry.removeDoctor(doctor.getId());
+        searchIndex.removeDoctor(doctor.getId());
         log.info("Doctor deleted: {}", doctor.getDoctorId());
     }
 
@@ -215,6 +232,7 @@ public class DoctorServiceImplementation implements DoctorService {
 
         doctor.updateStatus(status);
         Doctor updatedDoctor = doctorRepository.save(doctor);
+        presenceRegistry.recordDoctor(updatedDoctor);
         log.info("Doctor status updated: {} -> {}", doctor.getDoctorId(), status);
 
         return mapToResponse(updatedDoctor);
@@ -243,8 +261,26 @@ public class DoctorServiceImplementation implements DoctorService {
     @Override
     @Transactional(readOnly = true)
     public Page<DoctorResponse> searchDoctors(String searchTerm, Pageable pageable) {
-        return doctorRepository.searchDoctors(searchTerm, pageable)
-            .map(this::mapToResponse);
+        if (!StringUtils.hasText(searchTerm)) {
+            return doctorRepository.findByActiveTrue(pageable).map(this::mapToResponse);
+        }
+        // Ranked by relevance; the page is cut from the ranking and only its doctors are loaded
+        int end = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+        TextSearchIndex.Result result = searchIndex.searchDoctors(searchTerm, end, true);
+        List<Long> ids = result.ids();
+        if (pageable.getOffset() >= ids.size()) {
+            return new PageImpl<>(List.of(), pageable, result.total());
+        }
+        ids = ids.subList((int) pageable.getOffset(), ids.size());
+
+        Map<Long, Doctor> doctors = doctorRepository.findByIdIn(ids).stream()
+            .collect(Collectors.toMap(Doctor::getId, Function.identity()));
+        List<DoctorResponse> content = ids.stream()
+            .map(doctors::get)
+            .filter(Objects::nonNull)
+            .map(this::mapToResponse)
+            .toList();
+        return new PageImpl<>(content, pageable, result.total());
     }
 
     @Override
@@ -294,6 +330,7 @@ public class DoctorServiceImplementation implements DoctorService {
 
         doctor.updateRating(newRating);
         Doctor updatedDoctor = doctorRepository.save(doctor);
+        presenceRegistry.recordDoctor(updatedDoctor);
         log.info("Doctor rating updated: {} -> {}", doctor.getDoctorId(), doctor.getRating());
 
         return mapToResponse(updatedDoctor);
@@ -306,7 +343,7 @@ public class DoctorServiceImplementation implements DoctorService {
                 "Doctor not found with ID: " + id));
 
         doctor.incrementTotalSessions();
-        doctorRepository.save(doctor);
+        presenceRegistry.recordDoctor(doctorRepository.save(doctor));
         log.info("Doctor sessions incremented: {}", doctor.getDoctorId());
     }
 
@@ -318,6 +355,8 @@ public class DoctorServiceImplementation implements DoctorService {
 
         doctor.setActive(true);
         Doctor updatedDoctor = doctorRepository.save(doctor);
+        presenceRegistry.recordDoctor(updatedDoctor);
+        searchIndex.recordDoctor(updatedDoctor);
         log.info("Doctor activated: {}", doctor.getDoctorId());
 
         return mapToResponse(updatedDoctor);
@@ -332,6 +371,8 @@ public class DoctorServiceImplementation implements DoctorService {
         doctor.setActive(false);
         doctor.updateStatus(DoctorStatus.OFFLINE);
         Doctor updatedDoctor = doctorRepository.save(doctor);
+        presenceRegistry.recordDoctor(updatedDoctor);
+        searchIndex.recordDoctor(updatedDoctor);
         log.info("Doctor deactivated: {}", doctor.getDoctorId());
 
         return mapToResponse(updatedDoctor);
@@ -339,37 +380,7 @@ public class DoctorServiceImplementation implements DoctorService {
 
     // Helper Methods
     private String generateDoctorId() {
-        // Get the highest existing doctor ID number
-        String lastDoctorId = doctorRepository.findTopByOrderByIdDesc()
-            .map(Doctor::getDoctorId)
-            .orElse("DOC-000");
-
-        // Extract the numeric part and increment
-        int lastNumber = 0;
-        if (lastDoctorId != null && lastDoctorId.startsWith("DOC-")) {
-            try {
-                lastNumber = Integer.parseInt(lastDoctorId.substring(4));
-            } catch (NumberFormatException e) {
-                log.warn("Could not parse doctor ID: {}", lastDoctorId);
-            }
-        }
-
-        // Generate new ID and ensure uniqueness
-        String newDoctorId;
-        int attempts = 0;
-        do {
-            lastNumber++;
-            newDoctorId = String.format("DOC-%03d", lastNumber);
-            attempts++;
-
-            // Safety check to prevent infinite loop
-            if (attempts > 1000) {
-                throw new ResponseStatusException(INTERNAL_SERVER_ERROR,
-                    "Unable to generate unique doctor ID after 1000 attempts");
-            }
-        } while (doctorRepository.findByDoctorId(newDoctorId).isPresent());
-
-        return newDoctorId;
+        return idAllocator.nextId(SequenceIdAllocator.Kind.DOCTOR);
     }
 
     private DoctorResponse mapToResponse(Doctor doctor) {
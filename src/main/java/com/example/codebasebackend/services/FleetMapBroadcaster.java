@@ -0,0 +1,308 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.dto.FleetMapFrame;
+import com.example.codebasebackend.dto.response.AmbulanceTrackingResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes ambulance positions to live map clients over SSE, each stream limited to a bounding box.
+ *
+ * Accepted GPS pings are coalesced per ambulance and fanned out every {@code app.ambulance.map.interval-ms},
+ * so a stream carries at most one update per ambulance per interval however often devices report. A stream
+ * opens with a snapshot of the ambulances in its box, then gets {@link FleetMapFrame}s of ambulances entering,
+ * moving within (as deltas from the last position it was sent) and leaving the box. A slow client is never
+ * sent stale positions: updates waiting for it are merged, newest wins, until its previous frame is written.
+ * Pings accepted by other nodes are streamed once the position registry reconciles them from the database,
+ * so they reach the map up to {@code app.ambulance.positions.reconcile-ms} late.
+ */
+@Component
+@Slf4j
+public class FleetMapBroadcaster {
+
+    // Same window as the active-tracking list
+    private static final Duration ACTIVE_WINDOW = Duration.ofHours(1);
+    private static final double SCALE = 1e5;
+    // Snapshot positions were not just accepted, so they stay out of the fan-out latency
+    private static final long NOT_A_PING = Long.MIN_VALUE;
+
+    public record BoundingBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+
+        public static final BoundingBox WORLD = new BoundingBox(-90, -180, 90, 180);
+
+        boolean contains(Position position) {
+            double latitude = position.latitude() / SCALE;
+            double longitude = position.longitude() / SCALE;
+            return latitude >= minLatitude && latitude <= maxLatitude
+                    && longitude >= minLongitude && longitude <= maxLongitude;
+        }
+    }
+
+    // Coordinates in 1e-5 degrees
+    private record Position(long ambulanceId, long latitude, long longitude, long epochSecond, long heading,
+                            long acceptedNanos) {
+
+        static Position of(AmbulanceTrackingResponse response, long acceptedNanos) {
+            return new Position(response.getAmbulanceId(), scaled(response.getLatitude()), scaled(response.getLongitude()),
+                    response.getTimestamp().toEpochSecond(),
+                    response.getHeading() != null ? response.getHeading() : -1, acceptedNanos);
+        }
+
+        private static long scaled(BigDecimal degrees) {
+            return Math.round(degrees.doubleValue() * SCALE);
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final BoundingBox box;
+        // Guarded by this subscriber
+        Map<Long, Position> pending = new HashMap<>();
+        Set<Long> leaving = new HashSet<>();
+        final Set<Long> inBox = new HashSet<>();
+        // Only touched by the subscriber's drain
+        final Map<Long, Position> sent = new HashMap<>();
+        boolean snapshotSent;
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, BoundingBox box) {
+            this.emitter = emitter;
+            this.box = box;
+        }
+
+        // Returns whether the subscriber has something new to send
+        synchronized boolean offer(Position position) {
+            if (box.contains(position)) {
+                inBox.add(position.ambulanceId());
+                leaving.remove(position.ambulanceId());
+                pending.merge(position.ambulanceId(), position,
+                        (current, next) -> next.epochSecond() < current.epochSecond() ? current : next);
+                return true;
+            }
+            return remove(position.ambulanceId());
+        }
+
+        synchronized boolean remove(long ambulanceId) {
+            if (!inBox.remove(ambulanceId)) return false;
+            pending.remove(ambulanceId);
+            leaving.add(ambulanceId);
+            return true;
+        }
+
+        synchronized boolean hasPending() {
+            return !pending.isEmpty() || !leaving.isEmpty();
+        }
+    }
+
+    private final AmbulancePositionRegistry positionRegistry;
+    private final long streamTimeoutMs;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Map<Long, Position> incoming = new ConcurrentHashMap<>();
+    private final ExecutorService senders;
+    private final Counter framesCounter;
+    private final Timer fanOutTimer;
+
+    public FleetMapBroadcaster(AmbulancePositionRegistry positionRegistry,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.ambulance.map.stream-timeout-ms:1800000}") long streamTimeoutMs,
+                               @Value("${app.ambulance.map.sender-threads:2}") int senderThreads) {
+        this.positionRegistry = positionRegistry;
+        this.streamTimeoutMs = streamTimeoutMs;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), runnable -> {
+            Thread thread = new Thread(runnable, "fleet-map-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.framesCounter = Counter.builder("ambulance.map.frames")
+                .description("Fleet map frames written to SSE subscribers")
+                .register(meterRegistry);
+        this.fanOutTimer = Timer.builder("ambulance.map.fanout")
+                .description("Delay between accepting a GPS ping and writing it to a fleet map stream")
+                .register(meterRegistry);
+        Gauge.builder("ambulance.map.subscribers", subscribers, List::size)
+                .description("Open fleet map SSE streams")
+                .register(meterRegistry);
+        // Their acceptance time is unknown here, so they stay out of the fan-out latency
+        positionRegistry.onReconciled(position -> publish(position, NOT_A_PING));
+    }
+
+    public SseEmitter subscribe(BoundingBox box) {
+        return subscribe(box, new SseEmitter(streamTimeoutMs));
+    }
+
+    SseEmitter subscribe(BoundingBox box, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter, box);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        // Registered first so no ping falls between the snapshot and the stream; offer keeps the newer position
+        subscribers.add(subscriber);
+        for (AmbulanceTrackingResponse position : positionRegistry.activeSince(OffsetDateTime.now().minus(ACTIVE_WINDOW))) {
+            subscriber.offer(Position.of(position, NOT_A_PING));
+        }
+        scheduleDrain(subscriber);
+        return emitter;
+    }
+
+    /** Call with each accepted ping's position; it is streamed with the next fan-out. */
+    public void publish(AmbulanceTrackingResponse position) {
+        publish(position, System.nanoTime());
+    }
+
+    private void publish(AmbulanceTrackingResponse position, long acceptedNanos) {
+        if (subscribers.isEmpty() || position.getLatitude() == null || position.getLongitude() == null) return;
+        incoming.merge(position.getAmbulanceId(), Position.of(position, acceptedNanos),
+                (current, next) -> next.epochSecond() < current.epochSecond() ? current : next);
+    }
+
+    /** Removes a deleted ambulance from every map. */
+    public void forget(Long ambulanceId) {
+        if (ambulanceId == null) return;
+        incoming.remove(ambulanceId);
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.remove(ambulanceId)) scheduleDrain(subscriber);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.ambulance.map.interval-ms:1000}")
+    public void fanOut() {
+        if (incoming.isEmpty()) return;
+        List<Position> batch = new ArrayList<>(incoming.size());
+        for (Long ambulanceId : incoming.keySet()) {
+            Position position = incoming.remove(ambulanceId);
+            if (position != null) batch.add(position);
+        }
+        for (Subscriber subscriber : subscribers) {
+            boolean changed = false;
+            for (Position position : batch) {
+                changed |= subscriber.offer(position);
+            }
+            if (changed) scheduleDrain(subscriber);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.ambulance.map.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                drop(subscriber);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    // At most one drain task per subscriber, so its frames are written in order
+    private void scheduleDrain(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) return;
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.draining.set(false);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                Map<Long, Position> positions;
+                Set<Long> left;
+                boolean snapshot;
+                synchronized (subscriber) {
+                    snapshot = !subscriber.snapshotSent;
+                    if (!snapshot && !subscriber.hasPending()) break;
+                    positions = subscriber.pending;
+                    left = subscriber.leaving;
+                    subscriber.pending = new HashMap<>();
+                    subscriber.leaving = new HashSet<>();
+                    subscriber.snapshotSent = true;
+                }
+                subscriber.emitter.send(SseEmitter.event()
+                        .name(snapshot ? "snapshot" : "update")
+                        .data(frame(subscriber, snapshot, positions, left)));
+                framesCounter.increment();
+                long now = System.nanoTime();
+                for (Position position : positions.values()) {
+                    if (position.acceptedNanos() != NOT_A_PING) fanOutTimer.record(Duration.ofNanos(now - position.acceptedNanos()));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            drop(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // An update may have arrived between the last check and clearing the flag
+        if (subscriber.hasPending()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private static FleetMapFrame frame(Subscriber subscriber, boolean snapshot, Map<Long, Position> positions, Set<Long> left) {
+        List<long[]> enter = new ArrayList<>();
+        List<long[]> move = new ArrayList<>();
+        for (Position position : positions.values()) {
+            Position previous = subscriber.sent.put(position.ambulanceId(), position);
+            if (previous == null) {
+                enter.add(new long[]{position.ambulanceId(), position.latitude(), position.longitude(),
+                        position.epochSecond(), position.heading()});
+            } else {
+                move.add(new long[]{position.ambulanceId(), position.latitude() - previous.latitude(),
+                        position.longitude() - previous.longitude(), position.epochSecond() - previous.epochSecond(),
+                        position.heading()});
+            }
+        }
+        List<Long> leave = new ArrayList<>();
+        for (Long ambulanceId : left) {
+            if (subscriber.sent.remove(ambulanceId) != null) leave.add(ambulanceId);
+        }
+        return FleetMapFrame.builder()
+                .snapshot(snapshot)
+                .enter(enter)
+                .move(move)
+                .leave(leave)
+                .build();
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            log.debug("Fleet map subscriber disconnected");
+            subscriber.emitter.completeWithError(new IOException("Subscriber disconnected"));
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.Ambulances;
+import com.example.codebasebackend.dto.response.AmbulanceStatistics;
+import com.example.codebasebackend.repositories.AmbulanceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.example.codebasebackend.services.TransactionCallbacks.afterCommit;
+
+/**
+ * Fleet statistics for the ambulance dashboard.
+ *
+ * By default they come from one grouped aggregate over the ambulances table. With
+ * {@code app.ambulance.statistics.in-memory} the figures of every ambulance are instead kept in memory,
+ * updated after commit whenever an ambulance is saved or deleted, and statistics are served without SQL.
+ * The snapshot is loaded on first use and reloaded every {@code app.ambulance.statistics.reconcile-ms},
+ * which also picks up changes made on other nodes; changes arriving while a reload runs are replayed onto
+ * the new snapshot before it is swapped in.
+ */
+@Component
+@Slf4j
+public class FleetStatistics {
+
+    private static final Set<Ambulances.AmbulanceStatus> BUSY = EnumSet.of(Ambulances.AmbulanceStatus.BUSY,
+            Ambulances.AmbulanceStatus.DISPATCHED, Ambulances.AmbulanceStatus.EN_ROUTE,
+            Ambulances.AmbulanceStatus.ON_SCENE, Ambulances.AmbulanceStatus.TRANSPORTING);
+
+    private record Figures(Ambulances.AmbulanceStatus status, Ambulances.AmbulanceType type,
+                           Integer mileage, Integer fuelLevel, Integer dispatches) {
+
+        static Figures of(Ambulances ambulance) {
+            return new Figures(ambulance.getStatus(), ambulance.getType(), ambulance.getMileage(),
+                    ambulance.getFuelLevel(), ambulance.getTotalDispatches());
+        }
+    }
+
+    private final AmbulanceRepository ambulanceRepository;
+    private final boolean inMemory;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile Map<Long, Figures> fleet = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    // Guarded by this; non-null while a reload is loading
+    private List<Runnable> replay;
+
+    public FleetStatistics(AmbulanceRepository ambulanceRepository,
+                           @Value("${app.ambulance.statistics.in-memory:false}") boolean inMemory) {
+        this.ambulanceRepository = ambulanceRepository;
+        this.inMemory = inMemory;
+    }
+
+    public AmbulanceStatistics current() {
+        Totals totals = new Totals();
+        if (inMemory) {
+            ensureReady();
+            for (Figures figures : fleet.values()) {
+                totals.add(figures.status(), figures.type(), 1,
+                        value(figures.mileage()), figures.mileage() != null ? 1 : 0,
+                        value(figures.fuelLevel()), figures.fuelLevel() != null ? 1 : 0,
+                        figures.dispatches());
+            }
+        } else {
+            for (Object[] row : ambulanceRepository.getFleetAggregates()) {
+                totals.add((Ambulances.AmbulanceStatus) row[0], (Ambulances.AmbulanceType) row[1], number(row[2]),
+                        number(row[3]), number(row[4]), number(row[5]), number(row[6]), (Number) row[7]);
+            }
+        }
+        return totals.toStatistics();
+    }
+
+    /** Call after saving an ambulance; its figures are captured now and applied on commit. */
+    public void record(Ambulances ambulance) {
+        if (!inMemory || ambulance == null || ambulance.getId() == null) return;
+        long id = ambulance.getId();
+        Figures figures = Figures.of(ambulance);
+        afterCommit(() -> apply(() -> fleet.put(id, figures)));
+    }
+
+    public void remove(Long ambulanceId) {
+        if (!inMemory || ambulanceId == null) return;
+        afterCommit(() -> apply(() -> fleet.remove(ambulanceId)));
+    }
+
+    @Scheduled(fixedDelayString = "${app.ambulance.statistics.reconcile-ms:300000}")
+    public void reconcile() {
+        if (!inMemory || !reloadLock.tryLock()) return;
+        try {
+            reload();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void ensureReady() {
+        if (ready) return;
+        reloadLock.lock();
+        try {
+            if (!ready) reload();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // Called with reloadLock held
+    private void reload() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        Map<Long, Figures> fresh = new ConcurrentHashMap<>();
+        try {
+            for (Object[] row : ambulanceRepository.findFleetFigures()) {
+                fresh.put((Long) row[0], new Figures((Ambulances.AmbulanceStatus) row[1], (Ambulances.AmbulanceType) row[2],
+                        (Integer) row[3], (Integer) row[4], (Integer) row[5]));
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            if (!ready) throw e;
+            log.warn("Fleet statistics reload failed, keeping current snapshot: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            fleet = fresh;
+            replay.forEach(Runnable::run);
+            replay = null;
+            ready = true;
+        }
+    }
+
+    private void apply(Runnable change) {
+        synchronized (this) {
+            if (replay != null) replay.add(change);
+            change.run();
+        }
+    }
+
+    private static long number(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+
+    private static long value(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static final class Totals {
+        private long total;
+        private final Map<Ambulances.AmbulanceStatus, Long> byStatus = new EnumMap<>(Ambulances.AmbulanceStatus.class);
+        private final Map<Ambulances.AmbulanceType, Long> byType = new EnumMap<>(Ambulances.AmbulanceType.class);
+        private long mileageSum;
+        private long mileageCount;
+        private long fuelSum;
+        private long fuelCount;
+        private Long dispatches;
+
+        void add(Ambulances.AmbulanceStatus status, Ambulances.AmbulanceType type, long count,
+                 long mileageSum, long mileageCount, long fuelSum, long fuelCount, Number dispatchSum) {
+            total += count;
+            if (status != null) byStatus.merge(status, count, Long::sum);
+            if (type != null) byType.merge(type, count, Long::sum);
+            this.mileageSum += mileageSum;
+            this.mileageCount += mileageCount;
+            this.fuelSum += fuelSum;
+            this.fuelCount += fuelCount;
+            // SUM over no non-null values is null, as the dispatch total was before
+            if (dispatchSum != null) dispatches = (dispatches != null ? dispatches : 0) + dispatchSum.longValue();
+        }
+
+        AmbulanceStatistics toStatistics() {
+            return AmbulanceStatistics.builder()
+                    .totalFleet(total)
+                    .available(byStatus.getOrDefault(Ambulances.AmbulanceStatus.AVAILABLE, 0L))
+                    .busy(BUSY.stream().mapToLong(status -> byStatus.getOrDefault(status, 0L)).sum())
+                    .maintenance(byStatus.getOrDefault(Ambulances.AmbulanceStatus.MAINTENANCE, 0L))
+                    .outOfService(byStatus.getOrDefault(Ambulances.AmbulanceStatus.OUT_OF_SERVICE, 0L))
+                    .averageMileage(mileageCount > 0 ? (double) mileageSum / mileageCount : null)
+                    .averageFuelLevel(fuelCount > 0 ? (double) fuelSum / fuelCount : null)
+                    .totalDispatches(dispatches)
+                    .basicLifeSupport(byType.getOrDefault(Ambulances.AmbulanceType.BASIC_LIFE_SUPPORT, 0L))
+                    .advancedLifeSupport(byType.getOrDefault(Ambulances.AmbulanceType.ADVANCED_LIFE_SUPPORT, 0L))
+                    .criticalCare(byType.getOrDefault(Ambulances.AmbulanceType.CRITICAL_CARE, 0L))
+                    .patientTransport(byType.getOrDefault(Ambulances.AmbulanceType.PATIENT_TRANSPORT, 0L))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.codebasebackend.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory grid of points keyed by entity id, answering k-nearest queries by great-circle distance.
+ *
+ * The globe is cut into square cells of {@code cellDegrees}; each point lives in one cell. A query
+ * scans rings of cells outwards from the query point and stops once the k best matches are closer than
+ * anything an unscanned ring could hold, so it touches only the neighbourhood of the point rather than
+ * every entry. Once a ring has more cells than the index has entries (sparse data, or few matches for
+ * the filter) every entry is scanned directly instead.
+ *
+ * Reads share a lock and writes take it exclusively.
+ */
+public class GeoGridIndex<T> {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    public record Neighbour<T>(long id, T value, double latitude, double longitude, double distanceKm) {
+    }
+
+    private record Entry<T>(long id, T value, double latitude, double longitude, long cell) {
+    }
+
+    private final double cellDegrees;
+    private final int columns;
+    private final int rows;
+    private final Map<Long, Entry<T>> entries = new HashMap<>();
+    private final Map<Long, List<Entry<T>>> cells = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public GeoGridIndex(double cellDegrees) {
+        if (!(cellDegrees > 0 && cellDegrees <= 90)) {
+            throw new IllegalArgumentException("cellDegrees must be in (0, 90]");
+        }
+        this.cellDegrees = cellDegrees;
+        this.columns = (int) Math.ceil(360 / cellDegrees);
+        this.rows = (int) Math.ceil(180 / cellDegrees);
+    }
+
+    public void put(long id, double latitude, double longitude, T value) {
+        if (!(Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180)) {
+            throw new IllegalArgumentException("Invalid coordinates: " + latitude + ", " + longitude);
+        }
+        Entry<T> entry = new Entry<>(id, value, latitude, longitude, cellOf(row(latitude), column(longitude)));
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            entries.put(id, entry);
+            cells.computeIfAbsent(entry.cell(), cell -> new ArrayList<>()).add(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return entries.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The entry's {latitude, longitude}, or null if it is not indexed. */
+    public double[] locate(long id) {
+        lock.readLock().lock();
+        try {
+            Entry<T> entry = entries.get(id);
+            return entry != null ? new double[]{entry.latitude(), entry.longitude()} : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Up to {@code k} entries matching the filter, nearest first (ties by ascending id). */
+    public List<Neighbour<T>> nearest(double latitude, double longitude, int k, Predicate<? super T> filter) {
+        return nearest(latitude, longitude, k, Double.POSITIVE_INFINITY, filter);
+    }
+
+    /** As {@link #nearest(double, double, int, Predicate)}, limited to entries within {@code radiusKm}. */
+    public List<Neighbour<T>> nearest(double latitude, double longitude, int k, double radiusKm,
+                                      Predicate<? super T> filter) {
+        if (k <= 0) return List.of();
+        Comparator<Neighbour<T>> ranking = Comparator.<Neighbour<T>>comparingDouble(Neighbour::distanceKm)
+                .thenComparingLong(Neighbour::id);
+        PriorityQueue<Neighbour<T>> best = new PriorityQueue<>(ranking.reversed());
+        int queryRow = row(latitude);
+        int queryColumn = column(longitude);
+
+        lock.readLock().lock();
+        try {
+            for (int ring = 0; ; ring++) {
+                // Looking at every entry is now cheaper than probing the ring's (mostly empty) cells, or
+                // the ring would wrap around the globe
+                if (ring > 0 && (8L * ring > entries.size() || 2 * ring + 1 > columns)) {
+                    best.clear();
+                    for (Entry<T> entry : entries.values()) {
+                        offer(best, k, ranking, entry, latitude, longitude, radiusKm, filter);
+                    }
+                    break;
+                }
+                for (int dy = -ring; dy <= ring; dy++) {
+                    int row = queryRow + dy;
+                    if (row < 0 || row >= rows) continue;
+                    boolean edgeRow = Math.abs(dy) == ring;
+                    for (int dx = -ring; dx <= ring; dx += edgeRow ? 1 : 2 * ring) {
+                        List<Entry<T>> cell = cells.get(cellOf(row, Math.floorMod(queryColumn + dx, columns)));
+                        if (cell == null) continue;
+                        for (int i = 0; i < cell.size(); i++) {
+                            offer(best, k, ranking, cell.get(i), latitude, longitude, radiusKm, filter);
+                        }
+                    }
+                }
+                double unscanned = unscannedLowerBoundKm(latitude, ring);
+                if (unscanned > radiusKm || (best.size() == k && best.peek().distanceKm() <= unscanned)) break;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Neighbour<T>> result = new ArrayList<>(best);
+        result.sort(ranking);
+        return result;
+    }
+
+    public static double haversineKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLon = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // Only entries that make it into the current top k are allocated a Neighbour
+    private void offer(PriorityQueue<Neighbour<T>> best, int k, Comparator<Neighbour<T>> ranking, Entry<T> entry,
+                       double latitude, double longitude, double radiusKm, Predicate<? super T> filter) {
+        double distance = haversineKm(latitude, longitude, entry.latitude(), entry.longitude());
+        if (distance > radiusKm) return;
+        if (best.size() == k) {
+            Neighbour<T> worst = best.peek();
+            if (distance > worst.distanceKm() || (distance == worst.distanceKm() && entry.id() > worst.id())) return;
+        }
+        if (filter != null && !filter.test(entry.value())) return;
+        Neighbour<T> candidate = new Neighbour<>(entry.id(), entry.value(), entry.latitude(), entry.longitude(), distance);
+        if (best.size() < k) {
+            best.add(candidate);
+        } else if (ranking.compare(candidate, best.peek()) < 0) {
+            best.poll();
+            best.add(candidate);
+        }
+    }
+
+    // After rings 0..ring, any unscanned point is at least ring cells away in latitude, or in longitude
+    // while within the band of scanned rows
+    private double unscannedLowerBoundKm(double latitude, int ring) {
+        double degrees = ring * cellDegrees;
+        double latitudeBound = Math.toRadians(degrees) * EARTH_RADIUS_KM;
+        double bandEdge = Math.min(90, Math.abs(latitude) + (ring + 1) * cellDegrees);
+        double longitudeBound = 2 * EARTH_RADIUS_KM
+                * Math.asin(Math.cos(Math.toRadians(bandEdge)) * Math.sin(Math.toRadians(degrees) / 2));
+        return Math.min(latitudeBound, longitudeBound);
+    }
+
+    private boolean removeLocked(long id) {
+        Entry<T> entry = entries.remove(id);
+        if (entry == null) return false;
+        List<Entry<T>> cell = cells.get(entry.cell());
+        cell.remove(entry);
+        if (cell.isEmpty()) cells.remove(entry.cell());
+        return true;
+    }
+
+    private int row(double latitude) {
+        return Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellDegrees));
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), columns);
+    }
+
+    private long cellOf(int row, int column) {
+        return (long) row * columns + column;
+    }
+}
@@ -40,6 +40,7 @@ public class HomeVisitServiceImplementation implements HomeVisitService {
     private final PatientRepository patientRepository;
     private final CommunityHealthWorkersRepository chwRepository;
     private final CommunityHealthWorkerAssignmentRepository assignmentRepository;
+    private final AvailableChwIndex chwIndex;
 
     @Override
     @Transactional(readOnly = true)
@@ -256,7 +257,7 @@ public class HomeVisitServiceImplementation implements HomeVisitService {
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "CHW not found"));
         long activeCount = assignmentRepository.countByChwIdAndStatusIn(chwId, ACTIVE_ASSIGNMENT_STATUSES);
         chw.setAssignedPatients(Math.toIntExact(activeCount));
-        chwRepository.save(chw);
+        chwIndex.record(chwRepository.save(chw));
     }
 
     private HomeVisitResponse toResponse(HomeVisit visit) {
@@ -0,0 +1,219 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AmbulanceDispatch;
+import com.example.codebasebackend.Entities.Hospital;
+import com.example.codebasebackend.repositories.AmbulanceDispatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the ambulance units each hospital has committed to open dispatches, so an assistance request can
+ * reserve a unit without counting dispatch rows and concurrent requests cannot both take the last one.
+ *
+ * A dispatch holds a unit of its hospital from creation until it reaches a terminal status or is deleted.
+ * By default the counts live in memory: one AtomicInteger per hospital, reserved with a compare-and-set
+ * loop and seeded from the hospital's open dispatches the first time it is seen. When several nodes
+ * dispatch for the same hospitals ({@code app.dispatch.capacity.shared=true}) the count is a row of
+ * {@code hospital_dispatch_capacity} instead, reserved by an UPDATE that only matches while a unit is free.
+ *
+ * Reservations apply at once and are undone if the caller's transaction rolls back; releases apply
+ * when it commits. A release committing while its hospital's count is being seeded waits for the seed,
+ * so the seed either sees the dispatch open and the release takes it off, or sees it closed already.
+ */
+@Component
+@Slf4j
+public class HospitalCapacityLedger {
+
+    private static final Set<AmbulanceDispatch.DispatchStatus> TERMINAL = EnumSet.of(
+            AmbulanceDispatch.DispatchStatus.COMPLETED, AmbulanceDispatch.DispatchStatus.CANCELED);
+    private static final List<AmbulanceDispatch.DispatchStatus> OPEN = Arrays.stream(AmbulanceDispatch.DispatchStatus.values())
+            .filter(status -> !TERMINAL.contains(status))
+            .toList();
+    private static final String TERMINAL_SQL = TERMINAL.stream()
+            .map(status -> "'" + status.name() + "'")
+            .collect(Collectors.joining(", "));
+
+    private final AmbulanceDispatchRepository dispatchRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final boolean shared;
+    private final Map<Long, AtomicInteger> unitsInUse = new ConcurrentHashMap<>();
+    private final Map<Long, ReentrantLock> seedLocks = new ConcurrentHashMap<>();
+    private final Set<Long> seededRows = ConcurrentHashMap.newKeySet();
+    private volatile boolean tableReady;
+
+    public HospitalCapacityLedger(AmbulanceDispatchRepository dispatchRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.dispatch.capacity.shared:false}") boolean shared) {
+        this.dispatchRepository = dispatchRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // Seeding a shared row must not depend on the caller's transaction committing
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.shared = shared;
+    }
+
+    public static boolean isTerminal(AmbulanceDispatch.DispatchStatus status) {
+        return status != null && TERMINAL.contains(status);
+    }
+
+    /** Whether the dispatch currently holds one of its hospital's units. */
+    public static boolean holdsUnit(AmbulanceDispatch dispatch) {
+        return dispatch.getHospital() != null && !isTerminal(dispatch.getStatus());
+    }
+
+    /**
+     * Reserves one of the hospital's {@code numberOfAmbulances} units for a new dispatch. Returns false
+     * if they are all in use, or the hospital has none.
+     */
+    public boolean tryReserve(Hospital hospital) {
+        Integer capacity = hospital.getNumberOfAmbulances();
+        if (hospital.getId() == null || capacity == null || capacity <= 0) return false;
+        long hospitalId = hospital.getId();
+        if (shared) {
+            ensureRow(hospitalId);
+            return jdbcTemplate.update("UPDATE hospital_dispatch_capacity SET units_in_use = units_in_use + 1 " +
+                    "WHERE hospital_id = ? AND units_in_use < ?", hospitalId, capacity) == 1;
+        }
+        AtomicInteger units = units(hospitalId);
+        int used;
+        do {
+            used = units.get();
+            if (used >= capacity) return false;
+        } while (!units.compareAndSet(used, used + 1));
+        onRollback(units::decrementAndGet);
+        return true;
+    }
+
+    /** Takes a unit whatever the hospital's capacity, for dispatches whose ambulance is already chosen. */
+    public void occupy(Long hospitalId) {
+        if (hospitalId == null) return;
+        if (shared) {
+            ensureRow(hospitalId);
+            jdbcTemplate.update("UPDATE hospital_dispatch_capacity SET units_in_use = units_in_use + 1 " +
+                    "WHERE hospital_id = ?", hospitalId);
+            return;
+        }
+        AtomicInteger units = units(hospitalId);
+        units.incrementAndGet();
+        onRollback(units::decrementAndGet);
+    }
+
+    /** Gives back the unit held by a dispatch that reached a terminal status or was deleted. */
+    public void release(Long hospitalId) {
+        if (hospitalId == null) return;
+        if (shared) {
+            jdbcTemplate.update("UPDATE hospital_dispatch_capacity SET units_in_use = units_in_use - 1 " +
+                    "WHERE hospital_id = ? AND units_in_use > 0", hospitalId);
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            decrement(unitsInUse.get(hospitalId));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private AtomicInteger units;
+            private ReentrantLock seeding;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                units = unitsInUse.get(hospitalId);
+                if (units != null) return;
+                // Not seeded yet: keep a seed from reading the dispatch until this commit is visible
+                seeding = seedLock(hospitalId);
+                seeding.lock();
+                units = unitsInUse.get(hospitalId);
+            }
+
+            @Override
+            public void afterCommit() {
+                // Still not seeded: the seed will count the dispatch as closed
+                decrement(units);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (seeding != null) seeding.unlock();
+            }
+        });
+    }
+
+    private AtomicInteger units(long hospitalId) {
+        AtomicInteger units = unitsInUse.get(hospitalId);
+        if (units != null) return units;
+        ReentrantLock seeding = seedLock(hospitalId);
+        seeding.lock();
+        try {
+            units = unitsInUse.get(hospitalId);
+            if (units != null) return units;
+            int open = Math.toIntExact(dispatchRepository.countByHospitalIdAndStatusIn(hospitalId, OPEN));
+            units = new AtomicInteger(open);
+            unitsInUse.put(hospitalId, units);
+            return units;
+        } finally {
+            seeding.unlock();
+        }
+    }
+
+    private ReentrantLock seedLock(long hospitalId) {
+        return seedLocks.computeIfAbsent(hospitalId, id -> new ReentrantLock());
+    }
+
+    private static void decrement(AtomicInteger units) {
+        if (units != null) units.updateAndGet(used -> Math.max(0, used - 1));
+    }
+
+    private void ensureRow(long hospitalId) {
+        if (seededRows.contains(hospitalId)) return;
+        try {
+            requiresNew.executeWithoutResult(status -> {
+                ensureTable();
+                jdbcTemplate.update("INSERT INTO hospital_dispatch_capacity (hospital_id, units_in_use) " +
+                        "SELECT ?, (SELECT COUNT(*) FROM ambulance_dispatches WHERE hospital_id = ? " +
+                        "AND status NOT IN (" + TERMINAL_SQL + ")) " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM hospital_dispatch_capacity WHERE hospital_id = ?)",
+                        hospitalId, hospitalId, hospitalId);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another node seeded the row first
+        }
+        seededRows.add(hospitalId);
+    }
+
+    private void ensureTable() {
+        if (tableReady) return;
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS hospital_dispatch_capacity (" +
+                "hospital_id BIGINT PRIMARY KEY, units_in_use INTEGER NOT NULL)");
+        tableReady = true;
+        log.info("Shared hospital dispatch capacity ledger ready");
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) action.run();
+            }
+        });
+    }
+}
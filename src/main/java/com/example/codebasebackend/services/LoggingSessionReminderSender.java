@@ -0,0 +1,15 @@
+package com.example.codebasebackend.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+// Default sender until an email/SMS integration is wired in
+@Component
+@Slf4j
+public class LoggingSessionReminderSender implements SessionReminderSender {
+
+    @Override
+    public void send(Reminder reminder) {
+        log.info("Sending reminder for session: {} to patient: {}", reminder.sessionId(), reminder.patientEmail());
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.codebasebackend.services;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the drivable roads of an OpenStreetMap XML extract ({@code .osm}, or gzipped {@code .osm.gz})
+ * into a {@link RoadGraph}. A PBF extract can be converted first, e.g. {@code osmium cat city.osm.pbf -o city.osm}.
+ *
+ * The file is streamed: every node is kept as an id and coordinates in primitive arrays (extracts list
+ * nodes by ascending id, so lookups are binary searches) and only nodes on a drivable way enter the
+ * graph. Each way contributes an edge per pair of consecutive nodes, in both directions unless it is
+ * one-way, at its {@code maxspeed} or else a default for its {@code highway} class.
+ */
+public final class OsmRoadGraphLoader {
+
+    // Default speeds in km/h, roughly what an ambulance achieves in urban traffic
+    private static final Map<String, Double> SPEEDS = Map.ofEntries(
+            Map.entry("motorway", 90.0), Map.entry("motorway_link", 50.0),
+            Map.entry("trunk", 75.0), Map.entry("trunk_link", 45.0),
+            Map.entry("primary", 60.0), Map.entry("primary_link", 40.0),
+            Map.entry("secondary", 50.0), Map.entry("secondary_link", 35.0),
+            Map.entry("tertiary", 40.0), Map.entry("tertiary_link", 30.0),
+            Map.entry("unclassified", 30.0), Map.entry("residential", 25.0),
+            Map.entry("road", 25.0), Map.entry("service", 15.0),
+            Map.entry("living_street", 10.0));
+
+    private OsmRoadGraphLoader() {
+    }
+
+    public static RoadGraph load(Path file) throws IOException {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file));
+             InputStream in = file.toString().endsWith(".gz") ? new GZIPInputStream(raw) : raw) {
+            return load(in);
+        }
+    }
+
+    public static RoadGraph load(InputStream in) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                return read(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid OSM XML: " + e.getMessage(), e);
+        }
+    }
+
+    private static RoadGraph read(XMLStreamReader reader) throws XMLStreamException {
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        Nodes nodes = new Nodes();
+        Way way = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "node" -> nodes.add(Long.parseLong(reader.getAttributeValue(null, "id")),
+                            Double.parseDouble(reader.getAttributeValue(null, "lat")),
+                            Double.parseDouble(reader.getAttributeValue(null, "lon")));
+                    case "way" -> way = new Way();
+                    case "nd" -> {
+                        if (way != null) way.add(Long.parseLong(reader.getAttributeValue(null, "ref")));
+                    }
+                    case "tag" -> {
+                        if (way != null) way.tag(reader.getAttributeValue(null, "k"), reader.getAttributeValue(null, "v"));
+                    }
+                    default -> { }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && "way".equals(reader.getLocalName()) && way != null) {
+                way.addTo(builder, nodes);
+                way = null;
+            }
+        }
+        return builder.build();
+    }
+
+    /** Every node of the extract; road nodes are added to the graph when a way first uses them. */
+    private static final class Nodes {
+        private long[] ids = new long[1024];
+        private double[] latitude = new double[1024];
+        private double[] longitude = new double[1024];
+        private int size;
+        private boolean sorted = true;
+        private final Map<Long, Integer> graphNodes = new HashMap<>();
+
+        void add(long id, double lat, double lon) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                latitude = Arrays.copyOf(latitude, size * 2);
+                longitude = Arrays.copyOf(longitude, size * 2);
+            }
+            if (size > 0 && id <= ids[size - 1]) sorted = false;
+            ids[size] = id;
+            latitude[size] = lat;
+            longitude[size] = lon;
+            size++;
+        }
+
+        /** The node's index in the graph being built, or null if the extract does not contain it. */
+        Integer graphNode(long id, RoadGraph.Builder builder) {
+            Integer node = graphNodes.get(id);
+            if (node != null) return node;
+            if (!sorted) sort();
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0) return null;
+            node = builder.addNode(latitude[i], longitude[i]);
+            graphNodes.put(id, node);
+            return node;
+        }
+
+        private void sort() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+            long[] sortedIds = new long[size];
+            double[] sortedLatitude = new double[size];
+            double[] sortedLongitude = new double[size];
+            for (int i = 0; i < size; i++) {
+                sortedIds[i] = ids[order[i]];
+                sortedLatitude[i] = latitude[order[i]];
+                sortedLongitude[i] = longitude[order[i]];
+            }
+            ids = sortedIds;
+            latitude = sortedLatitude;
+            longitude = sortedLongitude;
+            sorted = true;
+        }
+    }
+
+    private static final class Way {
+        private long[] refs = new long[16];
+        private int size;
+        private String highway;
+        private String oneway;
+        private String maxspeed;
+        private String junction;
+
+        void add(long ref) {
+            if (size == refs.length) refs = Arrays.copyOf(refs, size * 2);
+            refs[size++] = ref;
+        }
+
+        void tag(String key, String value) {
+            switch (key) {
+                case "highway" -> highway = value;
+                case "oneway" -> oneway = value;
+                case "maxspeed" -> maxspeed = value;
+                case "junction" -> junction = value;
+                default -> { }
+            }
+        }
+
+        void addTo(RoadGraph.Builder builder, Nodes nodes) {
+            Double defaultSpeed = highway != null ? SPEEDS.get(highway) : null;
+            if (defaultSpeed == null) return;
+            double kmh = parseSpeed(maxspeed, defaultSpeed);
+            boolean forward = true;
+            boolean backward = true;
+            if ("-1".equals(oneway) || "reverse".equals(oneway)) {
+                forward = false;
+            } else if ("yes".equals(oneway) || "true".equals(oneway) || "1".equals(oneway)
+                    || (oneway == null && ("motorway".equals(highway) || "roundabout".equals(junction)))) {
+                backward = false;
+            }
+            for (int i = 1; i < size; i++) {
+                Integer from = nodes.graphNode(refs[i - 1], builder);
+                Integer to = nodes.graphNode(refs[i], builder);
+                // Extracts clipped at a boundary reference nodes they do not contain
+                if (from == null || to == null) continue;
+                if (forward) builder.addEdge(from, to, kmh);
+                if (backward) builder.addEdge(to, from, kmh);
+            }
+        }
+
+        private static double parseSpeed(String maxspeed, double fallback) {
+            if (maxspeed == null) return fallback;
+            String value = maxspeed.trim().toLowerCase(Locale.ROOT);
+            try {
+                if (value.endsWith("mph")) {
+                    return Double.parseDouble(value.substring(0, value.length() - 3).trim()) * 1.609344;
+                }
+                double kmh = Double.parseDouble(value);
+                return kmh > 0 ? kmh : fallback;
+            } catch (NumberFormatException e) {
+                // "signals", "walk", "RU:urban" and the like
+                return fallback;
+            }
+        }
+    }
+}
@@ -23,6 +23,7 @@ public class PatientServiceImplementation implements PatientService {
 
     private final PatientRepository patientRepo;
     private final HospitalRepository hospitalRepo;
+    private final DirectorySearchIndex searchIndex;
 
     @Override
     public void updateLocation(Long patientId, BigDecimal latitude, BigDecimal longitude) {
@@ -61,7 +62,9 @@ public class PatientServiceImplementation implements PatientService {
         }
 
         // Bean validation on controller handles @Valid constraints; prePersist sets defaults.
-        return PatientResponse.from(patientRepo.save(patient));
+        Patient saved = patientRepo.save(patient);
+        searchIndex.recordPatient(saved);
+        return PatientResponse.from(saved);
     }
 
     @Override
@@ -147,7 +150,9 @@ public class PatientServiceImplementation implements PatientService {
             existing.setHospital(hospitalRepo.getReferenceById(hospitalId));
         }
 
-        return PatientResponse.from(patientRepo.save(existing));
+        Patient saved = patientRepo.save(existing);
+        searchIndex.recordPatient(saved);
+        return PatientResponse.from(saved);
     }
 
     @Override
@@ -155,5 +160,6 @@ public class PatientServiceImplementation implements PatientService {
         if (id == null) throw new ResponseStatusException(BAD_REQUEST, "id required");
         if (!patientRepo.existsById(id)) throw new ResponseStatusException(NOT_FOUND, "Patient not found");
         patientRepo.deleteById(id);
+        searchIndex.removePatient(id);
     }
 }
@@ -0,0 +1,476 @@
+package com.example.codebasebackend.services;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Immutable road network held in primitive arrays, answering shortest-time routes between its nodes.
+ *
+ * Nodes are numbered 0..n-1; the outgoing edges of node {@code v} are {@code edgeStart[v]..edgeStart[v+1]-1}
+ * in the parallel edge arrays (compressed sparse rows), so a city of a few hundred thousand nodes fits in
+ * a few tens of megabytes and a search touches no objects. Routes are found with A* using landmark
+ * lower bounds (ALT): travel times to and from {@value #LANDMARKS} far-apart landmark nodes are computed
+ * once when the graph is built, and by the triangle inequality |d(L,t) - d(L,v)| bounds the remaining time
+ * from {@code v} to {@code t}. That is far tighter than the straight-line distance at top speed, which is
+ * not used: its trigonometry cost more per node than it saved. Each query only uses the
+ * {@value #ACTIVE_LANDMARKS} landmarks that bound its start best, and a node's landmark times sit next
+ * to each other, so evaluating the bound reads one or two cache lines. Search state is
+ * pooled (one per concurrent query) and reset by generation stamps rather than cleared, so a query only
+ * pays for the nodes it visits.
+ */
+public final class RoadGraph {
+
+    private static final long CELL_COLUMNS = 1L << 32;
+    private static final int LANDMARKS = 16;
+    private static final int ACTIVE_LANDMARKS = 8;
+
+    public record Path(double seconds, double meters, int[] nodes) {
+    }
+
+    private final double[] latitude;
+    private final double[] longitude;
+    private final int[] edgeStart;
+    private final int[] edgeTarget;
+    private final float[] edgeSeconds;
+    private final float[] edgeMeters;
+
+    // Per node, the seconds from each landmark and then to each landmark; infinite if unreachable
+    private final int landmarks;
+    private final float[] landmarkSeconds;
+
+    // Nodes sorted by grid cell, for snapping coordinates to the nearest node
+    private final double cellDegrees;
+    private final long[] cellKeys;
+    private final int[] cellStart;
+    private final int[] nodesByCell;
+
+    private final Queue<Search> searches = new ConcurrentLinkedQueue<>();
+
+    private RoadGraph(double[] latitude, double[] longitude, int[] edgeStart, int[] edgeTarget,
+                      float[] edgeSeconds, float[] edgeMeters, double cellDegrees) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.edgeStart = edgeStart;
+        this.edgeTarget = edgeTarget;
+        this.edgeSeconds = edgeSeconds;
+        this.edgeMeters = edgeMeters;
+
+        this.cellDegrees = cellDegrees;
+        int n = latitude.length;
+        Integer[] order = new Integer[n];
+        long[] keys = new long[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+            keys[v] = cellKey(latitude[v], longitude[v]);
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        this.nodesByCell = new int[n];
+        long[] distinct = new long[n];
+        int[] starts = new int[n + 1];
+        int cells = 0;
+        for (int i = 0; i < n; i++) {
+            nodesByCell[i] = order[i];
+            long key = keys[order[i]];
+            if (cells == 0 || distinct[cells - 1] != key) {
+                distinct[cells] = key;
+                starts[cells++] = i;
+            }
+        }
+        starts[cells] = n;
+        this.cellKeys = Arrays.copyOf(distinct, cells);
+        this.cellStart = Arrays.copyOf(starts, cells + 1);
+
+        this.landmarks = n == 0 ? 0 : Math.min(LANDMARKS, n);
+        this.landmarkSeconds = new float[n * 2 * landmarks];
+        if (landmarks > 0) placeLandmarks();
+    }
+
+    // Farthest-first: each landmark is the node whose travel time from the landmarks chosen so far is largest,
+    // which puts them around the edge of the network where their bounds are tightest
+    private void placeLandmarks() {
+        int n = nodeCount();
+        int[] reverseStart = new int[n + 1];
+        for (int e = 0; e < edgeTarget.length; e++) reverseStart[edgeTarget[e] + 1]++;
+        for (int v = 0; v < n; v++) reverseStart[v + 1] += reverseStart[v];
+        int[] fill = Arrays.copyOf(reverseStart, n);
+        int[] reverseTarget = new int[edgeTarget.length];
+        float[] reverseSeconds = new float[edgeTarget.length];
+        for (int v = 0; v < n; v++) {
+            for (int e = edgeStart[v]; e < edgeStart[v + 1]; e++) {
+                int slot = fill[edgeTarget[e]]++;
+                reverseTarget[slot] = v;
+                reverseSeconds[slot] = edgeSeconds[e];
+            }
+        }
+
+        Search search = new Search(n);
+        double[] nearest = new double[n];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        float[] fromStart = distances(search, 0, edgeStart, edgeTarget, edgeSeconds);
+        int landmark = farthest(fromStart, nearest);
+        int stride = 2 * landmarks;
+        for (int i = 0; i < landmarks; i++) {
+            float[] from = distances(search, landmark, edgeStart, edgeTarget, edgeSeconds);
+            float[] to = distances(search, landmark, reverseStart, reverseTarget, reverseSeconds);
+            for (int v = 0; v < n; v++) {
+                landmarkSeconds[v * stride + i] = from[v];
+                landmarkSeconds[v * stride + landmarks + i] = to[v];
+                nearest[v] = Math.min(nearest[v], from[v]);
+            }
+            landmark = farthest(from, nearest);
+        }
+    }
+
+    private static int farthest(float[] seconds, double[] nearest) {
+        int best = 0;
+        double bestSeconds = -1;
+        for (int v = 0; v < seconds.length; v++) {
+            double value = Math.min(seconds[v], nearest[v]);
+            if (!Double.isInfinite(value) && value > bestSeconds) {
+                bestSeconds = value;
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    // Plain Dijkstra over the given adjacency, to every node
+    private static float[] distances(Search search, int source, int[] start, int[] target, float[] weight) {
+        float[] seconds = new float[start.length - 1];
+        Arrays.fill(seconds, Float.POSITIVE_INFINITY);
+        search.reset();
+        search.open(source, 0, 0, -1, 0);
+        while (!search.isEmpty()) {
+            int node = search.pop();
+            if (search.isClosed(node)) continue;
+            search.close(node);
+            double nodeSeconds = search.seconds(node);
+            seconds[node] = (float) nodeSeconds;
+            for (int e = start[node]; e < start[node + 1]; e++) {
+                int next = target[e];
+                double nextSeconds = nodeSeconds + weight[e];
+                if (search.isClosed(next) || (search.isReached(next) && search.seconds(next) <= nextSeconds)) continue;
+                search.open(next, nextSeconds, 0, node, nextSeconds);
+            }
+        }
+        return seconds;
+    }
+
+    public int nodeCount() {
+        return latitude.length;
+    }
+
+    public int edgeCount() {
+        return edgeTarget.length;
+    }
+
+    public double latitude(int node) {
+        return latitude[node];
+    }
+
+    public double longitude(int node) {
+        return longitude[node];
+    }
+
+    /** The node closest to the coordinates, or -1 if none is within {@code maxKm}. */
+    public int nearestNode(double lat, double lon, double maxKm) {
+        long row = (long) Math.floor((lat + 90) / cellDegrees);
+        long column = (long) Math.floor((lon + 180) / cellDegrees);
+        int best = -1;
+        double bestKm = maxKm;
+        // One ring of cells spans at least cellDegrees of latitude; stop once a ring cannot hold anything closer
+        for (int ring = 0; ; ring++) {
+            for (long r = row - ring; r <= row + ring; r++) {
+                boolean edgeRow = r == row - ring || r == row + ring;
+                for (long c = column - ring; c <= column + ring; c += edgeRow ? 1 : 2L * ring) {
+                    int cell = Arrays.binarySearch(cellKeys, r * CELL_COLUMNS + c);
+                    if (cell < 0) continue;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int node = nodesByCell[i];
+                        double km = GeoGridIndex.haversineKm(lat, lon, latitude[node], longitude[node]);
+                        if (km < bestKm) {
+                            bestKm = km;
+                            best = node;
+                        }
+                    }
+                }
+            }
+            double reachedKm = ring * cellDegrees * Math.cos(Math.toRadians(Math.min(89, Math.abs(lat) + ring * cellDegrees)))
+                    * Math.PI / 180 * GeoGridIndex.EARTH_RADIUS_KM;
+            if (reachedKm >= bestKm) return best;
+        }
+    }
+
+    /** The fastest path between two nodes, or null if {@code to} cannot be reached from {@code from}. */
+    public Path route(int from, int to) {
+        Search search = searches.poll();
+        if (search == null) search = new Search(nodeCount());
+        try {
+            return route(search, from, to);
+        } finally {
+            searches.offer(search);
+        }
+    }
+
+    private Path route(Search search, int from, int to) {
+        search.reset();
+        chooseLandmarks(search, from, to);
+        search.open(from, 0, 0, -1, heuristic(search, from));
+
+        while (!search.isEmpty()) {
+            int node = search.pop();
+            if (node == to) break;
+            if (search.isClosed(node)) continue;
+            search.close(node);
+            double seconds = search.seconds(node);
+            double meters = search.meters(node);
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                int next = edgeTarget[e];
+                if (search.isClosed(next)) continue;
+                double nextSeconds = seconds + edgeSeconds[e];
+                if (search.isReached(next) && search.seconds(next) <= nextSeconds) continue;
+                search.open(next, nextSeconds, meters + edgeMeters[e], node,
+                        nextSeconds + heuristic(search, next));
+            }
+        }
+        if (!search.isReached(to)) return null;
+
+        int length = 0;
+        for (int v = to; v != -1; v = search.parent(v)) length++;
+        int[] nodes = new int[length];
+        for (int v = to, i = length - 1; v != -1; v = search.parent(v), i--) nodes[i] = v;
+        return new Path(search.seconds(to), search.meters(to), nodes);
+    }
+
+    // The landmarks giving the largest bound from the start, with their times at the target
+    private void chooseLandmarks(Search search, int from, int to) {
+        int stride = 2 * landmarks;
+        int chosen = 0;
+        for (int i = 0; i < landmarks; i++) {
+            double bound = landmarkBound(landmarkSeconds[to * stride + i] - landmarkSeconds[from * stride + i],
+                    landmarkSeconds[from * stride + landmarks + i] - landmarkSeconds[to * stride + landmarks + i]);
+            int at = Math.min(chosen, ACTIVE_LANDMARKS);
+            while (at > 0 && search.activeBound[at - 1] < bound) {
+                if (at < ACTIVE_LANDMARKS) {
+                    search.active[at] = search.active[at - 1];
+                    search.activeBound[at] = search.activeBound[at - 1];
+                }
+                at--;
+            }
+            if (at < ACTIVE_LANDMARKS) {
+                search.active[at] = i;
+                search.activeBound[at] = bound;
+                chosen++;
+            }
+        }
+        search.activeCount = Math.min(chosen, ACTIVE_LANDMARKS);
+        for (int k = 0; k < search.activeCount; k++) {
+            search.targetFrom[k] = landmarkSeconds[to * stride + search.active[k]];
+            search.targetTo[k] = landmarkSeconds[to * stride + landmarks + search.active[k]];
+        }
+    }
+
+    private double heuristic(Search search, int node) {
+        double bound = 0;
+        int base = node * 2 * landmarks;
+        for (int k = 0; k < search.activeCount; k++) {
+            int i = search.active[k];
+            // d(L,t) <= d(L,v) + d(v,t) and d(v,L) <= d(v,t) + d(t,L); unreachable landmarks give no bound
+            double landmark = landmarkBound(search.targetFrom[k] - landmarkSeconds[base + i],
+                    landmarkSeconds[base + landmarks + i] - search.targetTo[k]);
+            if (landmark > bound) bound = landmark;
+        }
+        return bound;
+    }
+
+    private static double landmarkBound(double ahead, double behind) {
+        double bound = 0;
+        if (ahead > bound && ahead != Double.POSITIVE_INFINITY) bound = ahead;
+        if (behind > bound && behind != Double.POSITIVE_INFINITY) bound = behind;
+        return bound;
+    }
+
+    private long cellKey(double lat, double lon) {
+        return (long) Math.floor((lat + 90) / cellDegrees) * CELL_COLUMNS + (long) Math.floor((lon + 180) / cellDegrees);
+    }
+
+    /** A* state for one query at a time; entries from earlier searches are ignored by their generation stamp. */
+    private static final class Search {
+        private final double[] seconds;
+        private final double[] meters;
+        private final int[] parent;
+        private final int[] reached;
+        private final int[] closed;
+        private int generation;
+
+        // The landmarks this query bounds with, and their times at its target
+        private final int[] active = new int[ACTIVE_LANDMARKS];
+        private final double[] activeBound = new double[ACTIVE_LANDMARKS];
+        private final float[] targetFrom = new float[ACTIVE_LANDMARKS];
+        private final float[] targetTo = new float[ACTIVE_LANDMARKS];
+        private int activeCount;
+
+        // Binary min-heap of (priority, node) with lazy deletion of superseded entries
+        private double[] heapPriority = new double[1024];
+        private int[] heapNode = new int[1024];
+        private int heapSize;
+
+        Search(int nodes) {
+            seconds = new double[nodes];
+            meters = new double[nodes];
+            parent = new int[nodes];
+            reached = new int[nodes];
+            closed = new int[nodes];
+        }
+
+        void reset() {
+            heapSize = 0;
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(reached, 0);
+                Arrays.fill(closed, 0);
+                generation = 1;
+            }
+        }
+
+        boolean isReached(int node) {
+            return reached[node] == generation;
+        }
+
+        boolean isClosed(int node) {
+            return closed[node] == generation;
+        }
+
+        void close(int node) {
+            closed[node] = generation;
+        }
+
+        double seconds(int node) {
+            return seconds[node];
+        }
+
+        double meters(int node) {
+            return meters[node];
+        }
+
+        int parent(int node) {
+            return parent[node];
+        }
+
+        boolean isEmpty() {
+            return heapSize == 0;
+        }
+
+        void open(int node, double nodeSeconds, double nodeMeters, int from, double priority) {
+            reached[node] = generation;
+            seconds[node] = nodeSeconds;
+            meters[node] = nodeMeters;
+            parent[node] = from;
+            if (heapSize == heapNode.length) {
+                heapNode = Arrays.copyOf(heapNode, heapSize * 2);
+                heapPriority = Arrays.copyOf(heapPriority, heapSize * 2);
+            }
+            int i = heapSize++;
+            while (i > 0) {
+                int up = (i - 1) >>> 1;
+                if (heapPriority[up] <= priority) break;
+                heapNode[i] = heapNode[up];
+                heapPriority[i] = heapPriority[up];
+                i = up;
+            }
+            heapNode[i] = node;
+            heapPriority[i] = priority;
+        }
+
+        int pop() {
+            int top = heapNode[0];
+            int lastNode = heapNode[--heapSize];
+            double lastPriority = heapPriority[heapSize];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && heapPriority[child + 1] < heapPriority[child]) child++;
+                if (heapPriority[child] >= lastPriority) break;
+                heapNode[i] = heapNode[child];
+                heapPriority[i] = heapPriority[child];
+                i = child;
+            }
+            heapNode[i] = lastNode;
+            heapPriority[i] = lastPriority;
+            return top;
+        }
+    }
+
+    /** Collects nodes and directed edges, then packs them into a {@link RoadGraph}. */
+    public static final class Builder {
+        private double[] latitude = new double[1024];
+        private double[] longitude = new double[1024];
+        private int nodes;
+        private int[] edgeFrom = new int[1024];
+        private int[] edgeTo = new int[1024];
+        private float[] edgeSeconds = new float[1024];
+        private float[] edgeMeters = new float[1024];
+        private int edges;
+
+        public int addNode(double lat, double lon) {
+            if (nodes == latitude.length) {
+                latitude = Arrays.copyOf(latitude, nodes * 2);
+                longitude = Arrays.copyOf(longitude, nodes * 2);
+            }
+            latitude[nodes] = lat;
+            longitude[nodes] = lon;
+            return nodes++;
+        }
+
+        /** A one-way road segment travelled at {@code kmh}; its length is the great-circle distance. */
+        public void addEdge(int from, int to, double kmh) {
+            if (from == to || kmh <= 0) return;
+            if (edges == edgeFrom.length) {
+                edgeFrom = Arrays.copyOf(edgeFrom, edges * 2);
+                edgeTo = Arrays.copyOf(edgeTo, edges * 2);
+                edgeSeconds = Arrays.copyOf(edgeSeconds, edges * 2);
+                edgeMeters = Arrays.copyOf(edgeMeters, edges * 2);
+            }
+            double meters = GeoGridIndex.haversineKm(latitude[from], longitude[from], latitude[to], longitude[to]) * 1000;
+            edgeFrom[edges] = from;
+            edgeTo[edges] = to;
+            edgeSeconds[edges] = (float) (meters / (kmh / 3.6));
+            edgeMeters[edges] = (float) meters;
+            edges++;
+        }
+
+        /** Packs the graph, dropping nodes that no edge touches and renumbering the rest. */
+        public RoadGraph build() {
+            int[] index = new int[nodes];
+            Arrays.fill(index, -1);
+            int used = 0;
+            for (int e = 0; e < edges; e++) {
+                if (index[edgeFrom[e]] < 0) index[edgeFrom[e]] = used++;
+                if (index[edgeTo[e]] < 0) index[edgeTo[e]] = used++;
+            }
+            double[] lat = new double[used];
+            double[] lon = new double[used];
+            for (int v = 0; v < nodes; v++) {
+                if (index[v] >= 0) {
+                    lat[index[v]] = latitude[v];
+                    lon[index[v]] = longitude[v];
+                }
+            }
+            int[] start = new int[used + 1];
+            for (int e = 0; e < edges; e++) start[index[edgeFrom[e]] + 1]++;
+            for (int v = 0; v < used; v++) start[v + 1] += start[v];
+            int[] fill = Arrays.copyOf(start, used);
+            int[] target = new int[edges];
+            float[] seconds = new float[edges];
+            float[] meters = new float[edges];
+            for (int e = 0; e < edges; e++) {
+                int slot = fill[index[edgeFrom[e]]]++;
+                target[slot] = index[edgeTo[e]];
+                seconds[slot] = edgeSeconds[e];
+                meters[slot] = edgeMeters[e];
+            }
+            return new RoadGraph(lat, lon, start, target, seconds, meters, 0.01);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.codebasebackend.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Shortest-time road routes between coordinates, computed locally from the OpenStreetMap extract named by
+ * {@code app.routing.graph-file} (see {@link OsmRoadGraphLoader}).
+ *
+ * The extract is loaded on a background thread once the application is ready; until then, or when no file
+ * is configured, no routes are returned and callers leave their estimates empty. Both ends are snapped to
+ * the nearest road node within {@code app.routing.max-snap-km}, and the snap distances are added at
+ * {@link #OFF_ROAD_KMH} for the walk or drive between the point and the road.
+ */
+@Component
+@Slf4j
+public class RoadRouter {
+
+    static final double OFF_ROAD_KMH = 20;
+
+    public record Route(double seconds, double km) {
+
+        public double minutes() {
+            return seconds / 60;
+        }
+    }
+
+    private final String graphFile;
+    private final double maxSnapKm;
+    private volatile RoadGraph graph;
+
+    public RoadRouter(@Value("${app.routing.graph-file:}") String graphFile,
+                      @Value("${app.routing.max-snap-km:1.5}") double maxSnapKm) {
+        this.graphFile = graphFile;
+        this.maxSnapKm = maxSnapKm;
+    }
+
+    public boolean isReady() {
+        return graph != null;
+    }
+
+    /** The fastest road route between the coordinates, or empty if there is no graph or no road links them. */
+    public Optional<Route> route(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        RoadGraph roads = graph;
+        if (roads == null) return Optional.empty();
+        int from = roads.nearestNode(fromLatitude, fromLongitude, maxSnapKm);
+        int to = roads.nearestNode(toLatitude, toLongitude, maxSnapKm);
+        if (from < 0 || to < 0) return Optional.empty();
+        RoadGraph.Path path = roads.route(from, to);
+        if (path == null) return Optional.empty();
+
+        double offRoadKm = GeoGridIndex.haversineKm(fromLatitude, fromLongitude, roads.latitude(from), roads.longitude(from))
+                + GeoGridIndex.haversineKm(toLatitude, toLongitude, roads.latitude(to), roads.longitude(to));
+        return Optional.of(new Route(path.seconds() + offRoadKm / OFF_ROAD_KMH * 3600, path.meters() / 1000 + offRoadKm));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadGraph() {
+        if (graphFile == null || graphFile.isBlank()) {
+            log.info("No road graph configured (app.routing.graph-file); dispatch ETAs will not be estimated");
+            return;
+        }
+        Thread loader = new Thread(this::load, "road-graph-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /** Replaces the road graph, for tests and reloads. */
+    void use(RoadGraph roads) {
+        this.graph = roads;
+    }
+
+    private void load() {
+        Path file = Path.of(graphFile);
+        if (!Files.isReadable(file)) {
+            log.warn("Road graph file {} is not readable; dispatch ETAs will not be estimated", file);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            RoadGraph roads = OsmRoadGraphLoader.load(file);
+            use(roads);
+            log.info("Loaded road graph from {}: {} nodes, {} edges in {} ms", file, roads.nodeCount(),
+                    roads.edgeCount(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Failed to load road graph from {}; dispatch ETAs will not be estimated", file, e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.codebasebackend.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out human-readable business IDs (TM-001, DOC-042, ...) without counting rows.
+ *
+ * Each kind is backed by a Postgres sequence that advances by {@code app.ids.block-size}; one
+ * {@code nextval} reserves a whole block for this node, and IDs inside the block are served from an
+ * AtomicLong. Nodes never share a block, so IDs are unique across the cluster; gaps after a restart
+ * are expected. The sequence is created on first use, starting after the highest numeric ID already
+ * stored, so it never collides with IDs issued by the old count()-based generators.
+ */
+@Component
+@Slf4j
+public class SequenceIdAllocator {
+
+    public enum Kind {
+        TELEMEDICINE_SESSION("TM-", "telemedicine_session_number_seq", "telemedicine_sessions", "session_id"),
+        DOCTOR("DOC-", "doctor_number_seq", "doctors", "doctor_id");
+
+        private final String prefix;
+        private final String sequence;
+        private final String table;
+        private final String column;
+
+        Kind(String prefix, String sequence, String table, String column) {
+            this.prefix = prefix;
+            this.sequence = sequence;
+            this.table = table;
+            this.column = column;
+        }
+
+        public String format(long number) {
+            return String.format("%s%03d", prefix, number);
+        }
+    }
+
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private static final Block EMPTY = new Block(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final int blockSize;
+    // Filled once in the constructor and never structurally modified, so reads need no lock
+    private final Map<Kind, AtomicReference<Block>> blocks = new EnumMap<>(Kind.class);
+    private final Set<Kind> initialized = ConcurrentHashMap.newKeySet();
+
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.ids.block-size:50}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Sequence DDL and nextval must not depend on the caller's transaction committing
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = Math.max(1, blockSize);
+        for (Kind kind : Kind.values()) {
+            blocks.put(kind, new AtomicReference<>(EMPTY));
+        }
+    }
+
+    public String nextId(Kind kind) {
+        return kind.format(nextNumber(kind));
+    }
+
+    public long nextNumber(Kind kind) {
+        AtomicReference<Block> current = blocks.get(kind);
+        while (true) {
+            Block block = current.get();
+            long value = block.next.getAndIncrement();
+            if (value < block.end) {
+                return value;
+            }
+            refill(kind, current, block);
+        }
+    }
+
+    // Only the first thread to see the exhausted block fetches the next one; the others retry on the new block
+    private void refill(Kind kind, AtomicReference<Block> current, Block exhausted) {
+        synchronized (current) {
+            if (current.get() != exhausted) {
+                return;
+            }
+            Long start = requiresNew.execute(status -> {
+                ensureSequence(kind);
+                return jdbcTemplate.queryForObject("SELECT nextval('" + kind.sequence + "')", Long.class);
+            });
+            if (start == null) {
+                throw new IllegalStateException("Sequence " + kind.sequence + " returned no value");
+            }
+            initialized.add(kind);
+            current.set(new Block(start, start + blockSize));
+        }
+    }
+
+    // Called with the kind's block monitor held
+    private void ensureSequence(Kind kind) {
+        if (initialized.contains(kind)) {
+            return;
+        }
+        // Only short all-digit suffixes count; older random IDs (TM-1A2B...) are not on this numbering
+        Long highest = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(CAST(SUBSTRING(" + kind.column + " FROM " + (kind.prefix.length() + 1) + ") AS BIGINT)), 0) " +
+                "FROM " + kind.table + " WHERE " + kind.column + " ~ '^" + kind.prefix + "[0-9]{1,9}$'",
+                Long.class);
+        long start = (highest != null ? highest : 0L) + 1;
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + kind.sequence +
+                " START WITH " + start + " INCREMENT BY " + blockSize);
+        jdbcTemplate.execute("ALTER SEQUENCE " + kind.sequence + " INCREMENT BY " + blockSize);
+        log.info("ID sequence {} ready (block size {}, numbering resumes after {})", kind.sequence, blockSize, start - 1);
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.SessionStatus;
+import com.example.codebasebackend.dto.SessionHistoryResponse;
+import com.example.codebasebackend.repositories.TelemedicineSessionRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads session history in (startTime, id) keyset pages, so an export of any length holds at most one
+ * page of rows in memory and never runs a long transaction.
+ *
+ * Every exported row carries a cursor that encodes the export window plus the row's key. Passing the
+ * last received cursor back resumes the export right after that row, with the same window even if the
+ * period ("today", "week", ...) has moved on in the meantime.
+ */
+@Component
+public class SessionHistoryExporter {
+
+    public enum Format {
+        JSON("application/json", "json"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid format: " + value + " (expected json or csv)");
+            }
+        }
+    }
+
+    /** Export position: rows with startTime in [from, to], strictly after (afterStartTime, afterId). */
+    public record Cursor(OffsetDateTime from, OffsetDateTime to, OffsetDateTime afterStartTime, long afterId) {
+
+        public static Cursor start(OffsetDateTime from, OffsetDateTime to) {
+            return new Cursor(from, to, from, 0L);
+        }
+
+        Cursor after(OffsetDateTime startTime, long id) {
+            return new Cursor(from, to, startTime, id);
+        }
+
+        public String encode() {
+            String raw = from + "|" + to + "|" + afterStartTime + "|" + afterId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|");
+                if (parts.length != 4) throw new IllegalArgumentException("wrong number of parts");
+                return new Cursor(OffsetDateTime.parse(parts[0]), OffsetDateTime.parse(parts[1]),
+                        OffsetDateTime.parse(parts[2]), Long.parseLong(parts[3]));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid history cursor");
+            }
+        }
+    }
+
+    public record Row(SessionHistoryResponse item, Cursor cursor) {
+    }
+
+    private static final String[] CSV_HEADER = {
+            "id", "patient", "doctor", "date", "duration", "status", "rating", "cost",
+            "diagnosis", "followUpRequired", "prescription", "cursor"
+    };
+
+    private final TelemedicineSessionRepository sessionRepository;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+
+    public SessionHistoryExporter(TelemedicineSessionRepository sessionRepository,
+                                  ObjectMapper objectMapper,
+                                  @Value("${app.telemedicine.history.page-size:1000}") int pageSize) {
+        this.sessionRepository = sessionRepository;
+        this.objectMapper = objectMapper;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    public static OffsetDateTime periodStart(String period, OffsetDateTime now) {
+        return switch (period == null ? "" : period.toLowerCase(Locale.ROOT)) {
+            case "today" -> now.toLocalDate().atStartOfDay(now.getOffset()).toOffsetDateTime();
+            case "week" -> now.minusWeeks(1);
+            case "month" -> now.minusMonths(1);
+            case "year" -> now.minusYears(1);
+            default -> now.minusDays(1);
+        };
+    }
+
+    /** Next page after the cursor; an empty list means the export is complete. */
+    public List<Row> nextPage(Cursor cursor) {
+        List<Object[]> rows = sessionRepository.findHistoryPage(
+                cursor.afterStartTime(), cursor.afterId(), cursor.to(), PageRequest.of(0, pageSize));
+        List<Row> page = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            OffsetDateTime startTime = (OffsetDateTime) row[2];
+            page.add(new Row(toResponse(row), cursor.after(startTime, ((Number) row[0]).longValue())));
+        }
+        return page;
+    }
+
+    public List<SessionHistoryResponse> readAll(Cursor cursor) {
+        List<SessionHistoryResponse> items = new ArrayList<>();
+        for (List<Row> page = nextPage(cursor); !page.isEmpty(); page = nextPage(cursor)) {
+            page.forEach(row -> items.add(row.item()));
+            cursor = page.get(page.size() - 1).cursor();
+            if (page.size() < pageSize) break;
+        }
+        return items;
+    }
+
+    public void write(Cursor cursor, Format format, OutputStream out) throws IOException {
+        if (format == Format.CSV) {
+            writeCsv(cursor, out);
+        } else {
+            writeJson(cursor, out);
+        }
+    }
+
+    private void writeJson(Cursor cursor, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeStringField("from", cursor.from().toString());
+            json.writeStringField("to", cursor.to().toString());
+            json.writeArrayFieldStart("items");
+            for (List<Row> page = nextPage(cursor); !page.isEmpty(); page = nextPage(cursor)) {
+                for (Row row : page) {
+                    ObjectNode node = objectMapper.valueToTree(row.item());
+                    node.put("cursor", row.cursor().encode());
+                    json.writeTree(node);
+                }
+                json.flush();
+                cursor = page.get(page.size() - 1).cursor();
+                if (page.size() < pageSize) break;
+            }
+            json.writeEndArray();
+            // Absent when the stream was cut short; resume from the last item's cursor
+            json.writeBooleanField("complete", true);
+            json.writeEndObject();
+        }
+    }
+
+    private void writeCsv(Cursor cursor, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeCsvLine(writer, (Object[]) CSV_HEADER);
+        for (List<Row> page = nextPage(cursor); !page.isEmpty(); page = nextPage(cursor)) {
+            for (Row row : page) {
+                SessionHistoryResponse item = row.item();
+                writeCsvLine(writer, item.getId(), item.getPatient(), item.getDoctor(), item.getDate(),
+                        item.getDuration(), item.getStatus(), item.getRating(), item.getCost(),
+                        item.getDiagnosis(), item.getFollowUpRequired(), item.getPrescription(),
+                        row.cursor().encode());
+            }
+            writer.flush();
+            cursor = page.get(page.size() - 1).cursor();
+            if (page.size() < pageSize) break;
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvLine(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            writer.write(csvField(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String csvField(Object value) {
+        if (value == null) return "";
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static SessionHistoryResponse toResponse(Object[] row) {
+        OffsetDateTime startTime = (OffsetDateTime) row[2];
+        SessionStatus status = (SessionStatus) row[9];
+        return SessionHistoryResponse.builder()
+                .id((String) row[1])
+                .patient(row[3] + " " + row[4])
+                .doctor(fullName((String) row[5], (String) row[6], (String) row[7]))
+                .date(startTime != null ? startTime.toLocalDate() : null)
+                .duration((Integer) row[8])
+                .status(status)
+                .statusLabel(status != null ? status.name().toLowerCase() : null)
+                .rating((Integer) row[10])
+                .cost((BigDecimal) row[11])
+                .diagnosis((String) row[12])
+                .followUpRequired((Boolean) row[13])
+                .prescription((String) row[14])
+                .build();
+    }
+
+    // Same format as Doctor.getFullName
+    private static String fullName(String first, String middle, String last) {
+        StringBuilder name = new StringBuilder(first);
+        if (middle != null && !middle.isEmpty()) name.append(' ').append(middle);
+        return name.append(' ').append(last).toString();
+    }
+}
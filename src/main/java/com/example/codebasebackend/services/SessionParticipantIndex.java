@@ -0,0 +1,251 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.repositories.TelemedicineSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.example.codebasebackend.services.TransactionCallbacks.afterCommit;
+
+/**
+ * The telemedicine sessions of each patient and doctor, so a session search can resolve however many
+ * people a name matches to their sessions and page through them without handing the ids to the database.
+ *
+ * A session never changes patient or doctor, so only creates and deletes are recorded, after commit. The
+ * index is built on first use and rebuilt every {@code app.search.reconcile-ms}, which also picks up
+ * changes made on other nodes; changes that commit while a rebuild is loading are replayed onto the new
+ * index before it is swapped in. Adding or removing a session twice is harmless, so a replayed change the
+ * load already saw does no damage.
+ */
+@Component
+@Slf4j
+public class SessionParticipantIndex {
+
+    /** One page of session ids, best rank first, and how many sessions match in all. */
+    public record Page(List<Long> ids, long total) {
+    }
+
+    // Ascending session ids
+    private static final class SessionIds {
+        long[] ids = new long[4];
+        int size;
+
+        void add(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) return;
+            at = -at - 1;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) return false;
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+
+    // A growable run of session ids gathered for one rank
+    private static final class Gathered {
+        long[] ids = new long[16];
+        int size;
+
+        void addAll(SessionIds sessions) {
+            if (size + sessions.size > ids.length) ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + sessions.size));
+            System.arraycopy(sessions.ids, 0, ids, size, sessions.size);
+            size += sessions.size;
+        }
+
+        // Sorts and drops duplicates and any id in the better ranks
+        long[] distinctExcluding(long[]... better) {
+            Arrays.sort(ids, 0, size);
+            long[] distinct = new long[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                long id = ids[i];
+                if (i > 0 && ids[i - 1] == id) continue;
+                boolean ranked = false;
+                for (long[] rank : better) {
+                    if (Arrays.binarySearch(rank, id) >= 0) {
+                        ranked = true;
+                        break;
+                    }
+                }
+                if (!ranked) distinct[count++] = id;
+            }
+            return Arrays.copyOf(distinct, count);
+        }
+    }
+
+    private final TelemedicineSessionRepository sessionRepository;
+    private final int loadPageSize;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // Guarded by this
+    private Map<Long, SessionIds> byPatient = new HashMap<>();
+    private Map<Long, SessionIds> byDoctor = new HashMap<>();
+    private volatile boolean ready;
+    // Guarded by this; non-null while a rebuild is loading
+    private List<Runnable> replay;
+
+    public SessionParticipantIndex(TelemedicineSessionRepository sessionRepository,
+                                   @Value("${app.search.load-page-size:5000}") int loadPageSize) {
+        this.sessionRepository = sessionRepository;
+        this.loadPageSize = Math.max(1, loadPageSize);
+    }
+
+    /** Call after saving a new session; it is indexed on commit. */
+    public void recordSession(Long sessionId, Long patientId, Long doctorId) {
+        if (sessionId == null) return;
+        apply(() -> add(byPatient, byDoctor, sessionId, patientId, doctorId));
+    }
+
+    public void removeSession(Long sessionId, Long patientId, Long doctorId) {
+        if (sessionId == null) return;
+        apply(() -> {
+            if (patientId != null) remove(byPatient, patientId, sessionId);
+            if (doctorId != null) remove(byDoctor, doctorId, sessionId);
+        });
+    }
+
+    /**
+     * The sessions of the given patients and doctors, ranked as the SQL session search ranks them: sessions
+     * of an exact name match first, then of a prefix match, then the rest, each rank by session id.
+     */
+    public Page page(List<TextSearchIndex.Hit> patients, List<TextSearchIndex.Hit> doctors, boolean descending,
+                     long offset, int size) {
+        ensureReady();
+        Gathered[] ranks = {new Gathered(), new Gathered(), new Gathered()};
+        synchronized (this) {
+            gather(ranks, patients, byPatient);
+            gather(ranks, doctors, byDoctor);
+        }
+        long[] exact = ranks[0].distinctExcluding();
+        long[] close = ranks[1].distinctExcluding(exact);
+        long[] rest = ranks[2].distinctExcluding(exact, close);
+
+        List<Long> ids = new ArrayList<>(Math.max(0, size));
+        long skip = offset;
+        for (long[] rank : new long[][]{exact, close, rest}) {
+            if (skip >= rank.length) {
+                skip -= rank.length;
+                continue;
+            }
+            for (int i = (int) skip; i < rank.length && ids.size() < size; i++) {
+                ids.add(descending ? rank[rank.length - 1 - i] : rank[i]);
+            }
+            skip = 0;
+            if (ids.size() == size) break;
+        }
+        return new Page(ids, (long) exact.length + close.length + rest.length);
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.reconcile-ms:900000}")
+    public void reconcile() {
+        // A scheduled run overlapping a running rebuild has nothing to add
+        if (!rebuildLock.tryLock()) return;
+        try {
+            rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void ensureReady() {
+        if (ready) return;
+        rebuildLock.lock();
+        try {
+            if (!ready) rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Called with rebuildLock held
+    private void rebuild() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        Map<Long, SessionIds> freshPatients = new HashMap<>();
+        Map<Long, SessionIds> freshDoctors = new HashMap<>();
+        long sessions = 0;
+        try {
+            long afterId = 0;
+            for (List<Object[]> page = sessionRepository.findParticipantRowsAfter(afterId, PageRequest.of(0, loadPageSize));
+                 !page.isEmpty();
+                 page = sessionRepository.findParticipantRowsAfter(afterId, PageRequest.of(0, loadPageSize))) {
+                for (Object[] row : page) {
+                    afterId = ((Number) row[0]).longValue();
+                    add(freshPatients, freshDoctors, afterId, (Long) row[1], (Long) row[2]);
+                    sessions++;
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            log.warn("Session participant index rebuild failed, keeping current index: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            byPatient = freshPatients;
+            byDoctor = freshDoctors;
+            replay.forEach(Runnable::run);
+            replay = null;
+            if (!ready) {
+                log.info("Session participant index built: {} sessions", sessions);
+            }
+            ready = true;
+        }
+    }
+
+    private void apply(Runnable change) {
+        afterCommit(() -> {
+            synchronized (this) {
+                if (replay != null) replay.add(change);
+                change.run();
+            }
+        });
+    }
+
+    // Called with the monitor held
+    private void add(Map<Long, SessionIds> patients, Map<Long, SessionIds> doctors,
+                     long sessionId, Long patientId, Long doctorId) {
+        if (patientId != null) patients.computeIfAbsent(patientId, id -> new SessionIds()).add(sessionId);
+        if (doctorId != null) doctors.computeIfAbsent(doctorId, id -> new SessionIds()).add(sessionId);
+    }
+
+    // Called with the monitor held
+    private static void remove(Map<Long, SessionIds> index, long personId, long sessionId) {
+        SessionIds sessions = index.get(personId);
+        if (sessions != null && sessions.remove(sessionId) && sessions.size == 0) index.remove(personId);
+    }
+
+    // Called with the monitor held
+    private static void gather(Gathered[] ranks, List<TextSearchIndex.Hit> hits, Map<Long, SessionIds> index) {
+        for (TextSearchIndex.Hit hit : hits) {
+            SessionIds sessions = index.get(hit.id());
+            if (sessions != null) ranks[rank(hit.score())].addAll(sessions);
+        }
+    }
+
+    private static int rank(double score) {
+        if (score >= TextSearchIndex.EXACT_SCORE - 1e-9) return 0;
+        if (score >= TextSearchIndex.PREFIX_SCORE - 1e-9) return 1;
+        return 2;
+    }
+}
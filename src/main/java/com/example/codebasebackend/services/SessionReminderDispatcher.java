@@ -0,0 +1,255 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.services.SessionReminderSender.Reminder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends reminders for scheduled sessions starting within {@code app.telemedicine.reminders.lead-time-hours}.
+ *
+ * Each batch is claimed in its own short transaction: the due rows are selected with
+ * {@code FOR UPDATE SKIP LOCKED} (so concurrent nodes claim disjoint batches) and stamped with
+ * {@code reminder_claimed_at} in one bulk UPDATE. Deliveries then run on the sender pool outside any
+ * transaction, and only the reminders that went out are marked sent. Failed ones have their claim cleared
+ * at the end of the run so the next run retries them. A claim left by a node that died mid-batch expires
+ * after {@code app.telemedicine.reminders.claim-timeout-ms} and the batch is claimed again, so a reminder
+ * sent just before the crash can go out twice (at-least-once).
+ *
+ * Scheduled runs execute on the dispatcher's own thread, not the shared scheduler's.
+ */
+@Component
+@Slf4j
+public class SessionReminderDispatcher {
+
+    private static final String CLAIM_SQL =
+            "SELECT id FROM telemedicine_sessions " +
+            "WHERE status = 'SCHEDULED' AND reminder_sent = false AND start_time BETWEEN :now AND :until " +
+            "AND (reminder_claimed_at IS NULL OR reminder_claimed_at < :claimExpired) " +
+            "ORDER BY start_time LIMIT :limit FOR UPDATE SKIP LOCKED";
+
+    private static final String DETAILS_SQL =
+            "SELECT s.id, s.session_id, s.start_time, s.meeting_link, " +
+            "p.first_name AS patient_first_name, p.last_name AS patient_last_name, p.email, p.phone, " +
+            "d.first_name AS doctor_first_name, d.last_name AS doctor_last_name " +
+            "FROM telemedicine_sessions s " +
+            "JOIN patients p ON p.id = s.patient_id " +
+            "JOIN doctors d ON d.id = s.doctor_id " +
+            "WHERE s.id IN (:ids)";
+
+    private static final RowMapper<Reminder> REMINDER_MAPPER = (rs, rowNum) -> new Reminder(
+            rs.getLong("id"),
+            rs.getString("session_id"),
+            rs.getObject("start_time", OffsetDateTime.class),
+            rs.getString("meeting_link"),
+            rs.getString("patient_first_name") + " " + rs.getString("patient_last_name"),
+            rs.getString("email"),
+            rs.getString("phone"),
+            rs.getString("doctor_first_name") + " " + rs.getString("doctor_last_name"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate claimTransaction;
+    private final SessionReminderSender sender;
+    private final Duration leadTime;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration claimTimeout;
+    private final ExecutorService runner;
+    private final ExecutorService senders;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final Counter claimedCounter;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Timer lagTimer;
+    private final Timer batchTimer;
+
+    public SessionReminderDispatcher(NamedParameterJdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     SessionReminderSender sender,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.telemedicine.reminders.lead-time-hours:24}") long leadTimeHours,
+                                     @Value("${app.telemedicine.reminders.batch-size:500}") int batchSize,
+                                     @Value("${app.telemedicine.reminders.max-batches-per-run:200}") int maxBatchesPerRun,
+                                     @Value("${app.telemedicine.reminders.claim-timeout-ms:600000}") long claimTimeoutMs,
+                                     @Value("${app.telemedicine.reminders.sender-threads:16}") int senderThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.claimTransaction = new TransactionTemplate(transactionManager);
+        this.claimTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.sender = sender;
+        this.leadTime = Duration.ofHours(leadTimeHours);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.claimTimeout = Duration.ofMillis(Math.max(1, claimTimeoutMs));
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-reminder-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), runnable -> {
+            Thread thread = new Thread(runnable, "session-reminders-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.claimedCounter = Counter.builder("telemedicine.reminders.claimed")
+                .description("Reminders claimed by this node")
+                .register(meterRegistry);
+        this.sentCounter = Counter.builder("telemedicine.reminders.sent")
+                .description("Reminders delivered")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("telemedicine.reminders.failed")
+                .description("Reminder deliveries that failed and were released for retry")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("telemedicine.reminders.lag")
+                .description("Delay between a reminder becoming due and its delivery")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("telemedicine.reminders.batch")
+                .description("Claim plus delivery time per batch")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.telemedicine.reminders.interval-ms:60000}")
+    public void scheduleDispatch() {
+        // A run still going covers this tick
+        if (running.get()) return;
+        runner.execute(this::dispatch);
+    }
+
+    /** Drains due reminders batch by batch on the calling thread; returns how many were claimed by this run. */
+    public int dispatch() {
+        // The manual trigger and the schedule may overlap on one node; other nodes are kept apart by SKIP LOCKED
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        // Failed reminders stay claimed until the run ends, so they are retried by the next run, not this one
+        List<Long> failed = new ArrayList<>();
+        try {
+            int total = 0;
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                int claimed = dispatchBatch(failed);
+                total += claimed;
+                if (claimed < batchSize) break;
+            }
+            if (total > 0) {
+                log.info("Dispatched reminders for {} sessions ({} failed)", total, failed.size());
+            }
+            return total;
+        } finally {
+            try {
+                if (!failed.isEmpty()) unclaim(failed);
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+
+    private int dispatchBatch(List<Long> failed) {
+        Timer.Sample sample = Timer.start();
+        OffsetDateTime now = OffsetDateTime.now();
+        List<Reminder> batch = claimTransaction.execute(status -> claim(now));
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        claimedCounter.increment(batch.size());
+        List<Long> batchFailed = deliver(batch);
+        List<Long> sent = batch.stream()
+                .map(Reminder::id)
+                .filter(id -> !batchFailed.contains(id))
+                .toList();
+        if (!sent.isEmpty()) markSent(sent);
+        failed.addAll(batchFailed);
+        sample.stop(batchTimer);
+        return batch.size();
+    }
+
+    private List<Reminder> claim(OffsetDateTime now) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("now", now)
+                .addValue("until", now.plus(leadTime))
+                .addValue("claimExpired", now.minus(claimTimeout))
+                .addValue("limit", batchSize);
+        List<Long> ids = jdbcTemplate.queryForList(CLAIM_SQL, params, Long.class);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        params.addValue("ids", ids);
+        jdbcTemplate.update("UPDATE telemedicine_sessions SET reminder_claimed_at = :now WHERE id IN (:ids)", params);
+        return jdbcTemplate.query(DETAILS_SQL, params, REMINDER_MAPPER);
+    }
+
+    // Waits for the whole batch, which bounds the number of in-flight deliveries to one batch
+    private List<Long> deliver(List<Reminder> batch) {
+        List<Long> failed = new ArrayList<>();
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>(batch.size());
+        for (Reminder reminder : batch) {
+            deliveries.add(CompletableFuture.runAsync(() -> send(reminder), senders));
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Reminder reminder = batch.get(i);
+            try {
+                deliveries.get(i).join();
+                sentCounter.increment();
+                if (reminder.startTime() != null) {
+                    Duration lag = Duration.between(reminder.startTime().minus(leadTime), OffsetDateTime.now());
+                    lagTimer.record(lag.isNegative() ? Duration.ZERO : lag);
+                }
+            } catch (RuntimeException e) {
+                failedCounter.increment();
+                failed.add(reminder.id());
+                log.warn("Reminder for session {} failed, will retry: {}", reminder.sessionId(),
+                        e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            }
+        }
+        return failed;
+    }
+
+    private void send(Reminder reminder) {
+        try {
+            sender.send(reminder);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private void markSent(List<Long> ids) {
+        jdbcTemplate.update("UPDATE telemedicine_sessions SET reminder_sent = true, reminder_sent_at = :sentAt, " +
+                        "reminder_claimed_at = NULL WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids).addValue("sentAt", OffsetDateTime.now()));
+    }
+
+    private void unclaim(List<Long> ids) {
+        jdbcTemplate.update("UPDATE telemedicine_sessions SET reminder_claimed_at = NULL WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        senders.shutdownNow();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.codebasebackend.services;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Delivers one session reminder (email, SMS, push...). Register a bean implementing this interface
+ * as {@code @Primary} to replace the logging default. Implementations are called concurrently from
+ * the reminder sender pool and should apply their own I/O timeouts; throwing marks the reminder as
+ * failed and it is retried on the next dispatcher run.
+ */
+public interface SessionReminderSender {
+
+    record Reminder(Long id,
+                    String sessionId,
+                    OffsetDateTime startTime,
+                    String meetingLink,
+                    String patientName,
+                    String patientEmail,
+                    String patientPhone,
+                    String doctorName) {
+    }
+
+    void send(Reminder reminder) throws Exception;
+}
@@ -0,0 +1,374 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.SessionStatus;
+import com.example.codebasebackend.Entities.TelemedicineSession;
+import com.example.codebasebackend.dto.RevenueDataResponse;
+import com.example.codebasebackend.repositories.DoctorRepository;
+import com.example.codebasebackend.repositories.TelemedicineSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory materialization of the telemedicine dashboard aggregates (overview + revenue).
+ *
+ * The service reports every session change as a before/after {@link SessionFacts} pair; the delta is
+ * applied once the surrounding transaction commits. The whole state is rebuilt from the database at
+ * startup and then re-read every {@code app.telemedicine.aggregates.reconcile-ms} from one REPEATABLE_READ
+ * snapshot. Transactions reporting a change cannot be mid-commit while that snapshot is taken, so each
+ * delta either is in the snapshot or commits after it; only the latter are replayed onto the fresh
+ * numbers. Any remaining difference to the incremental counters is logged as drift (writes from other
+ * nodes or from code paths that do not report changes) before the fresh numbers replace the old ones.
+ *
+ * Revenue is bucketed by the hour of {@code createdAt}, so rolling windows are exact to the hour.
+ */
+@Component
+@Slf4j
+public class TelemedicineAggregateStore {
+
+    // Revenue windows go back at most two months (monthly growth compares against the previous month)
+    private static final int REVENUE_RETENTION_DAYS = 64;
+
+    public record SessionFacts(Long doctorId,
+                               String specialty,
+                               SessionStatus status,
+                               OffsetDateTime createdAt,
+                               BigDecimal actualCost,
+                               String paymentStatus,
+                               Integer duration,
+                               Integer rating) {
+
+        public static SessionFacts of(TelemedicineSession session) {
+            if (session == null) return null;
+            Long doctorId = session.getDoctor() != null ? session.getDoctor().getId() : null;
+            String specialty = session.getDoctor() != null && session.getDoctor().getSpecialty() != null
+                    ? session.getDoctor().getSpecialty().getName() : null;
+            return new SessionFacts(doctorId, specialty, session.getStatus(), session.getCreatedAt(),
+                    session.getActualCost(), session.getPaymentStatus(), session.getDuration(), session.getRating());
+        }
+
+        boolean isPaidRevenue() {
+            return status == SessionStatus.COMPLETED && "PAID".equals(paymentStatus);
+        }
+    }
+
+    private static final class SpecialtyRevenue {
+        BigDecimal revenue = BigDecimal.ZERO;
+        long sessions;
+        long costCount;
+    }
+
+    private static final class State {
+        long totalSessions;
+        long totalDoctors;
+        final Map<SessionStatus, Long> byStatus = new EnumMap<>(SessionStatus.class);
+        final Map<Long, Integer> activeByDoctor = new HashMap<>();
+        long durationSum;
+        long durationCount;
+        long ratingSum;
+        long ratingCount;
+        final TreeMap<Long, BigDecimal> revenueByHour = new TreeMap<>();
+        final Map<String, SpecialtyRevenue> bySpecialty = new HashMap<>();
+    }
+
+    private final TelemedicineSessionRepository sessionRepository;
+    private final DoctorRepository doctorRepository;
+    private final TransactionTemplate snapshotTransaction;
+    private final Counter driftCounter;
+    private final AtomicInteger lastDriftFields = new AtomicInteger();
+    // Shared by transactions reporting a change from just before their commit until it completes, exclusive
+    // while a rebuild takes its snapshot
+    private final ReentrantReadWriteLock commitGate = new ReentrantReadWriteLock();
+
+    // Guarded by "this"; null until the first rebuild has finished
+    private State state;
+    // Guarded by "this"; non-null while a rebuild is reading the database
+    private List<Consumer<State>> replay;
+
+    public TelemedicineAggregateStore(TelemedicineSessionRepository sessionRepository,
+                                      DoctorRepository doctorRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry) {
+        this.sessionRepository = sessionRepository;
+        this.doctorRepository = doctorRepository;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.driftCounter = Counter.builder("telemedicine.aggregates.drift.detected").register(meterRegistry);
+        meterRegistry.gauge("telemedicine.aggregates.drift.fields", lastDriftFields);
+    }
+
+    public synchronized boolean isReady() {
+        return state != null;
+    }
+
+    /**
+     * Records a session change. {@code before} is null for a new session, {@code after} is null for a delete.
+     * Applied after commit so rolled-back changes never reach the counters.
+     */
+    public void record(SessionFacts before, SessionFacts after) {
+        if (Objects.equals(before, after)) return;
+        onCommit(st -> {
+            if (before != null) apply(st, before, -1);
+            if (after != null) apply(st, after, +1);
+        });
+    }
+
+    public void recordDoctorCountChange(int delta) {
+        onCommit(st -> st.totalDoctors += delta);
+    }
+
+    public synchronized long totalSessions() {
+        return state.totalSessions;
+    }
+
+    public synchronized long countByStatus(SessionStatus status) {
+        return state.byStatus.getOrDefault(status, 0L);
+    }
+
+    public synchronized long totalDoctors() {
+        return state.totalDoctors;
+    }
+
+    /** Distinct doctors with at least one ACTIVE session. */
+    public synchronized int doctorsInActiveSessions() {
+        return state.activeByDoctor.size();
+    }
+
+    public synchronized Double averageDuration() {
+        return state.durationCount == 0 ? null : (double) state.durationSum / state.durationCount;
+    }
+
+    public synchronized Double averageRating() {
+        return state.ratingCount == 0 ? null : (double) state.ratingSum / state.ratingCount;
+    }
+
+    /**
+     * Revenue of the hours starting in [from, to). Adjacent windows never share an hour, and a window
+     * ending now includes the current hour.
+     */
+    public synchronized BigDecimal revenueBetween(OffsetDateTime from, OffsetDateTime to) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal hourly : state.revenueByHour.subMap(firstHourFrom(from), true, firstHourFrom(to), false).values()) {
+            total = total.add(hourly);
+        }
+        return total;
+    }
+
+    public synchronized List<RevenueDataResponse.RevenueBySpecialty> revenueBySpecialty() {
+        List<RevenueDataResponse.RevenueBySpecialty> rows = new ArrayList<>(state.bySpecialty.size());
+        state.bySpecialty.forEach((name, agg) -> rows.add(RevenueDataResponse.RevenueBySpecialty.builder()
+                .specialty(name)
+                .revenue(agg.revenue)
+                .sessions((int) agg.sessions)
+                .avgCost(agg.costCount == 0 ? null
+                        : agg.revenue.divide(BigDecimal.valueOf(agg.costCount), 2, RoundingMode.HALF_UP))
+                .build()));
+        rows.sort(Comparator.comparing(RevenueDataResponse.RevenueBySpecialty::getRevenue).reversed());
+        return rows;
+    }
+
+    // Runs once right after startup (initial build), then periodically as a consistency check
+    @Scheduled(fixedDelayString = "${app.telemedicine.aggregates.reconcile-ms:300000}")
+    public void reconcile() {
+        State fresh;
+        try {
+            fresh = snapshotTransaction.execute(status -> loadFromDatabase(OffsetDateTime.now()));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            log.warn("Telemedicine aggregate rebuild failed, keeping current counters: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            // Deltas committed after the snapshot, which the current counters already have
+            replay.forEach(delta -> delta.accept(fresh));
+            replay = null;
+            if (state == null) {
+                log.info("Telemedicine aggregates built: {} sessions", fresh.totalSessions);
+            } else {
+                List<String> drift = diff(state, fresh, OffsetDateTime.now());
+                lastDriftFields.set(drift.size());
+                if (!drift.isEmpty()) {
+                    driftCounter.increment();
+                    log.warn("Telemedicine aggregates drifted from the database, resetting: {}", drift);
+                }
+            }
+            state = fresh;
+        }
+    }
+
+    // Applies the delta once the surrounding transaction commits, holding the commit gate across the commit
+    private void onCommit(Consumer<State> delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyDelta(delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean gated;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitGate.readLock().lock();
+                gated = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                applyDelta(delta);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (gated) commitGate.readLock().unlock();
+            }
+        });
+    }
+
+    private synchronized void applyDelta(Consumer<State> delta) {
+        if (replay != null) replay.add(delta);
+        if (state != null) delta.accept(state);
+    }
+
+    // Runs in the snapshot transaction
+    private State loadFromDatabase(OffsetDateTime now) {
+        State st = new State();
+        commitGate.writeLock().lock();
+        try {
+            synchronized (this) {
+                replay = new ArrayList<>();
+            }
+            // The transaction's first query fixes its snapshot
+            st.totalDoctors = doctorRepository.count();
+        } finally {
+            commitGate.writeLock().unlock();
+        }
+        for (Object[] row : sessionRepository.countGroupedByStatus()) {
+            long count = ((Number) row[1]).longValue();
+            if (row[0] != null) st.byStatus.put((SessionStatus) row[0], count);
+            st.totalSessions += count;
+        }
+        for (Object[] row : sessionRepository.countActiveSessionsGroupedByDoctor()) {
+            st.activeByDoctor.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+        }
+        Object[] duration = first(sessionRepository.sumAndCountCompletedDuration());
+        st.durationSum = ((Number) duration[0]).longValue();
+        st.durationCount = ((Number) duration[1]).longValue();
+        Object[] rating = first(sessionRepository.sumAndCountRating());
+        st.ratingSum = ((Number) rating[0]).longValue();
+        st.ratingCount = ((Number) rating[1]).longValue();
+        for (Object[] row : sessionRepository.findPaidRevenueSince(now.minusDays(REVENUE_RETENTION_DAYS))) {
+            st.revenueByHour.merge(hourOf((OffsetDateTime) row[0]), (BigDecimal) row[1], BigDecimal::add);
+        }
+        for (Object[] row : sessionRepository.sumRevenueGroupedBySpecialty()) {
+            if (row[0] == null) continue;
+            SpecialtyRevenue agg = new SpecialtyRevenue();
+            agg.revenue = (BigDecimal) row[1];
+            agg.sessions = ((Number) row[2]).longValue();
+            agg.costCount = ((Number) row[3]).longValue();
+            st.bySpecialty.put((String) row[0], agg);
+        }
+        return st;
+    }
+
+    private static void apply(State st, SessionFacts f, int sign) {
+        st.totalSessions += sign;
+        if (f.status() != null) {
+            st.byStatus.merge(f.status(), (long) sign, Long::sum);
+        }
+        if (f.status() == SessionStatus.ACTIVE && f.doctorId() != null) {
+            st.activeByDoctor.merge(f.doctorId(), sign, (a, b) -> a + b == 0 ? null : a + b);
+        }
+        if (f.status() == SessionStatus.COMPLETED && f.duration() != null) {
+            st.durationSum += (long) sign * f.duration();
+            st.durationCount += sign;
+        }
+        if (f.rating() != null) {
+            st.ratingSum += (long) sign * f.rating();
+            st.ratingCount += sign;
+        }
+        if (f.isPaidRevenue()) {
+            BigDecimal cost = f.actualCost() != null ? f.actualCost() : BigDecimal.ZERO;
+            BigDecimal signed = sign > 0 ? cost : cost.negate();
+            if (f.actualCost() != null) {
+                long hour = hourOf(f.createdAt() != null ? f.createdAt() : OffsetDateTime.now());
+                st.revenueByHour.merge(hour, signed, BigDecimal::add);
+            }
+            if (f.specialty() != null) {
+                SpecialtyRevenue agg = st.bySpecialty.computeIfAbsent(f.specialty(), k -> new SpecialtyRevenue());
+                agg.revenue = agg.revenue.add(signed);
+                agg.sessions += sign;
+                if (f.actualCost() != null) agg.costCount += sign;
+                if (agg.sessions == 0) st.bySpecialty.remove(f.specialty());
+            }
+        }
+    }
+
+    private static List<String> diff(State current, State db, OffsetDateTime now) {
+        List<String> drift = new ArrayList<>();
+        compare(drift, "totalSessions", current.totalSessions, db.totalSessions);
+        compare(drift, "totalDoctors", current.totalDoctors, db.totalDoctors);
+        for (SessionStatus status : SessionStatus.values()) {
+            compare(drift, "status." + status,
+                    current.byStatus.getOrDefault(status, 0L), db.byStatus.getOrDefault(status, 0L));
+        }
+        compare(drift, "activeDoctors", current.activeByDoctor.size(), db.activeByDoctor.size());
+        compare(drift, "durationSum", current.durationSum, db.durationSum);
+        compare(drift, "durationCount", current.durationCount, db.durationCount);
+        compare(drift, "ratingSum", current.ratingSum, db.ratingSum);
+        compare(drift, "ratingCount", current.ratingCount, db.ratingCount);
+
+        long from = hourOf(now.minusDays(REVENUE_RETENTION_DAYS));
+        BigDecimal currentRevenue = sum(current.revenueByHour.tailMap(from, true));
+        BigDecimal dbRevenue = sum(db.revenueByHour.tailMap(from, true));
+        if (currentRevenue.compareTo(dbRevenue) != 0) {
+            drift.add("revenue " + currentRevenue + " != " + dbRevenue);
+        }
+        return drift;
+    }
+
+    private static void compare(List<String> drift, String field, long current, long db) {
+        if (current != db) drift.add(field + " " + current + " != " + db);
+    }
+
+    private static BigDecimal sum(Map<Long, BigDecimal> buckets) {
+        return buckets.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static Object[] first(List<Object[]> rows) {
+        return rows.isEmpty() ? new Object[]{0L, 0L} : rows.get(0);
+    }
+
+    private static long hourOf(OffsetDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(), 3600L);
+    }
+
+    // The first hour bucket starting at or after time
+    private static long firstHourFrom(OffsetDateTime time) {
+        return -Math.floorDiv(-time.toEpochSecond(), 3600L);
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.SessionStatus;
+import com.example.codebasebackend.Entities.TelemedicineSession;
+import com.example.codebasebackend.dto.TelemedicineSessionEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.codebasebackend.services.TransactionCallbacks.afterCommit;
+
+/**
+ * Fans committed telemedicine session state changes out to SSE subscribers.
+ *
+ * Each subscriber has a bounded buffer; when a slow client falls behind, the oldest buffered event
+ * is dropped and the next delivered event reports how many were lost ({@code droppedBefore}), so the
+ * client knows to re-fetch. Writes happen on a small sender pool, never on the committing thread.
+ */
+@Component
+@Slf4j
+public class TelemedicineSessionEventBroadcaster {
+
+    public record Filter(Long doctorId, Long patientId, String sessionId) {
+
+        boolean matches(TelemedicineSessionEvent event) {
+            return (doctorId == null || doctorId.equals(event.getDoctorId()))
+                    && (patientId == null || patientId.equals(event.getPatientId()))
+                    && (sessionId == null || sessionId.equalsIgnoreCase(event.getSessionId()));
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final Filter filter;
+        // Guarded by itself
+        final ArrayDeque<TelemedicineSessionEvent> buffer = new ArrayDeque<>();
+        long dropped;
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, Filter filter) {
+            this.emitter = emitter;
+            this.filter = filter;
+        }
+
+        void offer(TelemedicineSessionEvent event) {
+            synchronized (buffer) {
+                if (buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                    dropped++;
+                    droppedCounter.increment();
+                }
+                buffer.addLast(event);
+            }
+            scheduleDrain(this);
+        }
+
+        // Returns null when the buffer is empty
+        TelemedicineSessionEvent next() {
+            synchronized (buffer) {
+                TelemedicineSessionEvent event = buffer.pollFirst();
+                if (event == null || dropped == 0) return event;
+                TelemedicineSessionEvent flagged = event.toBuilder().droppedBefore(dropped).build();
+                dropped = 0;
+                return flagged;
+            }
+        }
+
+        boolean isEmpty() {
+            synchronized (buffer) {
+                return buffer.isEmpty();
+            }
+        }
+    }
+
+    private final int bufferSize;
+    private final long streamTimeoutMs;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService senders;
+    private final Counter publishedCounter;
+    private final Counter droppedCounter;
+
+    public TelemedicineSessionEventBroadcaster(MeterRegistry meterRegistry,
+                                               @Value("${app.telemedicine.events.buffer-size:256}") int bufferSize,
+                                               @Value("${app.telemedicine.events.stream-timeout-ms:1800000}") long streamTimeoutMs,
+                                               @Value("${app.telemedicine.events.sender-threads:2}") int senderThreads) {
+        this.bufferSize = Math.max(1, bufferSize);
+        this.streamTimeoutMs = streamTimeoutMs;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), runnable -> {
+            Thread thread = new Thread(runnable, "session-events-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publishedCounter = Counter.builder("telemedicine.session.events.published")
+                .description("Session state changes published to SSE subscribers")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("telemedicine.session.events.dropped")
+                .description("Events discarded because a subscriber's buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("telemedicine.session.events.subscribers", subscribers, List::size)
+                .description("Open session event SSE streams")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(Filter filter) {
+        return subscribe(filter, new SseEmitter(streamTimeoutMs));
+    }
+
+    SseEmitter subscribe(Filter filter, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter, filter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /** Captures the session's new state now and publishes it once the surrounding transaction commits. */
+    public void publish(String action, SessionStatus previousStatus, TelemedicineSession session) {
+        if (Objects.equals(previousStatus, session.getStatus()) || subscribers.isEmpty()) return;
+        Long doctorId = session.getDoctor() != null ? session.getDoctor().getId() : null;
+        Long patientId = session.getPatient() != null ? session.getPatient().getId() : null;
+        TelemedicineSessionEvent.TelemedicineSessionEventBuilder event = TelemedicineSessionEvent.builder()
+                .action(action)
+                .id(session.getId())
+                .sessionId(session.getSessionId())
+                .doctorId(doctorId)
+                .patientId(patientId)
+                .previousStatus(previousStatus)
+                .status(session.getStatus());
+        afterCommit(() -> deliver(event
+                .sequence(sequence.incrementAndGet())
+                .occurredAt(OffsetDateTime.now())
+                .build()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.telemedicine.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                drop(subscriber);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void deliver(TelemedicineSessionEvent event) {
+        publishedCounter.increment();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.filter.matches(event)) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    // At most one drain task per subscriber, so its events are written in order
+    private void scheduleDrain(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) return;
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.draining.set(false);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            TelemedicineSessionEvent event;
+            while ((event = subscriber.next()) != null) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(Long.toString(event.getSequence()))
+                        .name("session-" + event.getAction())
+                        .data(event));
+            }
+        } catch (IOException | IllegalStateException e) {
+            drop(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // An event may have arrived between the last poll and clearing the flag
+        if (!subscriber.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            log.debug("Session event subscriber disconnected");
+            subscriber.emitter.completeWithError(new IOException("Subscriber disconnected"));
+        }
+    }
+}
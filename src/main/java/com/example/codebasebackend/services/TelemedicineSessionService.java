@@ -4,6 +4,8 @@ import com.example.codebasebackend.Entities.*;
 import com.example.codebasebackend.dto.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -25,6 +27,7 @@ public interface TelemedicineSessionService {
     TelemedicineSessionResponse completeSession(Long id, String diagnosis, String prescription, String doctorNotes);
     TelemedicineSessionResponse cancelSession(Long id, String reason);
     TelemedicineSessionResponse terminateSession(Long id, String reason);
+    SseEmitter streamSessionEvents(Long doctorId, Long patientId, String sessionId);
 
     // Rating and Feedback
     TelemedicineSessionResponse rateSession(Long id, Integer rating, String feedback);
@@ -57,7 +60,9 @@ public interface TelemedicineSessionService {
     List<PlatformUsageItemResponse> getPlatformUsageDistribution();
     List<RecentActivityResponse> getRecentActivity(int limit);
     List<DoctorOnlineResponse> getOnlineDoctors();
+    SseEmitter streamOnlineDoctors();
     List<SessionHistoryResponse> getSessionHistory(String period);
+    StreamingResponseBody exportSessionHistory(String period, String cursor, String format);
 
     // Reminders
     void sendSessionReminders();
@@ -3,16 +3,23 @@ package com.example.codebasebackend.services;
 import com.example.codebasebackend.Entities.*;
 import com.example.codebasebackend.dto.*;
 import com.example.codebasebackend.repositories.*;
+import com.example.codebasebackend.services.TelemedicineAggregateStore.SessionFacts;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -35,6 +42,14 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
     private final HospitalRepository hospitalRepository;
     private final AppointmentRepository appointmentRepository;
     private final UserRepository userRepository;
+    private final TelemedicineAggregateStore aggregateStore;
+    private final SequenceIdAllocator idAllocator;
+    private final DoctorPresenceRegistry presenceRegistry;
+    private final TelemedicineSessionEventBroadcaster eventBroadcaster;
+    private final SessionReminderDispatcher reminderDispatcher;
+    private final SessionHistoryExporter historyExporter;
+    private final DirectorySearchIndex searchIndex;
+    private final SessionParticipantIndex participantIndex;
 
     @Override
     public TelemedicineSessionResponse createSession(TelemedicineSessionRequest request) {
@@ -95,6 +110,8 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
         session.setMeetingId(UUID.randomUUID().toString());
 
         TelemedicineSession savedSession = sessionRepository.save(session);
+        aggregateStore.record(null, SessionFacts.of(savedSession));
+        participantIndex.recordSession(savedSession.getId(), patient.getId(), doctor.getId());
         log.info("Telemedicine session created successfully: {}", sessionId);
 
         return mapToResponse(savedSession);
@@ -142,6 +159,7 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
                 "Only scheduled sessions can be updated");
         }
 
+        SessionFacts before = SessionFacts.of(session);
         Appointment linkedAppointment = resolveAndValidateTelemedicineAppointment(request, session.getPatient(), session.getDoctor(), session.getId());
         if (linkedAppointment != null) {
             session.setAppointment(linkedAppointment);
@@ -157,6 +175,7 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
         session.setPriority(request.getPriority());
 
         TelemedicineSession updatedSession = sessionRepository.save(session);
+        aggregateStore.record(before, SessionFacts.of(updatedSession));
         return mapToResponse(updatedSession);
     }
 
@@ -174,6 +193,8 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
         }
 
         sessionRepository.delete(session);
+        aggregateStore.record(SessionFacts.of(session), null);
+        participantIndex.removeSession(session.getId(), session.getPatient().getId(), session.getDoctor().getId());
         log.info("Session deleted: {}", session.getSessionId());
     }
 
@@ -183,6 +204,7 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
             .orElseThrow(() -> new ResponseStatusException(NOT_FOUND,
                 "Session not found with ID: " + id));
 
+        SessionFacts before = SessionFacts.of(session);
         if (session.getStatus() != SessionStatus.SCHEDULED &&
             session.getStatus() != SessionStatus.PAUSED) {
             throw new ResponseStatusException(BAD_REQUEST,
@@ -199,11 +221,17 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
                 doctor.incrementTotalSessions();
             }
             doctorRepository.save(doctor);
+            presenceRegistry.recordDoctor(doctor);
+            if (freshStart) {
+                presenceRegistry.recordSessionStarted(doctor.getId(), session.getId());
+            }
         }
 
         syncAppointmentStatusFromSession(session, Appointment.AppointmentStatus.CHECKED_IN, false);
 
         TelemedicineSession updatedSession = sessionRepository.save(session);
+        aggregateStore.record(before, SessionFacts.of(updatedSession));
+        eventBroadcaster.publish("started", before.status(), updatedSession);
         log.info("Session started: {}", session.getSessionId());
 
         return mapToResponse(updatedSession);
@@ -215,8 +243,11 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
             .orElseThrow(() -> new ResponseStatusException(NOT_FOUND,
                 "Session not found with ID: " + id));
 
+        SessionFacts before = SessionFacts.of(session);
         session.pauseSession();
         TelemedicineSession updatedSession = sessionRepository.save(session);
+        aggregateStore.record(before, SessionFacts.of(updatedSession));
+        eventBroadcaster.publish("paused", before.status(), updatedSession);
         log.info("Session paused: {}", session.getSessionId());
 
         return mapToResponse(updatedSession);
@@ -228,15 +259,19 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
             .orElseThrow(() -> new ResponseStatusException(NOT_FOUND,
                 "Session not found with ID: " + id));
 
+        SessionFacts before = SessionFacts.of(session);
         session.resumeSession();
 
         Doctor doctor = session.getDoctor();
         if (doctor != null) {
             doctor.updateStatus(DoctorStatus.BUSY);
             doctorRepository.save(doctor);
+            presenceRegistry.recordDoctor(doctor);
         }
 
         TelemedicineSession updatedSession = sessionRepository.save(session);
+        aggregateStore.record(before, SessionFacts.of(updatedSession));
+        eventBroadcaster.publish("resumed", before.status(), updatedSession);
         log.info("Session resumed: {}", session.getSessionId());
 
         return mapToResponse(updatedSession);
@@ -249,6 +284,7 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
             .orElseThrow(() -> new ResponseStatusException(NOT_FOUND,
                 "Session not found with ID: " + id));
 
+        SessionFacts before = SessionFacts.of(session);
         if (session.getStatus() != SessionStatus.ACTIVE &&
             session.getStatus() != SessionStatus.PAUSED) {
             throw new ResponseStatusException(BAD_REQUEST,
@@ -266,11 +302,15 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
             doctor.incrementCompletedSessions();
             doctor.updateStatus(DoctorStatus.AVAILABLE);
             doctorRepository.save(doctor);
+            presenceRegistry.recordDoctor(doctor);
+            presenceRegistry.recordSessionCompleted(doctor.getId(), session.getId(), session.getActualCost());
         }
 
         syncAppointmentStatusFromSession(session, Appointment.AppointmentStatus.COMPLETED, true);
 
         TelemedicineSession updatedSession = sessionRepository.save(session);
+        aggregateStore.record(before, SessionFacts.of(updatedSession));
+        eventBroadcaster.publish("completed", before.status(), updatedSession);
         log.info("Session completed: {}", session.getSessionId());
 
         return mapToResponse(updatedSession);
@@ -282,6 +322,7 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
             .orElseThrow(() -> new ResponseStatusException(NOT_FOUND,
                 "Session not found with ID: " + id));
 
+        SessionFacts before = SessionFacts.of(session);
         if (session.getStatus() == SessionStatus.COMPLETED ||
             session.getStatus() == SessionStatus.CANCELLED) {
             throw new ResponseStatusException(BAD_REQUEST,
@@ -294,11 +335,14 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
         if (doctor != null && doctor.getStatus() == DoctorStatus.BUSY) {
             doctor.updateStatus(DoctorStatus.AVAILABLE);
             doctorRepository.save(doctor);
+            presenceRegistry.recordDoctor(doctor);
         }
 
         syncAppointmentStatusFromSession(session, Appointment.AppointmentStatus.CANCELED, false);
 
         TelemedicineSession updatedSession = sessionRepository.save(session);
+        aggregateStore.record(before, SessionFacts.of(updatedSession));
+        eventBroadcaster.publish("cancelled", before.status(), updatedSession);
         log.info("Session cancelled: {}", session.getSessionId());
 
         return mapToResponse(updatedSession);
@@ -310,17 +354,21 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
             .orElseThrow(() -> new ResponseStatusException(NOT_FOUND,
                 "Session not found with ID: " + id));
 
+        SessionFacts before = SessionFacts.of(session);
         session.terminateSession(resolveCurrentUser(), reason);
 
         Doctor doctor = session.getDoctor();
         if (doctor != null && doctor.getStatus() == DoctorStatus.BUSY) {
             doctor.updateStatus(DoctorStatus.AVAILABLE);
             doctorRepository.save(doctor);
+            presenceRegistry.recordDoctor(doctor);
         }
 
         syncAppointmentStatusFromSession(session, Appointment.AppointmentStatus.CANCELED, false);
 
         TelemedicineSession updatedSession = sessionRepository.save(session);
+        aggregateStore.record(before, SessionFacts.of(updatedSession));
+        eventBroadcaster.publish("terminated", before.status(), updatedSession);
         log.info("Session terminated: {}", session.getSessionId());
 
         return mapToResponse(updatedSession);
@@ -332,6 +380,7 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
             .orElseThrow(() -> new ResponseStatusException(NOT_FOUND,
                 "Session not found with ID: " + id));
 
+        SessionFacts before = SessionFacts.of(session);
         if (session.getStatus() != SessionStatus.COMPLETED) {
             throw new ResponseStatusException(BAD_REQUEST,
                 "Only completed sessions can be rated");
@@ -340,6 +389,7 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
         session.setRating(rating);
         session.setFeedback(feedback);
         TelemedicineSession updatedSession = sessionRepository.save(session);
+        aggregateStore.record(before, SessionFacts.of(updatedSession));
         log.info("Session rated: {}, rating: {}", session.getSessionId(), rating);
 
         return mapToResponse(updatedSession);
@@ -371,10 +421,61 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
     @Override
     @Transactional(readOnly = true)
     public Page<TelemedicineSessionResponse> searchSessions(String searchTerm, Pageable pageable) {
-        return sessionRepository.searchSessions(searchTerm, pageable)
+        String term = searchTerm != null ? searchTerm.trim() : "";
+        if (term.isEmpty()) {
+            return sessionRepository.findAll(pageable).map(this::mapToResponse);
+        }
+
+        String sessionIdPrefix = sessionIdPrefix(term);
+        if (sessionIdPrefix == null && pageable.isPaged() && sortedByIdAtMost(pageable.getSort())) {
+            // A name search in the default order resolves and pages in memory, however many people match
+            return searchSessionsByParticipant(term, pageable);
+        }
+
+        TextSearchIndex.Result patients = searchIndex.searchPatients(term, searchIndex.matchLimit());
+        TextSearchIndex.Result doctors = searchIndex.searchDoctors(term, searchIndex.matchLimit(), false);
+        // Equal ranks would otherwise come back in any order, repeating or skipping rows across pages
+        Pageable ordered = withIdTieBreaker(pageable);
+        if (patients.total() > patients.hits().size() || doctors.total() > doctors.hits().size()) {
+            // Too many people share the term to pass them all as ids; the capped lists would lose sessions
+            return sessionRepository.searchSessionsByText(term, ordered).map(this::mapToResponse);
+        }
+        if (patients.hits().isEmpty() && doctors.hits().isEmpty() && sessionIdPrefix == null) {
+            return Page.empty(pageable);
+        }
+
+        return sessionRepository.searchSessions(
+                idsScoring(patients, 0), idsScoring(doctors, 0),
+                idsScoring(patients, TextSearchIndex.EXACT_SCORE), idsScoring(doctors, TextSearchIndex.EXACT_SCORE),
+                idsScoring(patients, TextSearchIndex.PREFIX_SCORE), idsScoring(doctors, TextSearchIndex.PREFIX_SCORE),
+                exactSessionId(term, sessionIdPrefix),
+                sessionIdPrefix,
+                sessionIdPrefix != null ? prefixUpperBound(sessionIdPrefix) : null,
+                ordered)
             .map(this::mapToResponse);
     }
 
+    private Page<TelemedicineSessionResponse> searchSessionsByParticipant(String term, Pageable pageable) {
+        TextSearchIndex.Result patients = searchIndex.searchPatients(term, Integer.MAX_VALUE);
+        TextSearchIndex.Result doctors = searchIndex.searchDoctors(term, Integer.MAX_VALUE, false);
+        Sort.Order byId = pageable.getSort().getOrderFor("id");
+        SessionParticipantIndex.Page page = participantIndex.page(patients.hits(), doctors.hits(),
+                byId != null && byId.isDescending(), pageable.getOffset(), pageable.getPageSize());
+        if (page.ids().isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, page.total());
+        }
+
+        Map<Long, TelemedicineSession> found = sessionRepository.findByIdIn(page.ids()).stream()
+            .collect(Collectors.toMap(TelemedicineSession::getId, session -> session));
+        // A session deleted on another node stays indexed until the next rebuild
+        List<TelemedicineSessionResponse> content = page.ids().stream()
+            .map(found::get)
+            .filter(Objects::nonNull)
+            .map(this::mapToResponse)
+            .toList();
+        return new PageImpl<>(content, pageable, page.total());
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<TelemedicineSessionResponse> getSessionsWithFilters(
@@ -421,6 +522,10 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
     @Override
     @Transactional(readOnly = true)
     public PlatformOverviewResponse getPlatformOverview() {
+        if (aggregateStore.isReady()) {
+            return platformOverviewFromStore();
+        }
+
         Integer activeSessions = sessionRepository.countByStatus(SessionStatus.ACTIVE);
         Long totalSessionsLong = sessionRepository.count();
         Integer totalSessions = totalSessionsLong.intValue();
@@ -456,6 +561,10 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
     @Override
     @Transactional(readOnly = true)
     public RevenueDataResponse getRevenueData(String period) {
+        if (aggregateStore.isReady()) {
+            return revenueDataFromStore();
+        }
+
         OffsetDateTime now = OffsetDateTime.now();
         OffsetDateTime startOfDay = now.toLocalDate().atStartOfDay(now.getOffset()).toOffsetDateTime();
         OffsetDateTime startOfWeek = now.minusWeeks(1);
@@ -484,6 +593,39 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
             .build();
     }
 
+    // Same numbers as the query-based path above, served from the in-memory aggregates
+    private PlatformOverviewResponse platformOverviewFromStore() {
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime monthStart = now.minusMonths(1);
+        BigDecimal totalRevenue = aggregateStore.revenueBetween(monthStart, now);
+        BigDecimal previousRevenue = aggregateStore.revenueBetween(monthStart.minusMonths(1), monthStart);
+        Double avgDuration = aggregateStore.averageDuration();
+        Double avgRating = aggregateStore.averageRating();
+
+        return PlatformOverviewResponse.builder()
+            .totalSessions((int) aggregateStore.totalSessions())
+            .activeSessions((int) aggregateStore.countByStatus(SessionStatus.ACTIVE))
+            .totalDoctors((int) aggregateStore.totalDoctors())
+            .onlineDoctors(aggregateStore.doctorsInActiveSessions())
+            .totalRevenue(totalRevenue)
+            .monthlyGrowth(calculateGrowthPercentage(previousRevenue, totalRevenue))
+            .avgSessionDuration(avgDuration != null ? avgDuration.intValue() : 0)
+            .patientSatisfaction(avgRating != null ? avgRating : 0.0)
+            .build();
+    }
+
+    private RevenueDataResponse revenueDataFromStore() {
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime startOfDay = now.toLocalDate().atStartOfDay(now.getOffset()).toOffsetDateTime();
+
+        return RevenueDataResponse.builder()
+            .daily(aggregateStore.revenueBetween(startOfDay, now))
+            .weekly(aggregateStore.revenueBetween(now.minusWeeks(1), now))
+            .monthly(aggregateStore.revenueBetween(now.minusMonths(1), now))
+            .bySpecialty(aggregateStore.revenueBySpecialty())
+            .build();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public PlatformStatsResponse getPlatformStats() {
@@ -586,98 +728,54 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
     @Override
     @Transactional(readOnly = true)
     public List<DoctorOnlineResponse> getOnlineDoctors() {
-        List<DoctorStatus> onlineStatuses = Arrays.asList(DoctorStatus.AVAILABLE, DoctorStatus.BUSY);
-        List<Doctor> onlineDoctors = doctorRepository.findByActiveTrueAndStatusIn(onlineStatuses);
-        OffsetDateTime now = OffsetDateTime.now();
-        OffsetDateTime dayStart = now.toLocalDate().atStartOfDay(now.getOffset()).toOffsetDateTime();
-
-        return onlineDoctors.stream()
-            .map(doctor -> DoctorOnlineResponse.builder()
-                .id(doctor.getId())
-                .doctorId(doctor.getDoctorId())
-                .name(doctor.getFullName())
-                .photo(doctor.getPhotoUrl())
-                .specialty(doctor.getSpecialty() != null ? doctor.getSpecialty().getName() : "General")
-                .experience(doctor.getExperience())
-                .rating(doctor.getRating())
-                .sessionsToday(sessionRepository.countByDoctorIdAndStartTimeBetween(doctor.getId(), dayStart, now))
-                .totalSessions(doctor.getTotalSessions())
-                .currentStatus(doctor.getStatus())
-                .currentStatusLabel(doctor.getStatus() != null ? doctor.getStatus().name().toLowerCase() : null)
-                .earnings(sessionRepository.sumDoctorRevenueByDateRange(doctor.getId(), dayStart, now))
-                .languages(doctor.getLanguages())
-                .location(doctor.getLocation())
-                .email(doctor.getEmail())
-                .phone(doctor.getPhone())
-                .build())
-            .collect(Collectors.toList());
+        return presenceRegistry.snapshot();
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public List<SessionHistoryResponse> getSessionHistory(String period) {
-        OffsetDateTime startDate;
-        OffsetDateTime now = OffsetDateTime.now();
+    public SseEmitter streamOnlineDoctors() {
+        return presenceRegistry.subscribe();
+    }
 
-        switch (period.toLowerCase()) {
-            case "today":
-                startDate = now.toLocalDate().atStartOfDay(now.getOffset()).toOffsetDateTime();
-                break;
-            case "week":
-                startDate = now.minusWeeks(1);
-                break;
-            case "month":
-                startDate = now.minusMonths(1);
-                break;
-            default:
-                startDate = now.minusDays(1);
-        }
-
-        List<TelemedicineSession> sessions = sessionRepository.findByDateRange(startDate, now);
-
-        return sessions.stream()
-            .map(session -> SessionHistoryResponse.builder()
-                .id(session.getSessionId())
-                .patient(session.getPatient().getFirstName() + " " + session.getPatient().getLastName())
-                .doctor(session.getDoctor().getFullName())
-                .date(session.getStartTime().toLocalDate())
-                .duration(session.getDuration())
-                .status(session.getStatus())
-                .statusLabel(session.getStatus() != null ? session.getStatus().name().toLowerCase() : null)
-                .rating(session.getRating())
-                .cost(session.getActualCost())
-                .diagnosis(session.getDiagnosis())
-                .followUpRequired(session.getFollowUpRequired())
-                .prescription(session.getPrescription())
-                .build())
-            .collect(Collectors.toList());
+    @Override
+    public SseEmitter streamSessionEvents(Long doctorId, Long patientId, String sessionId) {
+        return eventBroadcaster.subscribe(new TelemedicineSessionEventBroadcaster.Filter(
+                doctorId, patientId, StringUtils.hasText(sessionId) ? sessionId.trim() : null));
     }
 
     @Override
-    public void sendSessionReminders() {
+    @Transactional(readOnly = true)
+    public List<SessionHistoryResponse> getSessionHistory(String period) {
         OffsetDateTime now = OffsetDateTime.now();
-        OffsetDateTime reminderWindow = now.plusHours(24);
-
-        List<TelemedicineSession> sessionsNeedingReminders =
-            sessionRepository.findSessionsNeedingReminders(now, reminderWindow);
-
-        for (TelemedicineSession session : sessionsNeedingReminders) {
-            // Here you would integrate with email/SMS service
-            log.info("Sending reminder for session: {} to patient: {}",
-                     session.getSessionId(), session.getPatient().getEmail());
+        return historyExporter.readAll(
+            SessionHistoryExporter.Cursor.start(SessionHistoryExporter.periodStart(period, now), now));
+    }
 
-            session.setReminderSent(true);
-            session.setReminderSentAt(now);
-            sessionRepository.save(session);
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public StreamingResponseBody exportSessionHistory(String period, String cursor, String format) {
+        // Resolved before the body starts streaming, so bad input still gets a 400
+        SessionHistoryExporter.Format exportFormat = SessionHistoryExporter.Format.parse(format);
+        SessionHistoryExporter.Cursor start;
+        if (StringUtils.hasText(cursor)) {
+            start = SessionHistoryExporter.Cursor.decode(cursor);
+        } else {
+            OffsetDateTime now = OffsetDateTime.now();
+            start = SessionHistoryExporter.Cursor.start(SessionHistoryExporter.periodStart(period, now), now);
         }
+        SessionHistoryExporter.Cursor from = start;
+        return out -> historyExporter.write(from, exportFormat, out);
+    }
 
-        log.info("Sent reminders for {} sessions", sessionsNeedingReminders.size());
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void sendSessionReminders() {
+        int claimed = reminderDispatcher.dispatch();
+        log.info("Reminder run claimed {} sessions", claimed);
     }
 
     // Helper Methods
     private String generateSessionId() {
-        long count = sessionRepository.count() + 1;
-        return String.format("TM-%03d", count);
+        return idAllocator.nextId(SequenceIdAllocator.Kind.TELEMEDICINE_SESSION);
     }
 
     private String generateMeetingLink(String sessionId) {
@@ -907,4 +1005,42 @@ public class TelemedicineSessionServiceImplementation implements TelemedicineSes
         }
         appointmentRepository.save(appointment);
     }
+
+    // "TM-12" and "12" both search session IDs starting with TM-12
+    private static String sessionIdPrefix(String term) {
+        String upper = term.toUpperCase(Locale.ROOT);
+        if (upper.startsWith("TM-") && upper.length() > 3) return upper;
+        return upper.chars().allMatch(Character::isDigit) ? "TM-" + upper : null;
+    }
+
+    // "12" also finds TM-012, since IDs are zero-padded to three digits
+    private static String exactSessionId(String term, String sessionIdPrefix) {
+        if (sessionIdPrefix == null || !term.chars().allMatch(Character::isDigit) || term.length() > 18) {
+            return sessionIdPrefix;
+        }
+        return SequenceIdAllocator.Kind.TELEMEDICINE_SESSION.format(Long.parseLong(term));
+    }
+
+    private static boolean sortedByIdAtMost(Sort sort) {
+        return sort.stream().allMatch(order -> order.getProperty().equals("id"));
+    }
+
+    private static Pageable withIdTieBreaker(Pageable pageable) {
+        if (pageable.isUnpaged() || pageable.getSort().getOrderFor("id") != null) return pageable;
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().and(Sort.by("id")));
+    }
+
+    private static String prefixUpperBound(String prefix) {
+        char last = prefix.charAt(prefix.length() - 1);
+        return prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+    }
+
+    // An empty IN list is not portable, so "no match" is a list holding an id that never exists
+    private static List<Long> idsScoring(TextSearchIndex.Result result, double minScore) {
+        List<Long> ids = result.hits().stream()
+            .filter(hit -> hit.score() >= minScore - 1e-9)
+            .map(TextSearchIndex.Hit::id)
+            .toList();
+        return ids.isEmpty() ? List.of(-1L) : ids;
+    }
 }
@@ -0,0 +1,304 @@
+package com.example.codebasebackend.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over short text fields (names, e-mails) keyed by entity id.
+ *
+ * Text is lower-cased, stripped of accents and split into alphanumeric tokens. Every query token must
+ * match a token of the document, either exactly, as a prefix (so results update as the user types) or
+ * within a small edit distance (one edit from 4 characters, two from 8). Fuzzy candidates come from a
+ * trigram index, so a lookup never scans the whole vocabulary. Hits are ranked by the mean match quality
+ * of the query tokens, weighted by the field they matched in; a score of 1.0 means every token matched a
+ * full-weight field exactly.
+ *
+ * Reads share a lock and writes take it exclusively; writes are expected to be rare compared to searches.
+ */
+public class TextSearchIndex {
+
+    public static final double EXACT_SCORE = 1.0;
+    public static final double PREFIX_SCORE = 0.75;
+    public static final double FUZZY_SCORE = 0.6;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** One indexed field of a document; weight is in (0, 1]. */
+    public record Field(String text, double weight) {
+
+        public static Field of(String text, double weight) {
+            return new Field(text, weight);
+        }
+    }
+
+    public record Hit(long id, double score) {
+    }
+
+    /** The best {@code limit} hits and the total number of matching documents. */
+    public record Result(List<Hit> hits, int total) {
+
+        public static final Result EMPTY = new Result(List.of(), 0);
+
+        public List<Long> ids() {
+            return hits.stream().map(Hit::id).toList();
+        }
+    }
+
+    // A document's distinct tokens, each with the highest weight of the fields it appears in
+    private record Document(String[] tokens, double[] weights) {
+    }
+
+    // Sorted ids; ids mostly arrive in ascending order, which makes add an append
+    private static final class Postings {
+        private long[] ids = new long[2];
+        private int size;
+
+        void add(long id) {
+            int at = size == 0 || ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) return;
+            at = -(at + 1);
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) return;
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+        }
+    }
+
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(long id, List<Field> fields) {
+        Map<String, Double> weights = new HashMap<>();
+        for (Field field : fields) {
+            for (String token : tokenize(field.text())) {
+                weights.merge(token, field.weight(), Math::max);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (weights.isEmpty()) return;
+            String[] tokens = weights.keySet().toArray(String[]::new);
+            double[] tokenWeights = new double[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                tokenWeights[i] = weights.get(tokens[i]);
+                Postings ids = postings.get(tokens[i]);
+                if (ids == null) {
+                    ids = new Postings();
+                    postings.put(tokens[i], ids);
+                    for (String gram : trigramsOf(tokens[i])) {
+                        trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(tokens[i]);
+                    }
+                }
+                ids.add(id);
+            }
+            documents.put(id, new Document(tokens, tokenWeights));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Ranked hits for the query, best first (ties by ascending id); at most {@code limit} are returned. */
+    public Result search(String query, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) return Result.EMPTY;
+
+        lock.readLock().lock();
+        try {
+            List<Map<String, Double>> expansions = new ArrayList<>(queryTokens.size());
+            for (String token : queryTokens) {
+                Map<String, Double> expansion = expand(token);
+                if (expansion.isEmpty()) return Result.EMPTY;
+                expansions.add(expansion);
+            }
+            // Seed candidates from the most selective query token, then check the others per candidate
+            int seed = 0;
+            long smallest = Long.MAX_VALUE;
+            for (int i = 0; i < expansions.size(); i++) {
+                long postingsSize = 0;
+                for (String token : expansions.get(i).keySet()) postingsSize += postings.get(token).size;
+                if (postingsSize < smallest) {
+                    smallest = postingsSize;
+                    seed = i;
+                }
+            }
+            // A document can sit under several expansions of the seed token; sorting makes duplicates adjacent
+            long[] candidates = new long[(int) smallest];
+            int count = 0;
+            for (String token : expansions.get(seed).keySet()) {
+                Postings ids = postings.get(token);
+                System.arraycopy(ids.ids, 0, candidates, count, ids.size);
+                count += ids.size;
+            }
+            Arrays.sort(candidates, 0, count);
+
+            Comparator<Hit> ranking = Comparator.comparingDouble(Hit::score).reversed().thenComparingLong(Hit::id);
+            PriorityQueue<Hit> best = new PriorityQueue<>(ranking.reversed());
+            int total = 0;
+            for (int c = 0; c < count; c++) {
+                long id = candidates[c];
+                if (c > 0 && candidates[c - 1] == id) continue;
+                Document document = documents.get(id);
+                double sum = 0;
+                boolean matchedAll = true;
+                for (Map<String, Double> expansion : expansions) {
+                    double quality = 0;
+                    for (int i = 0; i < document.tokens().length; i++) {
+                        Double match = expansion.get(document.tokens()[i]);
+                        if (match != null) quality = Math.max(quality, match * document.weights()[i]);
+                    }
+                    if (quality == 0) {
+                        matchedAll = false;
+                        break;
+                    }
+                    sum += quality;
+                }
+                if (!matchedAll) continue;
+                total++;
+                Hit hit = new Hit(id, sum / expansions.size());
+                if (best.size() < limit) {
+                    best.add(hit);
+                } else if (ranking.compare(hit, best.peek()) < 0) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(ranking);
+            return new Result(hits, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Indexed tokens the query token can stand for, with their match quality. Called with the read lock held.
+    private Map<String, Double> expand(String queryToken) {
+        Map<String, Double> expansion = new HashMap<>();
+        for (String token : postings.subMap(queryToken, true, queryToken + Character.MAX_VALUE, false).keySet()) {
+            expansion.put(token, token.length() == queryToken.length()
+                    ? EXACT_SCORE
+                    : PREFIX_SCORE + 0.2 * queryToken.length() / token.length());
+        }
+        int maxEdits = maxEdits(queryToken);
+        if (maxEdits == 0) return expansion;
+
+        List<String> grams = trigramsOf(queryToken);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            for (String token : trigrams.getOrDefault(gram, Set.of())) shared.merge(token, 1, Integer::sum);
+        }
+        // Each edit destroys at most three trigrams
+        int minShared = Math.max(1, grams.size() - 3 * maxEdits);
+        for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+            String token = candidate.getKey();
+            if (candidate.getValue() < minShared || expansion.containsKey(token)
+                    || Math.abs(token.length() - queryToken.length()) > maxEdits) continue;
+            int distance = editDistance(queryToken, token, maxEdits);
+            if (distance <= maxEdits) expansion.put(token, FUZZY_SCORE - 0.15 * (distance - 1));
+        }
+        return expansion;
+    }
+
+    private void removeLocked(long id) {
+        Document document = documents.remove(id);
+        if (document == null) return;
+        for (String token : document.tokens()) {
+            Postings ids = postings.get(token);
+            if (ids == null) continue;
+            ids.remove(id);
+            if (ids.size == 0) {
+                postings.remove(token);
+                for (String gram : trigramsOf(token)) {
+                    Set<String> withGram = trigrams.get(gram);
+                    if (withGram == null) continue;
+                    withGram.remove(token);
+                    if (withGram.isEmpty()) trigrams.remove(gram);
+                }
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return Arrays.stream(SEPARATORS.split(folded.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    private static int maxEdits(String token) {
+        if (token.length() >= 8) return 2;
+        return token.length() >= 4 ? 1 : 0;
+    }
+
+    private static List<String> trigramsOf(String token) {
+        String padded = "$" + token + "$";
+        List<String> grams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) grams.add(padded.substring(i, i + 3));
+        return grams;
+    }
+
+    // Levenshtein distance, giving up (returning max + 1) once it must exceed max
+    static int editDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) return max + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
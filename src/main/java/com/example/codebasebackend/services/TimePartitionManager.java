@@ -0,0 +1,273 @@
+package com.example.codebasebackend.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the append-heavy tables ({@code ambulance_tracking}, {@code audit_logs}) as Postgres tables
+ * range-partitioned by month on their timestamp, so time-range queries are pruned to the months they
+ * cover and retention drops whole partitions instead of deleting rows.
+ *
+ * Enabled with {@code app.partitioning.enabled} (Postgres only). Once the application is ready, a table
+ * Hibernate created as a plain table is converted in one transaction: it is renamed aside, a partitioned
+ * table with the same columns, checks, indexes and foreign keys is created in its place with a primary key
+ * of (id, timestamp) and ids from a sequence, the rows are copied across and the old table is dropped.
+ * This rewrites the table once, so the first start with partitioning enabled belongs in a maintenance
+ * window. Partitions ({@code <table>_pYYYYMM}) are kept {@code app.partitioning.months-ahead} months
+ * ahead of the clock every night; a {@code <table>_default} partition catches rows outside them (a device
+ * with a wrong clock, say) rather than failing the insert. When a month's partition is created later, the
+ * rows the default partition holds for that month are moved into it.
+ */
+@Component
+@Slf4j
+public class TimePartitionManager {
+
+    public enum PartitionedTable {
+        AMBULANCE_TRACKING("ambulance_tracking", "timestamp"),
+        AUDIT_LOGS("audit_logs", "event_time");
+
+        private final String table;
+        private final String column;
+
+        PartitionedTable(String table, String column) {
+            this.table = table;
+            this.column = column;
+        }
+
+        public String table() {
+            return table;
+        }
+    }
+
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final Set<PartitionedTable> partitioned = ConcurrentHashMap.newKeySet();
+
+    public TimePartitionManager(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.partitioning.enabled:false}") boolean enabled,
+                                @Value("${app.partitioning.months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.monthsAhead = Math.max(1, monthsAhead);
+    }
+
+    /** Whether the table is partitioned, so retention can drop partitions instead of deleting rows. */
+    public boolean isPartitioned(PartitionedTable table) {
+        return partitioned.contains(table);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepare() {
+        if (!enabled) return;
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            log.warn("Table partitioning needs PostgreSQL, not {}; tables stay unpartitioned", database);
+            return;
+        }
+        for (PartitionedTable table : PartitionedTable.values()) {
+            try {
+                if (convert(table)) {
+                    ensurePartitions(table);
+                    partitioned.add(table);
+                }
+            } catch (DataAccessException e) {
+                log.error("Could not partition {}; it stays a plain table", table.table, e);
+            }
+        }
+    }
+
+    @Scheduled(cron = "${app.partitioning.maintenance-cron:0 30 2 * * *}")
+    public void maintain() {
+        for (PartitionedTable table : partitioned) {
+            try {
+                ensurePartitions(table);
+            } catch (DataAccessException e) {
+                log.error("Could not create upcoming partitions of {}", table.table, e);
+            }
+        }
+    }
+
+    /**
+     * Drops the monthly partitions that end at or before {@code cutoff}, optionally only those with no
+     * rows left. Returns the names of the dropped partitions.
+     */
+    public List<String> dropPartitionsBefore(PartitionedTable table, OffsetDateTime cutoff, boolean onlyEmpty) {
+        List<String> dropped = new ArrayList<>();
+        if (!isPartitioned(table)) return dropped;
+        for (Map.Entry<String, YearMonth> partition : monthlyPartitions(table).entrySet()) {
+            if (start(partition.getValue().plusMonths(1)).isAfter(cutoff)) continue;
+            String name = partition.getKey();
+            if (onlyEmpty && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + name + ")", Boolean.class))) {
+                continue;
+            }
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+            dropped.add(name);
+        }
+        if (!dropped.isEmpty()) log.info("Dropped partitions {} of {}", dropped, table.table);
+        return dropped;
+    }
+
+    // Returns false if the table does not exist (yet)
+    private boolean convert(PartitionedTable table) {
+        String kind = jdbcTemplate.query("SELECT c.relkind FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = current_schema() AND c.relname = ?", rs -> rs.next() ? rs.getString(1) : null, table.table);
+        if (kind == null) {
+            log.warn("Table {} does not exist; not partitioned", table.table);
+            return false;
+        }
+        if ("p".equals(kind)) return true;
+
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> migrate(table));
+        log.info("Converted {} to monthly partitions in {} ms", table.table, (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    private void migrate(PartitionedTable table) {
+        String name = table.table;
+        String legacy = name + "_unpartitioned";
+        String sequence = name + "_id_seq";
+        String column = "\"" + table.column + "\"";
+        jdbcTemplate.execute("LOCK TABLE " + name + " IN ACCESS EXCLUSIVE MODE");
+
+        // Secondary indexes and foreign keys move to the new table under the same names. A unique index
+        // that does not include the partition column cannot exist on a partitioned table.
+        List<String[]> indexes = jdbcTemplate.query("SELECT i.relname, pg_get_indexdef(i.oid), x.indisunique " +
+                        "FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid " +
+                        "WHERE x.indrelid = ?::regclass AND NOT x.indisprimary",
+                (rs, rowNum) -> new String[]{rs.getString(1), rs.getString(2), String.valueOf(rs.getBoolean(3))}, name);
+        List<String[]> foreignKeys = jdbcTemplate.query("SELECT conname, pg_get_constraintdef(oid) FROM pg_constraint " +
+                "WHERE conrelid = ?::regclass AND contype = 'f'", (rs, rowNum) -> new String[]{rs.getString(1), rs.getString(2)}, name);
+        String primaryKey = jdbcTemplate.query("SELECT conname FROM pg_constraint WHERE conrelid = ?::regclass AND contype = 'p'",
+                rs -> rs.next() ? rs.getString(1) : null, name);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + name, Long.class);
+        OffsetDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(" + column + ") FROM " + name, OffsetDateTime.class);
+
+        jdbcTemplate.execute("ALTER TABLE " + name + " RENAME TO " + legacy);
+        for (String[] foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + legacy + " DROP CONSTRAINT " + foreignKey[0]);
+        }
+        for (String[] index : indexes) {
+            jdbcTemplate.execute("DROP INDEX " + index[0]);
+        }
+        if (primaryKey != null) jdbcTemplate.execute("ALTER TABLE " + legacy + " DROP CONSTRAINT " + primaryKey);
+        // Frees the identity sequence's name; partitioned tables cannot have identity columns before Postgres 17
+        jdbcTemplate.execute("ALTER TABLE " + legacy + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+        jdbcTemplate.execute("ALTER TABLE " + legacy + " ALTER COLUMN id DROP DEFAULT");
+
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + legacy + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS " +
+                "INCLUDING STORAGE INCLUDING COMMENTS) PARTITION BY RANGE (" + column + ")");
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence + " START WITH " + (maxId == null ? 1 : maxId + 1));
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY " + name + ".id");
+        jdbcTemplate.execute("ALTER TABLE " + name + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+        jdbcTemplate.execute("ALTER TABLE " + name + " ADD CONSTRAINT " + name + "_pkey PRIMARY KEY (id, " + column + ")");
+        ensurePartitions(table, oldest != null ? YearMonth.from(oldest.withOffsetSameInstant(ZoneOffset.UTC)) : null);
+
+        jdbcTemplate.execute("INSERT INTO " + name + " SELECT * FROM " + legacy);
+        for (String[] index : indexes) {
+            if (Boolean.parseBoolean(index[2])) {
+                log.warn("Unique index {} of {} is not carried over to the partitioned table", index[0], name);
+                continue;
+            }
+            jdbcTemplate.execute(index[1]);
+        }
+        for (String[] foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + name + " ADD CONSTRAINT " + foreignKey[0] + " " + foreignKey[1]);
+        }
+        jdbcTemplate.execute("DROP TABLE " + legacy);
+    }
+
+    private void ensurePartitions(PartitionedTable table) {
+        ensurePartitions(table, null);
+    }
+
+    // Every month from the given one (or the current one) to monthsAhead months ahead, plus the default
+    private void ensurePartitions(PartitionedTable table, YearMonth from) {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        YearMonth month = from != null && from.isBefore(current) ? from : current;
+        Set<String> existing = monthlyPartitions(table).keySet();
+        for (; !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            if (!existing.contains(partitionName(table, month))) createPartition(table, month);
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table.table + "_default PARTITION OF " + table.table + " DEFAULT");
+    }
+
+    // Postgres refuses to create a partition while the default partition holds rows in its range, so those
+    // rows are moved across with the default partition detached, all in one transaction
+    private void createPartition(PartitionedTable table, YearMonth month) {
+        String name = partitionName(table, month);
+        String defaultPartition = table.table + "_default";
+        String create = "CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + table.table +
+                " FOR VALUES FROM ('" + bound(month) + "') TO ('" + bound(month.plusMonths(1)) + "')";
+        String column = "\"" + table.column + "\"";
+        String inRange = column + " >= '" + bound(month) + "' AND " + column + " < '" + bound(month.plusMonths(1)) + "'";
+        transactionTemplate.executeWithoutResult(status -> {
+            boolean misplaced = Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+                    defaultPartition)) && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + defaultPartition + " WHERE " + inRange + ")", Boolean.class));
+            if (!misplaced) {
+                jdbcTemplate.execute(create);
+                return;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table.table + " DETACH PARTITION " + defaultPartition);
+            jdbcTemplate.execute(create);
+            int moved = jdbcTemplate.update("INSERT INTO " + name + " SELECT * FROM " + defaultPartition + " WHERE " + inRange);
+            jdbcTemplate.update("DELETE FROM " + defaultPartition + " WHERE " + inRange);
+            jdbcTemplate.execute("ALTER TABLE " + table.table + " ATTACH PARTITION " + defaultPartition + " DEFAULT");
+            log.info("Moved {} rows of {} from {} into {}", moved, table.table, defaultPartition, name);
+        });
+    }
+
+    // Monthly partitions by name, oldest first
+    private Map<String, YearMonth> monthlyPartitions(PartitionedTable table) {
+        Pattern monthly = Pattern.compile(Pattern.quote(table.table) + "_p(\\d{6})");
+        Map<String, YearMonth> partitions = new TreeMap<>();
+        for (String name : jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = ?::regclass", String.class, table.table)) {
+            Matcher matcher = monthly.matcher(name);
+            if (matcher.matches()) partitions.put(name, YearMonth.parse(matcher.group(1), MONTH_SUFFIX));
+        }
+        return partitions;
+    }
+
+    private static String partitionName(PartitionedTable table, YearMonth month) {
+        return table.table + "_p" + month.format(MONTH_SUFFIX);
+    }
+
+    private static String bound(YearMonth month) {
+        return month.atDay(1) + " 00:00:00+00";
+    }
+
+    private static OffsetDateTime start(YearMonth month) {
+        return month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+}
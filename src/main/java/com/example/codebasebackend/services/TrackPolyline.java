@@ -0,0 +1,130 @@
+package com.example.codebasebackend.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simplifies and encodes ambulance tracks for compact storage and transfer.
+ *
+ * Simplification is Douglas–Peucker over time-stamped fixes using the synchronized Euclidean distance: a
+ * fix is dropped when the position interpolated at its timestamp between the fixes kept around it is
+ * within the tolerance. Unlike plain Douglas–Peucker this also keeps where the ambulance was <em>when</em>,
+ * so stops and slow stretches survive simplification.
+ *
+ * Encoding is the Google encoded polyline format extended with a third value per point: latitude and
+ * longitude at 1e-5 degrees (about a metre) and seconds since a base time, each stored as the
+ * difference from the previous point. A city route of a few hundred fixes takes a couple of kilobytes.
+ */
+public final class TrackPolyline {
+
+    private static final double SCALE = 1e5;
+    private static final double METERS_PER_DEGREE = Math.PI / 180 * GeoGridIndex.EARTH_RADIUS_KM * 1000;
+
+    public record Fix(double latitude, double longitude, long epochSecond) {
+    }
+
+    private TrackPolyline() {
+    }
+
+    /** The fixes to keep, in order; the first and last are always kept. */
+    public static List<Fix> simplify(List<Fix> fixes, double toleranceMeters) {
+        int n = fixes.size();
+        if (n <= 2) return List.copyOf(fixes);
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double worst = toleranceMeters;
+            int split = -1;
+            for (int i = first + 1; i < last; i++) {
+                double meters = synchronizedDistance(fixes.get(first), fixes.get(last), fixes.get(i));
+                if (meters > worst) {
+                    worst = meters;
+                    split = i;
+                }
+            }
+            if (split < 0) continue;
+            keep[split] = true;
+            stack[top++] = first;
+            stack[top++] = split;
+            stack[top++] = split;
+            stack[top++] = last;
+        }
+        List<Fix> kept = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) kept.add(fixes.get(i));
+        }
+        return kept;
+    }
+
+    public static String encode(List<Fix> fixes, long baseEpochSecond) {
+        StringBuilder out = new StringBuilder(fixes.size() * 8);
+        long latitude = 0;
+        long longitude = 0;
+        long second = baseEpochSecond;
+        for (Fix fix : fixes) {
+            long nextLatitude = Math.round(fix.latitude() * SCALE);
+            long nextLongitude = Math.round(fix.longitude() * SCALE);
+            writeValue(out, nextLatitude - latitude);
+            writeValue(out, nextLongitude - longitude);
+            writeValue(out, fix.epochSecond() - second);
+            latitude = nextLatitude;
+            longitude = nextLongitude;
+            second = fix.epochSecond();
+        }
+        return out.toString();
+    }
+
+    public static List<Fix> decode(String encoded, long baseEpochSecond) {
+        List<Fix> fixes = new ArrayList<>();
+        int[] position = {0};
+        long latitude = 0;
+        long longitude = 0;
+        long second = baseEpochSecond;
+        while (position[0] < encoded.length()) {
+            latitude += readValue(encoded, position);
+            longitude += readValue(encoded, position);
+            second += readValue(encoded, position);
+            fixes.add(new Fix(latitude / SCALE, longitude / SCALE, second));
+        }
+        return fixes;
+    }
+
+    // Distance in metres between the fix and the position interpolated at its time on the segment a-b
+    private static double synchronizedDistance(Fix a, Fix b, Fix fix) {
+        long span = b.epochSecond() - a.epochSecond();
+        double fraction = span > 0 ? (double) (fix.epochSecond() - a.epochSecond()) / span : 0;
+        double latitude = a.latitude() + (b.latitude() - a.latitude()) * fraction;
+        double longitude = a.longitude() + (b.longitude() - a.longitude()) * fraction;
+        double north = (fix.latitude() - latitude) * METERS_PER_DEGREE;
+        double east = (fix.longitude() - longitude) * METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+        return Math.sqrt(north * north + east * east);
+    }
+
+    private static void writeValue(StringBuilder out, long value) {
+        long bits = value < 0 ? ~(value << 1) : value << 1;
+        while (bits >= 0x20) {
+            out.append((char) ((0x20 | (bits & 0x1f)) + 63));
+            bits >>>= 5;
+        }
+        out.append((char) (bits + 63));
+    }
+
+    private static long readValue(String encoded, int[] position) {
+        long bits = 0;
+        int shift = 0;
+        int chunk;
+        do {
+            chunk = encoded.charAt(position[0]++) - 63;
+            bits |= (long) (chunk & 0x1f) << shift;
+            shift += 5;
+        } while (chunk >= 0x20);
+        return (bits & 1) != 0 ? ~(bits >>> 1) : bits >>> 1;
+    }
+}
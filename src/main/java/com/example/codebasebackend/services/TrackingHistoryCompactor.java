@@ -0,0 +1,174 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AmbulanceTrackSegment;
+import com.example.codebasebackend.repositories.AmbulanceTrackSegmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps {@code ambulance_tracking} bounded by compacting raw GPS rows older than
+ * {@code app.ambulance.tracking.raw-retention-hours} into {@link AmbulanceTrackSegment}s.
+ *
+ * Each ambulance is compacted one UTC day at a time, in its own transaction: the day's rows are split
+ * wherever the dispatch changes, each run is simplified to within {@code app.ambulance.tracking.compaction.tolerance-m}
+ * and encoded with {@link TrackPolyline}, and the raw rows are deleted. If the delete removes a different
+ * number of rows than were read (a late ping, or another node compacting the same day) the day is rolled
+ * back and left for the next pass. An ambulance's latest row always stays raw, since current-location
+ * lookups fall back to it. When the table is partitioned, monthly partitions emptied this way are dropped.
+ */
+@Component
+@Slf4j
+public class TrackingHistoryCompactor {
+
+    private static final OffsetDateTime EPOCH = OffsetDateTime.parse("1970-01-01T00:00:00Z");
+
+    /** A raw fix and the dispatch it was reported for. */
+    public record TrackedFix(TrackPolyline.Fix fix, Long dispatchId) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AmbulanceTrackSegmentRepository segmentRepository;
+    private final TimePartitionManager partitionManager;
+    private final Duration rawRetention;
+    private final double toleranceMeters;
+    private final ReentrantLock running = new ReentrantLock();
+
+    public TrackingHistoryCompactor(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    AmbulanceTrackSegmentRepository segmentRepository,
+                                    TimePartitionManager partitionManager,
+                                    @Value("${app.ambulance.tracking.raw-retention-hours:72}") long rawRetentionHours,
+                                    @Value("${app.ambulance.tracking.compaction.tolerance-m:10}") double toleranceMeters) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.segmentRepository = segmentRepository;
+        this.partitionManager = partitionManager;
+        this.rawRetention = Duration.ofHours(Math.max(1, rawRetentionHours));
+        this.toleranceMeters = toleranceMeters;
+    }
+
+    public double toleranceMeters() {
+        return toleranceMeters;
+    }
+
+    @Scheduled(fixedDelayString = "${app.ambulance.tracking.compaction.interval-ms:3600000}",
+               initialDelayString = "${app.ambulance.tracking.compaction.interval-ms:3600000}")
+    public void compact() {
+        // A pass overlapping a running one would only contend for the same days
+        if (!running.tryLock()) return;
+        try {
+            long start = System.nanoTime();
+            OffsetDateTime cutoff = OffsetDateTime.now(ZoneOffset.UTC).minus(rawRetention);
+            int removed = compactBefore(cutoff);
+            if (removed > 0) {
+                log.info("Compacted {} raw tracking rows in {} ms", removed, (System.nanoTime() - start) / 1_000_000);
+            }
+            // Months left empty by compaction; one still holding an idle ambulance's latest row stays
+            partitionManager.dropPartitionsBefore(TimePartitionManager.PartitionedTable.AMBULANCE_TRACKING, cutoff, true);
+        } catch (RuntimeException e) {
+            log.warn("Tracking history compaction failed; retrying next pass", e);
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /** Compacts every raw row older than {@code cutoff}; returns how many were removed. */
+    public int compactBefore(OffsetDateTime cutoff) {
+        int removed = 0;
+        for (Long ambulanceId : jdbcTemplate.queryForList("SELECT id FROM ambulances ORDER BY id", Long.class)) {
+            removed += compactAmbulance(ambulanceId, cutoff);
+        }
+        return removed;
+    }
+
+    /**
+     * Splits time-ordered fixes wherever the dispatch changes and simplifies each run into a segment.
+     * Also used to serve recent, still raw, history in the same compact form.
+     */
+    public static List<AmbulanceTrackSegment> toSegments(long ambulanceId, List<TrackedFix> fixes, double toleranceMeters) {
+        List<AmbulanceTrackSegment> segments = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= fixes.size(); i++) {
+            if (i < fixes.size() && Objects.equals(fixes.get(i).dispatchId(), fixes.get(start).dispatchId())) continue;
+            List<TrackPolyline.Fix> run = new ArrayList<>(i - start);
+            for (int j = start; j < i; j++) run.add(fixes.get(j).fix());
+            List<TrackPolyline.Fix> kept = TrackPolyline.simplify(run, toleranceMeters);
+            long first = kept.get(0).epochSecond();
+            segments.add(AmbulanceTrackSegment.builder()
+                    .ambulanceId(ambulanceId)
+                    .dispatchId(fixes.get(start).dispatchId())
+                    .startTime(toTime(first))
+                    .endTime(toTime(kept.get(kept.size() - 1).epochSecond()))
+                    .pointCount(kept.size())
+                    .rawPointCount(run.size())
+                    .encodedPoints(TrackPolyline.encode(kept, first))
+                    .build());
+            start = i;
+        }
+        return segments;
+    }
+
+    public static OffsetDateTime toTime(long epochSecond) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC);
+    }
+
+    private int compactAmbulance(long ambulanceId, OffsetDateTime cutoff) {
+        OffsetDateTime latest = jdbcTemplate.queryForObject(
+                "SELECT MAX(timestamp) FROM ambulance_tracking WHERE ambulance_id = ?", OffsetDateTime.class, ambulanceId);
+        if (latest == null) return 0;
+        OffsetDateTime end = latest.isBefore(cutoff) ? latest : cutoff;
+        int removed = 0;
+        OffsetDateTime from = earliestBetween(ambulanceId, EPOCH, end);
+        while (from != null) {
+            OffsetDateTime dayEnd = from.withOffsetSameInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            OffsetDateTime to = dayEnd.isBefore(end) ? dayEnd : end;
+            removed += compactWindow(ambulanceId, from, to);
+            from = earliestBetween(ambulanceId, to, end);
+        }
+        return removed;
+    }
+
+    private OffsetDateTime earliestBetween(long ambulanceId, OffsetDateTime from, OffsetDateTime end) {
+        return jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM ambulance_tracking " +
+                "WHERE ambulance_id = ? AND timestamp >= ? AND timestamp < ?", OffsetDateTime.class, ambulanceId, from, end);
+    }
+
+    private int compactWindow(long ambulanceId, OffsetDateTime from, OffsetDateTime to) {
+        Integer removed = transactionTemplate.execute(status -> {
+            List<TrackedFix> fixes = jdbcTemplate.query(
+                    "SELECT latitude, longitude, timestamp, dispatch_id FROM ambulance_tracking " +
+                    "WHERE ambulance_id = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp, id",
+                    (rs, rowNum) -> new TrackedFix(new TrackPolyline.Fix(rs.getDouble("latitude"), rs.getDouble("longitude"),
+                            rs.getObject("timestamp", OffsetDateTime.class).toEpochSecond()),
+                            rs.getObject("dispatch_id", Long.class)),
+                    ambulanceId, from, to);
+            if (fixes.isEmpty()) return 0;
+            int deleted = jdbcTemplate.update("DELETE FROM ambulance_tracking " +
+                    "WHERE ambulance_id = ? AND timestamp >= ? AND timestamp < ?", ambulanceId, from, to);
+            if (deleted != fixes.size()) {
+                log.debug("Tracking rows of ambulance {} changed while compacting {}..{}; skipped", ambulanceId, from, to);
+                status.setRollbackOnly();
+                return 0;
+            }
+            segmentRepository.saveAll(toSegments(ambulanceId, fixes, toleranceMeters));
+            return deleted;
+        });
+        return removed != null ? removed : 0;
+    }
+}
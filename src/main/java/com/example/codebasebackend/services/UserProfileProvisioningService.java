@@ -17,6 +17,8 @@ public class UserProfileProvisioningService {
 
     private final PatientRepository patientRepository;
     private final CommunityHealthWorkersRepository chwRepository;
+    private final DirectorySearchIndex searchIndex;
+    private final AvailableChwIndex chwIndex;
 
     public void provisionProfileForUser(User user) {
         if (user == null || user.getId() == null || user.getRole() == null) {
@@ -56,7 +58,7 @@ public class UserProfileProvisioningService {
                 .emailOptIn(Boolean.TRUE)
                 .build();
 
-        patientRepository.save(patient);
+        searchIndex.recordPatient(patientRepository.save(patient));
     }
 
     private void provisionChwProfile(User user, NameParts nameParts) {
@@ -73,7 +75,7 @@ public class UserProfileProvisioningService {
                 .status(CommunityHealthWorkers.Status.AVAILABLE)
                 .build();
 
-        chwRepository.save(chw);
+        chwIndex.record(chwRepository.save(chw));
     }
 
     private boolean isPatientEmailAvailable(String email) {
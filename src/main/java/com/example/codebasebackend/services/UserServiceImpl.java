@@ -3,6 +3,8 @@ package com.example.codebasebackend.services;
 import com.example.codebasebackend.Entities.User;
 import com.example.codebasebackend.Entities.UserRole;
 import com.example.codebasebackend.Entities.UserStatus;
+import com.example.codebasebackend.configs.JwtTokenCache;
+import com.example.codebasebackend.configs.TokenRevocationList;
 import com.example.codebasebackend.dto.CreateUserRequest;
 import com.example.codebasebackend.repositories.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -10,6 +12,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Locale;
 
 @Service
 @RequiredArgsConstructor
@@ -17,6 +20,8 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final JwtTokenCache tokenCache;
+    private final TokenRevocationList revocationList;
 
     @Override
     public User createUser(CreateUserRequest request) {
@@ -66,24 +71,52 @@ public class UserServiceImpl implements UserService {
         if (request.getPassword() != null && !request.getPassword().isBlank()) {
             user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
         }
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        tokenCache.invalidateUser(saved.getUsername());
+        return saved;
     }
 
     @Override
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new RuntimeException("User not found with id: " + id);
-        }
+        User user = getUser(id);
         userRepository.deleteById(id);
+        revocationList.revokeIssuedBefore(user.getUsername());
+        tokenCache.invalidateUser(user.getUsername());
     }
 
     @Override
     public User updateStatus(Long id, String status) {
-        return null;
+        User user = getUser(id);
+        user.setStatus(parseEnum(UserStatus.class, status, "status"));
+        User saved = userRepository.save(user);
+        if (saved.getStatus() == UserStatus.INACTIVE || saved.getStatus() == UserStatus.SUSPENDED) {
+            revocationList.block(saved.getUsername());
+        } else {
+            revocationList.unblock(saved.getUsername());
+        }
+        tokenCache.invalidateUser(saved.getUsername());
+        return saved;
     }
 
     @Override
     public User updateRole(Long id, String role) {
-        return null;
+        User user = getUser(id);
+        user.setRole(parseEnum(UserRole.class, role, "role"));
+        User saved = userRepository.save(user);
+        // Outstanding tokens still carry the old role claim
+        revocationList.revokeIssuedBefore(saved.getUsername());
+        tokenCache.invalidateUser(saved.getUsername());
+        return saved;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing " + field);
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
     }
 }
\ No newline at end of file
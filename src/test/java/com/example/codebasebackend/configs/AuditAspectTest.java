@@ -0,0 +1,363 @@
+package com.example.codebasebackend.configs;
+
+import com.example.codebasebackend.Entities.AuditLog;
+import com.example.codebasebackend.dto.AuditLogRequest;
+import com.example.codebasebackend.services.AuditEventWriter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.ArgumentCaptor;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class AuditAspectTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void resolvesEntityIdsFromArgumentsResultsAndParameterNames() {
+        AuditEventWriter writer = mock(AuditEventWriter.class);
+        Records records = proxy(new Records(), new AuditAspect(writer, new AuditDetailsSerializer(objectMapper, 20_000),
+                mock(PlatformTransactionManager.class)));
+
+        for (int i = 0; i < 3; i++) {
+            records.read(7L);
+            records.create("ward 4");
+        }
+        records.refill(12L, null);
+        assertThatThrownBy(() -> records.fail(9L)).isInstanceOf(IllegalStateException.class);
+
+        ArgumentCaptor<AuditLogRequest> events = ArgumentCaptor.forClass(AuditLogRequest.class);
+        verify(writer, times(8)).enqueue(events.capture(), eq(true));
+        List<AuditLogRequest> logged = events.getAllValues();
+        assertThat(logged).extracting(AuditLogRequest::getEntityId)
+                .containsExactly("7", "42", "7", "42", "7", "42", "12", "9");
+        assertThat(logged.get(1).getEventType()).isEqualTo("CREATE");
+        assertThat(logged.get(1).getEntityType()).isEqualTo("Record");
+        assertThat(logged.get(1).getDetails()).contains("ward 4");
+        assertThat(logged.get(7).getStatus()).isEqualTo("FAILURE");
+        assertThat(logged.get(7).getErrorMessage()).isEqualTo("boom");
+    }
+
+    /**
+     * Time per audited call through the aspect, against the previous aspect that parsed the entity id
+     * expression on every call. Run with {@code mvn test -Dtest=AuditAspectTest -Dbenchmarks=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkAgainstPreviousAspect() {
+        // A mock's own bookkeeping would outweigh the aspect
+        AuditEventWriter writer = new CountingWriter();
+        Records bare = new Records();
+        Records planned = proxy(new Records(), new AuditAspect(writer, new AuditDetailsSerializer(objectMapper, 20_000),
+                mock(PlatformTransactionManager.class)));
+        Records previous = proxy(new Records(), new PreviousAuditAspect(writer, objectMapper));
+
+        for (int round = 0; round < 3; round++) {
+            double bareRead = nanosPerCall(() -> bare.read(7L));
+            double plannedRead = nanosPerCall(() -> planned.read(7L));
+            double previousRead = nanosPerCall(() -> previous.read(7L));
+            double plannedUpdate = nanosPerCall(() -> planned.refill(12L, 3L));
+            double previousUpdate = nanosPerCall(() -> previous.refill(12L, 3L));
+            double plannedResult = nanosPerCall(() -> planned.locate());
+            double previousResult = nanosPerCall(() -> previous.locate());
+            System.out.printf("ns/call: bare %.0f | #id planned %.0f previous %.0f | inferred id planned %.0f "
+                            + "previous %.0f | #result.body.id planned %.0f previous %.0f%n", bareRead,
+                    plannedRead, previousRead, plannedUpdate, previousUpdate, plannedResult, previousResult);
+            if (round == 2) {
+                assertThat(plannedRead).isLessThan(previousRead);
+                assertThat(plannedResult).isLessThan(previousResult);
+            }
+        }
+    }
+
+    /**
+     * Time and allocation per call that records its arguments and a large result (a 2,000-row page, about
+     * 90 KB of JSON), against the previous aspect plus the redaction and truncation the writer then applied.
+     * Run with {@code mvn test -Dtest=AuditAspectTest -Dbenchmarks=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkDetailsAgainstPreviousSerialization() {
+        Records planned = proxy(new Records(), new AuditAspect(new CountingWriter(), new AuditDetailsSerializer(objectMapper, 20_000),
+                mock(PlatformTransactionManager.class)));
+        Records previous = proxy(new Records(), new PreviousAuditAspect(new PreviousRedactingWriter(), objectMapper));
+
+        for (int round = 0; round < 3; round++) {
+            double[] plannedPage = perCall(() -> planned.page(3, "ward"), 2_000);
+            double[] previousPage = perCall(() -> previous.page(3, "ward"), 2_000);
+            System.out.printf("2,000-row page: planned %.1f us %,.0f B | previous %.1f us %,.0f B%n",
+                    plannedPage[0] / 1_000, plannedPage[1], previousPage[0] / 1_000, previousPage[1]);
+            if (round == 2) {
+                assertThat(plannedPage[0]).isLessThan(previousPage[0]);
+                assertThat(plannedPage[1]).isLessThan(previousPage[1]);
+            }
+        }
+    }
+
+    // Nanoseconds and bytes allocated per call
+    private static double[] perCall(Runnable call, int calls) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < calls / 4; i++) call.run();
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) call.run();
+        long nanos = System.nanoTime() - start;
+        return new double[]{nanos / (double) calls, (threads.getCurrentThreadAllocatedBytes() - allocated) / (double) calls};
+    }
+
+    private static double nanosPerCall(Runnable call) {
+        int calls = 200_000;
+        for (int i = 0; i < calls / 4; i++) call.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) call.run();
+        return (System.nanoTime() - start) / (double) calls;
+    }
+
+    private static Records proxy(Records target, Object aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    private static class CountingWriter extends AuditEventWriter {
+        long events;
+
+        CountingWriter() {
+            super(null, null, null, new SimpleMeterRegistry(), "fire-and-forget", 1, 1, 1, 1, 0);
+        }
+
+        @Override
+        public void enqueue(AuditLogRequest request) {
+            events++;
+        }
+
+        @Override
+        public void enqueue(AuditLogRequest request, boolean detailsRedacted) {
+            events++;
+        }
+    }
+
+    // What the writer did to every event's details before they were redacted while being generated
+    private static final class PreviousRedactingWriter extends CountingWriter {
+        private static final Pattern SECRET_KEYS = Pattern.compile("(password|apiKey|token|ssn|nationalId|cardNumber)\\s*[:=]\\s*\\\"?([A-Za-z0-9+/_\\n\\r\\-:.@]+)\\\"?", Pattern.CASE_INSENSITIVE);
+        int kept;
+
+        @Override
+        public void enqueue(AuditLogRequest request) {
+            String details = SECRET_KEYS.matcher(request.getDetails()).replaceAll("$1:\"***REDACTED***\"");
+            kept += (details.length() <= 20_000 ? details : details.substring(0, 20_000)).length();
+        }
+    }
+
+    public static class Records {
+
+        private static final List<Body> PAGE = java.util.stream.LongStream.range(0, 2_000)
+                .mapToObj(id -> new Body(id, "Patient " + id + " in ward " + id % 12))
+                .toList();
+
+        public record Body(Long id, String name) {
+        }
+
+        @Auditable(eventType = AuditLog.EventType.READ, entityType = "Record", entityIdExpression = "#id")
+        public String read(Long id) {
+            return "record";
+        }
+
+        @Auditable(eventType = AuditLog.EventType.CREATE, entityType = "Record", entityIdExpression = "#result.body.id",
+                includeArgs = true)
+        public ResponseEntity<Body> create(String name) {
+            return ResponseEntity.ok(new Body(42L, name));
+        }
+
+        @Auditable(eventType = AuditLog.EventType.READ, entityType = "Record", entityIdExpression = "#result.body.id")
+        public ResponseEntity<Body> locate() {
+            return ResponseEntity.ok(new Body(42L, "ward 4"));
+        }
+
+        @Auditable(eventType = AuditLog.EventType.READ, entityType = "Record", includeArgs = true, includeResult = true)
+        public ResponseEntity<List<Body>> page(int page, String search) {
+            return ResponseEntity.ok(PAGE);
+        }
+
+        @Auditable(eventType = AuditLog.EventType.UPDATE, entityType = "Refill")
+        public void refill(Long prescriptionId, Long refillId) {
+        }
+
+        @Auditable(eventType = AuditLog.EventType.DELETE, entityType = "Record", entityIdExpression = "#id")
+        public void fail(Long id) {
+            throw new IllegalStateException("boom");
+        }
+    }
+
+    // The aspect as it was before audit plans
+    @Aspect
+    static class PreviousAuditAspect {
+
+
+        private final AuditEventWriter auditWriter;
+        private final ObjectMapper objectMapper;
+
+        PreviousAuditAspect(AuditEventWriter auditWriter, ObjectMapper objectMapper) {
+            this.auditWriter = auditWriter;
+            this.objectMapper = objectMapper;
+        }
+
+        private final SpelExpressionParser parser = new SpelExpressionParser();
+
+        @Around("@annotation(com.example.codebasebackend.configs.Auditable)")
+        public Object aroundAuditable(ProceedingJoinPoint pjp) throws Throwable {
+            MethodSignature sig = (MethodSignature) pjp.getSignature();
+            Method method = sig.getMethod();
+            Auditable ann = method.getAnnotation(Auditable.class);
+            String entityType = ann.entityType();
+            String inferredEntityId = inferEntityIdFromArgs(sig, pjp.getArgs());
+            String preEntityId = firstNonBlank(
+                    evaluateEntityId(ann.entityIdExpression(), sig, pjp.getArgs(), null),
+                    inferredEntityId
+            );
+
+            String preDetails = null;
+            if (ann.includeArgs()) {
+                preDetails = toJsonSafe(Map.of("args", argsMap(sig, pjp.getArgs())));
+            }
+
+            long start = System.currentTimeMillis();
+            try {
+                Object result = pjp.proceed();
+                String postDetails = preDetails;
+                if (ann.includeResult()) {
+                    Map<String, Object> map = new HashMap<>();
+                    if (preDetails != null) {
+                        map.put("pre", preDetails);
+                    }
+                    map.put("result", result);
+                    map.put("durationMs", System.currentTimeMillis() - start);
+                    postDetails = toJsonSafe(map);
+                }
+
+                String finalEntityId = firstNonBlank(
+                        evaluateEntityId(ann.entityIdExpression(), sig, pjp.getArgs(), result),
+                        preEntityId,
+                        inferredEntityId
+                );
+
+                AuditLogRequest req = new AuditLogRequest();
+                req.setEventType(ann.eventType().name());
+                req.setEntityType(entityType);
+                req.setEntityId(finalEntityId);
+                req.setStatus(AuditLog.EventStatus.SUCCESS.name());
+                req.setDetails(postDetails);
+                auditWriter.enqueue(req);
+                return result;
+            } catch (Throwable ex) {
+                AuditLogRequest req = new AuditLogRequest();
+                req.setEventType(ann.eventType().name());
+                req.setEntityType(entityType);
+                req.setEntityId(preEntityId);
+                req.setStatus(AuditLog.EventStatus.FAILURE.name());
+                req.setErrorMessage(ex.getMessage());
+                Map<String, Object> map = new HashMap<>();
+                if (preDetails != null) map.put("pre", preDetails);
+                map.put("exception", ex.getClass().getName());
+                map.put("durationMs", System.currentTimeMillis() - start);
+                req.setDetails(toJsonSafe(map));
+                try { auditWriter.enqueue(req); } catch (Exception ignored) { }
+                throw ex;
+            }
+        }
+
+        private String evaluateEntityId(String spel, MethodSignature sig, Object[] args, Object result) {
+            if (spel == null || spel.isBlank()) return null;
+            try {
+                StandardEvaluationContext ctx = new StandardEvaluationContext();
+                String[] paramNames = sig.getParameterNames();
+                if (paramNames != null) {
+                    for (int i = 0; i < paramNames.length && i < args.length; i++) ctx.setVariable(paramNames[i], args[i]);
+                }
+                ctx.setVariable("result", result);
+                Expression exp = parser.parseExpression(spel.startsWith("#") ? spel : ("#" + spel));
+                Object val = exp.getValue(ctx);
+                return val != null ? String.valueOf(val) : null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        private String inferEntityIdFromArgs(MethodSignature sig, Object[] args) {
+            if (sig == null || args == null || args.length == 0) return null;
+            String[] names = sig.getParameterNames();
+            if (names == null || names.length == 0) return null;
+
+            // 1) Prefer a direct "id" parameter.
+            for (int i = 0; i < names.length && i < args.length; i++) {
+                if ("id".equalsIgnoreCase(names[i])) {
+                    String value = toEntityIdValue(args[i]);
+                    if (value != null) return value;
+                }
+            }
+
+            // 2) Fallback to first non-null "*Id" parameter.
+            for (int i = 0; i < names.length && i < args.length; i++) {
+                if (names[i] != null && names[i].toLowerCase().endsWith("id")) {
+                    String value = toEntityIdValue(args[i]);
+                    if (value != null) return value;
+                }
+            }
+            return null;
+        }
+
+        private String toEntityIdValue(Object value) {
+            if (value == null) return null;
+            String s = String.valueOf(value).trim();
+            return s.isEmpty() ? null : s;
+        }
+
+        private String firstNonBlank(String... values) {
+            if (values == null) return null;
+            for (String value : values) {
+                if (value != null && !value.isBlank()) return value;
+            }
+            return null;
+        }
+
+        private Map<String, Object> argsMap(MethodSignature sig, Object[] args) {
+            Map<String, Object> map = new HashMap<>();
+            String[] names = sig.getParameterNames();
+            if (names != null) {
+                for (int i = 0; i < names.length && i < args.length; i++) map.put(names[i], args[i]);
+            }
+            return map;
+        }
+
+        private String toJsonSafe(Object o) {
+            try { return objectMapper.writeValueAsString(o); }
+            catch (JsonProcessingException e) { return String.valueOf(o); }
+        }
+    }
+}
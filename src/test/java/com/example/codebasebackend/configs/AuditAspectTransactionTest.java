@@ -0,0 +1,118 @@
+package com.example.codebasebackend.configs;
+
+import com.example.codebasebackend.Entities.Hospital;
+import com.example.codebasebackend.controllers.HospitalController;
+import com.example.codebasebackend.repositories.HospitalRepository;
+import com.example.codebasebackend.services.AuditEventWriter;
+import com.example.codebasebackend.services.HospitalServiceImplementation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Audited controller calls into a {@code @Transactional} service with the writer in flush-before-commit
+ * mode: the success row must commit in the service's transaction, and go when it rolls back.
+ */
+// The H2 dialect is needed for the details @Lob, which PostgreSQL stores as a large object
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:audit-aspect-transaction;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "app.audit.writer.mode=flush-before-commit",
+        "app.audit.writer.flush-interval-ms=20"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({AuditAspectTransactionTest.AuditedControllers.class, HospitalController.class,
+        HospitalServiceImplementation.class, AuditAspect.class, AuditDetailsSerializer.class, AuditEventWriter.class})
+class AuditAspectTransactionTest {
+
+    @TestConfiguration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    static class AuditedControllers {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private HospitalController hospitalController;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM audit_logs");
+        hospitalRepository.deleteAll();
+    }
+
+    @Test
+    void successRowsCommitWithTheServiceAndRollBackWithIt() {
+        Long id = hospitalController.createHospital(hospital("Central", "REG-1")).getBody().getId();
+
+        // Written by the service's own commit, not by the background writer
+        assertThat(jdbcTemplate.queryForList("SELECT status FROM audit_logs WHERE event_type = 'CREATE' " +
+                "AND entity_id = ?", String.class, String.valueOf(id))).containsExactly("SUCCESS");
+
+        // Longer than the column, so the update only fails when the service's changes are flushed on commit
+        assertThatThrownBy(() -> hospitalController.updateHospital(id, hospital("C".repeat(151), "REG-1")))
+                .isInstanceOf(RuntimeException.class);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM audit_logs WHERE event_type = 'UPDATE'", Long.class) == 1);
+        assertThat(jdbcTemplate.queryForList("SELECT status FROM audit_logs WHERE event_type = 'UPDATE'", String.class))
+                .containsExactly("FAILURE");
+        assertThat(hospitalRepository.findById(id)).get().extracting(Hospital::getName).isEqualTo("Central");
+
+        // And a success row that cannot be written takes the service's change with it
+        jdbcTemplate.execute("ALTER TABLE audit_logs RENAME TO audit_logs_paused");
+        try {
+            assertThatThrownBy(() -> hospitalController.createHospital(hospital("Westlands", "REG-2")))
+                    .isInstanceOf(RuntimeException.class);
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE audit_logs_paused RENAME TO audit_logs");
+        }
+        assertThat(hospitalRepository.findAll()).extracting(Hospital::getRegistrationNumber).containsExactly("REG-1");
+    }
+
+    private static Hospital hospital(String name, String registrationNumber) {
+        return Hospital.builder()
+                .name(name)
+                .registrationNumber(registrationNumber)
+                .type(Hospital.HospitalType.GENERAL)
+                .status(Hospital.HospitalStatus.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.codebasebackend.configs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditDetailsSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    record Credentials(String username, String password, Map<String, Object> extra) {
+    }
+
+    record Account(Long id, Credentials credentials, List<String> refreshTokens) {
+    }
+
+    @Test
+    void redactsSecretFieldsAtAnyDepthWithoutNestingJsonInStrings() throws Exception {
+        AuditDetailsSerializer serializer = new AuditDetailsSerializer(objectMapper, 20_000);
+        Account account = new Account(7L, new Credentials("jane", "hunter2",
+                Map.of("nationalId", Map.of("number", "12345678"), "ward", "4")), List.of("t1", "t2"));
+
+        String details = serializer.serialize(new String[]{"id", "apiKey", "account"}, new Object[]{7L, "k-1", account},
+                true, account, null, 12L);
+
+        assertThat(details).doesNotContain("hunter2", "12345678", "k-1", "t1");
+        JsonNode json = objectMapper.readTree(details);
+        assertThat(json.at("/args/id").asLong()).isEqualTo(7);
+        assertThat(json.at("/args/apiKey").asText()).isEqualTo(AuditDetailsSerializer.REDACTED);
+        assertThat(json.at("/args/account/credentials/password").asText()).isEqualTo(AuditDetailsSerializer.REDACTED);
+        assertThat(json.at("/args/account/credentials/extra/nationalId").asText()).isEqualTo(AuditDetailsSerializer.REDACTED);
+        assertThat(json.at("/args/account/credentials/extra/ward").asText()).isEqualTo("4");
+        assertThat(json.at("/result/refreshTokens").asText()).isEqualTo(AuditDetailsSerializer.REDACTED);
+        assertThat(json.at("/result/credentials/username").asText()).isEqualTo("jane");
+        assertThat(json.at("/durationMs").asLong()).isEqualTo(12);
+        assertThat(json.has("pre")).isFalse();
+    }
+
+    @Test
+    void stopsAtTheCapAndRecordsFailures() throws Exception {
+        AuditDetailsSerializer serializer = new AuditDetailsSerializer(objectMapper, 500);
+
+        String capped = serializer.serialize(new String[0], new Object[0], true, "x".repeat(100_000), null, 1L);
+        assertThat(capped).hasSize(500).startsWith("{\"args\":{},\"result\":\"xxx");
+
+        JsonNode failure = objectMapper.readTree(serializer.serialize(new String[]{"id"}, null, true, null,
+                new IllegalStateException("boom"), 3L));
+        assertThat(failure.has("args")).isFalse();
+        assertThat(failure.has("result")).isFalse();
+        assertThat(failure.get("exception").asText()).isEqualTo(IllegalStateException.class.getName());
+        assertThat(serializer.serialize(new String[]{"id"}, null, false, null, null, 3L)).isNull();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.codebasebackend.configs;
+
+import com.example.codebasebackend.Entities.TokenRevocation;
+import com.example.codebasebackend.repositories.TokenRevocationRepository;
+import com.example.codebasebackend.repositories.UserRepository;
+import com.example.codebasebackend.services.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthFilterTest {
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TokenRevocationRepository revocationRepository;
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+    private TokenRevocationList revocationList;
+    private JwtAuthFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtUtil, "secret", "test-secret-test-secret-test-secret-0123456789");
+        ReflectionTestUtils.setField(jwtUtil, "expirationMs", 60_000L);
+        revocationList = new TokenRevocationList(userRepository, revocationRepository, 60_000L);
+        filter = new JwtAuthFilter(jwtUtil, userDetailsService,
+                new JwtTokenCache(100, 300, new SimpleMeterRegistry()), revocationList, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void buildsAuthenticationFromRoleClaimWithoutUserLookup() throws Exception {
+        String token = jwtUtil.generateToken("doc.alice", "ADMIN");
+
+        Authentication auth = authenticate(token);
+
+        assertThat(auth).isNotNull();
+        assertThat(auth.getName()).isEqualTo("doc.alice");
+        assertThat(auth.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void rejectsTokensOfBlockedUsersEvenWhenCached() throws Exception {
+        String token = jwtUtil.generateToken("doc.alice", "PATIENT");
+        assertThat(authenticate(token)).isNotNull();
+
+        revocationList.block("doc.alice");
+
+        assertThat(authenticate(token)).isNull();
+    }
+
+    @Test
+    void rejectsTokensRevokedOnAnotherNodeOnceRefreshed() throws Exception {
+        String token = jwtUtil.generateToken("doc.alice", "ADMIN");
+        assertThat(authenticate(token)).isNotNull();
+        // Demoted through another node, so only the stored cutoff knows about it
+        when(revocationRepository.findByRevokedBeforeAfter(any())).thenReturn(List.of(TokenRevocation.builder()
+                .username("doc.alice").revokedBefore(OffsetDateTime.now().plusSeconds(1)).build()));
+
+        revocationList.refresh();
+
+        assertThat(authenticate(token)).isNull();
+        assertThat(authenticate(jwtUtil.generateToken("bob", "ADMIN"))).isNotNull();
+    }
+
+    @Test
+    void ignoresTokensWithBadSignature() throws Exception {
+        String token = jwtUtil.generateToken("doc.alice", "PATIENT") + "x";
+
+        assertThat(authenticate(token)).isNull();
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
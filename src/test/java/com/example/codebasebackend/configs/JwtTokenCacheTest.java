@@ -0,0 +1,65 @@
+package com.example.codebasebackend.configs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtTokenCacheTest {
+
+    private final JwtTokenCache cache = new JwtTokenCache(2, 300, new SimpleMeterRegistry());
+
+    @Test
+    void returnsCachedUserAndCountsHitsAndMisses() {
+        UserDetails alice = user("alice");
+
+        assertThat(cache.get("token-a")).isNull();
+        cache.put("token-a", claims("alice", 60_000), alice);
+
+        assertThat(cache.get("token-a").userDetails()).isSameAs(alice);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotCacheAlreadyExpiredTokens() {
+        cache.put("token-a", claims("alice", -1_000), user("alice"));
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void invalidateUserDropsOnlyThatUsersTokens() {
+        cache.put("token-a", claims("alice", 60_000), user("alice"));
+        cache.put("token-b", claims("bob", 60_000), user("bob"));
+
+        cache.invalidateUser("ALICE");
+
+        assertThat(cache.get("token-a")).isNull();
+        assertThat(cache.get("token-b")).isNotNull();
+    }
+
+    @Test
+    void staysWithinMaxSize() {
+        cache.put("t1", claims("alice", 60_000), user("alice"));
+        cache.put("t2", claims("alice", 60_000), user("alice"));
+        cache.put("t3", claims("alice", 60_000), user("alice"));
+
+        assertThat(cache.size()).isLessThanOrEqualTo(2);
+        assertThat(cache.get("t3")).isNotNull();
+    }
+
+    private static JwtClaims claims(String subject, long expiresInMs) {
+        return new JwtClaims(subject, "PATIENT", null, Instant.now(), Instant.now().plusMillis(expiresInMs));
+    }
+
+    private static UserDetails user(String username) {
+        return new User(username, "n/a", List.of(new SimpleGrantedAuthority("ROLE_PATIENT")));
+    }
+}
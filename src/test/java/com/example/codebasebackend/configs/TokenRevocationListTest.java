@@ -0,0 +1,33 @@
+package com.example.codebasebackend.configs;
+
+import com.example.codebasebackend.repositories.TokenRevocationRepository;
+import com.example.codebasebackend.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TokenRevocationListTest {
+
+    private final TokenRevocationList revocations = new TokenRevocationList(
+            mock(UserRepository.class), mock(TokenRevocationRepository.class), 86_400_000);
+
+    @Test
+    void rejectsTokensIssuedInTheSameSecondAsTheRevocation() {
+        Instant issuedThisSecond = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+        revocations.revokeIssuedBefore("Alice");
+
+        assertThat(revocations.isRevoked(claims("alice", issuedThisSecond))).isTrue();
+        assertThat(revocations.isRevoked(claims("alice", issuedThisSecond.minusSeconds(5)))).isTrue();
+        assertThat(revocations.isRevoked(claims("alice", issuedThisSecond.plusSeconds(2)))).isFalse();
+        assertThat(revocations.isRevoked(claims("bob", issuedThisSecond))).isFalse();
+    }
+
+    private static JwtClaims claims(String subject, Instant issuedAt) {
+        return new JwtClaims(subject, "PATIENT", null, issuedAt, issuedAt.plusSeconds(3600));
+    }
+}
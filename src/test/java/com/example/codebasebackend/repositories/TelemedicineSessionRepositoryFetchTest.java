@@ -0,0 +1,203 @@
+package com.example.codebasebackend.repositories;
+
+import com.example.codebasebackend.Entities.*;
+import com.example.codebasebackend.dto.TelemedicineSessionResponse;
+import com.example.codebasebackend.services.DirectorySearchIndex;
+import com.example.codebasebackend.services.DoctorPresenceRegistry;
+import com.example.codebasebackend.services.SequenceIdAllocator;
+import com.example.codebasebackend.services.SessionHistoryExporter;
+import com.example.codebasebackend.services.SessionParticipantIndex;
+import com.example.codebasebackend.services.SessionReminderDispatcher;
+import com.example.codebasebackend.services.TelemedicineAggregateStore;
+import com.example.codebasebackend.services.TelemedicineSessionEventBroadcaster;
+import com.example.codebasebackend.services.TelemedicineSessionServiceImplementation;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TelemedicineSessionRepositoryFetchTest {
+
+    private static final int SESSIONS = 60;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TelemedicineSessionRepository sessionRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    private DirectorySearchIndex searchIndex;
+    private SessionParticipantIndex participantIndex;
+    private TelemedicineSessionServiceImplementation service;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new DirectorySearchIndex(patientRepository, doctorRepository, 25, 1000);
+        participantIndex = new SessionParticipantIndex(sessionRepository, 25);
+        service = service(searchIndex);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        seed();
+        searchIndex.reconcile();
+        participantIndex.reconcile();
+    }
+
+    private TelemedicineSessionServiceImplementation service(DirectorySearchIndex searchIndex) {
+        return new TelemedicineSessionServiceImplementation(
+                sessionRepository, patientRepository, doctorRepository,
+                mock(HospitalRepository.class),
+                mock(AppointmentRepository.class),
+                mock(UserRepository.class),
+                mock(TelemedicineAggregateStore.class),
+                mock(SequenceIdAllocator.class),
+                mock(DoctorPresenceRegistry.class),
+                mock(TelemedicineSessionEventBroadcaster.class),
+                mock(SessionReminderDispatcher.class),
+                mock(SessionHistoryExporter.class),
+                searchIndex,
+                participantIndex);
+    }
+
+    @Test
+    void getAllSessionsUsesSameStatementCountForAnyPageSize() {
+        assertConstantStatements(page -> service.getAllSessions(page));
+    }
+
+    @Test
+    void filteredAndSearchPagesUseSameStatementCountForAnyPageSize() {
+        assertConstantStatements(page -> service.getSessionsWithFilters(
+                SessionStatus.SCHEDULED, null, null, null, null, null, page));
+        assertConstantStatements(page -> service.searchSessions("patient", page));
+    }
+
+    @Test
+    void searchRanksExactSessionIdAndCloserNameMatchesFirst() {
+        Page<TelemedicineSessionResponse> byId = service.searchSessions("tm-1", PageRequest.of(0, 20));
+        assertThat(byId.getTotalElements()).isEqualTo(11);
+        assertThat(byId.getContent().get(0).getSessionId()).isEqualTo("TM-1");
+
+        // "patiemt" is one typo away from every patient; only No12 also matches "no12" exactly
+        Page<TelemedicineSessionResponse> byName = service.searchSessions("patiemt no12", PageRequest.of(0, 5));
+        assertThat(byName.getTotalElements()).isGreaterThan(1);
+        assertThat(byName.getContent().get(0).getPatientName()).isEqualTo("Patient No12");
+    }
+
+    @Test
+    void searchPagesCoverEveryMatchOnceEvenPastTheMatchLimit() {
+        DirectorySearchIndex capped = new DirectorySearchIndex(patientRepository, doctorRepository, 25, 5);
+        capped.reconcile();
+
+        for (TelemedicineSessionServiceImplementation search : List.of(service, service(capped))) {
+            Set<String> seen = new HashSet<>();
+            for (int page = 0; page < SESSIONS / 7 + 1; page++) {
+                Page<TelemedicineSessionResponse> result = search.searchSessions("patient", PageRequest.of(page, 7));
+                assertThat(result.getTotalElements()).isEqualTo(SESSIONS);
+                result.getContent().forEach(response -> assertThat(seen.add(response.getSessionId())).isTrue());
+            }
+            assertThat(seen).hasSize(SESSIONS);
+        }
+    }
+
+    @Test
+    void doctorPagesUseSameStatementCountForAnyPageSize() {
+        Long doctorId = doctorRepository.findAll().get(0).getId();
+        assertConstantStatements(page -> service.getSessionsByDoctor(doctorId, page));
+    }
+
+    private void assertConstantStatements(Function<PageRequest, Page<TelemedicineSessionResponse>> loader) {
+        long small = statementsFor(loader, PageRequest.of(0, 2));
+        long large = statementsFor(loader, PageRequest.of(0, 12));
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    private long statementsFor(Function<PageRequest, Page<TelemedicineSessionResponse>> loader, PageRequest page) {
+        entityManager.clear();
+        statistics.clear();
+        Page<TelemedicineSessionResponse> result = loader.apply(page);
+        assertThat(result.getContent()).hasSize((int) Math.min(page.getPageSize(), result.getTotalElements()));
+        assertThat(result.getContent()).allSatisfy(response -> {
+            assertThat(response.getDoctorSpecialty()).isNotBlank();
+            assertThat(response.getSymptoms()).isNotEmpty();
+        });
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void seed() {
+        Hospital hospital = entityManager.persist(Hospital.builder()
+                .name("Central")
+                .registrationNumber("REG-1")
+                .type(Hospital.HospitalType.GENERAL)
+                .status(Hospital.HospitalStatus.ACTIVE)
+                .build());
+
+        int doctors = 4;
+        Doctor[] seededDoctors = new Doctor[doctors];
+        for (int d = 0; d < doctors; d++) {
+            Specialty specialty = entityManager.persist(Specialty.builder().name("Specialty " + d).build());
+            Doctor doctor = new Doctor();
+            doctor.setFirstName("Doc");
+            doctor.setLastName("Tor" + d);
+            doctor.setEmail("doctor" + d + "@example.com");
+            doctor.setLicenseNumber("LIC-" + d);
+            doctor.setSpecialty(specialty);
+            doctor.setHospital(hospital);
+            doctor.setQualifications(List.of("MBChB"));
+            doctor.setLanguages(List.of("English", "Swahili"));
+            seededDoctors[d] = entityManager.persist(doctor);
+        }
+
+        for (int i = 0; i < SESSIONS; i++) {
+            Patient patient = entityManager.persist(Patient.builder()
+                    .firstName("Patient")
+                    .lastName("No" + i)
+                    .gender(Patient.Gender.UNKNOWN)
+                    .status(Patient.PatientStatus.ACTIVE)
+                    .build());
+            User creator = entityManager.persist(User.builder()
+                    .username("creator" + i)
+                    .fullName("Creator " + i)
+                    .build());
+
+            TelemedicineSession session = new TelemedicineSession();
+            session.setSessionId("TM-" + i);
+            session.setPatient(patient);
+            session.setDoctor(seededDoctors[i % doctors]);
+            session.setHospital(hospital);
+            session.setCreatedBy(creator);
+            session.setSessionType(SessionType.CONSULTATION);
+            session.setPlatform(PlatformType.VIDEO_CALL);
+            session.setStartTime(OffsetDateTime.now().plusDays(1));
+            session.setCost(BigDecimal.TEN);
+            session.setSymptoms(List.of("cough", "fever"));
+            entityManager.persist(session);
+        }
+        entityManager.flush();
+    }
+}
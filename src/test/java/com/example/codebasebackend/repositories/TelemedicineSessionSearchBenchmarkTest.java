@@ -0,0 +1,202 @@
+package com.example.codebasebackend.repositories;
+
+import com.example.codebasebackend.Entities.*;
+import com.example.codebasebackend.services.DirectorySearchIndex;
+import com.example.codebasebackend.services.DoctorPresenceRegistry;
+import com.example.codebasebackend.services.SequenceIdAllocator;
+import com.example.codebasebackend.services.SessionHistoryExporter;
+import com.example.codebasebackend.services.SessionParticipantIndex;
+import com.example.codebasebackend.services.SessionReminderDispatcher;
+import com.example.codebasebackend.services.TelemedicineAggregateStore;
+import com.example.codebasebackend.services.TelemedicineSessionEventBroadcaster;
+import com.example.codebasebackend.services.TelemedicineSessionServiceImplementation;
+import com.example.codebasebackend.services.TextSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Session search through the repository, old substring query against the index-resolved one, on the same
+ * seeded database. Both run their page and count statements. H2 stands in for Postgres, so the numbers
+ * compare the two plans rather than predict production latency.
+ * Run with {@code mvn test -Dtest=TelemedicineSessionSearchBenchmarkTest -Dbenchmarks=true}; set
+ * {@code -Dbenchmark.sessions} for a smaller table.
+ */
+// SQL logging would cost more than the queries being measured
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class TelemedicineSessionSearchBenchmarkTest {
+
+    private static final int PATIENTS = 25_000;
+    private static final int DOCTORS = 300;
+    private static final int SESSIONS = Integer.getInteger("benchmark.sessions", 1_000_000);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TelemedicineSessionRepository sessionRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Test
+    void benchmarkIndexedSearchAgainstSubstringQuery() {
+        Random random = new Random(42);
+        String[] first = names(random, 2000);
+        String[] last = names(random, 8000);
+        seed(random, first, last);
+        DirectorySearchIndex searchIndex = new DirectorySearchIndex(patientRepository, doctorRepository, 5000, 200);
+        searchIndex.reconcile();
+        SessionParticipantIndex participantIndex = new SessionParticipantIndex(sessionRepository, 5000);
+        participantIndex.reconcile();
+        TelemedicineSessionServiceImplementation service = new TelemedicineSessionServiceImplementation(
+                sessionRepository, patientRepository, doctorRepository,
+                mock(HospitalRepository.class),
+                mock(AppointmentRepository.class),
+                mock(UserRepository.class),
+                mock(TelemedicineAggregateStore.class),
+                mock(SequenceIdAllocator.class),
+                mock(DoctorPresenceRegistry.class),
+                mock(TelemedicineSessionEventBroadcaster.class),
+                mock(SessionReminderDispatcher.class),
+                mock(SessionHistoryExporter.class),
+                searchIndex,
+                participantIndex);
+
+        List<String> names = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String name = last[random.nextInt(last.length)].toLowerCase(Locale.ROOT);
+            names.add(name);
+            prefixes.add(name.substring(0, 5));
+        }
+
+        for (List<String> queries : List.of(names, prefixes)) {
+            long fallbacks = queries.stream().filter(term -> overMatchLimit(searchIndex, term)).count();
+            long[] substring = measure(queries, term ->
+                    sessionRepository.searchSessionsByText(term, PageRequest.of(0, 20, Sort.by("id"))));
+            long[] indexed = measure(queries, term -> service.searchSessions(term, PageRequest.of(0, 20)));
+            System.out.printf("session search over %,d sessions, %s terms (%d of %d matching more people than the match limit): "
+                            + "substring query p50=%.2fms p99=%.2fms, indexed p50=%.2fms p99=%.2fms%n",
+                    SESSIONS, queries == names ? "last name" : "5-letter prefix", fallbacks, queries.size(),
+                    percentile(substring, 50), percentile(substring, 99),
+                    percentile(indexed, 50), percentile(indexed, 99));
+            assertThat(percentile(indexed, 50)).isLessThan(percentile(substring, 50));
+        }
+    }
+
+    private static boolean overMatchLimit(DirectorySearchIndex searchIndex, String term) {
+        TextSearchIndex.Result patients = searchIndex.searchPatients(term, searchIndex.matchLimit());
+        TextSearchIndex.Result doctors = searchIndex.searchDoctors(term, searchIndex.matchLimit(), false);
+        return patients.total() > patients.hits().size() || doctors.total() > doctors.hits().size();
+    }
+
+    private void seed(Random random, String[] first, String[] last) {
+        Hospital hospital = entityManager.persist(Hospital.builder()
+                .name("Central")
+                .registrationNumber("REG-1")
+                .type(Hospital.HospitalType.GENERAL)
+                .status(Hospital.HospitalStatus.ACTIVE)
+                .build());
+        Specialty specialty = entityManager.persist(Specialty.builder().name("General").build());
+        List<Long> doctorIds = new ArrayList<>(DOCTORS);
+        for (int d = 0; d < DOCTORS; d++) {
+            Doctor doctor = new Doctor();
+            doctor.setFirstName(first[random.nextInt(first.length)]);
+            doctor.setLastName(last[random.nextInt(last.length)]);
+            doctor.setEmail("doctor" + d + "@example.com");
+            doctor.setLicenseNumber("LIC-" + d);
+            doctor.setSpecialty(specialty);
+            doctor.setHospital(hospital);
+            doctorIds.add(entityManager.persist(doctor).getId());
+        }
+        List<Long> patientIds = new ArrayList<>(PATIENTS);
+        for (int p = 0; p < PATIENTS; p++) {
+            patientIds.add(entityManager.persist(Patient.builder()
+                    .firstName(first[random.nextInt(first.length)])
+                    .lastName(last[random.nextInt(last.length)])
+                    .gender(Patient.Gender.UNKNOWN)
+                    .status(Patient.PatientStatus.ACTIVE)
+                    .build()).getId());
+            if (p % 1000 == 999) entityManager.flush();
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        for (int i = 0; i < SESSIONS; i++) {
+            TelemedicineSession session = new TelemedicineSession();
+            session.setSessionId("TM-" + i);
+            session.setPatient(entityManager.getEntityManager()
+                    .getReference(Patient.class, patientIds.get(random.nextInt(PATIENTS))));
+            session.setDoctor(entityManager.getEntityManager()
+                    .getReference(Doctor.class, doctorIds.get(random.nextInt(DOCTORS))));
+            session.setSessionType(SessionType.CONSULTATION);
+            session.setPlatform(PlatformType.VIDEO_CALL);
+            session.setStartTime(OffsetDateTime.now().plusDays(1));
+            session.setCost(BigDecimal.TEN);
+            entityManager.persist(session);
+            if (i % 1000 == 999) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private long[] measure(List<String> queries, Consumer<String> search) {
+        for (int i = 0; i < 10; i++) {
+            search.accept(queries.get(i));
+            entityManager.clear();
+        }
+        long[] nanos = new long[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            search.accept(queries.get(i));
+            nanos[i] = System.nanoTime() - start;
+            entityManager.clear();
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static String[] names(Random random, int count) {
+        String[] syllables = {"ka", "mi", "to", "ra", "ne", "lo", "su", "chi", "an", "we", "ja", "mo", "de", "ri"};
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder();
+            int parts = 3 + random.nextInt(3);
+            for (int p = 0; p < parts; p++) name.append(syllables[random.nextInt(syllables.length)]);
+            names[i] = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+        return names;
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        int at = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, at)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.Ambulances;
+import com.example.codebasebackend.dto.request.LocationUpdateRequest;
+import com.example.codebasebackend.repositories.AmbulanceRepository;
+import com.example.codebasebackend.repositories.AmbulanceTrackingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// YEAR is an H2 keyword but a column of ambulances
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:gps-ingest;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AmbulanceLocationIngestorTest {
+
+    private static final int AMBULANCES = 50;
+    private static final int DEVICES = 8;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AmbulanceRepository ambulanceRepository;
+
+    @Autowired
+    private AmbulanceTrackingRepository trackingRepository;
+
+    private final List<Long> ambulanceIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < AMBULANCES; i++) {
+            ambulanceIds.add(ambulanceRepository.save(Ambulances.builder()
+                    .vehiclePlate("KAA " + i)
+                    .status(Ambulances.AmbulanceStatus.AVAILABLE)
+                    .type(Ambulances.AmbulanceType.BASIC_LIFE_SUPPORT)
+                    .year(2020)
+                    .capacity(2)
+                    .gpsEnabled(true)
+                    .build()).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        trackingRepository.deleteAll();
+        ambulanceRepository.deleteAll();
+    }
+
+    @Test
+    void sustainsConcurrentPingsAndKeepsEachAmbulancesLatestPosition() throws Exception {
+        AmbulanceLocationIngestor ingestor = ingestor(5_000);
+        ingestor.start();
+        // Each device owns a fixed set of ambulances, so the last ping it sends for one is that ambulance's latest
+        Map<Long, BigDecimal> lastLatitude = new ConcurrentHashMap<>();
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(DEVICES);
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        long started = System.nanoTime();
+
+        for (int device = 0; device < DEVICES; device++) {
+            int owner = device;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int n = 0; System.nanoTime() < deadline; n++) {
+                        long ambulanceId = ambulanceIds.get(owner + DEVICES * (n % (AMBULANCES / DEVICES)));
+                        BigDecimal latitude = BigDecimal.valueOf(-1.0 - n * 0.000001).setScale(6);
+                        try {
+                            ingestor.submit(ambulanceId, ping(latitude));
+                            lastLatitude.put(ambulanceId, latitude);
+                            accepted.incrementAndGet();
+                        } catch (ResponseStatusException backlogged) {
+                            rejected.incrementAndGet();
+                            Thread.sleep(1);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+        done.await();
+        ingestor.shutdown();
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        System.out.printf("GPS ingestion: %,d pings written in %.1fs (%,.0f pings/s), %,d rejected as backlog%n",
+                accepted.get(), seconds, accepted.get() / seconds, rejected.get());
+        assertThat(ingestor.queueDepth()).isZero();
+        assertThat(trackingRepository.count()).isEqualTo(accepted.get());
+        assertThat(accepted.get() / seconds).isGreaterThan(1_000);
+        for (Map.Entry<Long, BigDecimal> expected : lastLatitude.entrySet()) {
+            assertThat(ambulanceRepository.findById(expected.getKey()).orElseThrow().getCurrentLatitude())
+                    .isEqualByComparingTo(expected.getValue());
+        }
+    }
+
+    @Test
+    void rejectsUnknownAmbulancesAndPingsBeyondTheQueueCapacity() {
+        AmbulanceLocationIngestor ingestor = ingestor(2);
+        Long ambulanceId = ambulanceIds.get(0);
+
+        ingestor.submit(ambulanceId, ping(BigDecimal.ONE));
+        ingestor.submit(ambulanceId, ping(BigDecimal.ONE));
+
+        assertThatThrownBy(() -> ingestor.submit(ambulanceId, ping(BigDecimal.ONE)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(429));
+        assertThatThrownBy(() -> ingestor.submit(-1L, ping(BigDecimal.ONE)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(404));
+        ingestor.start();
+        ingestor.shutdown();
+        assertThat(trackingRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void countsADroppedBatchAndHandsItToTheDropListeners() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AmbulanceLocationIngestor failing = new AmbulanceLocationIngestor(jdbcTemplate, transactionManager,
+                ambulanceRepository, meterRegistry, 10, 500, 20, 2) {
+            @Override
+            void flush(List<Ping> batch) {
+                throw new IllegalStateException("database unavailable");
+            }
+        };
+        BlockingQueue<List<AmbulanceLocationIngestor.Ping>> dropped = new LinkedBlockingQueue<>();
+        failing.onDropped(dropped::add);
+        AmbulanceLocationIngestor.Ping accepted = failing.submit(ambulanceIds.get(0), ping(BigDecimal.ONE));
+
+        failing.start();
+        List<AmbulanceLocationIngestor.Ping> batch = dropped.poll(10, TimeUnit.SECONDS);
+        failing.shutdown();
+
+        assertThat(batch).containsExactly(accepted);
+        assertThat(meterRegistry.get("ambulance.gps.batches.dropped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("ambulance.gps.pings.dropped").counter().count()).isEqualTo(1);
+    }
+
+    private AmbulanceLocationIngestor ingestor(int queueCapacity) {
+        return new AmbulanceLocationIngestor(jdbcTemplate, transactionManager, ambulanceRepository,
+                new SimpleMeterRegistry(), queueCapacity, 500, 20, 3);
+    }
+
+    private static LocationUpdateRequest ping(BigDecimal latitude) {
+        return LocationUpdateRequest.builder()
+                .latitude(latitude)
+                .longitude(new BigDecimal("36.817223"))
+                .speed(40)
+                .heading(90)
+                .locationAddress("Nairobi")
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AmbulanceTracking;
+import com.example.codebasebackend.Entities.Ambulances;
+import com.example.codebasebackend.dto.response.AmbulanceTrackingResponse;
+import com.example.codebasebackend.repositories.AmbulanceRepository;
+import com.example.codebasebackend.repositories.AmbulanceTrackingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// YEAR is an H2 keyword but a column of ambulances
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ambulance-positions;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AmbulancePositionRegistryTest {
+
+    private static final OffsetDateTime NOW = OffsetDateTime.now(ZoneOffset.UTC).withNano(0);
+
+    @Autowired
+    private AmbulanceRepository ambulanceRepository;
+
+    @Autowired
+    private AmbulanceTrackingRepository trackingRepository;
+
+    @AfterEach
+    void tearDown() {
+        trackingRepository.deleteAll();
+        ambulanceRepository.deleteAll();
+    }
+
+    @Test
+    void warmsUpWithEachAmbulancesLatestPointAndKeepsNewerPings() {
+        Ambulances first = ambulance("KBX 101");
+        Ambulances second = ambulance("KBX 202");
+        Ambulances idle = ambulance("KBX 303");
+        track(first, "-1.100000", NOW.minusMinutes(10));
+        track(first, "-1.200000", NOW.minusMinutes(5));
+        track(second, "-1.300000", NOW.minusMinutes(30));
+        track(idle, "-1.400000", NOW.minusHours(3));
+        AmbulancePositionRegistry registry = new AmbulancePositionRegistry(trackingRepository, ambulanceRepository);
+        registry.warmUp();
+
+        assertThat(registry.activeSince(NOW.minusHours(1)))
+                .extracting(AmbulanceTrackingResponse::getVehiclePlate, position -> position.getLatitude().toPlainString())
+                .containsExactly(
+                        tuple("KBX 101", "-1.200000"),
+                        tuple("KBX 202", "-1.300000"));
+        assertThat(registry.latest(idle.getId())).get()
+                .extracting(AmbulanceTrackingResponse::getLatitude).isEqualTo(new BigDecimal("-1.400000"));
+
+        registry.record(ping(first.getId(), "-1.250000", NOW.minusMinutes(1)));
+        registry.record(ping(first.getId(), "-1.000000", NOW.minusMinutes(20)));
+
+        AmbulanceTrackingResponse current = registry.latest(first.getId()).orElseThrow();
+        assertThat(current.getLatitude()).isEqualTo(new BigDecimal("-1.250000"));
+        assertThat(current.getVehiclePlate()).isEqualTo("KBX 101");
+    }
+
+    @Test
+    void droppedPingsFallBackToTheLatestStoredPointUnlessANewerPingArrived() {
+        Ambulances first = ambulance("KBX 101");
+        Ambulances second = ambulance("KBX 202");
+        track(first, "-1.100000", NOW.minusMinutes(10));
+        track(second, "-1.300000", NOW.minusMinutes(10));
+        AmbulancePositionRegistry registry = new AmbulancePositionRegistry(trackingRepository, ambulanceRepository);
+        registry.warmUp();
+        AmbulanceLocationIngestor.Ping lost = ping(first.getId(), "-1.150000", NOW.minusMinutes(2));
+        AmbulanceLocationIngestor.Ping overtaken = ping(second.getId(), "-1.350000", NOW.minusMinutes(2));
+        registry.record(lost);
+        registry.record(overtaken);
+        registry.record(ping(second.getId(), "-1.360000", NOW.minusMinutes(1)));
+
+        List<AmbulanceTrackingResponse> restored = registry.discard(List.of(lost, overtaken));
+
+        assertThat(restored).extracting(AmbulanceTrackingResponse::getAmbulanceId).containsExactly(first.getId());
+        assertThat(registry.latest(first.getId())).get()
+                .extracting(AmbulanceTrackingResponse::getLatitude).isEqualTo(new BigDecimal("-1.100000"));
+        assertThat(registry.latest(second.getId())).get()
+                .extracting(AmbulanceTrackingResponse::getLatitude).isEqualTo(new BigDecimal("-1.360000"));
+    }
+
+    @Test
+    void reconcileHandsOnlyPositionsItMovedForwardToListeners() {
+        Ambulances local = ambulance("KBX 101");
+        Ambulances remote = ambulance("KBX 202");
+        AmbulancePositionRegistry registry = new AmbulancePositionRegistry(trackingRepository, ambulanceRepository);
+        registry.warmUp();
+        List<AmbulanceTrackingResponse> reconciled = new ArrayList<>();
+        registry.onReconciled(reconciled::add);
+        // This node recorded its own ping before the flusher stored it; another node's ping is only stored
+        registry.record(ping(local.getId(), "-1.100000", NOW));
+        track(local, "-1.100000", NOW);
+        track(remote, "-1.300000", NOW);
+
+        registry.reconcile();
+
+        assertThat(reconciled).extracting(AmbulanceTrackingResponse::getVehiclePlate, p -> p.getLatitude().toPlainString())
+                .containsExactly(tuple("KBX 202", "-1.300000"));
+    }
+
+    @Test
+    void coldMissesFallBackToTheLatestStoredPoint() {
+        AmbulancePositionRegistry registry = new AmbulancePositionRegistry(trackingRepository, ambulanceRepository);
+        registry.warmUp();
+        Ambulances late = ambulance("KBX 404");
+        track(late, "-1.500000", NOW.minusMinutes(2));
+        track(late, "-1.600000", NOW.minusMinutes(1));
+
+        AmbulanceTrackingResponse position = registry.latest(late.getId()).orElseThrow();
+
+        assertThat(position.getLatitude()).isEqualTo(new BigDecimal("-1.600000"));
+        assertThat(position.getId()).isNotNull();
+        assertThat(registry.latest(ambulance("KBX 505").getId())).isEmpty();
+    }
+
+    private Ambulances ambulance(String plate) {
+        return ambulanceRepository.save(Ambulances.builder()
+                .vehiclePlate(plate)
+                .status(Ambulances.AmbulanceStatus.AVAILABLE)
+                .type(Ambulances.AmbulanceType.BASIC_LIFE_SUPPORT)
+                .year(2021)
+                .capacity(2)
+                .gpsEnabled(true)
+                .build());
+    }
+
+    private void track(Ambulances ambulance, String latitude, OffsetDateTime at) {
+        trackingRepository.save(AmbulanceTracking.builder()
+                .ambulance(ambulance)
+                .latitude(new BigDecimal(latitude))
+                .longitude(new BigDecimal("36.800000"))
+                .timestamp(at)
+                .build());
+    }
+
+    private static AmbulanceLocationIngestor.Ping ping(long ambulanceId, String latitude, OffsetDateTime at) {
+        return new AmbulanceLocationIngestor.Ping(ambulanceId, new BigDecimal(latitude), new BigDecimal("36.800000"),
+                null, null, null, null, null, null, at, System.nanoTime());
+    }
+}
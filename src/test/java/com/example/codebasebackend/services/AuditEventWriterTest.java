@@ -0,0 +1,178 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.User;
+import com.example.codebasebackend.configs.RequestCorrelationFilter;
+import com.example.codebasebackend.dto.AuditLogRequest;
+import com.example.codebasebackend.repositories.AuditLogRepository;
+import com.example.codebasebackend.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The H2 dialect is needed for the details @Lob, which PostgreSQL stores as a large object
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:audit-writer;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuditEventWriterTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository savedUsers;
+
+    @Autowired
+    private AuditLogRepository auditRepository;
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AuditEventWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) writer.shutdown();
+        SecurityContextHolder.clearContext();
+        MDC.clear();
+        auditRepository.deleteAll();
+        savedUsers.deleteAll();
+    }
+
+    @Test
+    void writesCapturedEventsInBatchesResolvingUsersOnce() {
+        User nurse = savedUsers.save(User.builder().username("nurse.jane").email("jane@example.org").build());
+        when(userRepository.findByUsernameIgnoreCase("nurse.jane")).thenReturn(Optional.of(nurse));
+        writer = writer("fire-and-forget", 100);
+        writer.start();
+        // Context only the calling thread has
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("nurse.jane", null, List.of()));
+        MDC.put(RequestCorrelationFilter.MDC_KEY, "req-42");
+
+        writer.enqueue(request("UPDATE", "Patient", "17", "password=hunter2"));
+        writer.enqueue(request("READ", "Patient", "17", null));
+        writer.enqueue(request("LOGIN", null, null, null));
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> auditRepository.count() == 3);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT event_type, entity_id, user_id, username, correlation_id, details FROM audit_logs ORDER BY id");
+        assertThat(rows).extracting(row -> row.get("USER_ID")).containsOnly(nurse.getId());
+        assertThat(rows).extracting(row -> row.get("USERNAME")).containsOnly("nurse.jane");
+        assertThat(rows).extracting(row -> row.get("CORRELATION_ID")).containsOnly("req-42");
+        assertThat(rows.get(0).get("DETAILS").toString()).doesNotContain("hunter2").contains("REDACTED");
+        assertThat(rows.get(2).get("ENTITY_ID")).isEqualTo("nurse.jane");
+        verify(userRepository, times(1)).findByUsernameIgnoreCase("nurse.jane");
+        assertThat(meterRegistry.get("audit.events.flushed").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void dropsAndCountsEventsWhenTheQueueIsFull() {
+        // Not started, so nothing drains the one-slot queue
+        writer = writer("fire-and-forget", 1);
+
+        writer.enqueue(request("READ", "Patient", "1", null));
+        writer.enqueue(request("READ", "Patient", "2", null));
+
+        assertThat(writer.queueDepth()).isEqualTo(1);
+        assertThat(meterRegistry.get("audit.events.queued").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("audit.events.dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void flushBeforeCommitWritesWithTheTransaction() {
+        writer = writer("flush-before-commit", 100);
+        writer.start();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            writer.enqueue(request("UPDATE", "Patient", "1", null));
+            // Buffered until commit
+            assertThat(auditRepository.count()).isZero();
+        });
+        assertThat(auditRepository.count()).isEqualTo(1);
+
+        transaction.executeWithoutResult(status -> {
+            writer.enqueue(request("UPDATE", "Patient", "2", null));
+            AuditLogRequest failure = request("UPDATE", "Patient", "3", null);
+            failure.setStatus("FAILURE");
+            writer.enqueue(failure);
+            status.setRollbackOnly();
+        });
+
+        // The rolled-back change leaves no success record, but its failure is still written
+        await().atMost(5, TimeUnit.SECONDS).until(() -> auditRepository.count() == 2);
+        assertThat(jdbcTemplate.queryForList("SELECT entity_id FROM audit_logs ORDER BY id", String.class))
+                .containsExactly("1", "3");
+    }
+
+    @Test
+    void cutsLongValuesToTheirColumnsAndDropsOnlyARejectedRow() {
+        writer = writer("fire-and-forget", 100);
+        // Not started, so all three go out as one batch
+        AuditLogRequest longAgent = request("READ", "Patient", "1", null);
+        longAgent.setUserAgent("a".repeat(500));
+        writer.enqueue(longAgent);
+        writer.enqueue(request("READ", "Patient", "poison", null));
+        writer.enqueue(request("READ", "Patient", "3", null));
+
+        jdbcTemplate.execute("ALTER TABLE audit_logs ADD CONSTRAINT no_poison CHECK (entity_id <> 'poison')");
+        try {
+            writer.start();
+            await().atMost(5, TimeUnit.SECONDS).until(() -> auditRepository.count() == 2
+                    && meterRegistry.get("audit.events.dropped").counter().count() == 1);
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE audit_logs DROP CONSTRAINT no_poison");
+        }
+
+        assertThat(jdbcTemplate.queryForList("SELECT entity_id FROM audit_logs ORDER BY id", String.class))
+                .containsExactly("1", "3");
+        assertThat(jdbcTemplate.queryForObject("SELECT user_agent FROM audit_logs WHERE entity_id = '1'", String.class))
+                .hasSize(200);
+    }
+
+    private AuditEventWriter writer(String mode, int queueCapacity) {
+        return new AuditEventWriter(jdbcTemplate, transactionManager, userRepository, meterRegistry,
+                mode, queueCapacity, 100, 20, 3, 60_000);
+    }
+
+    private static AuditLogRequest request(String eventType, String entityType, String entityId, String details) {
+        AuditLogRequest request = new AuditLogRequest();
+        request.setEventType(eventType);
+        request.setEntityType(entityType);
+        request.setEntityId(entityId);
+        request.setDetails(details);
+        return request;
+    }
+}
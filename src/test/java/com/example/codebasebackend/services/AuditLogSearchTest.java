@@ -0,0 +1,124 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AuditLog;
+import com.example.codebasebackend.Entities.User;
+import com.example.codebasebackend.Entities.UserRole;
+import com.example.codebasebackend.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The H2 dialect is needed for the details @Lob, which PostgreSQL stores as a large object
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:audit-search;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuditLogSearchTest {
+
+    private static final OffsetDateTime T0 = OffsetDateTime.of(2026, 5, 4, 9, 0, 0, 0, ZoneOffset.UTC);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM audit_logs");
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void walksKeysetPagesNewestFirstWithTheOffsetSearchFilters() {
+        User nurse = userRepository.save(User.builder().username("nurse.jane").fullName("Jane Wanjiru")
+                .role(UserRole.ADMIN).build());
+        // Three rows share a timestamp, so the id tie-breaker decides their order
+        long first = insert(T0, "READ", "Patient", "17", nurse.getId(), "nurse.jane", "SUCCESS", "{\"ward\":4}");
+        long second = insert(T0.plusMinutes(1), "UPDATE", "Patient", "17", nurse.getId(), "nurse.jane", "SUCCESS", null);
+        long third = insert(T0.plusMinutes(1), "UPDATE", "Patient", "18", null, "system", "FAILURE", null);
+        long fourth = insert(T0.plusMinutes(1), "READ", "Billing", "PATIENT-9", null, "system", "SUCCESS", null);
+        insert(T0.plusMinutes(2), "READ", "Hospital", "3", null, "system", "SUCCESS", null);
+        AuditLogSearch search = new AuditLogSearch(namedJdbcTemplate, 50, 2, false);
+        // Matches entity type "Patient" and entity id "PATIENT-9" alike, as the offset search does
+        AuditLogSearch.Criteria patients = criteria(null, "patient");
+
+        List<Long> walked = new ArrayList<>();
+        AuditLogSearch.Cursor cursor = null;
+        int pages = 0;
+        do {
+            AuditLogSearch.Page page = page(search, patients, cursor, 10);
+            page.logs().forEach(log -> walked.add(log.getId()));
+            cursor = page.next() != null ? AuditLogSearch.Cursor.decode(page.next().encode()) : null;
+            assertThat(page.estimatedTotal()).isNull();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(walked).containsExactly(fourth, third, second, first);
+        assertThat(pages).isEqualTo(2);
+
+        AuditLogSearch.Page failures = page(search, criteria(AuditLog.EventStatus.FAILURE, null), null, null);
+        assertThat(failures.logs()).extracting(AuditLog::getId).containsExactly(third);
+
+        AuditLogSearch.Criteria byUserInWindow = new AuditLogSearch.Criteria(null, null, null, nurse.getId(),
+                nurse.getUsername(), null, null, null, null, T0, T0);
+        List<AuditLog> ownRows = page(search, byUserInWindow, null, null).logs();
+        assertThat(ownRows).hasSize(1);
+        AuditLog linked = ownRows.get(0);
+        assertThat(linked.getId()).isEqualTo(first);
+        assertThat(linked.getUser().getFullName()).isEqualTo("Jane Wanjiru");
+        assertThat(linked.getDetails()).isEqualTo("{\"ward\":4}");
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThatThrownBy(() -> AuditLogSearch.Cursor.decode("not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid audit log cursor");
+    }
+
+    private static AuditLogSearch.Criteria criteria(AuditLog.EventStatus status, String searchTerm) {
+        return new AuditLogSearch.Criteria(null, null, null, null, null, null, searchTerm, status, null, null, null);
+    }
+
+    private AuditLogSearch.Page page(AuditLogSearch search, AuditLogSearch.Criteria criteria,
+                                     AuditLogSearch.Cursor after, Integer size) {
+        return new TransactionTemplate(transactionManager).execute(status -> search.page(criteria, after, size, true));
+    }
+
+    private long insert(OffsetDateTime time, String eventType, String entityType, String entityId, Long userId,
+                        String username, String status, String details) {
+        jdbcTemplate.update("INSERT INTO audit_logs (event_type, entity_type, entity_id, user_id, username, event_time, " +
+                        "status, details, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                eventType, entityType, entityId, userId, username, time, status, details, time);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM audit_logs", Long.class);
+    }
+}
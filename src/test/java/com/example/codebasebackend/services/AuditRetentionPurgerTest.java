@@ -0,0 +1,145 @@
+package com.example.codebasebackend.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The H2 dialect is needed for the details @Lob, which PostgreSQL stores as a large object
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:audit-retention;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuditRetentionPurgerTest {
+
+    private static final OffsetDateTime CUTOFF = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path archiveDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM audit_logs");
+    }
+
+    @Test
+    void deletesOldRowsInChunksArchivingEachOnce() throws IOException {
+        List<Long> expired = seed();
+        AuditRetentionPurger purger = purger(3, 0, archiveDir.toString());
+
+        assertThat(purger.purgeBefore(CUTOFF)).isEqualTo(expired.size());
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_logs WHERE event_time < ?", Long.class, CUTOFF))
+                .isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_logs", Long.class)).isEqualTo(5);
+        List<JsonNode> archived = archived();
+        assertThat(archived).extracting(row -> row.get("id").asLong()).containsExactlyInAnyOrderElementsOf(expired);
+        JsonNode first = archived.stream().filter(row -> row.get("id").asLong() == expired.get(0)).findFirst().orElseThrow();
+        assertThat(first.get("details").asText()).isEqualTo("{\"n\":0}");
+        assertThat(OffsetDateTime.parse(first.get("eventTime").asText())).isBefore(CUTOFF);
+        assertThat(meterRegistry.get("audit.retention.deleted").counter().count()).isEqualTo(expired.size());
+        assertThat(meterRegistry.get("audit.retention.archived").counter().count()).isEqualTo(expired.size());
+        assertThat(meterRegistry.get("audit.retention.remaining.ids").gauge().value()).isZero();
+        assertThat(purger.purgeBefore(CUTOFF)).isZero();
+    }
+
+    @Test
+    void anInterruptedPurgeKeepsWholeChunksAndTheNextOneFinishes() throws IOException {
+        List<Long> expired = seed();
+        // Ten rows a second, interrupted part way through
+        AuditRetentionPurger throttled = purger(2, 10, archiveDir.toString());
+        ScheduledExecutorService interrupter = Executors.newSingleThreadScheduledExecutor();
+        Thread caller = Thread.currentThread();
+        long firstRun;
+        try {
+            interrupter.schedule(caller::interrupt, 300, TimeUnit.MILLISECONDS);
+            firstRun = throttled.purgeBefore(CUTOFF);
+        } finally {
+            interrupter.shutdownNow();
+            Thread.interrupted();
+        }
+
+        assertThat(firstRun).isPositive().isLessThan(expired.size());
+        assertThat(archived()).hasSize((int) firstRun);
+
+        assertThat(purger(2, 0, archiveDir.toString()).purgeBefore(CUTOFF)).isEqualTo(expired.size() - firstRun);
+        assertThat(archived()).extracting(row -> row.get("id").asLong()).containsExactlyInAnyOrderElementsOf(expired);
+    }
+
+    // Ten expired rows among five current ones, interleaved by id as late writes would leave them
+    private List<Long> seed() {
+        List<Long> expired = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            OffsetDateTime time = i % 3 == 2 ? CUTOFF.plusHours(i) : CUTOFF.minusDays(30 - i);
+            jdbcTemplate.update("INSERT INTO audit_logs (event_type, entity_type, entity_id, username, event_time, " +
+                    "status, details, updated_at) VALUES ('READ', 'Patient', ?, 'nurse.jane', ?, 'SUCCESS', ?, ?)",
+                    String.valueOf(i), time, "{\"n\":" + i + "}", time);
+            if (time.isBefore(CUTOFF)) {
+                expired.add(jdbcTemplate.queryForObject("SELECT MAX(id) FROM audit_logs", Long.class));
+            }
+        }
+        return expired;
+    }
+
+    private AuditRetentionPurger purger(int chunkSize, double rowsPerSecond, String dir) {
+        return new AuditRetentionPurger(jdbcTemplate, transactionManager, objectMapper, meterRegistry,
+                chunkSize, rowsPerSecond, dir);
+    }
+
+    private List<JsonNode> archived() throws IOException {
+        List<JsonNode> rows = new ArrayList<>();
+        try (Stream<Path> files = Files.list(archiveDir)) {
+            for (Path file : files.toList()) {
+                assertThat(file.getFileName().toString()).matches("audit_logs-\\d+-\\d+\\.ndjson\\.gz");
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) rows.add(objectMapper.readTree(line));
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -57,6 +57,12 @@ class AuthServiceImplTest {
     @Mock
     private HospitalRepository hospitalRepository;
 
+    @Mock
+    private DirectorySearchIndex searchIndex;
+
+    @Mock
+    private AvailableChwIndex chwIndex;
+
     @InjectMocks
     private AuthServiceImpl authService;
 
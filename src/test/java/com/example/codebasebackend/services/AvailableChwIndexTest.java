@@ -0,0 +1,139 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.CommunityHealthWorkers;
+import com.example.codebasebackend.Entities.Hospital;
+import com.example.codebasebackend.dto.CommunityHealthWorkerResponse;
+import com.example.codebasebackend.repositories.CommunityHealthWorkersRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AvailableChwIndexTest {
+
+    private final CommunityHealthWorkersRepository chwRepository = mock(CommunityHealthWorkersRepository.class);
+
+    @Test
+    void answersFromMemoryAndFollowsStatusAndLocationChanges() {
+        CommunityHealthWorkers near = chw(1L, -1.2860, 36.8170, 10L);
+        CommunityHealthWorkers other = chw(2L, -1.2900, 36.8200, 20L);
+        CommunityHealthWorkers far = chw(3L, -1.0000, 37.0000, 10L);
+        when(chwRepository.findByStatus(CommunityHealthWorkers.Status.AVAILABLE)).thenReturn(List.of(near, other, far));
+        AvailableChwIndex index = new AvailableChwIndex(chwRepository, 0.05);
+
+        assertThat(ids(index.nearest(-1.2864, 36.8172, 3, null, null))).containsExactly(1L, 2L, 3L);
+        assertThat(ids(index.nearest(-1.2864, 36.8172, 3, null, 10L))).containsExactly(1L, 3L);
+        assertThat(ids(index.nearest(-1.2864, 36.8172, 3, 5.0, 10L))).containsExactly(1L);
+
+        near.setStatus(CommunityHealthWorkers.Status.BUSY);
+        index.record(near);
+        far.setLatitude(new BigDecimal("-1.2865"));
+        far.setLongitude(new BigDecimal("36.8171"));
+        index.record(far);
+
+        assertThat(ids(index.nearest(-1.2864, 36.8172, 3, 1.0, null))).containsExactly(3L, 2L);
+        verify(chwRepository, times(1)).findByStatus(CommunityHealthWorkers.Status.AVAILABLE);
+    }
+
+    /**
+     * Nearest available CHW (scoped to one of 20 hospitals, and within a 10 km radius) against the stream
+     * scan over all available CHWs the service used to run. The database fetch that the scan also paid
+     * for is not counted. Run with {@code mvn test -Dtest=AvailableChwIndexTest -Dbenchmarks=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkAgainstStreamScan() {
+        for (int size : new int[]{1_000, 10_000, 100_000}) {
+            Random random = new Random(size);
+            List<CommunityHealthWorkers> pool = new ArrayList<>(size);
+            for (long id = 1; id <= size; id++) {
+                pool.add(chw(id, -4.5 + random.nextDouble() * 9, 34 + random.nextDouble() * 8, 1L + random.nextInt(20)));
+            }
+            when(chwRepository.findByStatus(CommunityHealthWorkers.Status.AVAILABLE)).thenReturn(pool);
+            AvailableChwIndex index = new AvailableChwIndex(chwRepository, 0.05);
+            double[][] queries = new double[1_000][];
+            for (int i = 0; i < queries.length; i++) {
+                queries[i] = new double[]{-4.5 + random.nextDouble() * 9, 34 + random.nextDouble() * 8, 1 + random.nextInt(20)};
+            }
+
+            long[] scanNearest = measure(queries, q -> scanNearest(pool, q[0], q[1], (long) q[2]));
+            long[] indexNearest = measure(queries, q -> index.nearest(q[0], q[1], 1, null, (long) q[2]));
+            long[] scanRadius = measure(queries, q -> scanWithinRadius(pool, q[0], q[1], 10));
+            long[] indexRadius = measure(queries, q -> index.nearest(q[0], q[1], 1, 10.0, null));
+
+            System.out.printf("%,d CHWs: nearest in hospital scan p50=%.1fus index p50=%.1fus | "
+                            + "within 10km scan p50=%.1fus index p50=%.1fus%n", size,
+                    percentile(scanNearest, 50), percentile(indexNearest, 50),
+                    percentile(scanRadius, 50), percentile(indexRadius, 50));
+            assertThat(percentile(indexNearest, 50)).isLessThan(percentile(scanNearest, 50));
+        }
+    }
+
+    // The previous findNearestAvailable(lat, lon, hospitalId), minus the query
+    private static CommunityHealthWorkers scanNearest(List<CommunityHealthWorkers> pool, double lat, double lon, long hospitalId) {
+        return pool.stream()
+                .filter(c -> c.getHospital().getId() == hospitalId)
+                .filter(c -> c.getLatitude() != null && c.getLongitude() != null)
+                .min(Comparator.comparingDouble(c -> GeoGridIndex.haversineKm(lat, lon,
+                        c.getLatitude().doubleValue(), c.getLongitude().doubleValue())))
+                .orElse(null);
+    }
+
+    // The previous radius overload, minus the query
+    private static CommunityHealthWorkers scanWithinRadius(List<CommunityHealthWorkers> pool, double lat, double lon, double radiusKm) {
+        return pool.stream()
+                .filter(c -> c.getLatitude() != null && c.getLongitude() != null)
+                .map(c -> new Object[]{c, GeoGridIndex.haversineKm(lat, lon, c.getLatitude().doubleValue(), c.getLongitude().doubleValue())})
+                .filter(arr -> (double) arr[1] <= radiusKm)
+                .min(Comparator.comparingDouble(arr -> (double) arr[1]))
+                .map(arr -> (CommunityHealthWorkers) arr[0])
+                .orElse(null);
+    }
+
+    private static CommunityHealthWorkers chw(Long id, double latitude, double longitude, Long hospitalId) {
+        Hospital hospital = new Hospital();
+        hospital.setId(hospitalId);
+        return CommunityHealthWorkers.builder()
+                .id(id)
+                .firstName("CHW")
+                .lastName(String.valueOf(id))
+                .latitude(BigDecimal.valueOf(latitude))
+                .longitude(BigDecimal.valueOf(longitude))
+                .hospital(hospital)
+                .status(CommunityHealthWorkers.Status.AVAILABLE)
+                .build();
+    }
+
+    private static List<Long> ids(List<GeoGridIndex.Neighbour<CommunityHealthWorkerResponse>> neighbours) {
+        return neighbours.stream().map(GeoGridIndex.Neighbour::id).toList();
+    }
+
+    private static long[] measure(double[][] queries, Consumer<double[]> query) {
+        for (int i = 0; i < 200; i++) query.accept(queries[i]);
+        long[] nanos = new long[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            long start = System.nanoTime();
+            query.accept(queries[i]);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        int at = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, at)] / 1_000.0;
+    }
+}
@@ -39,6 +39,9 @@ class CommunityHealthWorkersServiceTest {
     @Mock
     private HospitalRepository hospitalRepo;
 
+    @Mock
+    private AvailableChwIndex chwIndex;
+
     @InjectMocks
     private CommunityHealthWorkersServiceImplementation service;
 
@@ -0,0 +1,130 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AmbulanceDispatch;
+import com.example.codebasebackend.Entities.Ambulances;
+import com.example.codebasebackend.repositories.AmbulanceDispatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DispatchEtaTrackerTest {
+
+    private final AmbulanceDispatchRepository dispatchRepository = mock(AmbulanceDispatchRepository.class);
+    private final AmbulancePositionRegistry positionRegistry = mock(AmbulancePositionRegistry.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final RoadRouter router = new RoadRouter("", 1.5);
+    private DispatchEtaTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        // Two blocks of a street running east, driven at 36 km/h (10 m/s)
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        int west = builder.addNode(-1.2800, 36.8000);
+        int middle = builder.addNode(-1.2800, 36.8050);
+        int east = builder.addNode(-1.2800, 36.8100);
+        builder.addEdge(west, middle, 36);
+        builder.addEdge(middle, east, 36);
+        router.use(builder.build());
+        when(positionRegistry.peek(anyLong())).thenReturn(Optional.empty());
+        tracker = new DispatchEtaTracker(router, dispatchRepository, positionRegistry, jdbcTemplate, 60_000);
+    }
+
+    @Test
+    void estimatesTheRoadTimeFromTheAmbulanceToThePickup() {
+        AmbulanceDispatch dispatch = dispatch(AmbulanceDispatch.DispatchStatus.DISPATCHED);
+        Ambulances ambulance = new Ambulances();
+        ambulance.setCurrentLatitude(new BigDecimal("-1.2800"));
+        ambulance.setCurrentLongitude(new BigDecimal("36.8000"));
+        dispatch.setAmbulance(ambulance);
+
+        tracker.estimate(dispatch);
+
+        double km = GeoGridIndex.haversineKm(-1.28, 36.80, -1.28, 36.81);
+        assertThat(dispatch.getEstimatedDistance())
+                .isEqualByComparingTo(BigDecimal.valueOf(km).setScale(2, RoundingMode.HALF_UP));
+        assertThat(dispatch.getEstimatedResponseTime())
+                .isEqualTo(String.format(Locale.ROOT, "%.1f minutes", km / 36 * 60));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refreshesOncePerIntervalAndWritesInOneBatch() {
+        when(dispatchRepository.findById(7L)).thenReturn(Optional.of(dispatch(AmbulanceDispatch.DispatchStatus.EN_ROUTE)));
+        when(dispatchRepository.findById(8L)).thenReturn(Optional.of(dispatch(AmbulanceDispatch.DispatchStatus.ON_SCENE)));
+
+        for (int i = 0; i < 5; i++) {
+            tracker.onPing(ping(7L, "36.8050"));
+            tracker.onPing(ping(8L, "36.8050"));
+            // Pings only record the latest position; nothing is read or routed until the refresh
+            verify(dispatchRepository, never()).findById(anyLong());
+        }
+        tracker.refresh();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertThat(rows.getValue()).hasSize(1);
+        assertThat(rows.getValue().get(0)[2]).isEqualTo(7L);
+        // The pickup is read once per dispatch, not per ping
+        verify(dispatchRepository, times(1)).findById(7L);
+
+        tracker.onPing(ping(7L, "36.8000"));
+        tracker.refresh();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void ignoresPingsFromAnAmbulanceTheDispatchIsNotAssignedTo() {
+        AmbulanceDispatch dispatch = dispatch(AmbulanceDispatch.DispatchStatus.EN_ROUTE);
+        dispatch.getAmbulance().setId(2L);
+        when(dispatchRepository.findById(7L)).thenReturn(Optional.of(dispatch));
+
+        tracker.onPing(ping(7L, "36.8050"));
+        tracker.refresh();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void ignoresPingsWhileNoGraphIsLoaded() {
+        DispatchEtaTracker idle = new DispatchEtaTracker(new RoadRouter("", 1.5), dispatchRepository,
+                positionRegistry, jdbcTemplate, 0);
+        idle.onPing(ping(7L, "36.8050"));
+        idle.refresh();
+        verify(dispatchRepository, never()).findById(anyLong());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    private static AmbulanceDispatch dispatch(AmbulanceDispatch.DispatchStatus status) {
+        AmbulanceDispatch dispatch = new AmbulanceDispatch();
+        dispatch.setStatus(status);
+        dispatch.setPickupLatitude(new BigDecimal("-1.2800"));
+        dispatch.setPickupLongitude(new BigDecimal("36.8100"));
+        Ambulances ambulance = new Ambulances();
+        ambulance.setId(1L);
+        dispatch.setAmbulance(ambulance);
+        return dispatch;
+    }
+
+    private static AmbulanceLocationIngestor.Ping ping(long dispatchId, String longitude) {
+        return new AmbulanceLocationIngestor.Ping(1L, new BigDecimal("-1.2800"), new BigDecimal(longitude),
+                null, null, null, null, null, dispatchId, OffsetDateTime.now(), System.nanoTime());
+    }
+}
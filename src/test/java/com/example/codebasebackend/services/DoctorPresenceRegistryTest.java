@@ -0,0 +1,170 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.Doctor;
+import com.example.codebasebackend.Entities.DoctorStatus;
+import com.example.codebasebackend.dto.DoctorOnlineResponse;
+import com.example.codebasebackend.repositories.DoctorRepository;
+import com.example.codebasebackend.repositories.TelemedicineSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorPresenceRegistryTest {
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private TelemedicineSessionRepository sessionRepository;
+
+    private DoctorPresenceRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new DoctorPresenceRegistry(doctorRepository, sessionRepository, new SimpleMeterRegistry(), 60_000, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void buildsBoardOnceAndServesLaterRequestsFromMemory() {
+        when(doctorRepository.findByActiveTrueAndStatusIn(anyList()))
+                .thenReturn(List.of(doctor(1L, DoctorStatus.AVAILABLE), doctor(2L, DoctorStatus.BUSY)));
+        when(sessionRepository.findStartedByDoctor(any(), any()))
+                .thenReturn(List.of(new Object[]{1L, 11L}, new Object[]{1L, 12L}, new Object[]{1L, 13L}));
+        when(sessionRepository.findCompletedRevenueByDoctor(any(), any()))
+                .thenReturn(List.of(new Object[]{1L, 11L, new BigDecimal("100.00")},
+                        new Object[]{1L, 12L, new BigDecimal("50.00")}));
+
+        registry.snapshot();
+        List<DoctorOnlineResponse> board = registry.snapshot();
+
+        assertThat(board).extracting(DoctorOnlineResponse::getId).containsExactly(1L, 2L);
+        assertThat(board.get(0).getSessionsToday()).isEqualTo(3);
+        assertThat(board.get(0).getEarnings()).isEqualByComparingTo("150.00");
+        assertThat(board.get(1).getSessionsToday()).isZero();
+        verify(doctorRepository, times(1)).findByActiveTrueAndStatusIn(anyList());
+        verifyNoMoreInteractions(doctorRepository);
+    }
+
+    @Test
+    void appliesStatusAndSessionEvents() {
+        when(doctorRepository.findByActiveTrueAndStatusIn(anyList())).thenReturn(List.of(doctor(1L, DoctorStatus.AVAILABLE)));
+        registry.reconcile();
+
+        registry.recordDoctor(doctor(2L, DoctorStatus.AVAILABLE));
+        registry.recordSessionStarted(2L, 21L);
+        registry.recordDoctor(doctor(2L, DoctorStatus.BUSY));
+        registry.recordSessionCompleted(2L, 21L, new BigDecimal("40"));
+        registry.recordDoctor(doctor(1L, DoctorStatus.OFFLINE));
+
+        List<DoctorOnlineResponse> board = registry.snapshot();
+
+        assertThat(board).hasSize(1);
+        DoctorOnlineResponse entry = board.get(0);
+        assertThat(entry.getId()).isEqualTo(2L);
+        assertThat(entry.getCurrentStatus()).isEqualTo(DoctorStatus.BUSY);
+        assertThat(entry.getSessionsToday()).isEqualTo(1);
+        assertThat(entry.getEarnings()).isEqualByComparingTo("40");
+    }
+
+    @Test
+    void replaysChangesThatArriveWhileARebuildLoadsWithoutCountingThemTwice() {
+        when(doctorRepository.findByActiveTrueAndStatusIn(anyList())).thenAnswer(invocation -> {
+            // Committed while the rebuild reads: session 11 is also in the rows it loads, doctor 3 is not
+            registry.recordSessionStarted(1L, 11L);
+            registry.recordDoctor(doctor(3L, DoctorStatus.AVAILABLE));
+            return List.of(doctor(1L, DoctorStatus.AVAILABLE));
+        });
+        when(sessionRepository.findStartedByDoctor(any(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 11L}));
+
+        List<DoctorOnlineResponse> board = registry.snapshot();
+
+        assertThat(board).extracting(DoctorOnlineResponse::getId).containsExactly(1L, 3L);
+        assertThat(board.get(0).getSessionsToday()).isEqualTo(1);
+    }
+
+    @Test
+    void aSlowSubscriberNeverHoldsUpTheScheduledJobsAndGetsOnlyTheNewestBoard() throws Exception {
+        when(doctorRepository.findByActiveTrueAndStatusIn(anyList())).thenReturn(List.of(doctor(1L, DoctorStatus.AVAILABLE)));
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        // The connect board blocks in send
+        registry.subscribe(emitter);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> emitter.sending);
+
+        long start = System.nanoTime();
+        for (long id = 2; id <= 4; id++) {
+            registry.recordDoctor(doctor(id, DoctorStatus.AVAILABLE));
+            registry.publishChanges();
+            registry.heartbeat();
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1_000);
+        release.countDown();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> emitter.boards.size() == 2);
+        assertThat(emitter.boards.get(0)).extracting(DoctorOnlineResponse::getId).containsExactly(1L);
+        assertThat(emitter.boards.get(1)).extracting(DoctorOnlineResponse::getId).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<List<DoctorOnlineResponse>> boards = new CopyOnWriteArrayList<>();
+        final CountDownLatch release;
+        volatile boolean sending;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void send(SseEventBuilder builder) {
+            sending = true;
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            builder.build().stream()
+                    .map(part -> part.getData())
+                    .filter(List.class::isInstance)
+                    .forEach(data -> boards.add((List<DoctorOnlineResponse>) data));
+        }
+    }
+
+    private static Doctor doctor(Long id, DoctorStatus status) {
+        Doctor doctor = new Doctor();
+        doctor.setId(id);
+        doctor.setDoctorId("DOC-00" + id);
+        doctor.setFirstName("Doc");
+        doctor.setLastName("Tor" + id);
+        doctor.setStatus(status);
+        doctor.setActive(true);
+        return doctor;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.dto.FleetMapFrame;
+import com.example.codebasebackend.dto.response.AmbulanceTrackingResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FleetMapBroadcasterTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.parse("2026-03-02T08:00:00Z");
+    // Central Nairobi
+    private static final FleetMapBroadcaster.BoundingBox BOX = new FleetMapBroadcaster.BoundingBox(-1.32, 36.78, -1.26, 36.86);
+
+    private final AmbulancePositionRegistry positionRegistry = mock(AmbulancePositionRegistry.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FleetMapBroadcaster broadcaster = new FleetMapBroadcaster(positionRegistry, meterRegistry, 60_000, 1);
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void streamsASnapshotThenCoalescedDeltasForTheBox() {
+        when(positionRegistry.activeSince(any())).thenReturn(List.of(
+                position(1L, "-1.28639", "36.81722", 0),
+                position(2L, "-1.05000", "37.08000", 0)));
+        RecordingEmitter emitter = new RecordingEmitter();
+        broadcaster.subscribe(BOX, emitter);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> emitter.frames.size() == 1);
+        FleetMapFrame snapshot = emitter.frames.get(0);
+        assertThat(snapshot.isSnapshot()).isTrue();
+        assertThat(snapshot.getEnter()).containsExactly(new long[]{1L, -128639, 3681722, START.toEpochSecond(), 90});
+
+        // Three pings in one interval reach the client as one move, relative to the snapshot
+        broadcaster.publish(position(1L, "-1.28600", "36.81800", 5));
+        broadcaster.publish(position(1L, "-1.28550", "36.81900", 10));
+        broadcaster.publish(position(1L, "-1.28500", "36.82000", 15));
+        broadcaster.publish(position(2L, "-1.04000", "37.09000", 15));
+        broadcaster.fanOut();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> emitter.frames.size() == 2);
+        FleetMapFrame update = emitter.frames.get(1);
+        assertThat(update.isSnapshot()).isFalse();
+        assertThat(update.getEnter()).isEmpty();
+        assertThat(update.getMove()).containsExactly(new long[]{1L, 139, 278, 15, 90});
+
+        // Driving out of the box, and another ambulance driving in
+        broadcaster.publish(position(1L, "-1.20000", "36.82000", 20));
+        broadcaster.publish(position(2L, "-1.30000", "36.80000", 20));
+        broadcaster.fanOut();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> emitter.frames.size() == 3);
+        FleetMapFrame crossing = emitter.frames.get(2);
+        assertThat(crossing.getLeave()).containsExactly(1L);
+        assertThat(crossing.getEnter()).containsExactly(new long[]{2L, -130000, 3680000, START.toEpochSecond() + 20, 90});
+        assertThat(meterRegistry.get("ambulance.map.subscribers").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("ambulance.map.fanout").timer().count()).isEqualTo(2);
+    }
+
+    private static AmbulanceTrackingResponse position(long ambulanceId, String latitude, String longitude, int seconds) {
+        return AmbulanceTrackingResponse.builder()
+                .ambulanceId(ambulanceId)
+                .latitude(new BigDecimal(latitude))
+                .longitude(new BigDecimal(longitude))
+                .heading(90)
+                .timestamp(START.plusSeconds(seconds))
+                .isActive(true)
+                .build();
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<FleetMapFrame> frames = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            builder.build().stream()
+                    .map(part -> part.getData())
+                    .filter(FleetMapFrame.class::isInstance)
+                    .map(FleetMapFrame.class::cast)
+                    .forEach(frames::add);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.Ambulances;
+import com.example.codebasebackend.dto.response.AmbulanceStatistics;
+import com.example.codebasebackend.repositories.AmbulanceRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// YEAR is an H2 keyword but a column of ambulances
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fleet-statistics;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FleetStatisticsTest {
+
+    @Autowired
+    private AmbulanceRepository ambulanceRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        save("KBA 001", Ambulances.AmbulanceStatus.AVAILABLE, Ambulances.AmbulanceType.BASIC_LIFE_SUPPORT, 12_000, 80, 4);
+        save("KBA 002", Ambulances.AmbulanceStatus.AVAILABLE, Ambulances.AmbulanceType.ADVANCED_LIFE_SUPPORT, 30_000, null, 9);
+        save("KBA 003", Ambulances.AmbulanceStatus.EN_ROUTE, Ambulances.AmbulanceType.BASIC_LIFE_SUPPORT, 8_000, 55, 2);
+        save("KBA 004", Ambulances.AmbulanceStatus.MAINTENANCE, Ambulances.AmbulanceType.CRITICAL_CARE, 51_000, 10, 20);
+        save("KBA 005", Ambulances.AmbulanceStatus.OUT_OF_SERVICE, Ambulances.AmbulanceType.NEONATAL, 2_000, 100, 0);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ambulanceRepository.deleteAll();
+    }
+
+    @Test
+    void computesTheSameFiguresAsSeparateQueriesInOneStatement() {
+        AmbulanceStatistics grouped = new FleetStatistics(ambulanceRepository, false).current();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(grouped).usingRecursiveComparison().isEqualTo(separateQueries());
+    }
+
+    @Test
+    void servesStatisticsFromTheSnapshotWithoutSql() {
+        FleetStatistics fleet = new FleetStatistics(ambulanceRepository, true);
+        AmbulanceStatistics loaded = fleet.current();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(loaded).usingRecursiveComparison().isEqualTo(separateQueries());
+
+        Ambulances ambulance = ambulanceRepository.findByVehiclePlateIgnoreCase("KBA 001").orElseThrow();
+        ambulance.setStatus(Ambulances.AmbulanceStatus.DISPATCHED);
+        fleet.record(ambulanceRepository.save(ambulance));
+        Ambulances added = save("KBA 006", Ambulances.AmbulanceStatus.AVAILABLE,
+                Ambulances.AmbulanceType.PATIENT_TRANSPORT, 1_000, 90, 1);
+        fleet.record(added);
+        Long removed = ambulanceRepository.findByVehiclePlateIgnoreCase("KBA 005").orElseThrow().getId();
+        ambulanceRepository.deleteById(removed);
+        fleet.remove(removed);
+        AmbulanceStatistics expected = separateQueries();
+
+        statistics.clear();
+        AmbulanceStatistics updated = fleet.current();
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(updated).usingRecursiveComparison().isEqualTo(expected);
+        assertThat(updated.getBusy()).isEqualTo(2);
+        assertThat(updated.getPatientTransport()).isEqualTo(1);
+    }
+
+    // What getStatistics computed before, one query per figure
+    private AmbulanceStatistics separateQueries() {
+        return AmbulanceStatistics.builder()
+                .totalFleet(ambulanceRepository.count())
+                .available(ambulanceRepository.countByStatus(Ambulances.AmbulanceStatus.AVAILABLE))
+                .busy(ambulanceRepository.countBusy())
+                .maintenance(ambulanceRepository.countByStatus(Ambulances.AmbulanceStatus.MAINTENANCE))
+                .outOfService(ambulanceRepository.countByStatus(Ambulances.AmbulanceStatus.OUT_OF_SERVICE))
+                .averageMileage(ambulanceRepository.getAverageMileage())
+                .averageFuelLevel(ambulanceRepository.getAverageFuelLevel())
+                .totalDispatches(ambulanceRepository.getTotalDispatches())
+                .basicLifeSupport(ambulanceRepository.countByType(Ambulances.AmbulanceType.BASIC_LIFE_SUPPORT))
+                .advancedLifeSupport(ambulanceRepository.countByType(Ambulances.AmbulanceType.ADVANCED_LIFE_SUPPORT))
+                .criticalCare(ambulanceRepository.countByType(Ambulances.AmbulanceType.CRITICAL_CARE))
+                .patientTransport(ambulanceRepository.countByType(Ambulances.AmbulanceType.PATIENT_TRANSPORT))
+                .build();
+    }
+
+    private Ambulances save(String plate, Ambulances.AmbulanceStatus status, Ambulances.AmbulanceType type,
+                            int mileage, Integer fuelLevel, int dispatches) {
+        return ambulanceRepository.save(Ambulances.builder()
+                .vehiclePlate(plate)
+                .status(status)
+                .type(type)
+                .year(2020)
+                .capacity(2)
+                .mileage(mileage)
+                .fuelLevel(fuelLevel)
+                .totalDispatches(dispatches)
+                .build());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.Ambulances.AmbulanceType;
+import com.example.codebasebackend.services.AvailableAmbulanceIndex.Candidate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class GeoGridIndexTest {
+
+    private static final AmbulanceType[] TYPES = AmbulanceType.values();
+
+    @Test
+    void findsTheNearestMatchesLikeAFullScan() {
+        Random random = new Random(7);
+        Vehicle[] vehicles = vehicles(random, 10_000);
+        GeoGridIndex<Candidate> index = index(vehicles);
+        Predicate<Candidate> icuCriticalCare = c -> c.type() == AmbulanceType.CRITICAL_CARE && c.equippedForIcu();
+
+        for (int i = 0; i < 200; i++) {
+            double latitude = -1.6 + random.nextDouble() * 0.8;
+            double longitude = 36.5 + random.nextDouble() * 0.8;
+            Predicate<Candidate> filter = i % 2 == 0 ? c -> true : icuCriticalCare;
+
+            List<Long> expected = Arrays.stream(vehicles)
+                    .filter(v -> filter.test(v.candidate()))
+                    .sorted(Comparator.comparingDouble((Vehicle v) ->
+                                    GeoGridIndex.haversineKm(latitude, longitude, v.latitude(), v.longitude()))
+                            .thenComparingLong(Vehicle::id))
+                    .limit(5)
+                    .map(Vehicle::id)
+                    .toList();
+            assertThat(index.nearest(latitude, longitude, 5, filter))
+                    .extracting(GeoGridIndex.Neighbour::id).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void searchesAcrossTheAntimeridianAndFallsBackForSparseMatches() {
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.05);
+        index.put(1, 0.0, 179.99, "east");
+        index.put(2, 0.0, -179.98, "west");
+        index.put(3, 0.0, 170.0, "far");
+        index.put(4, 40.0, -74.0, "rare");
+
+        assertThat(index.nearest(0.0, -179.99, 2, null))
+                .extracting(GeoGridIndex.Neighbour::id).containsExactly(2L, 1L);
+        assertThat(index.nearest(0.0, 179.99, 1, "rare"::equals))
+                .extracting(GeoGridIndex.Neighbour::id).containsExactly(4L);
+
+        index.put(2, 10.0, 10.0, "west");
+        index.remove(1);
+        assertThat(index.nearest(0.0, -179.99, 1, null))
+                .extracting(GeoGridIndex.Neighbour::id).containsExactly(3L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void haversineMatchesKnownDistances() {
+        // Nairobi CBD to Jomo Kenyatta International Airport, about 12.8 km in a straight line
+        assertThat(GeoGridIndex.haversineKm(-1.286389, 36.817223, -1.319167, 36.927778)).isBetween(12.5, 13.0);
+        assertThat(GeoGridIndex.haversineKm(0, 0, 0, 180)).isCloseTo(Math.PI * GeoGridIndex.EARTH_RADIUS_KM,
+                offset(0.001));
+    }
+
+    /**
+     * 5-nearest queries over 10k vehicles spread over a metro area, against the full scan the dispatch
+     * would otherwise need. Run with {@code mvn test -Dtest=GeoGridIndexTest -Dbenchmarks=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkNearestOverTenThousandVehicles() {
+        Random random = new Random(42);
+        Vehicle[] vehicles = vehicles(random, 10_000);
+        GeoGridIndex<Candidate> index = index(vehicles);
+        double[][] queries = IntStream.range(0, 20_000)
+                .mapToObj(i -> new double[]{-1.6 + random.nextDouble() * 0.8, 36.5 + random.nextDouble() * 0.8})
+                .toArray(double[][]::new);
+
+        long[] indexed = measure(queries, q -> index.nearest(q[0], q[1], 5, c -> c.type() != AmbulanceType.NEONATAL));
+        long[] scanned = measure(queries, q -> {
+            double[] best = new double[5];
+            Arrays.fill(best, Double.MAX_VALUE);
+            for (Vehicle vehicle : vehicles) {
+                if (vehicle.candidate().type() == AmbulanceType.NEONATAL) continue;
+                double distance = GeoGridIndex.haversineKm(q[0], q[1], vehicle.latitude(), vehicle.longitude());
+                if (distance < best[4]) {
+                    best[4] = distance;
+                    Arrays.sort(best);
+                }
+            }
+        });
+
+        System.out.printf("5-nearest over 10,000 vehicles: full scan p50=%.1fus p99=%.1fus, "
+                        + "grid p50=%.1fus p99=%.1fus%n",
+                percentile(scanned, 50), percentile(scanned, 99), percentile(indexed, 50), percentile(indexed, 99));
+        assertThat(percentile(indexed, 50)).isLessThan(percentile(scanned, 50));
+    }
+
+    private record Vehicle(long id, double latitude, double longitude, Candidate candidate) {
+    }
+
+    // Vehicles spread over roughly 90 x 90 km around Nairobi
+    private static Vehicle[] vehicles(Random random, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(id -> new Vehicle(id, -1.6 + random.nextDouble() * 0.8, 36.5 + random.nextDouble() * 0.8,
+                        new Candidate(TYPES[random.nextInt(TYPES.length)], random.nextInt(4) == 0)))
+                .toArray(Vehicle[]::new);
+    }
+
+    private static GeoGridIndex<Candidate> index(Vehicle[] vehicles) {
+        GeoGridIndex<Candidate> index = new GeoGridIndex<>(0.05);
+        for (Vehicle vehicle : vehicles) {
+            index.put(vehicle.id(), vehicle.latitude(), vehicle.longitude(), vehicle.candidate());
+        }
+        return index;
+    }
+
+    private static long[] measure(double[][] queries, Consumer<double[]> query) {
+        for (int i = 0; i < 2_000; i++) query.accept(queries[i]);
+        long[] nanos = new long[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            long start = System.nanoTime();
+            query.accept(queries[i]);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        int at = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, at)] / 1_000.0;
+    }
+}
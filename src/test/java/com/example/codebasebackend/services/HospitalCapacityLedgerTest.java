@@ -0,0 +1,202 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AmbulanceDispatch;
+import com.example.codebasebackend.Entities.Hospital;
+import com.example.codebasebackend.dto.AssistanceRequest;
+import com.example.codebasebackend.dto.AssistanceResponse;
+import com.example.codebasebackend.repositories.AmbulanceDispatchRepository;
+import com.example.codebasebackend.repositories.CommunityHealthWorkerAssignmentRepository;
+import com.example.codebasebackend.repositories.CommunityHealthWorkersRepository;
+import com.example.codebasebackend.repositories.HospitalRepository;
+import com.example.codebasebackend.repositories.PatientRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+// YEAR is an H2 keyword but a column of ambulances; the H2 dialect is needed for the dispatch row locks
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:dispatch-capacity;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR;LOCK_TIMEOUT=10000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HospitalCapacityLedgerTest {
+
+    private static final int CAPACITY = 5;
+    private static final int REQUESTS = 64;
+    private static final List<AmbulanceDispatch.DispatchStatus> OPEN = List.of(
+            AmbulanceDispatch.DispatchStatus.REQUESTED, AmbulanceDispatch.DispatchStatus.DISPATCHED,
+            AmbulanceDispatch.DispatchStatus.EN_ROUTE, AmbulanceDispatch.DispatchStatus.ON_SCENE,
+            AmbulanceDispatch.DispatchStatus.TRANSPORTING, AmbulanceDispatch.DispatchStatus.AT_HOSPITAL);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private HospitalRepository hospitalRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private AmbulanceDispatchRepository dispatchRepository;
+
+    @AfterEach
+    void tearDown() {
+        dispatchRepository.deleteAll();
+        hospitalRepository.deleteAll();
+    }
+
+    @ParameterizedTest(name = "shared={0}")
+    @ValueSource(booleans = {false, true})
+    void concurrentRequestsNeverOverCommitAHospital(boolean shared) throws Exception {
+        Hospital hospital = hospitalRepository.save(Hospital.builder()
+                .name("County Referral")
+                .registrationNumber("REG-" + shared)
+                .numberOfAmbulances(CAPACITY)
+                .build());
+        AssistanceServiceImplementation service = service(shared);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        assertThat(storm(tx, service, hospital.getId())).isEqualTo(CAPACITY);
+        assertThat(openDispatches(hospital.getId())).isEqualTo(CAPACITY);
+
+        // Deleting two open dispatches frees exactly two units
+        List<AmbulanceDispatch> open = dispatchRepository.findByHospitalId(hospital.getId());
+        tx.executeWithoutResult(status -> service.deleteDispatch(open.get(0).getId()));
+        tx.executeWithoutResult(status -> service.deleteDispatch(open.get(1).getId()));
+        // A request whose transaction rolls back gives its unit back
+        tx.executeWithoutResult(status -> {
+            assertThat(service.requestAssistance(request(hospital.getId())).getMode())
+                    .isEqualTo(AssistanceResponse.Mode.AMBULANCE);
+            status.setRollbackOnly();
+        });
+
+        assertThat(storm(tx, service, hospital.getId())).isEqualTo(2);
+        assertThat(openDispatches(hospital.getId())).isEqualTo(CAPACITY);
+    }
+
+    @Test
+    void aReleaseCommittingWhileTheCountIsSeededIsTakenOffOnce() throws Exception {
+        AmbulanceDispatchRepository dispatches = mock(AmbulanceDispatchRepository.class);
+        CountDownLatch seeding = new CountDownLatch(1);
+        // The seed reads the dispatch as still open, then the release commits before the count is stored
+        when(dispatches.countByHospitalIdAndStatusIn(any(), any())).thenAnswer(invocation -> {
+            seeding.countDown();
+            Thread.sleep(300);
+            return 1L;
+        });
+        HospitalCapacityLedger ledger = new HospitalCapacityLedger(dispatches, jdbcTemplate, transactionManager, false);
+        Hospital hospital = Hospital.builder().id(7L).numberOfAmbulances(2).build();
+
+        ExecutorService seeder = Executors.newSingleThreadExecutor();
+        Future<?> seeded = seeder.submit(() -> ledger.occupy(hospital.getId()));
+        seeding.await();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> ledger.release(hospital.getId()));
+        seeded.get();
+        seeder.shutdown();
+
+        // One unit is still taken by the occupy, so one of the two is free
+        assertThat(ledger.tryReserve(hospital)).isTrue();
+        assertThat(ledger.tryReserve(hospital)).isFalse();
+    }
+
+    // Fires concurrent requests at the hospital while watching that committed open dispatches never exceed
+    // its capacity; returns how many were given an ambulance
+    private int storm(TransactionTemplate tx, AssistanceServiceImplementation service, Long hospitalId) throws Exception {
+        AtomicInteger ambulances = new AtomicInteger();
+        AtomicLong mostOpen = new AtomicLong();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        ExecutorService callers = Executors.newFixedThreadPool(REQUESTS + 1);
+        for (int i = 0; i < REQUESTS; i++) {
+            callers.execute(() -> {
+                try {
+                    start.await();
+                    AssistanceResponse response = tx.execute(status -> service.requestAssistance(request(hospitalId)));
+                    if (response.getMode() == AssistanceResponse.Mode.AMBULANCE) ambulances.incrementAndGet();
+                } catch (ResponseStatusException e) {
+                    // No unit left and no CHW to fall back to
+                } catch (Throwable e) {
+                    failures.add(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        AtomicBoolean storming = new AtomicBoolean(true);
+        Future<?> watcher = callers.submit(() -> {
+            while (storming.get()) {
+                mostOpen.accumulateAndGet(openDispatches(hospitalId), Math::max);
+            }
+        });
+        start.countDown();
+        done.await();
+        storming.set(false);
+        watcher.get();
+        callers.shutdown();
+
+        assertThat(failures).isEmpty();
+        assertThat(mostOpen.get()).isLessThanOrEqualTo(CAPACITY);
+        return ambulances.get();
+    }
+
+    private long openDispatches(Long hospitalId) {
+        return dispatchRepository.countByHospitalIdAndStatusIn(hospitalId, OPEN);
+    }
+
+    private AssistanceServiceImplementation service(boolean shared) {
+        CommunityHealthWorkersService chwService = mock(CommunityHealthWorkersService.class);
+        when(chwService.findNearestAvailable(any(), any(), any()))
+                .thenThrow(new ResponseStatusException(NOT_FOUND, "No available CHW found"));
+        return new AssistanceServiceImplementation(hospitalRepository, patientRepository, dispatchRepository,
+                chwService, mock(CommunityHealthWorkersRepository.class),
+                mock(CommunityHealthWorkerAssignmentRepository.class), mock(AvailableChwIndex.class),
+                new HospitalCapacityLedger(dispatchRepository, jdbcTemplate, transactionManager, shared));
+    }
+
+    private static AssistanceRequest request(Long hospitalId) {
+        AssistanceRequest request = new AssistanceRequest();
+        request.setHospitalId(hospitalId);
+        request.setPickupLatitude(new BigDecimal("-1.286389"));
+        request.setPickupLongitude(new BigDecimal("36.817223"));
+        request.setPriority("HIGH");
+        return request;
+    }
+}
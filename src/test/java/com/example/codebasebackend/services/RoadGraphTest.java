@@ -0,0 +1,202 @@
+package com.example.codebasebackend.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class RoadGraphTest {
+
+    @Test
+    void findsTheFastestRouteLikeDijkstra() {
+        City city = city(new Random(3), 60);
+        Random random = new Random(11);
+        for (int i = 0; i < 300; i++) {
+            int from = random.nextInt(city.graph.nodeCount());
+            int to = random.nextInt(city.graph.nodeCount());
+            double expected = city.dijkstraSeconds(from, to);
+            RoadGraph.Path path = city.graph.route(from, to);
+            if (Double.isInfinite(expected)) {
+                assertThat(path).isNull();
+                continue;
+            }
+            assertThat(path.seconds()).isCloseTo(expected, offset(1e-2));
+            assertThat(path.nodes()[0]).isEqualTo(from);
+            assertThat(path.nodes()[path.nodes().length - 1]).isEqualTo(to);
+        }
+    }
+
+    @Test
+    void snapsToTheNearestNodeWithinReach() {
+        City city = city(new Random(5), 40);
+        Random random = new Random(17);
+        for (int i = 0; i < 200; i++) {
+            double latitude = -1.30 + random.nextDouble() * 0.04;
+            double longitude = 36.80 + random.nextDouble() * 0.04;
+            int expected = -1;
+            double best = Double.MAX_VALUE;
+            for (int v = 0; v < city.graph.nodeCount(); v++) {
+                double km = GeoGridIndex.haversineKm(latitude, longitude, city.graph.latitude(v), city.graph.longitude(v));
+                if (km < best) {
+                    best = km;
+                    expected = v;
+                }
+            }
+            assertThat(city.graph.nearestNode(latitude, longitude, 5)).isEqualTo(expected);
+        }
+        assertThat(city.graph.nearestNode(0, 0, 5)).isEqualTo(-1);
+    }
+
+    @Test
+    void loadsDrivableWaysFromOsmXml() throws Exception {
+        String osm = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <osm version="0.6">
+                  <node id="1" lat="-1.2800" lon="36.8000"/>
+                  <node id="2" lat="-1.2800" lon="36.8100"/>
+                  <node id="3" lat="-1.2900" lon="36.8100"/>
+                  <node id="4" lat="-1.2900" lon="36.8000"/>
+                  <node id="5" lat="-1.2850" lon="36.8050"/>
+                  <way id="10">
+                    <nd ref="1"/><nd ref="2"/>
+                    <tag k="highway" v="primary"/><tag k="oneway" v="yes"/><tag k="maxspeed" v="50"/>
+                  </way>
+                  <way id="11">
+                    <nd ref="2"/><nd ref="3"/><nd ref="4"/><nd ref="1"/>
+                    <tag k="highway" v="residential"/>
+                  </way>
+                  <way id="12">
+                    <nd ref="4"/><nd ref="5"/><nd ref="99"/>
+                    <tag k="highway" v="footway"/>
+                  </way>
+                </osm>
+                """;
+        RoadGraph graph = OsmRoadGraphLoader.load(new ByteArrayInputStream(osm.getBytes(StandardCharsets.UTF_8)));
+
+        // The footway and its nodes are not part of the road network
+        assertThat(graph.nodeCount()).isEqualTo(4);
+        assertThat(graph.edgeCount()).isEqualTo(7);
+        int west = graph.nearestNode(-1.2800, 36.8000, 0.1);
+        int east = graph.nearestNode(-1.2800, 36.8100, 0.1);
+        double km = GeoGridIndex.haversineKm(-1.28, 36.80, -1.28, 36.81);
+        // East along the one-way primary at 50 km/h; back west around the block at 25 km/h
+        assertThat(graph.route(west, east).seconds()).isCloseTo(km / 50 * 3600, offset(0.1));
+        assertThat(graph.route(east, west).nodes()).hasSize(4);
+        assertThat(graph.route(east, west).meters() / 1000).isCloseTo(3 * km, offset(0.01));
+    }
+
+    /**
+     * Point-to-point routes across a city-sized grid (about 250k nodes, 1M directed edges). Run with
+     * {@code mvn test -Dtest=RoadGraphTest -Dbenchmarks=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkCitySizedRoutes() {
+        long loadStart = System.nanoTime();
+        City city = city(new Random(42), 500);
+        long loadMs = (System.nanoTime() - loadStart) / 1_000_000;
+        Random random = new Random(7);
+        int[][] queries = new int[2_000][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new int[]{random.nextInt(city.graph.nodeCount()), random.nextInt(city.graph.nodeCount())};
+        }
+        for (int i = 0; i < 200; i++) city.graph.route(queries[i][0], queries[i][1]);
+        long[] nanos = new long[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            long start = System.nanoTime();
+            city.graph.route(queries[i][0], queries[i][1]);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%,d nodes, %,d edges (built in %d ms): route p50=%.2fms p99=%.2fms%n",
+                city.graph.nodeCount(), city.graph.edgeCount(), loadMs,
+                nanos[nanos.length / 2] / 1e6, nanos[(int) (nanos.length * 0.99)] / 1e6);
+        assertThat(nanos[(int) (nanos.length * 0.99)]).isLessThan(10_000_000L);
+    }
+
+    private record Edge(int to, double seconds) {
+    }
+
+    /** The packed graph, and the same streets as plain adjacency lists numbered like the graph's nodes. */
+    private record City(RoadGraph graph, List<List<Edge>> adjacency) {
+
+        double dijkstraSeconds(int from, int to) {
+            double[] best = new double[adjacency.size()];
+            Arrays.fill(best, Double.POSITIVE_INFINITY);
+            best[from] = 0;
+            PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+            queue.add(new double[]{0, from});
+            while (!queue.isEmpty()) {
+                double[] top = queue.poll();
+                int node = (int) top[1];
+                if (top[0] > best[node]) continue;
+                if (node == to) return top[0];
+                for (Edge edge : adjacency.get(node)) {
+                    double seconds = top[0] + edge.seconds();
+                    if (seconds < best[edge.to()]) {
+                        best[edge.to()] = seconds;
+                        queue.add(new double[]{seconds, edge.to()});
+                    }
+                }
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    // A size x size street grid about 100 m apart around Nairobi: residential streets, faster arterials every
+    // tenth row and column, some one-way streets and some missing blocks
+    private static City city(Random random, int size) {
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        double[][] coordinates = new double[size * size][];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                double lat = -1.30 + r * 0.0009 + random.nextDouble() * 0.0002;
+                double lon = 36.80 + c * 0.0009 + random.nextDouble() * 0.0002;
+                coordinates[builder.addNode(lat, lon)] = new double[]{lat, lon};
+            }
+        }
+        List<int[]> streets = new ArrayList<>();
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int node = r * size + c;
+                double kmh = 25 + random.nextInt(15);
+                if (c + 1 < size && random.nextInt(12) != 0) addStreet(streets, random, node, node + 1, r % 10 == 0 ? 60 : kmh);
+                if (r + 1 < size && random.nextInt(12) != 0) addStreet(streets, random, node, node + size, c % 10 == 0 ? 60 : kmh);
+            }
+        }
+        for (int[] street : streets) builder.addEdge(street[0], street[1], street[2]);
+        RoadGraph graph = builder.build();
+
+        // build() renumbers the nodes; find each one again by its coordinates
+        Map<String, Integer> packed = new HashMap<>();
+        for (int v = 0; v < graph.nodeCount(); v++) packed.put(graph.latitude(v) + "," + graph.longitude(v), v);
+        List<List<Edge>> adjacency = new ArrayList<>();
+        for (int v = 0; v < graph.nodeCount(); v++) adjacency.add(new ArrayList<>());
+        for (int[] street : streets) {
+            double[] a = coordinates[street[0]];
+            double[] b = coordinates[street[1]];
+            double meters = GeoGridIndex.haversineKm(a[0], a[1], b[0], b[1]) * 1000;
+            adjacency.get(packed.get(a[0] + "," + a[1]))
+                    .add(new Edge(packed.get(b[0] + "," + b[1]), (float) (meters / (street[2] / 3.6))));
+        }
+        return new City(graph, adjacency);
+    }
+
+    // Two-way, except one street in ten is one-way in either direction
+    private static void addStreet(List<int[]> streets, Random random, int a, int b, double kmh) {
+        int direction = random.nextInt(20);
+        if (direction != 0) streets.add(new int[]{a, b, (int) kmh});
+        if (direction != 1) streets.add(new int[]{b, a, (int) kmh});
+    }
+}
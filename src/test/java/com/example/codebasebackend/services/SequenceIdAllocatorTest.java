@@ -0,0 +1,139 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.*;
+import com.example.codebasebackend.dto.TelemedicineSessionRequest;
+import com.example.codebasebackend.dto.TelemedicineSessionResponse;
+import com.example.codebasebackend.repositories.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SequenceIdAllocatorTest {
+
+    private static final int BLOCK_SIZE = 50;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    // Stands in for the Postgres sequence (INCREMENT BY block size)
+    private final AtomicLong sequence = new AtomicLong(1);
+
+    private SequenceIdAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COALESCE"), eq(Long.class))).thenReturn(0L);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT nextval"), eq(Long.class)))
+                .thenAnswer(inv -> sequence.getAndAdd(BLOCK_SIZE));
+        allocator = new SequenceIdAllocator(jdbcTemplate, transactionManager, BLOCK_SIZE);
+    }
+
+    @Test
+    void keepsHumanReadablePrefixes() {
+        assertThat(allocator.nextId(SequenceIdAllocator.Kind.TELEMEDICINE_SESSION)).isEqualTo("TM-001");
+        assertThat(allocator.nextId(SequenceIdAllocator.Kind.TELEMEDICINE_SESSION)).isEqualTo("TM-002");
+        assertThat(allocator.nextId(SequenceIdAllocator.Kind.DOCTOR)).isEqualTo("DOC-051");
+    }
+
+    @Test
+    void parallelSessionCreatesGetUniqueIdsWithoutCountQueries() throws Exception {
+        TelemedicineSessionRepository sessionRepository = mock(TelemedicineSessionRepository.class);
+        PatientRepository patientRepository = mock(PatientRepository.class);
+        DoctorRepository doctorRepository = mock(DoctorRepository.class);
+
+        Patient patient = new Patient();
+        patient.setId(1L);
+        patient.setFirstName("Ivy");
+        patient.setLastName("Smith");
+        Doctor doctor = new Doctor();
+        doctor.setId(2L);
+        doctor.setFirstName("Alex");
+        doctor.setLastName("Lee");
+
+        when(patientRepository.findById(1L)).thenReturn(Optional.of(patient));
+        when(doctorRepository.findById(2L)).thenReturn(Optional.of(doctor));
+        when(sessionRepository.save(any(TelemedicineSession.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        TelemedicineSessionServiceImplementation service = new TelemedicineSessionServiceImplementation(
+                sessionRepository, patientRepository, doctorRepository,
+                mock(HospitalRepository.class),
+                mock(AppointmentRepository.class),
+                mock(UserRepository.class),
+                mock(TelemedicineAggregateStore.class),
+                allocator,
+                mock(DoctorPresenceRegistry.class),
+                mock(TelemedicineSessionEventBroadcaster.class),
+                mock(SessionReminderDispatcher.class),
+                mock(SessionHistoryExporter.class),
+                mock(DirectorySearchIndex.class),
+                mock(SessionParticipantIndex.class));
+
+        TelemedicineSessionRequest request = TelemedicineSessionRequest.builder()
+                .patientId(1L)
+                .doctorId(2L)
+                .sessionType(SessionType.CONSULTATION)
+                .platform(PlatformType.VIDEO_CALL)
+                .priority(Priority.NORMAL)
+                .startTime(OffsetDateTime.now().plusDays(1))
+                .plannedDuration(30)
+                .cost(BigDecimal.TEN)
+                .build();
+
+        int threads = 16;
+        int perThread = 250;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        TelemedicineSessionResponse response = service.createSession(request);
+                        ids.add(response.getSessionId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(threads * perThread);
+        verify(sessionRepository, never()).count();
+        // One nextval per block, not one query per insert
+        verify(jdbcTemplate, times(threads * perThread / BLOCK_SIZE))
+                .queryForObject(startsWith("SELECT nextval"), eq(Long.class));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.SessionStatus;
+import com.example.codebasebackend.repositories.TelemedicineSessionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SessionHistoryExporterTest {
+
+    private static final OffsetDateTime FROM = OffsetDateTime.of(2025, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime TO = FROM.plusDays(7);
+
+    @Mock
+    private TelemedicineSessionRepository sessionRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final List<Object[]> table = new ArrayList<>();
+    private SessionHistoryExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        // Two sessions share a start time so the id tie-breaker is exercised
+        table.add(row(1L, FROM.plusHours(1), "Cough"));
+        table.add(row(2L, FROM.plusHours(2), "Flu, mild"));
+        table.add(row(3L, FROM.plusHours(2), null));
+        table.add(row(4L, FROM.plusHours(5), "Follow \"up\""));
+        table.add(row(5L, FROM.plusDays(1), null));
+        lenient().when(sessionRepository.findHistoryPage(any(), any(), any(), any())).thenAnswer(inv -> keysetPage(
+                inv.getArgument(0), inv.getArgument(1), inv.getArgument(2), inv.getArgument(3)));
+        exporter = new SessionHistoryExporter(sessionRepository, objectMapper, 2);
+    }
+
+    @Test
+    void jsonExportWalksAllPagesAndMarksCompletion() throws Exception {
+        JsonNode export = objectMapper.readTree(export(SessionHistoryExporter.Cursor.start(FROM, TO), "json"));
+
+        assertThat(export.get("items")).extracting(item -> item.get("id").asText())
+                .containsExactly("TM-1", "TM-2", "TM-3", "TM-4", "TM-5");
+        assertThat(export.get("complete").asBoolean()).isTrue();
+        verify(sessionRepository, times(3)).findHistoryPage(any(), any(), any(), any());
+    }
+
+    @Test
+    void resumesAfterTheLastReceivedRow() throws Exception {
+        JsonNode first = objectMapper.readTree(export(SessionHistoryExporter.Cursor.start(FROM, TO), "json"));
+        String cursorAfterSecond = first.get("items").get(1).get("cursor").asText();
+
+        JsonNode resumed = objectMapper.readTree(export(SessionHistoryExporter.Cursor.decode(cursorAfterSecond), "json"));
+
+        assertThat(resumed.get("items")).extracting(item -> item.get("id").asText())
+                .containsExactly("TM-3", "TM-4", "TM-5");
+        assertThat(resumed.get("from").asText()).isEqualTo(FROM.toString());
+    }
+
+    @Test
+    void csvExportQuotesFieldsThatNeedIt() throws Exception {
+        String csv = export(SessionHistoryExporter.Cursor.start(FROM, TO), "csv");
+        String[] lines = csv.split("\r\n");
+
+        assertThat(lines).hasSize(6);
+        assertThat(lines[0]).startsWith("id,patient,doctor,date");
+        assertThat(lines[2]).contains(",\"Flu, mild\",");
+        assertThat(lines[4]).contains(",\"Follow \"\"up\"\"\",");
+    }
+
+    @Test
+    void rejectsMalformedCursorsAndFormats() {
+        assertThatThrownBy(() -> SessionHistoryExporter.Cursor.decode("not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SessionHistoryExporter.Format.parse("xml"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String export(SessionHistoryExporter.Cursor cursor, String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.write(cursor, SessionHistoryExporter.Format.parse(format), out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // Mirrors the repository's keyset predicate and ordering
+    private List<Object[]> keysetPage(OffsetDateTime afterStartTime, Long afterId, OffsetDateTime to, Pageable limit) {
+        return table.stream()
+                .filter(r -> !((OffsetDateTime) r[2]).isAfter(to))
+                .filter(r -> {
+                    int byTime = ((OffsetDateTime) r[2]).compareTo(afterStartTime);
+                    return byTime > 0 || (byTime == 0 && (Long) r[0] > afterId);
+                })
+                .limit(limit.getPageSize())
+                .toList();
+    }
+
+    private static Object[] row(Long id, OffsetDateTime startTime, String diagnosis) {
+        return new Object[]{id, "TM-" + id, startTime, "Ivy", "Smith", "Alex", null, "Lee",
+                30, SessionStatus.COMPLETED, 5, BigDecimal.TEN, diagnosis, false, null};
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.*;
+import com.example.codebasebackend.repositories.DoctorRepository;
+import com.example.codebasebackend.repositories.PatientRepository;
+import com.example.codebasebackend.repositories.TelemedicineSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SessionReminderDispatcherTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TelemedicineSessionRepository sessionRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Patient patient = patientRepository.save(Patient.builder()
+                .firstName("Ivy")
+                .lastName("Smith")
+                .email("ivy@example.com")
+                .gender(Patient.Gender.FEMALE)
+                .status(Patient.PatientStatus.ACTIVE)
+                .build());
+        Doctor doctor = new Doctor();
+        doctor.setFirstName("Alex");
+        doctor.setLastName("Lee");
+        doctor.setEmail("alex@example.com");
+        doctor.setLicenseNumber("LIC-1");
+        doctor = doctorRepository.save(doctor);
+
+        OffsetDateTime now = OffsetDateTime.now();
+        for (int i = 0; i < 30; i++) {
+            sessionRepository.save(session("TM-" + i, patient, doctor, now.plusHours(1 + i % 20), false));
+        }
+        sessionRepository.save(session("TM-LATER", patient, doctor, now.plusDays(3), false));
+        sessionRepository.save(session("TM-DONE", patient, doctor, now.plusHours(2), true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentDispatchersSendEachDueReminderOnce() {
+        SessionReminderDispatcher nodeA = dispatcher(reminder -> delivered.add(reminder.sessionId()));
+        SessionReminderDispatcher nodeB = dispatcher(reminder -> delivered.add(reminder.sessionId()));
+
+        CompletableFuture<Integer> a = CompletableFuture.supplyAsync(nodeA::dispatch);
+        CompletableFuture<Integer> b = CompletableFuture.supplyAsync(nodeB::dispatch);
+
+        assertThat(a.join() + b.join()).isEqualTo(30);
+        assertThat(delivered).hasSize(30).doesNotHaveDuplicates().doesNotContain("TM-LATER", "TM-DONE");
+        assertThat(nodeA.dispatch()).isZero();
+        assertThat(sessionRepository.findAll())
+                .filteredOn(session -> !session.getSessionId().equals("TM-LATER"))
+                .allSatisfy(session -> assertThat(session.getReminderSent()).isTrue());
+    }
+
+    @Test
+    void failedDeliveriesAreReleasedForRetry() {
+        SessionReminderDispatcher dispatcher = dispatcher(reminder -> {
+            if (reminder.sessionId().equals("TM-3")) throw new IllegalStateException("SMS gateway down");
+            delivered.add(reminder.sessionId());
+        });
+
+        dispatcher.dispatch();
+
+        assertThat(delivered).hasSize(29).doesNotContain("TM-3");
+        TelemedicineSession failed = sessionRepository.findBySessionId("TM-3").orElseThrow();
+        assertThat(failed.getReminderSent()).isFalse();
+        assertThat(failed.getReminderSentAt()).isNull();
+        assertThat(failed.getReminderClaimedAt()).isNull();
+    }
+
+    @Test
+    void aClaimLeftByAStoppedNodeIsTakenOverOnceItExpires() {
+        // TM-0 was claimed an hour ago by a node that never finished; TM-1 is being delivered right now
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(dataSource);
+        jdbc.update("UPDATE telemedicine_sessions SET reminder_claimed_at = :at WHERE session_id = 'TM-0'",
+                Map.of("at", OffsetDateTime.now().minusHours(1)));
+        jdbc.update("UPDATE telemedicine_sessions SET reminder_claimed_at = :at WHERE session_id = 'TM-1'",
+                Map.of("at", OffsetDateTime.now()));
+
+        dispatcher(reminder -> delivered.add(reminder.sessionId())).dispatch();
+
+        assertThat(delivered).hasSize(29).contains("TM-0").doesNotContain("TM-1");
+        assertThat(sessionRepository.findBySessionId("TM-0").orElseThrow().getReminderSent()).isTrue();
+        assertThat(sessionRepository.findBySessionId("TM-1").orElseThrow().getReminderSent()).isFalse();
+    }
+
+    private SessionReminderDispatcher dispatcher(SessionReminderSender sender) {
+        return new SessionReminderDispatcher(new NamedParameterJdbcTemplate(dataSource), transactionManager,
+                sender, new SimpleMeterRegistry(), 24, 4, 100, 600_000, 4);
+    }
+
+    private static TelemedicineSession session(String sessionId, Patient patient, Doctor doctor,
+                                               OffsetDateTime startTime, boolean reminderSent) {
+        TelemedicineSession session = new TelemedicineSession();
+        session.setSessionId(sessionId);
+        session.setPatient(patient);
+        session.setDoctor(doctor);
+        session.setSessionType(SessionType.CONSULTATION);
+        session.setPlatform(PlatformType.VIDEO_CALL);
+        session.setStartTime(startTime);
+        session.setCost(BigDecimal.TEN);
+        session.setReminderSent(reminderSent);
+        return session;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.SessionStatus;
+import com.example.codebasebackend.repositories.DoctorRepository;
+import com.example.codebasebackend.repositories.TelemedicineSessionRepository;
+import com.example.codebasebackend.services.TelemedicineAggregateStore.SessionFacts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TelemedicineAggregateStoreTest {
+
+    @Mock
+    private TelemedicineSessionRepository sessionRepository;
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TelemedicineAggregateStore store;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new TelemedicineAggregateStore(sessionRepository, doctorRepository, transactionManager, meterRegistry);
+    }
+
+    @Test
+    void tracksLifecycleTransitionsWithoutQueries() {
+        stubEmptyDatabase(2);
+        store.reconcile();
+
+        OffsetDateTime createdAt = OffsetDateTime.now().minusHours(2);
+        SessionFacts scheduled = facts(SessionStatus.SCHEDULED, createdAt, "PENDING", null, null);
+        SessionFacts active = facts(SessionStatus.ACTIVE, createdAt, "PENDING", null, null);
+        SessionFacts completed = facts(SessionStatus.COMPLETED, createdAt, "PAID", 30, null);
+        SessionFacts rated = facts(SessionStatus.COMPLETED, createdAt, "PAID", 30, 4);
+
+        store.record(null, scheduled);
+        store.record(scheduled, active);
+        assertThat(store.countByStatus(SessionStatus.ACTIVE)).isEqualTo(1);
+        assertThat(store.doctorsInActiveSessions()).isEqualTo(1);
+
+        store.record(active, completed);
+        store.record(completed, rated);
+
+        assertThat(store.totalSessions()).isEqualTo(1);
+        assertThat(store.countByStatus(SessionStatus.ACTIVE)).isZero();
+        assertThat(store.doctorsInActiveSessions()).isZero();
+        assertThat(store.averageDuration()).isEqualTo(30.0);
+        assertThat(store.averageRating()).isEqualTo(4.0);
+        assertThat(store.revenueBetween(OffsetDateTime.now().minusDays(1), OffsetDateTime.now()))
+                .isEqualByComparingTo("50.00");
+        assertThat(store.revenueBySpecialty()).singleElement()
+                .satisfies(row -> assertThat(row.getSessions()).isEqualTo(1));
+    }
+
+    @Test
+    void reconcileReportsDriftAndResetsToDatabase() {
+        stubEmptyDatabase(0);
+        store.reconcile();
+
+        // A session the database never saw
+        store.record(null, facts(SessionStatus.SCHEDULED, OffsetDateTime.now(), "PENDING", null, null));
+        store.reconcile();
+
+        assertThat(meterRegistry.get("telemedicine.aggregates.drift.detected").counter().count()).isEqualTo(1.0);
+        assertThat(store.totalSessions()).isZero();
+    }
+
+    @Test
+    void replaysChangesCommittedDuringReconcileWithoutReportingDrift() {
+        stubEmptyDatabase(0);
+        store.reconcile();
+        // Committed after the snapshot was taken but before the rebuilt counters are swapped in
+        when(sessionRepository.countGroupedByStatus()).thenAnswer(invocation -> {
+            store.record(null, facts(SessionStatus.SCHEDULED, OffsetDateTime.now(), "PENDING", null, null));
+            return List.of();
+        });
+
+        store.reconcile();
+
+        assertThat(store.totalSessions()).isEqualTo(1);
+        assertThat(meterRegistry.get("telemedicine.aggregates.drift.detected").counter().count()).isZero();
+    }
+
+    @Test
+    void aChangeCommittingAsTheSnapshotIsTakenIsCountedOnce() throws Exception {
+        stubEmptyDatabase(0);
+        store.reconcile();
+        // The snapshot sees the session once its transaction has committed
+        when(sessionRepository.countGroupedByStatus())
+                .thenReturn(List.<Object[]>of(new Object[]{SessionStatus.SCHEDULED, 1L}));
+
+        ExecutorService committer = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch committing = new CountDownLatch(1);
+            CountDownLatch finish = new CountDownLatch(1);
+            Future<?> transaction = committer.submit(() -> {
+                TransactionSynchronizationManager.initSynchronization();
+                try {
+                    store.record(null, facts(SessionStatus.SCHEDULED, OffsetDateTime.now(), "PENDING", null, null));
+                    TransactionSynchronizationUtils.triggerBeforeCommit(false);
+                    committing.countDown();
+                    finish.await(5, TimeUnit.SECONDS);
+                    TransactionSynchronizationUtils.triggerAfterCommit();
+                    TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+                } finally {
+                    TransactionSynchronizationManager.clear();
+                }
+                return null;
+            });
+            committing.await(5, TimeUnit.SECONDS);
+            CompletableFuture<Void> rebuild = CompletableFuture.runAsync(store::reconcile);
+            Thread.sleep(200);
+            // The snapshot waits for the commit in flight
+            assertThat(rebuild).isNotDone();
+            finish.countDown();
+            transaction.get(5, TimeUnit.SECONDS);
+            rebuild.get(5, TimeUnit.SECONDS);
+        } finally {
+            committer.shutdownNow();
+        }
+
+        assertThat(store.totalSessions()).isEqualTo(1);
+        assertThat(meterRegistry.get("telemedicine.aggregates.drift.detected").counter().count()).isZero();
+    }
+
+    @Test
+    void adjacentRevenueWindowsDoNotShareAnHour() {
+        stubEmptyDatabase(1);
+        store.reconcile();
+        OffsetDateTime boundary = OffsetDateTime.now().minusDays(3).withMinute(30);
+        store.record(null, facts(SessionStatus.COMPLETED, boundary.minusMinutes(10), "PAID", 30, null));
+
+        BigDecimal before = store.revenueBetween(boundary.minusDays(1), boundary);
+        BigDecimal after = store.revenueBetween(boundary, OffsetDateTime.now());
+
+        assertThat(before.add(after)).isEqualByComparingTo("50.00");
+        assertThat(before).isEqualByComparingTo("50.00");
+    }
+
+    private void stubEmptyDatabase(long doctors) {
+        when(sessionRepository.countGroupedByStatus()).thenReturn(List.of());
+        when(sessionRepository.countActiveSessionsGroupedByDoctor()).thenReturn(List.of());
+        when(sessionRepository.sumAndCountCompletedDuration()).thenReturn(List.<Object[]>of(new Object[]{0L, 0L}));
+        when(sessionRepository.sumAndCountRating()).thenReturn(List.<Object[]>of(new Object[]{0L, 0L}));
+        when(sessionRepository.findPaidRevenueSince(any())).thenReturn(List.of());
+        when(sessionRepository.sumRevenueGroupedBySpecialty()).thenReturn(List.of());
+        when(doctorRepository.count()).thenReturn(doctors);
+    }
+
+    private static SessionFacts facts(SessionStatus status, OffsetDateTime createdAt, String paymentStatus,
+                                      Integer duration, Integer rating) {
+        return new SessionFacts(5L, "Cardiology", status, createdAt, new BigDecimal("50.00"),
+                paymentStatus, duration, rating);
+    }
+}
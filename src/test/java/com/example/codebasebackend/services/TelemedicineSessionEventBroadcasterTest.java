@@ -0,0 +1,103 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.Doctor;
+import com.example.codebasebackend.Entities.Patient;
+import com.example.codebasebackend.Entities.SessionStatus;
+import com.example.codebasebackend.Entities.TelemedicineSession;
+import com.example.codebasebackend.dto.TelemedicineSessionEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class TelemedicineSessionEventBroadcasterTest {
+
+    private final TelemedicineSessionEventBroadcaster broadcaster =
+            new TelemedicineSessionEventBroadcaster(new SimpleMeterRegistry(), 2, 60_000, 1);
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void deliversOnlyMatchingEventsInOrder() {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        broadcaster.subscribe(new TelemedicineSessionEventBroadcaster.Filter(7L, null, null), emitter);
+
+        broadcaster.publish("started", SessionStatus.SCHEDULED, session(1L, 7L, SessionStatus.ACTIVE));
+        broadcaster.publish("started", SessionStatus.SCHEDULED, session(2L, 8L, SessionStatus.ACTIVE));
+        broadcaster.publish("paused", SessionStatus.ACTIVE, session(1L, 7L, SessionStatus.PAUSED));
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> emitter.events.size() == 2);
+        assertThat(emitter.events).extracting(TelemedicineSessionEvent::getAction).containsExactly("started", "paused");
+        assertThat(emitter.events).allSatisfy(event -> assertThat(event.getDoctorId()).isEqualTo(7L));
+    }
+
+    @Test
+    void slowSubscriberDropsOldestAndIsToldHowMany() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        broadcaster.subscribe(new TelemedicineSessionEventBroadcaster.Filter(null, null, null), emitter);
+
+        // The first event blocks in send; the next five compete for a two-slot buffer
+        broadcaster.publish("started", SessionStatus.SCHEDULED, session(1L, 7L, SessionStatus.ACTIVE));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> emitter.sending);
+        for (long id = 2; id <= 6; id++) {
+            broadcaster.publish("started", SessionStatus.SCHEDULED, session(id, 7L, SessionStatus.ACTIVE));
+        }
+        release.countDown();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> emitter.events.size() == 3);
+        assertThat(emitter.events).extracting(TelemedicineSessionEvent::getId).containsExactly(1L, 5L, 6L);
+        assertThat(emitter.events.get(1).getDroppedBefore()).isEqualTo(3);
+        assertThat(emitter.events.get(2).getDroppedBefore()).isZero();
+    }
+
+    private static TelemedicineSession session(Long id, Long doctorId, SessionStatus status) {
+        Doctor doctor = new Doctor();
+        doctor.setId(doctorId);
+        Patient patient = new Patient();
+        patient.setId(100L + id);
+        TelemedicineSession session = new TelemedicineSession();
+        session.setId(id);
+        session.setSessionId("TM-00" + id);
+        session.setDoctor(doctor);
+        session.setPatient(patient);
+        session.setStatus(status);
+        return session;
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<TelemedicineSessionEvent> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch release;
+        volatile boolean sending;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sending = true;
+            try {
+                if (release != null) release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            builder.build().stream()
+                    .map(part -> part.getData())
+                    .filter(TelemedicineSessionEvent.class::isInstance)
+                    .map(TelemedicineSessionEvent.class::cast)
+                    .forEach(events::add);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.services.TextSearchIndex.Field;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextSearchIndexTest {
+
+    private final TextSearchIndex index = new TextSearchIndex();
+
+    @Test
+    void matchesPrefixesAndTyposAndRanksExactMatchesFirst() {
+        index.put(1, person("Jonathan", "Smith", "jon@example.com"));
+        index.put(2, person("Jon", "Smithers", "js@example.com"));
+        index.put(3, person("John", "Smyth", "john@example.com"));
+        index.put(4, person("Ann", "Jones", "ann@example.com"));
+        index.put(5, person("Jon", "Smith", "jsmith@example.com"));
+
+        TextSearchIndex.Result result = index.search("jon smith", 10);
+
+        assertThat(result.ids()).containsExactly(5L, 2L, 1L);
+        assertThat(result.hits().get(0).score()).isEqualTo(TextSearchIndex.EXACT_SCORE);
+        assertThat(index.search("smi", 10).ids()).containsExactly(1L, 5L, 2L);
+        assertThat(index.search("smoth", 10).ids()).containsExactly(1L, 3L, 5L);
+        assertThat(index.search("jonathon", 10).ids()).containsExactly(1L);
+    }
+
+    @Test
+    void foldsCaseAndAccentsAndWeighsEmailBelowNames() {
+        index.put(1, person("José", "Álvarez", "jose@example.com"));
+        index.put(2, person("Mary", "Wanjiru", "jose@example.org"));
+
+        TextSearchIndex.Result result = index.search("JOSE", 10);
+
+        assertThat(result.ids()).containsExactly(1L, 2L);
+        assertThat(result.hits().get(1).score()).isLessThan(TextSearchIndex.EXACT_SCORE);
+        assertThat(index.search("alvarez", 10).ids()).containsExactly(1L);
+    }
+
+    @Test
+    void updatesAndRemovalsReplaceOldTokens() {
+        index.put(1, person("Grace", "Hopper", null));
+        index.put(1, person("Grace", "Murray", null));
+        index.put(2, person("Grace", "Kelly", null));
+        index.remove(2);
+
+        assertThat(index.search("hopper", 10).total()).isZero();
+        assertThat(index.search("grace", 10).ids()).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void limitsHitsButReportsTheTotal() {
+        for (long id = 1; id <= 50; id++) index.put(id, person("Amina", "Otieno" + id, null));
+
+        TextSearchIndex.Result result = index.search("amina", 5);
+
+        assertThat(result.hits()).hasSize(5);
+        assertThat(result.total()).isEqualTo(50);
+    }
+
+    /**
+     * Compares the session search at 1M sessions (over 250k patients and 2k doctors) against the substring
+     * scan the old {@code LOWER(...) LIKE '%term%'} query forced on every search. Only the in-memory part is
+     * measured; the database side of the new search is an indexed lookup by patient/doctor/session ID.
+     * Run with {@code mvn test -Dtest=TextSearchIndexTest -Dbenchmarks=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkAgainstSubstringScan() {
+        Random random = new Random(42);
+        String[] first = names(random, 4000);
+        String[] last = names(random, 20000);
+        int patients = 250_000;
+        int doctors = 2_000;
+        int sessions = 1_000_000;
+
+        TextSearchIndex patientIndex = new TextSearchIndex();
+        TextSearchIndex doctorIndex = new TextSearchIndex();
+        String[][] patientNames = new String[patients][];
+        String[][] doctorNames = new String[doctors][];
+        for (int i = 0; i < patients; i++) {
+            patientNames[i] = new String[]{first[random.nextInt(first.length)], last[random.nextInt(last.length)]};
+            patientIndex.put(i, person(patientNames[i][0], patientNames[i][1], null));
+        }
+        for (int i = 0; i < doctors; i++) {
+            doctorNames[i] = new String[]{first[random.nextInt(first.length)], last[random.nextInt(last.length)]};
+            doctorIndex.put(i, person(doctorNames[i][0], doctorNames[i][1], null));
+        }
+        // Lower-cased copies, as LOWER() would produce them, of the five searched columns per session
+        String[][] rows = new String[sessions][];
+        for (int i = 0; i < sessions; i++) {
+            String[] patient = patientNames[random.nextInt(patients)];
+            String[] doctor = doctorNames[random.nextInt(doctors)];
+            rows[i] = new String[]{patient[0].toLowerCase(Locale.ROOT), patient[1].toLowerCase(Locale.ROOT),
+                    doctor[0].toLowerCase(Locale.ROOT), doctor[1].toLowerCase(Locale.ROOT), "tm-" + i};
+        }
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String name = last[random.nextInt(last.length)].toLowerCase(Locale.ROOT);
+            queries.add(i % 2 == 0 ? name.substring(0, Math.min(4, name.length())) : name);
+        }
+
+        long[] scan = measure(queries, term -> {
+            int matches = 0;
+            for (String[] row : rows) {
+                for (String column : row) {
+                    if (column.contains(term)) {
+                        matches++;
+                        break;
+                    }
+                }
+            }
+            assertThat(matches).isNotNegative();
+        });
+        long[] indexed = measure(queries, term -> {
+            patientIndex.search(term, 1000);
+            doctorIndex.search(term, 1000);
+        });
+
+        System.out.printf("session search over %,d sessions: substring scan p50=%.2fms p99=%.2fms, "
+                        + "index p50=%.3fms p99=%.3fms%n",
+                sessions, percentile(scan, 50), percentile(scan, 99),
+                percentile(indexed, 50), percentile(indexed, 99));
+        assertThat(percentile(indexed, 99)).isLessThan(percentile(scan, 99));
+    }
+
+    private static List<Field> person(String firstName, String lastName, String email) {
+        return List.of(Field.of(firstName, 1.0), Field.of(lastName, 1.0), Field.of(email, 0.6));
+    }
+
+    private static String[] names(Random random, int count) {
+        String[] syllables = {"ka", "mi", "to", "ra", "ne", "lo", "su", "chi", "an", "we", "ja", "mo", "de", "ri"};
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder();
+            int parts = 2 + random.nextInt(3);
+            for (int p = 0; p < parts; p++) name.append(syllables[random.nextInt(syllables.length)]);
+            names[i] = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+        return names;
+    }
+
+    private static long[] measure(List<String> queries, Consumer<String> search) {
+        for (int i = 0; i < 20; i++) search.accept(queries.get(i));
+        long[] nanos = new long[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            search.accept(queries.get(i));
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        int at = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, at)] / 1_000_000.0;
+    }
+}
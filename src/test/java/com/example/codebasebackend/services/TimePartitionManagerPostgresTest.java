@@ -0,0 +1,107 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AuditLog;
+import com.example.codebasebackend.repositories.AuditLogRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Needs a scratch Postgres database, e.g. POSTGRES_TEST_URL=jdbc:postgresql://localhost:5432/hospital_test
+@EnabledIfEnvironmentVariable(named = "POSTGRES_TEST_URL", matches = "jdbc:postgresql:.*")
+@DataJpaTest(properties = {
+        "spring.datasource.url=${POSTGRES_TEST_URL}",
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.datasource.username=${POSTGRES_TEST_USER:postgres}",
+        "spring.datasource.password=${POSTGRES_TEST_PASSWORD:postgres}",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TimePartitionManagerPostgresTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AuditLogRepository auditRepository;
+
+    @Test
+    void convertsPrunesAndDropsMonthlyPartitions() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        YearMonth old = YearMonth.from(now).minusMonths(4);
+        OffsetDateTime oldTime = old.atDay(10).atStartOfDay().atOffset(ZoneOffset.UTC);
+        insertAudit(oldTime);
+        insertAudit(oldTime.plusDays(1));
+        insertAudit(now.minusMinutes(5));
+        TimePartitionManager manager = new TimePartitionManager(jdbcTemplate, transactionManager, true, 2);
+
+        manager.prepare();
+
+        assertThat(manager.isPartitioned(TimePartitionManager.PartitionedTable.AUDIT_LOGS)).isTrue();
+        assertThat(manager.isPartitioned(TimePartitionManager.PartitionedTable.AMBULANCE_TRACKING)).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT relkind::text FROM pg_class WHERE relname = 'audit_logs'", String.class))
+                .isEqualTo("p");
+        assertThat(auditRepository.count()).isEqualTo(3);
+        String oldPartition = "audit_logs_p" + old.format(DateTimeFormatter.ofPattern("yyyyMM"));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + oldPartition, Long.class)).isEqualTo(2);
+        assertThat(partitions("audit_logs")).contains("audit_logs_default",
+                "audit_logs_p" + YearMonth.from(now).plusMonths(2).format(DateTimeFormatter.ofPattern("yyyyMM")));
+
+        // Inserts through JPA still get ids, continuing after the copied rows
+        AuditLog saved = auditRepository.save(AuditLog.builder().eventType(AuditLog.EventType.LOGIN).username("nurse").build());
+        assertThat(saved.getId()).isGreaterThan(3);
+
+        // A range within one month only scans that month's partition
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN SELECT * FROM audit_logs WHERE event_time >= '"
+                + oldTime + "' AND event_time < '" + oldTime.plusDays(5) + "'", String.class));
+        assertThat(plan).contains(oldPartition).doesNotContain("audit_logs_default");
+
+        List<String> dropped = manager.dropPartitionsBefore(TimePartitionManager.PartitionedTable.AUDIT_LOGS,
+                now.minusMonths(1), false);
+        assertThat(dropped).contains(oldPartition);
+        assertThat(auditRepository.count()).isEqualTo(2);
+
+        // Converting again is a no-op
+        manager.prepare();
+        assertThat(auditRepository.count()).isEqualTo(2);
+
+        // A row beyond the partitions lands in the default one, and moves when its month is created
+        YearMonth ahead = YearMonth.from(now).plusMonths(4);
+        insertAudit(ahead.atDay(3).atStartOfDay().atOffset(ZoneOffset.UTC));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_logs_default", Long.class)).isEqualTo(1);
+        new TimePartitionManager(jdbcTemplate, transactionManager, true, 5).prepare();
+        String aheadPartition = "audit_logs_p" + ahead.format(DateTimeFormatter.ofPattern("yyyyMM"));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + aheadPartition, Long.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_logs_default", Long.class)).isZero();
+        assertThat(partitions("audit_logs")).contains("audit_logs_default");
+        assertThat(auditRepository.count()).isEqualTo(3);
+    }
+
+    private void insertAudit(OffsetDateTime eventTime) {
+        jdbcTemplate.update("INSERT INTO audit_logs (event_type, username, event_time, updated_at) VALUES ('READ', 'clerk', ?, ?)",
+                eventTime, eventTime);
+    }
+
+    private List<String> partitions(String table) {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = ?::regclass", String.class, table);
+    }
+}
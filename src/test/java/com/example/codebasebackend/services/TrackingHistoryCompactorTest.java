@@ -0,0 +1,175 @@
+package com.example.codebasebackend.services;
+
+import com.example.codebasebackend.Entities.AmbulanceTrackSegment;
+import com.example.codebasebackend.Entities.Ambulances;
+import com.example.codebasebackend.repositories.AmbulanceRepository;
+import com.example.codebasebackend.repositories.AmbulanceTrackSegmentRepository;
+import com.example.codebasebackend.repositories.AmbulanceTrackingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// YEAR is an H2 keyword but a column of ambulances
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:tracking-compaction;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TrackingHistoryCompactorTest {
+
+    private static final double TOLERANCE_METERS = 10;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AmbulanceRepository ambulanceRepository;
+
+    @Autowired
+    private AmbulanceTrackingRepository trackingRepository;
+
+    @Autowired
+    private AmbulanceTrackSegmentRepository segmentRepository;
+
+    @AfterEach
+    void tearDown() {
+        trackingRepository.deleteAll();
+        segmentRepository.deleteAll();
+        ambulanceRepository.deleteAll();
+    }
+
+    @Test
+    void compactsOldRowsIntoSegmentsThatStayWithinTolerance() {
+        Ambulances ambulance = ambulanceRepository.save(Ambulances.builder()
+                .vehiclePlate("KBX 101")
+                .status(Ambulances.AmbulanceStatus.AVAILABLE)
+                .type(Ambulances.AmbulanceType.BASIC_LIFE_SUPPORT)
+                .year(2021)
+                .capacity(2)
+                .gpsEnabled(true)
+                .build());
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+        // Four hours of pings every 5 s across midnight five days ago, and an hour of recent ones
+        List<TrackPolyline.Fix> old = drive(new Random(1), now.minusDays(5).truncatedTo(ChronoUnit.DAYS).minusHours(2), 2_880);
+        List<TrackPolyline.Fix> recent = drive(new Random(2), now.minusHours(1), 720);
+        insert(ambulance.getId(), old);
+        insert(ambulance.getId(), recent);
+        TrackingHistoryCompactor compactor = new TrackingHistoryCompactor(jdbcTemplate, transactionManager,
+                segmentRepository, new TimePartitionManager(jdbcTemplate, transactionManager, false, 3), 72, TOLERANCE_METERS);
+
+        int removed = compactor.compactBefore(now.minusHours(72));
+
+        assertThat(removed).isEqualTo(old.size());
+        assertThat(trackingRepository.count()).isEqualTo(recent.size());
+        List<AmbulanceTrackSegment> segments = segmentRepository.findOverlapping(ambulance.getId(),
+                now.minusDays(30), now);
+        // One per UTC day
+        assertThat(segments).hasSize(2);
+        assertThat(segments).extracting(AmbulanceTrackSegment::getRawPointCount).containsExactly(1_440, 1_440);
+        int encodedBytes = segments.stream().mapToInt(segment -> segment.getEncodedPoints().length()).sum();
+        assertThat(encodedBytes).isLessThan(old.size());
+
+        List<TrackPolyline.Fix> compacted = new ArrayList<>();
+        for (AmbulanceTrackSegment segment : segments) {
+            compacted.addAll(TrackPolyline.decode(segment.getEncodedPoints(), segment.getStartTime().toEpochSecond()));
+        }
+        // Every original fix is within tolerance (plus encoding precision) of where the compacted track puts
+        // the ambulance at that moment
+        for (TrackPolyline.Fix fix : old) {
+            assertThat(metersFromTrack(compacted, fix)).isLessThan(TOLERANCE_METERS + 1.5);
+        }
+
+        // Nothing left to compact; the latest raw row is never compacted
+        assertThat(compactor.compactBefore(now.minusHours(72))).isZero();
+        assertThat(compactor.compactBefore(now.plusDays(1))).isEqualTo(recent.size() - 1);
+        assertThat(trackingRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void encodesAndDecodesTracks() {
+        List<TrackPolyline.Fix> fixes = List.of(
+                new TrackPolyline.Fix(-1.28639, 36.81722, 1_700_000_000L),
+                new TrackPolyline.Fix(-1.29001, 36.82513, 1_700_000_095L),
+                new TrackPolyline.Fix(38.5, -120.2, 1_700_000_100L),
+                new TrackPolyline.Fix(-1.28639, 36.81722, 1_700_086_400L));
+
+        String encoded = TrackPolyline.encode(fixes, 1_700_000_000L);
+
+        assertThat(TrackPolyline.decode(encoded, 1_700_000_000L)).containsExactlyElementsOf(fixes);
+    }
+
+    // Streets a few hundred metres long at about 10 m/s with occasional stops, and 2-3 m of GPS noise
+    private static List<TrackPolyline.Fix> drive(Random random, OffsetDateTime start, int pings) {
+        List<TrackPolyline.Fix> fixes = new ArrayList<>(pings);
+        double latitude = -1.28;
+        double longitude = 36.80;
+        double heading = 0;
+        int stoppedFor = 0;
+        for (int i = 0; i < pings; i++) {
+            if (i % 60 == 0) heading = random.nextInt(4) * Math.PI / 2;
+            if (stoppedFor > 0) {
+                stoppedFor--;
+            } else if (random.nextInt(200) == 0) {
+                stoppedFor = 24;
+            } else {
+                latitude += Math.cos(heading) * 50 / 111_000;
+                longitude += Math.sin(heading) * 50 / 111_000;
+            }
+            fixes.add(new TrackPolyline.Fix(
+                    round(latitude + random.nextGaussian() * 2 / 111_000),
+                    round(longitude + random.nextGaussian() * 2 / 111_000),
+                    start.plusSeconds(5L * i).toEpochSecond()));
+        }
+        return fixes;
+    }
+
+    private static double round(double degrees) {
+        return BigDecimal.valueOf(degrees).setScale(6, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private void insert(Long ambulanceId, List<TrackPolyline.Fix> fixes) {
+        jdbcTemplate.batchUpdate("INSERT INTO ambulance_tracking (ambulance_id, latitude, longitude, timestamp, is_active) " +
+                "VALUES (?, ?, ?, ?, true)", fixes.stream()
+                .map(fix -> new Object[]{ambulanceId, fix.latitude(), fix.longitude(),
+                        TrackingHistoryCompactor.toTime(fix.epochSecond())})
+                .toList());
+    }
+
+    // Distance to the compacted track's position interpolated at the fix's time
+    private static double metersFromTrack(List<TrackPolyline.Fix> track, TrackPolyline.Fix fix) {
+        int i = 1;
+        while (i < track.size() - 1 && track.get(i).epochSecond() < fix.epochSecond()) i++;
+        TrackPolyline.Fix a = track.get(i - 1);
+        TrackPolyline.Fix b = track.get(i);
+        long span = b.epochSecond() - a.epochSecond();
+        double fraction = span > 0 ? (double) (fix.epochSecond() - a.epochSecond()) / span : 0;
+        double north = (fix.latitude() - (a.latitude() + (b.latitude() - a.latitude()) * fraction)) * 111_195;
+        double east = (fix.longitude() - (a.longitude() + (b.longitude() - a.longitude()) * fraction)) * 111_195
+                * Math.cos(Math.toRadians(fix.latitude()));
+        return Math.sqrt(north * north + east * east);
+    }
+}